@@ -0,0 +1,94 @@
+package io.github.clojang.mcjface.benchmarks;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/** The terms the codec benchmarks run over, from single atoms to maps of 100k entries. */
+public enum Corpus {
+  SMALL_ATOM {
+    @Override
+    Term build() {
+      return Atom.OK;
+    }
+  },
+  SMALL_INT {
+    @Override
+    Term build() {
+      return Number.of(42);
+    }
+  },
+  /** A reply-shaped tuple nested 64 deep, as in records holding records. */
+  NESTED_TUPLES {
+    @Override
+    Term build() {
+      Term term = Atom.UNDEFINED;
+      for (int depth = 0; depth < 64; depth++) {
+        term = Tuple.of(Atom.of("node"), Number.of(depth), term);
+      }
+      return term;
+    }
+  },
+  LARGE_BINARY {
+    @Override
+    Term build() {
+      byte[] bytes = new byte[1 << 20];
+      new Random(SEED).nextBytes(bytes);
+      return Binary.wrap(bytes);
+    }
+  },
+  MAP_10 {
+    @Override
+    Term build() {
+      return map(10);
+    }
+  },
+  MAP_1K {
+    @Override
+    Term build() {
+      return map(1_000);
+    }
+  },
+  MAP_100K {
+    @Override
+    Term build() {
+      return map(100_000);
+    }
+  },
+  /** A proper list of 100k integers, too large for the STRING_EXT form. */
+  LONG_LIST {
+    @Override
+    Term build() {
+      List.Builder list = List.builder(100_000);
+      for (int i = 0; i < 100_000; i++) {
+        list.add(Number.of(i * 7));
+      }
+      return list.build();
+    }
+  },
+  /** An Erlang string of 10k ASCII characters, sent as STRING_EXT. */
+  CHARLIST {
+    @Override
+    Term build() {
+      return List.ofChars("erlang ".repeat(10_000 / 7 + 1).substring(0, 10_000));
+    }
+  };
+
+  private static final long SEED = 0x5EEDL;
+
+  abstract Term build();
+
+  private static Term map(int size) {
+    Map.Builder map = Map.builder(size);
+    for (int i = 0; i < size; i++) {
+      map.put(Number.of(i), Binary.wrap(("value-" + i).getBytes(StandardCharsets.UTF_8)));
+    }
+    return map.build();
+  }
+}
@@ -0,0 +1,57 @@
+package io.github.clojang.mcjface.benchmarks;
+
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpInputStream;
+import io.github.clojang.mcjface.etf.codec.TermDecoder;
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.codec.TermEncoder;
+import io.github.clojang.mcjface.etf.term.Term;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding throughput over the {@link Corpus}, against legacy {@link OtpInputStream}, both reading
+ * the same bytes. Run with {@code -prof gc} for the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+  @Param public Corpus corpus;
+
+  private final TermDecoder decoder = new TermDecoder();
+  private byte[] encoded;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void setUp() throws IOException {
+    encoded = new TermEncoder().encode(corpus.build());
+    buffer = ByteBuffer.wrap(encoded);
+  }
+
+  @Benchmark
+  public Term decode() throws DecodeException {
+    return decoder.decode(buffer, 0).term();
+  }
+
+  @Benchmark
+  public OtpErlangObject legacyDecode() throws OtpErlangDecodeException {
+    return new OtpInputStream(encoded).read_any();
+  }
+}
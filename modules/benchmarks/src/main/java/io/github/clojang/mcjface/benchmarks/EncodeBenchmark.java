@@ -0,0 +1,62 @@
+package io.github.clojang.mcjface.benchmarks;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpOutputStream;
+import io.github.clojang.mcjface.etf.codec.TermEncoder;
+import io.github.clojang.mcjface.etf.term.Term;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding throughput over the {@link Corpus}, against legacy {@link OtpOutputStream}. Run with
+ * {@code -prof gc} for the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeBenchmark {
+  @Param public Corpus corpus;
+
+  private final TermEncoder encoder = new TermEncoder();
+  private Term term;
+  private OtpErlangObject legacy;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void setUp() {
+    term = corpus.build();
+    legacy = LegacyTerms.toLegacy(term);
+    buffer = ByteBuffer.allocate(encoder.encodedSize(term));
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return encoder.encode(term);
+  }
+
+  /** Encodes into a reused buffer, the path the distribution layer takes. */
+  @Benchmark
+  public int encodeInto() {
+    return encoder.encodeInto(term, buffer.clear());
+  }
+
+  @Benchmark
+  public OtpOutputStream legacyEncode() {
+    return new OtpOutputStream(legacy);
+  }
+}
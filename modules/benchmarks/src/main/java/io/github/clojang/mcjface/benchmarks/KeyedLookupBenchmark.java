@@ -0,0 +1,121 @@
+package io.github.clojang.mcjface.benchmarks;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups in routing tables keyed by nested tuples, the shape that made every lookup rehash the
+ * whole key. Probe keys are equal to the table's keys but are separate instances, so each lookup
+ * also compares the key in full.
+ *
+ * <p>The plain benchmarks reuse their probes, whose hash codes are cached after the first pass, as
+ * when a process looks up a key it holds. The {@code FreshKey} ones build each probe anew, as
+ * decoding a key read off the wire does, so they also hash the whole key once; per-call setup adds
+ * some timing overhead of its own, so compare them with each other rather than with the others.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyedLookupBenchmark {
+  private static final int KEYS = 1024;
+
+  /** How many tuples each key is nested in. */
+  @Param({"1", "8", "32"})
+  public int depth;
+
+  private final HashMap<Term, Term> table = new HashMap<>();
+  private final HashMap<OtpErlangObject, Term> legacyTable = new HashMap<>();
+  private Map termTable;
+  private Term[] probes;
+  private OtpErlangObject[] legacyProbes;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    Map.Builder builder = Map.builder(KEYS);
+    probes = new Term[KEYS];
+    legacyProbes = new OtpErlangObject[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      Term key = key(i);
+      table.put(key, Number.of(i));
+      legacyTable.put(LegacyTerms.toLegacy(key), Number.of(i));
+      builder.put(key, Number.of(i));
+      probes[i] = key(i);
+      legacyProbes[i] = LegacyTerms.toLegacy(probes[i]);
+    }
+    termTable = builder.build();
+  }
+
+  private Term key(int index) {
+    Term key = Number.of(index);
+    for (int level = 0; level < depth; level++) {
+      key = Tuple.of(Atom.of("route"), Number.of(level), key);
+    }
+    return key;
+  }
+
+  @Benchmark
+  public Term hashMapGet() {
+    return table.get(probes[next++ & (KEYS - 1)]);
+  }
+
+  @Benchmark
+  public Term termMapGet() {
+    return termTable.getOrDefault(probes[next++ & (KEYS - 1)], null);
+  }
+
+  @Benchmark
+  public Term legacyHashMapGet() {
+    return legacyTable.get(legacyProbes[next++ & (KEYS - 1)]);
+  }
+
+  @Benchmark
+  public Term hashMapGetFreshKey(FreshProbe probe) {
+    return table.get(probe.key);
+  }
+
+  @Benchmark
+  public Term termMapGetFreshKey(FreshProbe probe) {
+    return termTable.getOrDefault(probe.key, null);
+  }
+
+  @Benchmark
+  public Term legacyHashMapGetFreshKey(FreshProbe probe) {
+    return legacyTable.get(probe.legacyKey);
+  }
+
+  /** A probe key built before each call, so none of its hash codes are cached yet. */
+  @State(Scope.Thread)
+  public static class FreshProbe {
+    Term key;
+    OtpErlangObject legacyKey;
+    private int next;
+
+    @Setup(Level.Invocation)
+    public void setUp(KeyedLookupBenchmark benchmark) {
+      key = benchmark.key(next++ & (KEYS - 1));
+      legacyKey = LegacyTerms.toLegacy(key);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package io.github.clojang.mcjface.benchmarks;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangDouble;
+import com.ericsson.otp.erlang.OtpErlangException;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangMap;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+
+/** Converts corpus terms to their legacy JInterface counterparts, for the baseline benchmarks. */
+final class LegacyTerms {
+  private LegacyTerms() {}
+
+  static OtpErlangObject toLegacy(Term term) {
+    return switch (term) {
+      case Atom atom -> new OtpErlangAtom(atom.value());
+      case Number.Integer integer -> new OtpErlangLong(integer.value());
+      case Number.Long value -> new OtpErlangLong(value.value());
+      case Number.BigInteger big -> new OtpErlangLong(big.value());
+      case Number.Double value -> new OtpErlangDouble(value.value());
+      case Binary binary -> new OtpErlangBinary(binary.bytes());
+      case Tuple tuple -> new OtpErlangTuple(toLegacy(tuple.elements()));
+      case List.Bytes chars -> new OtpErlangString(chars.toCharString());
+      case List list -> list(list);
+      case Map map -> {
+        OtpErlangObject[] keys = new OtpErlangObject[map.size()];
+        OtpErlangObject[] values = new OtpErlangObject[map.size()];
+        int i = 0;
+        for (java.util.Map.Entry<Term, Term> entry : map.entrySet()) {
+          keys[i] = toLegacy(entry.getKey());
+          values[i++] = toLegacy(entry.getValue());
+        }
+        yield new OtpErlangMap(keys, values);
+      }
+      default -> throw new IllegalArgumentException("Not in the corpus: " + term);
+    };
+  }
+
+  private static OtpErlangObject[] toLegacy(Term[] terms) {
+    OtpErlangObject[] converted = new OtpErlangObject[terms.length];
+    for (int i = 0; i < terms.length; i++) {
+      converted[i] = toLegacy(terms[i]);
+    }
+    return converted;
+  }
+
+  private static OtpErlangList list(List list) {
+    OtpErlangObject[] elements = toLegacy(list.elements());
+    if (list.isProper()) {
+      return new OtpErlangList(elements);
+    }
+    try {
+      return new OtpErlangList(elements, toLegacy(list.lastTail()));
+    } catch (OtpErlangException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package io.github.clojang.mcjface.benchmarks;
+
+import io.github.clojang.mcjface.etf.bind.Records;
+import io.github.clojang.mcjface.etf.bind.TermBinder;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Binding a record to and from a term through {@link TermBinder}'s handle chains, held in {@code
+ * static final} fields as the JIT needs to inline them, through the binder itself, and through a
+ * plain reflective binder as the baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TermBinderBenchmark {
+  public enum Side {
+    BUY,
+    SELL
+  }
+
+  public record Order(
+      String id, long quantity, double price, Side side, java.util.List<String> tags) {}
+
+  private static final TermBinder<Order> BINDER = TermBinder.of(Order.class);
+  private static final MethodHandle TO_TERM = BINDER.toTermHandle();
+  private static final MethodHandle FROM_TERM = BINDER.fromTermHandle();
+  private static final Reflective REFLECTIVE = new Reflective(Order.class);
+
+  private Order order;
+  private Term term;
+
+  @Setup
+  public void setUp() {
+    order = new Order("ord-1042", 300, 101.25, Side.SELL, java.util.List.of("gtc", "iceberg"));
+    term = BINDER.toTerm(order);
+  }
+
+  @Benchmark
+  public Term handleToTerm() throws Throwable {
+    return (Term) TO_TERM.invokeExact(order);
+  }
+
+  @Benchmark
+  public Term binderToTerm() {
+    return BINDER.toTerm(order);
+  }
+
+  @Benchmark
+  public Term reflectionToTerm() throws ReflectiveOperationException {
+    return REFLECTIVE.toTerm(order);
+  }
+
+  @Benchmark
+  public Order handleFromTerm() throws Throwable {
+    return (Order) FROM_TERM.invokeExact(term);
+  }
+
+  @Benchmark
+  public Order binderFromTerm() {
+    return BINDER.fromTerm(term);
+  }
+
+  @Benchmark
+  public Object reflectionFromTerm() throws ReflectiveOperationException {
+    return REFLECTIVE.fromTerm(term);
+  }
+
+  /**
+   * Binds a record the way a reflective mapper does: accessors and the constructor are called
+   * through {@code java.lang.reflect}, and each component is converted by testing its type.
+   */
+  private static final class Reflective {
+    private final Atom tag;
+    private final Method[] accessors;
+    private final Class<?>[] types;
+    private final Type[] generics;
+    private final Constructor<?> constructor;
+
+    Reflective(Class<?> type) {
+      RecordComponent[] components = type.getRecordComponents();
+      tag = Atom.of(Records.snakeCase(type.getSimpleName()));
+      accessors = new Method[components.length];
+      types = new Class<?>[components.length];
+      generics = new Type[components.length];
+      for (int i = 0; i < components.length; i++) {
+        accessors[i] = components[i].getAccessor();
+        types[i] = components[i].getType();
+        generics[i] = components[i].getGenericType();
+      }
+      try {
+        constructor = type.getDeclaredConstructor(types);
+      } catch (NoSuchMethodException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+
+    Term toTerm(Object value) throws ReflectiveOperationException {
+      Term[] elements = new Term[accessors.length + 1];
+      elements[0] = tag;
+      for (int i = 0; i < accessors.length; i++) {
+        elements[i + 1] = convert(accessors[i].invoke(value));
+      }
+      return Tuple.of(elements);
+    }
+
+    Object fromTerm(Term term) throws ReflectiveOperationException {
+      Tuple tuple = (Tuple) term;
+      Object[] arguments = new Object[types.length];
+      for (int i = 0; i < types.length; i++) {
+        arguments[i] = convert(tuple.get(i + 1), types[i], generics[i]);
+      }
+      return constructor.newInstance(arguments);
+    }
+
+    private static Term convert(Object value) {
+      return switch (value) {
+        case String text -> Binary.wrap(text.getBytes(StandardCharsets.UTF_8));
+        case Long number -> Number.of(number);
+        case Double number -> new Number.Double(number);
+        case Enum<?> constant -> Atom.of(Records.snakeCase(constant.name()));
+        case java.util.List<?> values -> {
+          List.Builder list = List.builder(values.size());
+          for (Object element : values) {
+            list.add(convert(element));
+          }
+          yield list.build();
+        }
+        default -> throw new IllegalArgumentException("Unsupported value: " + value);
+      };
+    }
+
+    private static Object convert(Term term, Class<?> type, Type generic) {
+      if (type == String.class) {
+        return term.toString();
+      }
+      if (type == long.class) {
+        return ((Number) term).longValue();
+      }
+      if (type == double.class) {
+        return ((Number) term).doubleValue();
+      }
+      if (type.isEnum()) {
+        for (Object constant : type.getEnumConstants()) {
+          if (Records.snakeCase(((Enum<?>) constant).name()).equals(((Atom) term).value())) {
+            return constant;
+          }
+        }
+        throw new IllegalArgumentException("No constant for " + term);
+      }
+      if (type == java.util.List.class) {
+        Type element = ((ParameterizedType) generic).getActualTypeArguments()[0];
+        java.util.List<Object> values = new ArrayList<>();
+        for (Term value : (List) term) {
+          values.add(convert(value, (Class<?>) element, element));
+        }
+        return values;
+      }
+      throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+  }
+}
@@ -0,0 +1,461 @@
+package io.github.clojang.mcjface.codegen;
+
+import io.github.clojang.mcjface.etf.bind.ErlangRecord;
+import io.github.clojang.mcjface.etf.bind.Records;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code RecordCodec} for every {@link ErlangRecord} record.
+ *
+ * <p>A codec reads and writes its record through {@code TermReader} and {@code TermWriter}, one
+ * primitive call per component, so no {@code Term} tree is built and no reflection is involved.
+ * Lists, optionals, enums and nested records get a private static helper method each, shared by
+ * every component of the same type. Unsupported component types are reported as compile errors on
+ * the component.
+ */
+@SupportedAnnotationTypes("io.github.clojang.mcjface.etf.bind.ErlangRecord")
+public final class ErlangRecordProcessor extends AbstractProcessor {
+  private static final String ETF = "io.github.clojang.mcjface.etf";
+  private static final String TERM = ETF + ".term.Term";
+  private static final String ATOM = ETF + ".term.Atom";
+  private static final String READER = ETF + ".codec.TermReader";
+  private static final String WRITER = ETF + ".codec.TermWriter";
+  private static final String DECODE_EXCEPTION = ETF + ".codec.TermDecoder.DecodeException";
+  private static final String RECORD_CODEC = ETF + ".bind.RecordCodec";
+  private static final String RECORDS = ETF + ".bind.Records";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    for (Element element : round.getElementsAnnotatedWith(ErlangRecord.class)) {
+      if (element.getKind() != ElementKind.RECORD) {
+        error("@ErlangRecord applies only to records", element);
+      } else if (!((TypeElement) element).getTypeParameters().isEmpty()) {
+        error("@ErlangRecord records cannot be generic", element);
+      } else {
+        generate((TypeElement) element);
+      }
+    }
+    return true;
+  }
+
+  private void generate(TypeElement record) {
+    CodecSource source = new CodecSource(record);
+    if (!source.build()) {
+      return;
+    }
+    try (Writer writer =
+        processingEnv
+            .getFiler()
+            .createSourceFile(source.qualifiedName(), record)
+            .openWriter()) {
+      writer.write(source.toString());
+    } catch (IOException e) {
+      error("Cannot write " + source.qualifiedName() + ": " + e.getMessage(), record);
+    }
+  }
+
+  private void error(String message, Element element) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  /** Returns the name of the codec generated for {@code record}, relative to its package. */
+  private static String codecName(TypeElement record) {
+    StringBuilder name = new StringBuilder(record.getSimpleName());
+    for (Element outer = record.getEnclosingElement();
+        outer instanceof TypeElement type;
+        outer = type.getEnclosingElement()) {
+      name.insert(0, type.getSimpleName() + "_");
+    }
+    return name.append("Codec").toString();
+  }
+
+  /** The source of one codec class. */
+  private final class CodecSource {
+    private final TypeElement record;
+    private final String packageName;
+    private final String simpleName;
+    private final StringBuilder fields = new StringBuilder();
+    private final StringBuilder helpers = new StringBuilder();
+    private final StringBuilder read = new StringBuilder();
+    private final StringBuilder write = new StringBuilder();
+    // Helper method names by the type they read and write
+    private final java.util.Map<String, String> helperNames = new LinkedHashMap<>();
+    private boolean valid = true;
+
+    CodecSource(TypeElement record) {
+      this.record = record;
+      this.packageName = packageOf(record).getQualifiedName().toString();
+      this.simpleName = codecName(record);
+    }
+
+    String qualifiedName() {
+      return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    /** Builds the class body, returning false if any component could not be mapped. */
+    boolean build() {
+      ErlangRecord annotation = record.getAnnotation(ErlangRecord.class);
+      java.util.List<? extends RecordComponentElement> components = record.getRecordComponents();
+      int arity = components.size() + (annotation.tagged() ? 1 : 0);
+      read.append("    in.readTupleHeader(").append(arity).append(");\n");
+      write.append("    out.writeTupleHeader(").append(arity).append(");\n");
+      if (annotation.tagged()) {
+        String tag =
+            annotation.tag().isEmpty()
+                ? Records.snakeCase(record.getSimpleName().toString())
+                : annotation.tag();
+        fields
+            .append("  private static final ")
+            .append(ATOM)
+            .append(" TAG = ")
+            .append(ATOM)
+            .append(".of(\"")
+            .append(escape(tag))
+            .append("\");\n");
+        read.append("    in.readAtom(TAG);\n");
+        write.append("    out.writeAtom(TAG);\n");
+      }
+      StringBuilder arguments = new StringBuilder();
+      for (RecordComponentElement component : components) {
+        String name = component.getSimpleName().toString();
+        TypeMirror type = component.asType();
+        String reader = readExpression(type, component);
+        String writer = writeStatement(type, "value." + name + "()", component);
+        read.append("    ")
+            .append(type)
+            .append(' ')
+            .append(local(name))
+            .append(" = ")
+            .append(reader)
+            .append(";\n");
+        write.append("    ").append(writer).append('\n');
+        arguments.append(arguments.isEmpty() ? "" : ", ").append(local(name));
+      }
+      read.append("    return new ")
+          .append(record.getQualifiedName())
+          .append('(')
+          .append(arguments)
+          .append(");\n");
+      return valid;
+    }
+
+    /** Prefixes component names so they cannot clash with the {@code in} and {@code out} names. */
+    private static String local(String name) {
+      return "_" + name;
+    }
+
+    private String readExpression(TypeMirror type, Element component) {
+      return switch (type.getKind()) {
+        case INT -> "in.readInt()";
+        case LONG -> "in.readLong()";
+        case DOUBLE -> "in.readDouble()";
+        case BOOLEAN -> "in.readBoolean()";
+        case ARRAY ->
+            ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE
+                ? "in.readBinary()"
+                : unsupported(type, component);
+        case DECLARED -> declaredRead((DeclaredType) type, component);
+        default -> unsupported(type, component);
+      };
+    }
+
+    private String declaredRead(DeclaredType type, Element component) {
+      TypeElement element = (TypeElement) type.asElement();
+      String name = element.getQualifiedName().toString();
+      String simple = simpleRead(name);
+      if (simple != null) {
+        return simple;
+      }
+      if (isTerm(type)) {
+        return RECORDS + ".cast(in.readTerm(), " + name + ".class)";
+      }
+      if (element.getKind() == ElementKind.ENUM
+          || element.getAnnotation(ErlangRecord.class) != null
+          || name.equals("java.util.List")
+          || name.equals("java.util.Optional")) {
+        String helper = helper(type, component);
+        return helper == null ? "null" : "read" + helper + "(in)";
+      }
+      return unsupported(type, component);
+    }
+
+    private static String simpleRead(String name) {
+      return switch (name) {
+        case "java.lang.Integer" -> "in.readInt()";
+        case "java.lang.Long" -> "in.readLong()";
+        case "java.lang.Double" -> "in.readDouble()";
+        case "java.lang.Boolean" -> "in.readBoolean()";
+        case "java.lang.String" -> "in.readString()";
+        case ATOM -> "in.readAtom()";
+        case TERM -> "in.readTerm()";
+        default -> null;
+      };
+    }
+
+    /** Returns the statement writing {@code value}, or nothing if its type was already reported. */
+    private String writeStatement(TypeMirror type, String value, Element component) {
+      String method =
+          switch (type.getKind()) {
+            case INT -> "writeInt";
+            case LONG -> "writeLong";
+            case DOUBLE -> "writeDouble";
+            case BOOLEAN -> "writeBoolean";
+            case ARRAY -> "writeBinary";
+            case DECLARED -> simpleWrite((DeclaredType) type);
+            default -> null;
+          };
+      if (method != null) {
+        return "out." + method + "(" + value + ");";
+      }
+      if (type.getKind() != TypeKind.DECLARED) {
+        return "";
+      }
+      String helper = helper((DeclaredType) type, component);
+      return helper == null ? "" : "write" + helper + "(" + value + ", out);";
+    }
+
+    private String simpleWrite(DeclaredType type) {
+      String name = ((TypeElement) type.asElement()).getQualifiedName().toString();
+      return switch (name) {
+        case "java.lang.Integer" -> "writeInt";
+        case "java.lang.Long" -> "writeLong";
+        case "java.lang.Double" -> "writeDouble";
+        case "java.lang.Boolean" -> "writeBoolean";
+        case "java.lang.String" -> "writeString";
+        case ATOM -> "writeAtom";
+        default -> isTerm(type) ? "writeTerm" : null;
+      };
+    }
+
+    /**
+     * Returns the suffix of the read and write helpers for {@code type}, generating them the first
+     * time, or {@code null} if the type is unsupported.
+     */
+    private String helper(DeclaredType type, Element component) {
+      String key = type.toString();
+      String existing = helperNames.get(key);
+      if (existing != null) {
+        return existing;
+      }
+      String suffix = String.valueOf(helperNames.size());
+      helperNames.put(key, suffix);
+      TypeElement element = (TypeElement) type.asElement();
+      String name = element.getQualifiedName().toString();
+      String signature = "  private static " + type + " read" + suffix;
+      StringBuilder readBody = new StringBuilder();
+      StringBuilder writeBody = new StringBuilder();
+      if (element.getKind() == ElementKind.ENUM) {
+        String constants = "ENUM" + suffix;
+        fields
+            .append("  private static final ")
+            .append(name)
+            .append("[] ")
+            .append(constants)
+            .append(" = ")
+            .append(name)
+            .append(".values();\n")
+            .append("  private static final ")
+            .append(ATOM)
+            .append("[] ")
+            .append(constants)
+            .append("_ATOMS = ")
+            .append(RECORDS)
+            .append(".enumAtoms(")
+            .append(constants)
+            .append(");\n");
+        readBody
+            .append("    return ")
+            .append(RECORDS)
+            .append(".enumOf(in.readAtom(), ")
+            .append(constants)
+            .append("_ATOMS, ")
+            .append(constants)
+            .append(");\n");
+        writeBody
+            .append("    out.writeAtom(")
+            .append(constants)
+            .append("_ATOMS[value.ordinal()]);\n");
+      } else if (element.getAnnotation(ErlangRecord.class) != null) {
+        String codec = packageOf(element).getQualifiedName() + "." + codecName(element);
+        readBody.append("    return ").append(codec).append(".INSTANCE.read(in);\n");
+        writeBody.append("    ").append(codec).append(".INSTANCE.write(value, out);\n");
+      } else {
+        if (type.getTypeArguments().size() != 1) {
+          return unsupportedHelper(type, component);
+        }
+        TypeMirror argument = type.getTypeArguments().get(0);
+        if (argument.getKind() != TypeKind.DECLARED) {
+          return unsupportedHelper(type, component);
+        }
+        String elementRead = readExpression(argument, component);
+        String elementWrite = writeStatement(argument, "element", component);
+        if (name.equals("java.util.List")) {
+          readBody
+              .append("    int count = in.readListHeader();\n")
+              .append("    java.util.List<")
+              .append(argument)
+              .append("> list = new java.util.ArrayList<>(count);\n")
+              .append("    for (int i = 0; i < count; i++) {\n")
+              .append("      list.add(")
+              .append(elementRead)
+              .append(");\n")
+              .append("    }\n")
+              .append("    in.readListEnd();\n")
+              .append("    return java.util.Collections.unmodifiableList(list);\n");
+          writeBody
+              .append("    if (value.isEmpty()) {\n")
+              .append("      out.writeNil();\n")
+              .append("      return;\n")
+              .append("    }\n")
+              .append("    out.writeListHeader(value.size());\n")
+              .append("    for (")
+              .append(argument)
+              .append(" element : value) {\n")
+              .append("      ")
+              .append(elementWrite)
+              .append("\n")
+              .append("    }\n")
+              .append("    out.writeNil();\n");
+        } else {
+          readBody
+              .append("    return in.readUndefined() ? java.util.Optional.empty() : ")
+              .append("java.util.Optional.of(")
+              .append(elementRead)
+              .append(");\n");
+          writeBody
+              .append("    if (value.isEmpty()) {\n")
+              .append("      out.writeUndefined();\n")
+              .append("      return;\n")
+              .append("    }\n")
+              .append("    ")
+              .append(argument)
+              .append(" element = value.get();\n")
+              .append("    ")
+              .append(elementWrite)
+              .append('\n');
+        }
+      }
+      helpers
+          .append('\n')
+          .append(signature)
+          .append("(")
+          .append(READER)
+          .append(" in)\n      throws ")
+          .append(DECODE_EXCEPTION)
+          .append(" {\n")
+          .append(readBody)
+          .append("  }\n\n")
+          .append("  private static void write")
+          .append(suffix)
+          .append('(')
+          .append(type)
+          .append(" value, ")
+          .append(WRITER)
+          .append(" out) {\n")
+          .append(writeBody)
+          .append("  }\n");
+      return suffix;
+    }
+
+    private boolean isTerm(DeclaredType type) {
+      TypeMirror term = processingEnv.getElementUtils().getTypeElement(TERM).asType();
+      return processingEnv.getTypeUtils().isAssignable(type, term);
+    }
+
+    private String unsupported(TypeMirror type, Element component) {
+      error("Unsupported @ErlangRecord component type: " + type, component);
+      valid = false;
+      return "null";
+    }
+
+    private String unsupportedHelper(TypeMirror type, Element component) {
+      unsupported(type, component);
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      String recordName = record.getQualifiedName().toString();
+      boolean isPublic = record.getModifiers().contains(Modifier.PUBLIC);
+      StringBuilder source = new StringBuilder();
+      if (!packageName.isEmpty()) {
+        source.append("package ").append(packageName).append(";\n\n");
+      }
+      source
+          .append("@javax.annotation.processing.Generated(\"")
+          .append(ErlangRecordProcessor.class.getName())
+          .append("\")\n")
+          .append(isPublic ? "public " : "")
+          .append("final class ")
+          .append(simpleName)
+          .append(" implements ")
+          .append(RECORD_CODEC)
+          .append('<')
+          .append(recordName)
+          .append("> {\n")
+          .append("  public static final ")
+          .append(simpleName)
+          .append(" INSTANCE = new ")
+          .append(simpleName)
+          .append("();\n")
+          .append(fields)
+          .append("\n  private ")
+          .append(simpleName)
+          .append("() {}\n\n")
+          .append("  @Override\n  public ")
+          .append(recordName)
+          .append(" read(")
+          .append(READER)
+          .append(" in)\n      throws ")
+          .append(DECODE_EXCEPTION)
+          .append(" {\n")
+          .append(read)
+          .append("  }\n\n")
+          .append("  @Override\n  public void write(")
+          .append(recordName)
+          .append(" value, ")
+          .append(WRITER)
+          .append(" out) {\n")
+          .append(write)
+          .append("  }\n")
+          .append(helpers)
+          .append("}\n");
+      return source.toString();
+    }
+  }
+
+  private static PackageElement packageOf(Element element) {
+    Element current = element;
+    while (!(current instanceof PackageElement)) {
+      current = current.getEnclosingElement();
+    }
+    return (PackageElement) current;
+  }
+
+  private static String escape(String text) {
+    return text.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+}
@@ -0,0 +1,376 @@
+package io.github.clojang.mcjface.codegen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.clojang.mcjface.etf.bind.RecordCodec;
+import io.github.clojang.mcjface.etf.codec.TermDecoder;
+import io.github.clojang.mcjface.etf.codec.TermEncoder;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.net.URI;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compiles sample {@code @ErlangRecord} records with {@link ErlangRecordProcessor} and checks the
+ * generated codecs against {@link TermEncoder} and {@link TermDecoder}.
+ */
+public class ErlangRecordProcessorTest {
+  private static final String POINT =
+      """
+      package sample;
+
+      import io.github.clojang.mcjface.etf.bind.ErlangRecord;
+
+      @ErlangRecord(tagged = false)
+      public record Point(int x, int y) {}
+      """;
+
+  private static final String LINE =
+      """
+      package sample;
+
+      import io.github.clojang.mcjface.etf.bind.ErlangRecord;
+      import java.util.Optional;
+
+      @ErlangRecord(tag = "order_line")
+      public record Line(String sku, Integer count, Optional<Point> at) {}
+      """;
+
+  private static final String ORDER =
+      """
+      package sample;
+
+      import io.github.clojang.mcjface.etf.bind.ErlangRecord;
+      import io.github.clojang.mcjface.etf.term.Atom;
+      import io.github.clojang.mcjface.etf.term.Term;
+      import io.github.clojang.mcjface.etf.term.Tuple;
+      import java.util.List;
+      import java.util.Optional;
+
+      @ErlangRecord
+      public record Order(
+          String id,
+          long quantity,
+          double price,
+          Side side,
+          Optional<String> note,
+          List<Line> lines,
+          List<Side> history,
+          byte[] payload,
+          Point origin,
+          boolean urgent,
+          Atom venue,
+          Term extra) {
+        public enum Side {
+          BUY,
+          SELL_SHORT
+        }
+
+        public static Order full() {
+          return new Order(
+              "ord-1",
+              1L << 40,
+              101.25,
+              Side.SELL_SHORT,
+              Optional.of("rush"),
+              List.of(
+                  new Line("sku-1", 2, Optional.empty()),
+                  new Line("sku-2", 1, Optional.of(new Point(3, 4)))),
+              List.of(Side.BUY, Side.SELL_SHORT),
+              new byte[] {1, 2, 3},
+              new Point(-1, 70000),
+              true,
+              Atom.of("lse"),
+              Tuple.of(Atom.OK));
+        }
+
+        public static Order empty() {
+          return new Order(
+              "",
+              0,
+              0.0,
+              Side.BUY,
+              Optional.empty(),
+              List.of(),
+              List.of(),
+              new byte[0],
+              new Point(0, 0),
+              false,
+              Atom.UNDEFINED,
+              Atom.NIL);
+        }
+      }
+      """;
+
+  private static final String NESTED =
+      """
+      package sample;
+
+      import io.github.clojang.mcjface.etf.bind.ErlangRecord;
+
+      public final class Shapes {
+        private Shapes() {}
+
+        @ErlangRecord
+        public record Circle(Point center, double radius) {}
+      }
+      """;
+
+  @TempDir Path output;
+
+  @Test
+  void testTaggedRecordsRoundTrip() throws Exception {
+    ClassLoader loader = compile(POINT, LINE, ORDER);
+    RecordCodec<Object> codec = codec(loader, "sample.OrderCodec");
+    Class<?> order = loader.loadClass("sample.Order");
+
+    Term full =
+        Tuple.of(
+            Atom.of("order"),
+            binary("ord-1"),
+            Number.of(1L << 40),
+            new Number.Double(101.25),
+            Atom.of("sell_short"),
+            binary("rush"),
+            List.of(
+                Tuple.of(Atom.of("order_line"), binary("sku-1"), Number.of(2), Atom.UNDEFINED),
+                Tuple.of(
+                    Atom.of("order_line"),
+                    binary("sku-2"),
+                    Number.of(1),
+                    Tuple.of(Number.of(3), Number.of(4)))),
+            List.of(Atom.of("buy"), Atom.of("sell_short")),
+            Binary.wrap(new byte[] {1, 2, 3}),
+            Tuple.of(Number.of(-1), Number.of(70000)),
+            Atom.TRUE,
+            Atom.of("lse"),
+            Tuple.of(Atom.OK));
+    assertRoundTrip(codec, order.getMethod("full").invoke(null), full);
+
+    Term empty =
+        Tuple.of(
+            Atom.of("order"),
+            binary(""),
+            Number.of(0),
+            new Number.Double(0.0),
+            Atom.of("buy"),
+            Atom.UNDEFINED,
+            List.empty(),
+            List.empty(),
+            Binary.wrap(new byte[0]),
+            Tuple.of(Number.of(0), Number.of(0)),
+            Atom.FALSE,
+            Atom.UNDEFINED,
+            Atom.NIL);
+    assertRoundTrip(codec, order.getMethod("empty").invoke(null), empty);
+  }
+
+  @Test
+  void testUntaggedRecordRoundTrips() throws Exception {
+    ClassLoader loader = compile(POINT);
+    RecordCodec<Object> codec = codec(loader, "sample.PointCodec");
+    Object point =
+        loader.loadClass("sample.Point").getConstructor(int.class, int.class).newInstance(5, -6);
+
+    assertRoundTrip(codec, point, Tuple.of(Number.of(5), Number.of(-6)));
+  }
+
+  @Test
+  void testRecordNestedInAClass() throws Exception {
+    ClassLoader loader = compile(POINT, NESTED);
+    RecordCodec<Object> codec = codec(loader, "sample.Shapes_CircleCodec");
+    Object center =
+        loader.loadClass("sample.Point").getConstructor(int.class, int.class).newInstance(1, 2);
+    Object circle =
+        loader
+            .loadClass("sample.Shapes$Circle")
+            .getConstructor(center.getClass(), double.class)
+            .newInstance(center, 0.5);
+
+    assertRoundTrip(
+        codec,
+        circle,
+        Tuple.of(Atom.of("circle"), Tuple.of(Number.of(1), Number.of(2)), new Number.Double(0.5)));
+  }
+
+  @Test
+  void testDecodingRejectsTheWrongTag() throws Exception {
+    RecordCodec<Object> codec = codec(compile(POINT, LINE), "sample.LineCodec");
+    byte[] encoded =
+        new TermEncoder()
+            .encode(Tuple.of(Atom.of("line"), binary("sku"), Number.of(1), Atom.UNDEFINED));
+
+    assertThatThrownBy(() -> codec.decode(encoded))
+        .isInstanceOf(TermDecoder.DecodeException.class);
+  }
+
+  @Test
+  void testUnsupportedComponentTypesAreCompileErrors() throws Exception {
+    String bad =
+        """
+        package sample;
+
+        import io.github.clojang.mcjface.etf.bind.ErlangRecord;
+
+        @ErlangRecord
+        public record Bad(
+            java.util.Map<String, String> map,
+            Object any,
+            char letter,
+            java.util.List<int[]> arrays,
+            java.util.Set<String> set) {}
+        """;
+
+    java.util.List<String> errors = errors(bad);
+
+    for (String type :
+        new String[] {
+          "java.util.Map<java.lang.String,java.lang.String>",
+          "java.lang.Object",
+          "char",
+          "java.util.List<int[]>",
+          "java.util.Set<java.lang.String>"
+        }) {
+      assertThat(errors.stream().anyMatch(e -> e.endsWith("component type: " + type)))
+          .as("error for %s in %s", type, errors)
+          .isTrue();
+    }
+    assertThat(errors.stream().allMatch(e -> e.startsWith("Unsupported @ErlangRecord")))
+        .as("%s", errors)
+        .isTrue();
+  }
+
+  @Test
+  void testOnlyNonGenericRecordsAreAccepted() throws Exception {
+    String notRecord =
+        """
+        package sample;
+
+        @io.github.clojang.mcjface.etf.bind.ErlangRecord
+        public final class NotRecord {}
+        """;
+    String generic =
+        """
+        package sample;
+
+        @io.github.clojang.mcjface.etf.bind.ErlangRecord
+        public record Box<T>(T value) {}
+        """;
+
+    assertThat(errors(notRecord))
+        .isEqualTo(java.util.List.of("@ErlangRecord applies only to records"));
+    assertThat(errors(generic))
+        .isEqualTo(java.util.List.of("@ErlangRecord records cannot be generic"));
+  }
+
+  /**
+   * Checks that the codec writes {@code value} as the encoder writes {@code term}, and reads it
+   * back from those bytes into a value that writes the same bytes again.
+   */
+  private static void assertRoundTrip(RecordCodec<Object> codec, Object value, Term term)
+      throws Exception {
+    byte[] expected = new TermEncoder().encode(term);
+    byte[] encoded = codec.encode(value);
+
+    assertThat(encoded).isEqualTo(expected);
+    assertThat(new TermDecoder().decode(encoded)).isEqualTo(term);
+    Object decoded = codec.decode(expected);
+    assertThat(codec.encode(decoded)).isEqualTo(expected);
+    for (var component : value.getClass().getRecordComponents()) {
+      Object original = component.getAccessor().invoke(value);
+      Object read = component.getAccessor().invoke(decoded);
+      assertThat(Arrays.deepEquals(new Object[] {original}, new Object[] {read}))
+          .as("%s of %s", component.getName(), value.getClass().getSimpleName())
+          .isTrue();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static RecordCodec<Object> codec(ClassLoader loader, String name) throws Exception {
+    return (RecordCodec<Object>) loader.loadClass(name).getField("INSTANCE").get(null);
+  }
+
+  private static Term binary(String text) {
+    return Binary.wrap(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Compiles {@code sources} with the processor and returns a loader for the classes. */
+  private ClassLoader compile(String... sources) throws Exception {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    boolean compiled = run(diagnostics, sources);
+    assertThat(compiled).as("%s", diagnostics.getDiagnostics()).isTrue();
+    return new URLClassLoader(
+        new java.net.URL[] {output.toUri().toURL()}, getClass().getClassLoader());
+  }
+
+  /** Compiles {@code sources}, which must fail, and returns the messages of the errors. */
+  private java.util.List<String> errors(String... sources) {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    assertThat(run(diagnostics, sources)).isFalse();
+    java.util.List<String> errors = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors.add(diagnostic.getMessage(null));
+      }
+    }
+    return errors;
+  }
+
+  private boolean run(DiagnosticCollector<JavaFileObject> diagnostics, String... sources) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    java.util.List<JavaFileObject> units = new ArrayList<>();
+    for (String source : sources) {
+      units.add(new Source(source));
+    }
+    JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            diagnostics,
+            java.util.List.of(
+                "-d", output.toString(), "-classpath", System.getProperty("java.class.path")),
+            null,
+            units);
+    task.setProcessors(java.util.List.of(new ErlangRecordProcessor()));
+    return task.call();
+  }
+
+  /** An in-memory source file, named after its package and first public type. */
+  private static final class Source extends SimpleJavaFileObject {
+    private final String code;
+
+    Source(String code) {
+      super(URI.create("string:///" + path(code)), Kind.SOURCE);
+      this.code = code;
+    }
+
+    private static String path(String code) {
+      String packageName = code.replaceAll("(?s).*?package ([\\w.]+);.*", "$1");
+      String typeName =
+          code.replaceAll("(?s).*?public (?:final )?(?:class|record) (\\w+).*", "$1");
+      return packageName.replace('.', '/') + "/" + typeName + Kind.SOURCE.extension;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return code;
+    }
+  }
+}
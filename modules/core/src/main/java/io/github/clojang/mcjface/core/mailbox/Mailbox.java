@@ -1,6 +1,7 @@
 package io.github.clojang.mcjface.core.mailbox;
 
 import io.github.clojang.mcjface.core.process.ProcessId;
+import io.github.clojang.mcjface.etf.match.Matcher;
 import io.github.clojang.mcjface.etf.term.Term;
 import java.time.Duration;
 import java.util.HashSet;
@@ -15,6 +16,8 @@ public final class Mailbox implements AutoCloseable {
   private final BlockingQueue<Message> messages;
   private final Set<ProcessId> links;
   private final Set<ProcessId> monitors;
+  private final Object arrivals = new Object();
+  private long delivered;
 
   public Mailbox(ProcessId owner) {
     this.owner = owner;
@@ -40,12 +43,71 @@ public final class Mailbox implements AutoCloseable {
         });
   }
 
+  /**
+   * Receives the first queued message that one of {@code clauses} matches, waiting for one to
+   * arrive if need be, and leaves the others queued in order, like a selective {@code receive}.
+   * Each message is tested against the compiled clauses at once rather than pattern by pattern. A
+   * matching message is taken off the queue before the clause's action runs with the message as its
+   * argument, so it is handled once even when other receivers are draining the mailbox.
+   *
+   * @return a future of the action's result, or of null if the timeout elapses first; the future
+   *     fails if the action throws or returns null
+   */
+  public <R> CompletableFuture<R> receive(Matcher<? super Message, R> clauses, Duration timeout) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          long deadline = System.nanoTime() + saturatedNanos(timeout);
+          try {
+            while (true) {
+              long seen;
+              synchronized (arrivals) {
+                seen = delivered;
+              }
+              for (Message message : messages) {
+                Matcher.Match<? super Message, R> match = clauses.select(message.content());
+                // A concurrent receive may have taken the message since it was matched
+                if (match != null && messages.remove(message)) {
+                  return match.run(message);
+                }
+              }
+              synchronized (arrivals) {
+                while (delivered == seen) {
+                  long remaining = deadline - System.nanoTime();
+                  if (remaining <= 0) {
+                    return null;
+                  }
+                  arrivals.wait(Math.max(1, remaining / 1_000_000));
+                }
+              }
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+          }
+        });
+  }
+
+  private static long saturatedNanos(Duration timeout) {
+    try {
+      return Math.min(timeout.toNanos(), Long.MAX_VALUE / 2);
+    } catch (ArithmeticException e) {
+      return Long.MAX_VALUE / 2;
+    }
+  }
+
   public void send(ProcessId to, Term message) {
     // Stub implementation
   }
 
   public boolean deliver(Message message) {
-    return messages.offer(message);
+    if (!messages.offer(message)) {
+      return false;
+    }
+    synchronized (arrivals) {
+      delivered++;
+      arrivals.notifyAll();
+    }
+    return true;
   }
 
   public ProcessId getOwner() {
@@ -0,0 +1,134 @@
+package io.github.clojang.mcjface.core.mailbox;
+
+import static io.github.clojang.mcjface.etf.match.TermPattern.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.clojang.mcjface.core.mailbox.Mailbox.Message;
+import io.github.clojang.mcjface.core.process.ProcessId;
+import io.github.clojang.mcjface.etf.match.Matcher;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.Test;
+
+/** Checks the selective {@link Mailbox#receive(Matcher, Duration)}. */
+public class MailboxTest {
+  private static final ProcessId OWNER = new ProcessId("node@host", 1, 0, 1);
+  private static final ProcessId SENDER = new ProcessId("node@host", 2, 0, 1);
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private static Message message(Term content) {
+    return new Message(SENDER, OWNER, content);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  void testReceiveSkipsMessagesThatDoNotMatch() throws Exception {
+    Matcher<Message, Term> replies =
+        Matcher.<Message, Term>builder()
+            .when(tuple(atom("reply"), var("X")), (bindings, message) -> bindings.get("X"))
+            .build();
+    try (Mailbox mailbox = new Mailbox(OWNER)) {
+      mailbox.deliver(message(Atom.of("noise")));
+      mailbox.deliver(message(Tuple.of(Atom.of("reply"), Number.of(1))));
+      assertThat(mailbox.receive(replies, TIMEOUT).get()).isEqualTo(Number.of(1));
+
+      // A message that arrives while waiting is matched too
+      CompletableFuture<Term> waiting = mailbox.receive(replies, TIMEOUT);
+      mailbox.deliver(message(Tuple.of(Atom.of("reply"), Number.of(2))));
+      assertThat(waiting.get()).isEqualTo(Number.of(2));
+
+      assertThat(mailbox.receive(replies, Duration.ofMillis(10)).get()).isNull();
+      assertThat(mailbox.receive(TIMEOUT).get()).isEqualTo(Atom.of("noise"));
+    }
+  }
+
+  @Test
+  void testConcurrentReceivesCompeteForOneMessage() throws Exception {
+    for (int round = 0; round < 20; round++) {
+      AtomicIntegerArray runs = new AtomicIntegerArray(1);
+      Matcher<Message, Term> any =
+          Matcher.<Message, Term>builder()
+              .when(
+                  var("X"),
+                  (bindings, message) -> {
+                    runs.incrementAndGet(0);
+                    // Give the other receive time to find the message too
+                    sleep(5);
+                    return bindings.get("X");
+                  })
+              .build();
+      try (Mailbox mailbox = new Mailbox(OWNER)) {
+        mailbox.deliver(message(Atom.OK));
+        CompletableFuture<Term> first = mailbox.receive(any, Duration.ofMillis(50));
+        CompletableFuture<Term> second = mailbox.receive(any, Duration.ofMillis(50));
+
+        Term a = first.get(10, TimeUnit.SECONDS);
+        Term b = second.get(10, TimeUnit.SECONDS);
+        assertThat(a == null ^ b == null).as("one receive wins in round %d", round).isTrue();
+        assertThat(runs.get(0)).isEqualTo(1);
+      }
+    }
+  }
+
+  @Test
+  void testEveryMessageIsHandledOnce() throws Exception {
+    int count = 500;
+    AtomicIntegerArray runs = new AtomicIntegerArray(count);
+    Matcher<Message, Term> numbers =
+        Matcher.<Message, Term>builder()
+            .when(
+                var("N", Number.class),
+                (bindings, message) -> {
+                  runs.incrementAndGet(((Number) bindings.get("N")).intValue());
+                  return bindings.get("N");
+                })
+            .build();
+    try (Mailbox mailbox = new Mailbox(OWNER)) {
+      for (int i = 0; i < count; i++) {
+        mailbox.deliver(message(Number.of(i)));
+      }
+      java.util.List<CompletableFuture<Term>> receives = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        receives.add(mailbox.receive(numbers, TIMEOUT));
+      }
+      for (CompletableFuture<Term> receive : receives) {
+        assertThat(receive.get()).isNotNull();
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      assertThat(runs.get(i)).as("runs of message %d", i).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void testActionReturningNullFailsTheReceive() throws Exception {
+    Matcher<Message, Term> nulls =
+        Matcher.<Message, Term>builder().when(any(), (bindings, message) -> null).build();
+    try (Mailbox mailbox = new Mailbox(OWNER)) {
+      mailbox.deliver(message(Atom.OK));
+      CompletableFuture<Term> receive = mailbox.receive(nulls, TIMEOUT);
+
+      assertThatThrownBy(receive::get)
+          .isInstanceOf(ExecutionException.class)
+          .hasCauseInstanceOf(NullPointerException.class);
+      // The message was claimed before the action ran
+      assertThat(mailbox.receive(nulls, Duration.ofMillis(10)).get()).isNull();
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package io.github.clojang.mcjface.etf.bind;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a Java record as the counterpart of an Erlang record, a tuple whose first element is a tag
+ * atom followed by one element per record component, in declaration order.
+ *
+ * <p>The {@code codegen} annotation processor generates a {@link RecordCodec} named after the
+ * record with a {@code Codec} suffix, in the same package, which reads and writes the record
+ * directly from and to encoded bytes. Components may be primitives or their boxes, {@code String}
+ * (a UTF-8 binary, or a charlist when reading), {@code byte[]} (a binary), {@code Atom}, any {@code
+ * Term} type, enums (atoms of their constants' names in snake case), other {@code @ErlangRecord}
+ * records, {@code java.util.List}s of supported types, and {@code Optional}s of supported types,
+ * which are written as {@code undefined} when empty.
+ *
+ * <p>{@link TermBinder} reads the annotation too, at run time, for records and classes it binds.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ErlangRecord {
+  /** The tag atom; by default the record's simple name in snake case. */
+  String tag() default "";
+
+  /** Whether the tuple starts with a tag atom at all. */
+  boolean tagged() default true;
+}
@@ -0,0 +1,35 @@
+package io.github.clojang.mcjface.etf.bind;
+
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.codec.TermReader;
+import io.github.clojang.mcjface.etf.codec.TermWriter;
+
+/**
+ * Reads and writes values of one type directly from and to encoded terms, without an intermediate
+ * {@code Term} tree. Implementations are generated for {@link ErlangRecord} records and are
+ * stateless and thread-safe.
+ */
+public interface RecordCodec<T> {
+
+  /** Reads one value, consuming exactly its term. */
+  T read(TermReader in) throws DecodeException;
+
+  /** Writes {@code value} as one term. */
+  void write(T value, TermWriter out);
+
+  /** Decodes a value from a complete versioned term. */
+  default T decode(byte[] data) throws DecodeException {
+    TermReader in = TermReader.of(data);
+    T value = read(in);
+    in.requireEnd();
+    return value;
+  }
+
+  /** Encodes {@code value} as a complete versioned term. */
+  default byte[] encode(T value) {
+    TermWriter out = new TermWriter();
+    out.writeVersion();
+    write(value, out);
+    return out.toByteArray();
+  }
+}
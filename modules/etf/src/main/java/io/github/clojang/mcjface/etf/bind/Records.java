@@ -0,0 +1,60 @@
+package io.github.clojang.mcjface.etf.bind;
+
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Term;
+
+/** Naming conventions and conversions shared by generated and runtime record bindings. */
+public final class Records {
+
+  private Records() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Returns {@code name} in snake case, the Erlang spelling of Java type and constant names: {@code
+   * HttpRequest}, {@code HTTPRequest} and {@code HTTP_REQUEST} all become {@code http_request}.
+   */
+  public static String snakeCase(String name) {
+    StringBuilder snake = new StringBuilder(name.length() + 4);
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (Character.isUpperCase(c) && i > 0 && name.charAt(i - 1) != '_') {
+        char previous = name.charAt(i - 1);
+        boolean nextLower = i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1));
+        if (!Character.isUpperCase(previous) || nextLower) {
+          snake.append('_');
+        }
+      }
+      snake.append(Character.toLowerCase(c));
+    }
+    return snake.toString();
+  }
+
+  /** Returns the atoms for the constants of an enum, indexed by ordinal. */
+  public static Atom[] enumAtoms(Enum<?>[] constants) {
+    Atom[] atoms = new Atom[constants.length];
+    for (int i = 0; i < constants.length; i++) {
+      atoms[i] = Atom.of(snakeCase(constants[i].name()));
+    }
+    return atoms;
+  }
+
+  /** Returns the constant whose atom is {@code atom}, given the arrays of enumAtoms and values. */
+  public static <E> E enumOf(Atom atom, Atom[] atoms, E[] constants) throws DecodeException {
+    for (int i = 0; i < atoms.length; i++) {
+      if (atoms[i] == atom) {
+        return constants[i];
+      }
+    }
+    throw new DecodeException("No enum constant for atom " + atom.value());
+  }
+
+  /** Casts a decoded term to the type a binding expects. */
+  public static <T extends Term> T cast(Term term, Class<T> type) throws DecodeException {
+    if (!type.isInstance(term)) {
+      throw new DecodeException("Expected " + type.getSimpleName() + ", got " + term);
+    }
+    return type.cast(term);
+  }
+}
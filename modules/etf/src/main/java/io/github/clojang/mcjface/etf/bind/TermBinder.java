@@ -0,0 +1,600 @@
+package io.github.clojang.mcjface.etf.bind;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Converts between terms and Java objects at run time through cached {@link MethodHandle} chains,
+ * for code that cannot use the generated {@link RecordCodec}s. Hot code should keep {@link
+ * #toTermHandle()} and {@link #fromTermHandle()} in {@code static final} fields, where the JIT can
+ * inline them.
+ *
+ * <p>Records map to tuples of their components, and other classes with a no-argument constructor to
+ * tuples of their non-static, non-transient fields, tagged as described by {@link ErlangRecord}.
+ * Components map as in generated codecs, with {@code java.util.Map} to a map and other classes to
+ * nested tuples. Null values, components and elements are rejected with an {@link
+ * IllegalArgumentException}, as are terms of the wrong shape; {@code Optional} stands for an absent
+ * component.
+ */
+public final class TermBinder<T> {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final ClassValue<TermBinder<?>> BINDERS =
+      new ClassValue<>() {
+        @Override
+        protected TermBinder<?> computeValue(Class<?> type) {
+          return new TermBinder<>(type);
+        }
+      };
+
+  // Types whose binders are being built on this thread, to break cycles between types
+  private static final ThreadLocal<Set<Class<?>>> BUILDING = ThreadLocal.withInitial(HashSet::new);
+
+  private final Class<T> type;
+  private final MethodHandle to; // (T)Term
+  private final MethodHandle from; // (Term)T
+  private final MethodHandle toTerm; // (Object)Term
+  private final MethodHandle fromTerm; // (Term)Object
+
+  private TermBinder(Class<T> type) {
+    this.type = type;
+    Set<Class<?>> building = BUILDING.get();
+    building.add(type);
+    try {
+      Binding binding = bind(type, type, true);
+      this.to = binding.to();
+      this.from = binding.from();
+      this.toTerm = to.asType(methodType(Term.class, Object.class));
+      this.fromTerm = from.asType(methodType(Object.class, Term.class));
+    } finally {
+      building.remove(type);
+    }
+  }
+
+  /**
+   * Returns the binder for {@code type}, building it on first use.
+   *
+   * @throws IllegalArgumentException if the type or one of its components cannot be bound
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> TermBinder<T> of(Class<T> type) {
+    return (TermBinder<T>) BINDERS.get(type);
+  }
+
+  public Class<T> type() {
+    return type;
+  }
+
+  /**
+   * Returns the handle converting a value to a term, of type {@code (T)Term} with {@code T} the
+   * bound class, which may be primitive.
+   */
+  public MethodHandle toTermHandle() {
+    return to;
+  }
+
+  /**
+   * Returns the handle converting a term to a value, of type {@code (Term)T}, which throws an
+   * {@link IllegalArgumentException} for terms of the wrong shape.
+   */
+  public MethodHandle fromTermHandle() {
+    return from;
+  }
+
+  public Term toTerm(T value) {
+    requireNonNull(type.getSimpleName(), value);
+    try {
+      return (Term) toTerm.invokeExact((Object) value);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Binding " + type.getName() + " failed", e);
+    }
+  }
+
+  /**
+   * Converts {@code term} to the bound type.
+   *
+   * @throws IllegalArgumentException if the term does not have the expected shape
+   */
+  @SuppressWarnings("unchecked")
+  public T fromTerm(Term term) {
+    try {
+      // Unchecked, as T is the box of a primitive type
+      return (T) (Object) fromTerm.invokeExact(term);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Binding " + type.getName() + " failed", e);
+    }
+  }
+
+  /** Handles converting one Java type: {@code (C)Term} and {@code (Term)C}. */
+  private record Binding(MethodHandle to, MethodHandle from) {}
+
+  private static Binding bind(Class<?> raw, Type generic, boolean root) {
+    try {
+      return bindChecked(raw, generic, root);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Cannot bind " + generic.getTypeName(), e);
+    }
+  }
+
+  private static Binding bindChecked(Class<?> raw, Type generic, boolean root)
+      throws ReflectiveOperationException {
+    Binding scalar = scalar(raw);
+    if (scalar != null) {
+      return scalar;
+    }
+    if (Term.class.isAssignableFrom(raw) || raw == Object.class) {
+      return new Binding(
+          find("objectToTerm", Term.class, Object.class).asType(methodType(Term.class, raw)),
+          MethodHandles.insertArguments(
+                  find("termToObject", Object.class, Class.class, Term.class), 0, raw)
+              .asType(methodType(raw, Term.class)));
+    }
+    if (raw.isEnum()) {
+      Object[] constants = raw.getEnumConstants();
+      Atom[] atoms = Records.enumAtoms((Enum<?>[]) constants);
+      return new Binding(
+          MethodHandles.insertArguments(
+                  find("enumToTerm", Term.class, Atom[].class, Enum.class), 0, (Object) atoms)
+              .asType(methodType(Term.class, raw)),
+          MethodHandles.insertArguments(
+                  find("termToEnum", Object.class, Atom[].class, Object[].class, Term.class),
+                  0,
+                  atoms,
+                  constants)
+              .asType(methodType(raw, Term.class)));
+    }
+    if (raw == java.util.List.class || raw == Optional.class) {
+      Binding element = generic(argument(generic, 0));
+      String name = raw.getSimpleName();
+      return new Binding(
+          MethodHandles.insertArguments(
+              find("to" + name + "Term", Term.class, MethodHandle.class, raw), 0, element.to()),
+          MethodHandles.insertArguments(
+              find("termTo" + name, raw, MethodHandle.class, Term.class), 0, element.from()));
+    }
+    if (raw == java.util.Map.class) {
+      Binding key = generic(argument(generic, 0));
+      Binding value = generic(argument(generic, 1));
+      return new Binding(
+          MethodHandles.insertArguments(
+              find(
+                  "toMapTerm",
+                  Term.class,
+                  MethodHandle.class,
+                  MethodHandle.class,
+                  java.util.Map.class),
+              0,
+              key.to(),
+              value.to()),
+          MethodHandles.insertArguments(
+              find(
+                  "termToMap",
+                  java.util.Map.class,
+                  MethodHandle.class,
+                  MethodHandle.class,
+                  Term.class),
+              0,
+              key.from(),
+              value.from()));
+    }
+    if (!root) {
+      if (BUILDING.get().contains(raw)) {
+        // A type that contains itself resolves its own binder when it is first used
+        return new Binding(
+            MethodHandles.insertArguments(
+                    find("lazyToTerm", Term.class, Class.class, Object.class), 0, raw)
+                .asType(methodType(Term.class, raw)),
+            MethodHandles.insertArguments(
+                    find("lazyFromTerm", Object.class, Class.class, Term.class), 0, raw)
+                .asType(methodType(raw, Term.class)));
+      }
+      TermBinder<?> nested = of(raw);
+      return new Binding(nested.to, nested.from);
+    }
+    return raw.isRecord() ? record(raw) : pojo(raw);
+  }
+
+  /** Binds a type argument, treating unknown element types as terms. */
+  private static Binding generic(Type type) {
+    Class<?> raw = rawType(type);
+    Binding binding = bind(raw, type, false);
+    return new Binding(
+        binding.to().asType(methodType(Term.class, Object.class)),
+        binding.from().asType(methodType(Object.class, Term.class)));
+  }
+
+  private static Type argument(Type type, int index) {
+    return type instanceof ParameterizedType parameterized
+        ? parameterized.getActualTypeArguments()[index]
+        : Object.class;
+  }
+
+  private static Class<?> rawType(Type type) {
+    if (type instanceof Class<?> raw) {
+      return raw;
+    }
+    if (type instanceof ParameterizedType parameterized) {
+      return (Class<?>) parameterized.getRawType();
+    }
+    // Wildcards and type variables carry no usable type
+    return Object.class;
+  }
+
+  private static Binding scalar(Class<?> raw) throws ReflectiveOperationException {
+    Class<?> unboxed = raw;
+    String name;
+    if (raw == int.class || raw == Integer.class) {
+      name = "Int";
+      unboxed = int.class;
+    } else if (raw == long.class || raw == Long.class) {
+      name = "Long";
+      unboxed = long.class;
+    } else if (raw == double.class || raw == Double.class) {
+      name = "Double";
+      unboxed = double.class;
+    } else if (raw == boolean.class || raw == Boolean.class) {
+      name = "Boolean";
+      unboxed = boolean.class;
+    } else if (raw == String.class) {
+      name = "String";
+    } else if (raw == byte[].class) {
+      name = "Bytes";
+    } else {
+      return null;
+    }
+    MethodHandle to = find(name.toLowerCase(Locale.ROOT) + "ToTerm", Term.class, unboxed);
+    MethodHandle from = find("termTo" + name, unboxed, Term.class);
+    return new Binding(
+        to.asType(methodType(Term.class, raw)), from.asType(methodType(raw, Term.class)));
+  }
+
+  private static Binding record(Class<?> raw) throws ReflectiveOperationException {
+    RecordComponent[] components = raw.getRecordComponents();
+    MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(raw, LOOKUP);
+    String[] names = new String[components.length];
+    MethodHandle[] getters = new MethodHandle[components.length];
+    Class<?>[] types = new Class<?>[components.length];
+    Type[] generics = new Type[components.length];
+    for (int i = 0; i < components.length; i++) {
+      names[i] = raw.getSimpleName() + "." + components[i].getName();
+      getters[i] = lookup.unreflect(components[i].getAccessor());
+      types[i] = components[i].getType();
+      generics[i] = components[i].getGenericType();
+    }
+    MethodHandle constructor = lookup.findConstructor(raw, methodType(void.class, types));
+    Shape shape = Shape.of(raw, components.length);
+    MethodHandle[] readers = shape.readers(types, generics);
+    MethodHandle from = MethodHandles.filterArguments(constructor, 0, readers);
+    from =
+        MethodHandles.permuteArguments(from, methodType(raw, Tuple.class), new int[types.length]);
+    return new Binding(shape.writer(raw, names, getters, types, generics), shape.checked(from));
+  }
+
+  private static Binding pojo(Class<?> raw) throws ReflectiveOperationException {
+    java.util.List<Field> fields = new ArrayList<>();
+    for (Field field : raw.getDeclaredFields()) {
+      int modifiers = field.getModifiers();
+      if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+        fields.add(field);
+      }
+    }
+    MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(raw, LOOKUP);
+    MethodHandle constructor = lookup.findConstructor(raw, methodType(void.class));
+    int count = fields.size();
+    String[] names = new String[count];
+    MethodHandle[] getters = new MethodHandle[count];
+    Class<?>[] types = new Class<?>[count];
+    Type[] generics = new Type[count];
+    MethodHandle[] setters = new MethodHandle[count];
+    for (int i = 0; i < count; i++) {
+      names[i] = raw.getSimpleName() + "." + fields.get(i).getName();
+      getters[i] = lookup.unreflectGetter(fields.get(i));
+      setters[i] = lookup.unreflectSetter(fields.get(i));
+      types[i] = fields.get(i).getType();
+      generics[i] = fields.get(i).getGenericType();
+    }
+    Shape shape = Shape.of(raw, count);
+    MethodHandle[] readers = shape.readers(types, generics);
+    // Construct, then set each field in turn from the same tuple: (Tuple)R
+    MethodHandle from = MethodHandles.dropArguments(constructor, 0, Tuple.class);
+    MethodHandle same = MethodHandles.dropArguments(MethodHandles.identity(raw), 1, Tuple.class);
+    for (int i = 0; i < count; i++) {
+      MethodHandle set = MethodHandles.filterArguments(setters[i], 1, readers[i]);
+      from = MethodHandles.foldArguments(MethodHandles.foldArguments(same, set), from);
+    }
+    return new Binding(shape.writer(raw, names, getters, types, generics), shape.checked(from));
+  }
+
+  /** The tuple layout of a record or class: an optional tag followed by its components. */
+  private record Shape(Atom tag, int arity, int offset) {
+    static Shape of(Class<?> raw, int components) {
+      ErlangRecord annotation = raw.getAnnotation(ErlangRecord.class);
+      if (annotation != null && !annotation.tagged()) {
+        return new Shape(null, components, 0);
+      }
+      String tag =
+          annotation == null || annotation.tag().isEmpty()
+              ? Records.snakeCase(raw.getSimpleName())
+              : annotation.tag();
+      return new Shape(Atom.of(tag), components + 1, 1);
+    }
+
+    /** Returns a {@code (Tuple)C} handle per component, reading its element. */
+    MethodHandle[] readers(Class<?>[] types, Type[] generics) throws ReflectiveOperationException {
+      MethodHandle element = find("element", Term.class, Tuple.class, int.class);
+      MethodHandle[] readers = new MethodHandle[types.length];
+      for (int i = 0; i < types.length; i++) {
+        readers[i] =
+            MethodHandles.filterReturnValue(
+                MethodHandles.insertArguments(element, 1, i + offset),
+                bind(types[i], generics[i], false).from());
+      }
+      return readers;
+    }
+
+    /** Returns {@code (R)Term}, collecting the converted components into a tuple. */
+    MethodHandle writer(
+        Class<?> raw, String[] names, MethodHandle[] getters, Class<?>[] types, Type[] generics)
+        throws ReflectiveOperationException {
+      MethodHandle collect =
+          find("tuple", Term.class, Term[].class).asCollector(Term[].class, arity);
+      if (tag != null) {
+        collect = MethodHandles.insertArguments(collect, 0, tag);
+      }
+      MethodHandle[] filters = new MethodHandle[getters.length];
+      for (int i = 0; i < getters.length; i++) {
+        MethodHandle getter = getters[i];
+        if (!types[i].isPrimitive()) {
+          getter = MethodHandles.filterReturnValue(getter, nonNull(names[i], types[i]));
+        }
+        filters[i] =
+            MethodHandles.filterReturnValue(getter, bind(types[i], generics[i], false).to());
+      }
+      MethodHandle to = MethodHandles.filterArguments(collect, 0, filters);
+      to = MethodHandles.permuteArguments(to, methodType(Term.class, raw), new int[getters.length]);
+      return MethodHandles.filterArguments(to, 0, nonNull(raw.getSimpleName(), raw));
+    }
+
+    /** Prefixes {@code (Tuple)R} with the check that a term is a tuple of this shape. */
+    MethodHandle checked(MethodHandle from) throws ReflectiveOperationException {
+      MethodHandle check =
+          MethodHandles.insertArguments(
+              find("checkTuple", Tuple.class, Term.class, Atom.class, int.class), 1, tag, arity);
+      return MethodHandles.filterArguments(from, 0, check);
+    }
+  }
+
+  /** Returns {@code (C)C}, rejecting a null value of what {@code name} describes. */
+  private static MethodHandle nonNull(String name, Class<?> type)
+      throws ReflectiveOperationException {
+    return MethodHandles.insertArguments(
+            find("requireNonNull", Object.class, String.class, Object.class), 0, name)
+        .asType(methodType(type, type));
+  }
+
+  private static MethodHandle find(String name, Class<?> returns, Class<?>... parameters)
+      throws ReflectiveOperationException {
+    return LOOKUP.findStatic(TermBinder.class, name, methodType(returns, parameters));
+  }
+
+  // Conversions at the ends of the handle chains
+
+  private static Term intToTerm(int value) {
+    return Number.of(value);
+  }
+
+  private static int termToInt(Term term) {
+    if (term instanceof Number.Integer integer) {
+      return integer.value();
+    }
+    throw mismatch("integer", term);
+  }
+
+  private static Term longToTerm(long value) {
+    return Number.of(value);
+  }
+
+  private static long termToLong(Term term) {
+    if (term instanceof Number.Integer || term instanceof Number.Long) {
+      return ((Number) term).longValue();
+    }
+    throw mismatch("integer", term);
+  }
+
+  private static Term doubleToTerm(double value) {
+    return new Number.Double(value);
+  }
+
+  private static double termToDouble(Term term) {
+    if (term instanceof Number number) {
+      return number.doubleValue();
+    }
+    throw mismatch("number", term);
+  }
+
+  private static Term booleanToTerm(boolean value) {
+    return value ? Atom.TRUE : Atom.FALSE;
+  }
+
+  private static boolean termToBoolean(Term term) {
+    if (term instanceof Atom atom && atom.isBoolean()) {
+      return atom.booleanValue();
+    }
+    throw mismatch("boolean", term);
+  }
+
+  private static Term stringToTerm(String value) {
+    return Binary.wrap(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String termToString(Term term) {
+    if (term instanceof Binary binary) {
+      return binary.toString();
+    }
+    if (term instanceof List list) {
+      try {
+        return list.toCharString();
+      } catch (IllegalStateException e) {
+        throw new IllegalArgumentException(e.getMessage(), e);
+      }
+    }
+    throw mismatch("string", term);
+  }
+
+  private static Term bytesToTerm(byte[] value) {
+    return new Binary(value);
+  }
+
+  private static byte[] termToBytes(Term term) {
+    if (term instanceof Binary binary) {
+      return binary.bytes();
+    }
+    throw mismatch("binary", term);
+  }
+
+  private static Term objectToTerm(Object value) {
+    if (value instanceof Term term) {
+      return term;
+    }
+    throw new IllegalArgumentException("Not a term: " + value);
+  }
+
+  private static Object termToObject(Class<?> type, Term term) {
+    if (type.isInstance(term)) {
+      return term;
+    }
+    throw mismatch(type.getSimpleName(), term);
+  }
+
+  private static Term enumToTerm(Atom[] atoms, Enum<?> value) {
+    return atoms[value.ordinal()];
+  }
+
+  private static Object termToEnum(Atom[] atoms, Object[] constants, Term term) {
+    for (int i = 0; i < atoms.length; i++) {
+      if (atoms[i] == term) {
+        return constants[i];
+      }
+    }
+    throw mismatch("enum constant", term);
+  }
+
+  private static Term toListTerm(MethodHandle element, java.util.List<?> values)
+      throws Throwable {
+    List.Builder list = List.builder(values.size());
+    for (Object value : values) {
+      list.add((Term) element.invokeExact(requireNonNull("list element", value)));
+    }
+    return list.build();
+  }
+
+  private static java.util.List<?> termToList(MethodHandle element, Term term) throws Throwable {
+    if (!(term instanceof List list) || !list.isProper()) {
+      throw mismatch("proper list", term);
+    }
+    java.util.List<Object> values = new ArrayList<>(list.size());
+    for (Term value : list) {
+      values.add((Object) element.invokeExact(value));
+    }
+    return Collections.unmodifiableList(values);
+  }
+
+  private static Term toOptionalTerm(MethodHandle element, Optional<?> value) throws Throwable {
+    return value.isEmpty() ? Atom.UNDEFINED : (Term) element.invokeExact((Object) value.get());
+  }
+
+  private static Optional<?> termToOptional(MethodHandle element, Term term) throws Throwable {
+    return term == Atom.UNDEFINED
+        ? Optional.empty()
+        : Optional.of((Object) element.invokeExact(term));
+  }
+
+  private static Term toMapTerm(MethodHandle key, MethodHandle value, java.util.Map<?, ?> entries)
+      throws Throwable {
+    Map.Builder map = Map.builder(entries.size());
+    for (java.util.Map.Entry<?, ?> entry : entries.entrySet()) {
+      map.put(
+          (Term) key.invokeExact(requireNonNull("map key", entry.getKey())),
+          (Term) value.invokeExact(requireNonNull("map value", entry.getValue())));
+    }
+    return map.build();
+  }
+
+  private static java.util.Map<?, ?> termToMap(MethodHandle key, MethodHandle value, Term term)
+      throws Throwable {
+    if (!(term instanceof Map map)) {
+      throw mismatch("map", term);
+    }
+    java.util.Map<Object, Object> entries = new LinkedHashMap<>();
+    for (java.util.Map.Entry<Term, Term> entry : map.entrySet()) {
+      entries.put(
+          (Object) key.invokeExact(entry.getKey()), (Object) value.invokeExact(entry.getValue()));
+    }
+    return Collections.unmodifiableMap(entries);
+  }
+
+  private static Term lazyToTerm(Class<?> type, Object value) {
+    @SuppressWarnings("unchecked")
+    TermBinder<Object> binder = (TermBinder<Object>) BINDERS.get(type);
+    return binder.toTerm(value);
+  }
+
+  private static Object lazyFromTerm(Class<?> type, Term term) {
+    return BINDERS.get(type).fromTerm(term);
+  }
+
+  private static Object requireNonNull(String name, Object value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Cannot bind null " + name);
+    }
+    return value;
+  }
+
+  private static Term tuple(Term[] elements) {
+    return Tuple.of(elements);
+  }
+
+  private static Term element(Tuple tuple, int index) {
+    return tuple.get(index);
+  }
+
+  private static Tuple checkTuple(Term term, Atom tag, int arity) {
+    if (!(term instanceof Tuple tuple) || tuple.arity() != arity) {
+      throw mismatch("tuple of arity " + arity, term);
+    }
+    if (tag != null && tuple.get(0) != tag) {
+      throw mismatch("tuple tagged " + tag.value(), term);
+    }
+    return tuple;
+  }
+
+  private static IllegalArgumentException mismatch(String expected, Term term) {
+    return new IllegalArgumentException("Expected " + expected + ", got " + term);
+  }
+}
@@ -0,0 +1,91 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ASCII fast paths for the text in encoded terms.
+ *
+ * <p>Nearly all atoms and binary keys are ASCII, which is also Latin-1 and UTF-8 alike, so once the
+ * bytes are known to be ASCII they are copied into a {@code String} without going through a charset
+ * decoder. The check reads eight bytes at a time as a {@code long} and tests their high bits
+ * together, two words per iteration.
+ */
+public final class Ascii {
+  private static final long HIGH_BITS = 0x8080808080808080L;
+  private static final int ASCII_LIMIT = 0x80;
+
+  private static final VarHandle LONGS =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  private Ascii() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /** Returns whether the {@code length} bytes at {@code offset} are all below 0x80. */
+  public static boolean isAscii(byte[] bytes, int offset, int length) {
+    int i = offset;
+    int end = offset + length;
+    long bits = 0;
+    for (; i <= end - 2 * Long.BYTES; i += 2 * Long.BYTES) {
+      bits |= (long) LONGS.get(bytes, i) | (long) LONGS.get(bytes, i + Long.BYTES);
+    }
+    if (i <= end - Long.BYTES) {
+      bits |= (long) LONGS.get(bytes, i);
+      i += Long.BYTES;
+    }
+    if ((bits & HIGH_BITS) != 0) {
+      return false;
+    }
+    for (; i < end; i++) {
+      if (bytes[i] < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns whether the {@code length} bytes at {@code offset} in {@code buffer} are ASCII. */
+  public static boolean isAscii(ByteBuffer buffer, int offset, int length) {
+    if (buffer.hasArray()) {
+      return isAscii(buffer.array(), buffer.arrayOffset() + offset, length);
+    }
+    int i = offset;
+    int end = offset + length;
+    long bits = 0;
+    for (; i <= end - Long.BYTES; i += Long.BYTES) {
+      bits |= buffer.getLong(i);
+    }
+    if ((bits & HIGH_BITS) != 0) {
+      return false;
+    }
+    for (; i < end; i++) {
+      if ((buffer.get(i) & 0xFF) >= ASCII_LIMIT) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Decodes UTF-8 text, copying it straight into the string when it is ASCII. */
+  public static String decodeUtf8(byte[] bytes, int offset, int length) {
+    return new String(
+        bytes,
+        offset,
+        length,
+        isAscii(bytes, offset, length) ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+  }
+
+  /** Decodes the UTF-8 text at {@code offset} in a heap or direct buffer. */
+  public static String decodeUtf8(ByteBuffer buffer, int offset, int length) {
+    if (buffer.hasArray()) {
+      return decodeUtf8(buffer.array(), buffer.arrayOffset() + offset, length);
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(offset, bytes);
+    return decodeUtf8(bytes, 0, length);
+  }
+}
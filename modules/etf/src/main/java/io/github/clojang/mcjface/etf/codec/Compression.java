@@ -0,0 +1,53 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Shared pools of {@link Inflater} and {@link Deflater} instances for {@code COMPRESSED} terms.
+ *
+ * <p>Both hold native zlib state that is costly to allocate and is only freed by {@code end()}, so
+ * instances are reset and returned to the pool after use rather than created per term. Instances
+ * that do not fit back into the pool are ended straight away.
+ */
+final class Compression {
+  /** Upper bound on the deflate compression ratio, used to reject implausible declared sizes. */
+  static final int MAX_RATIO = 1032;
+
+  private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+  private static final ArrayBlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+  private static final ArrayBlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+  private Compression() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  static Inflater inflater() {
+    Inflater inflater = inflaters.poll();
+    return inflater != null ? inflater : new Inflater();
+  }
+
+  static void release(Inflater inflater) {
+    inflater.reset();
+    if (!inflaters.offer(inflater)) {
+      inflater.end();
+    }
+  }
+
+  static Deflater deflater(int level) {
+    Deflater deflater = deflaters.poll();
+    if (deflater == null) {
+      return new Deflater(level);
+    }
+    deflater.setLevel(level);
+    return deflater;
+  }
+
+  static void release(Deflater deflater) {
+    deflater.reset();
+    if (!deflaters.offer(deflater)) {
+      deflater.end();
+    }
+  }
+}
@@ -23,42 +23,102 @@ public final class EtfConstants {
   /** Tag for 32-bit signed integers. */
   public static final int INTEGER_EXT = 98;
 
+  /** Tag for floats encoded as 31-byte strings (pre-R11B). */
+  public static final int FLOAT_EXT = 99;
+
   /** Tag for atoms. */
   public static final int ATOM_EXT = 100;
 
+  /** Tag for atoms with a one-byte length (Latin-1). */
+  public static final int SMALL_ATOM_EXT = 115;
+
+  /** Tag for UTF-8 atoms with a two-byte length. */
+  public static final int ATOM_UTF8_EXT = 118;
+
+  /** Tag for UTF-8 atoms with a one-byte length. */
+  public static final int SMALL_ATOM_UTF8_EXT = 119;
+
+  /** Tag for old-style references. */
+  public static final int REFERENCE_EXT = 101;
+
   /** Tag for ports. */
   public static final int PORT_EXT = 102;
 
+  /** Tag for ports with a 32-bit creation. */
+  public static final int NEW_PORT_EXT = 89;
+
+  /** Tag for ports with a 64-bit id and a 32-bit creation. */
+  public static final int V4_PORT_EXT = 120;
+
   /** Tag for process identifiers (PIDs). */
   public static final int PID_EXT = 103;
 
+  /** Tag for process identifiers with a 32-bit creation. */
+  public static final int NEW_PID_EXT = 88;
+
   /** Tag for small tuples (arity 0-255). */
   public static final int SMALL_TUPLE_EXT = 104;
 
   /** Tag for large tuples (arity > 255). */
   public static final int LARGE_TUPLE_EXT = 105;
 
+  /** Tag for the empty list. */
+  public static final int NIL_EXT = 106;
+
+  /** Tag for lists of small integers sent as a byte string. */
+  public static final int STRING_EXT = 107;
+
   /** Tag for lists. */
   public static final int LIST_EXT = 108;
 
   /** Tag for binaries. */
   public static final int BINARY_EXT = 109;
 
+  /** Tag for bitstrings whose last byte is only partially used. */
+  public static final int BIT_BINARY_EXT = 77;
+
   /** Tag for small big integers. */
   public static final int SMALL_BIG_EXT = 110;
 
+  /** Tag for big integers with more than 255 bytes of magnitude. */
+  public static final int LARGE_BIG_EXT = 111;
+
   /** Tag for new-style references. */
   public static final int NEW_REFERENCE_EXT = 114;
 
+  /** Tag for references with a 32-bit creation. */
+  public static final int NEWER_REFERENCE_EXT = 90;
+
   /** Tag for maps. */
   public static final int MAP_EXT = 116;
 
+  /** Tag for old-style funs. */
+  public static final int FUN_EXT = 117;
+
+  /** Tag for funs. */
+  public static final int NEW_FUN_EXT = 112;
+
+  /** Tag for external funs ({@code fun M:F/A}). */
+  public static final int EXPORT_EXT = 113;
+
   /** Tag for IEEE 754 double precision floats. */
   public static final int NEW_FLOAT_EXT = 70;
 
+  /** Tag for zlib-compressed terms. */
+  public static final int COMPRESSED = 80;
+
+  /** Tag for a reference into the atom cache entries of a distribution header. */
+  public static final int ATOM_CACHE_REF = 82;
+
   /** Maximum value for a single byte (unsigned 8-bit). */
   public static final int MAX_BYTE_VALUE = 255;
 
+  /** Maximum value for an unsigned 16-bit length field. */
+  public static final int MAX_SHORT_VALUE = 65535;
+
+  /** Length of the text field of a {@link #FLOAT_EXT} term. */
+  public static final int FLOAT_EXT_LENGTH = 31;
+
   private EtfConstants() {
     // Utility class - prevent instantiation
   }
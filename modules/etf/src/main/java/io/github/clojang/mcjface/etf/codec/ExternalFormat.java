@@ -50,6 +50,7 @@ public final class ExternalFormat {
   // Port tags
   public static final int PORT_EXT = 102;
   public static final int NEW_PORT_EXT = 89;
+  public static final int V4_PORT_EXT = 120;
 
   // Reference tags
   public static final int REFERENCE_EXT = 101;
@@ -63,6 +64,7 @@ public final class ExternalFormat {
 
   // Misc tags
   public static final int COMPRESSED = 80;
+  public static final int ATOM_CACHE_REF = 82;
 
   // Private constructor to prevent instantiation
   private ExternalFormat() {
@@ -93,6 +95,7 @@ public final class ExternalFormat {
       case NEW_PID_EXT -> "NEW_PID_EXT";
       case PORT_EXT -> "PORT_EXT";
       case NEW_PORT_EXT -> "NEW_PORT_EXT";
+      case V4_PORT_EXT -> "V4_PORT_EXT";
       case REFERENCE_EXT -> "REFERENCE_EXT";
       case NEW_REFERENCE_EXT -> "NEW_REFERENCE_EXT";
       case NEWER_REFERENCE_EXT -> "NEWER_REFERENCE_EXT";
@@ -100,6 +103,7 @@ public final class ExternalFormat {
       case NEW_FUN_EXT -> "NEW_FUN_EXT";
       case EXPORT_EXT -> "EXPORT_EXT";
       case COMPRESSED -> "COMPRESSED";
+      case ATOM_CACHE_REF -> "ATOM_CACHE_REF";
       default -> "UNKNOWN(" + tag + ")";
     };
   }
@@ -0,0 +1,193 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
+
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.codec.TermDecoder.Reader;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Term;
+import java.nio.ByteBuffer;
+
+/**
+ * A term that is still in its encoded form and is decoded only as far as it is inspected.
+ *
+ * <p>A lazy term is a view over an encoded slice. Navigating into a tuple or list with {@link
+ * #get(int)} skips the elements before the requested one by scanning their lengths, without
+ * building them, and {@link #decode()} materialises only the subterm it is called on. A router that
+ * dispatches on the first element of a tuple can therefore look at that element and forward the
+ * untouched {@link #encoded()} bytes without ever decoding the rest of the message.
+ *
+ * <p>The view reads the underlying buffer on demand, so the buffer must not be reused while the
+ * lazy term, or any element obtained from it, is still in use.
+ */
+public final class LazyTerm {
+  private static final TermDecoder DECODER = new TermDecoder();
+
+  private final ByteBuffer buffer;
+  private final int offset;
+  private final TermDecoder decoder;
+  private int length = -1;
+  private int[] elementOffsets;
+  private int scannedElements;
+  private Term decoded;
+
+  private LazyTerm(ByteBuffer buffer, int offset, TermDecoder decoder) {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.decoder = decoder;
+  }
+
+  /** Wraps a versioned encoded term. */
+  public static LazyTerm of(byte[] data) throws DecodeException {
+    return of(ByteBuffer.wrap(data), 0);
+  }
+
+  /** Wraps the versioned encoded term whose version tag is at {@code offset}. */
+  public static LazyTerm of(ByteBuffer buffer, int offset) throws DecodeException {
+    return of(buffer, offset, DECODER);
+  }
+
+  /**
+   * Wraps the versioned encoded term whose version tag is at {@code offset}, decoding it with
+   * {@code decoder} when it is materialised.
+   */
+  public static LazyTerm of(ByteBuffer buffer, int offset, TermDecoder decoder)
+      throws DecodeException {
+    Reader in = new Reader(buffer, offset);
+    int version = in.u8();
+    if (version != VERSION_TAG) {
+      throw new DecodeException("Invalid version tag: " + version);
+    }
+    in.require(1);
+    return new LazyTerm(buffer, offset + 1, decoder);
+  }
+
+  /**
+   * Wraps an encoded term without a version tag, such as a term following a distribution header,
+   * whose tag is at {@code offset}.
+   */
+  public static LazyTerm withoutVersion(ByteBuffer buffer, int offset, TermDecoder decoder)
+      throws DecodeException {
+    new Reader(buffer, offset).require(1);
+    return new LazyTerm(buffer, offset, decoder);
+  }
+
+  /** Returns the external format tag of this term. */
+  public int tag() {
+    return buffer.get(offset) & 0xFF;
+  }
+
+  public boolean isTuple() {
+    int tag = tag();
+    return tag == SMALL_TUPLE_EXT || tag == LARGE_TUPLE_EXT;
+  }
+
+  public boolean isList() {
+    int tag = tag();
+    return tag == LIST_EXT || tag == NIL_EXT || tag == STRING_EXT;
+  }
+
+  public boolean isMap() {
+    return tag() == MAP_EXT;
+  }
+
+  public boolean isAtom() {
+    return switch (tag()) {
+      case ATOM_EXT, SMALL_ATOM_EXT, ATOM_UTF8_EXT, SMALL_ATOM_UTF8_EXT, ATOM_CACHE_REF -> true;
+      default -> false;
+    };
+  }
+
+  /**
+   * Returns the number of elements of a tuple or list, or the number of entries of a map, read from
+   * the header alone.
+   */
+  public int arity() throws DecodeException {
+    Reader in = new Reader(buffer, offset + 1);
+    return switch (tag()) {
+      case SMALL_TUPLE_EXT -> in.u8();
+      case LARGE_TUPLE_EXT, LIST_EXT, MAP_EXT -> in.count32();
+      case STRING_EXT -> in.u16();
+      case NIL_EXT -> 0;
+      default -> throw new IllegalStateException("Not a tuple, list or map: " + tagName());
+    };
+  }
+
+  /**
+   * Returns the element at {@code index} of a tuple or list. Only the elements before it are
+   * scanned, and their positions are remembered for later calls.
+   */
+  public LazyTerm get(int index) throws DecodeException {
+    int tag = tag();
+    if (tag == STRING_EXT) {
+      throw new IllegalStateException("STRING_EXT elements are not encoded terms; use decode()");
+    }
+    int arity = arity();
+    if (tag != SMALL_TUPLE_EXT && tag != LARGE_TUPLE_EXT && tag != LIST_EXT) {
+      throw new IllegalStateException("Not a tuple or list: " + tagName());
+    }
+    if (index < 0 || index >= arity) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + arity);
+    }
+    if (elementOffsets == null) {
+      elementOffsets = new int[arity];
+      elementOffsets[0] = offset + (tag == SMALL_TUPLE_EXT ? 2 : 1 + Integer.BYTES);
+      scannedElements = 1;
+    }
+    if (index >= scannedElements) {
+      Reader in = new Reader(buffer, elementOffsets[scannedElements - 1]);
+      while (scannedElements <= index) {
+        in.skipTerm();
+        elementOffsets[scannedElements++] = in.pos;
+      }
+    }
+    return new LazyTerm(buffer, elementOffsets[index], decoder);
+  }
+
+  /** Returns whether this term is {@code atom}, comparing its text in place. */
+  public boolean is(Atom atom) throws DecodeException {
+    if (decoded != null) {
+      return decoded == atom;
+    }
+    return isAtom() && reader().readAtomIf(atom);
+  }
+
+  /** Returns a reader positioned at this term, for reading or matching it in place. */
+  public TermReader reader() throws DecodeException {
+    return TermReader.of(buffer, offset, false, decoder);
+  }
+
+  /** Decodes this term, and only this term, caching the result. */
+  public Term decode() throws DecodeException {
+    if (decoded == null) {
+      TermDecoder.DecodeResult result = decoder.decodeWithoutVersion(buffer, offset);
+      length = result.bytesConsumed();
+      decoded = result.term();
+    }
+    return decoded;
+  }
+
+  /** Returns the size of the encoded term, excluding any version tag. */
+  public int encodedSize() throws DecodeException {
+    if (length < 0) {
+      Reader in = new Reader(buffer, offset);
+      in.skipTerm();
+      length = in.pos - offset;
+    }
+    return length;
+  }
+
+  /** Returns a read-only view of the encoded term, excluding any version tag. */
+  public ByteBuffer encoded() throws DecodeException {
+    return buffer.slice(offset, encodedSize()).asReadOnlyBuffer();
+  }
+
+  private String tagName() {
+    return ExternalFormat.tagName(tag());
+  }
+
+  @Override
+  public String toString() {
+    return "LazyTerm[" + tagName() + "]";
+  }
+}
@@ -0,0 +1,188 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
+
+import io.github.clojang.mcjface.etf.term.Term;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Encodes a proper list whose elements are produced one at a time, such as rows read from a
+ * database cursor, as a standalone versioned term. Each element is encoded and written as soon as
+ * it is produced, so the list is never built as a {@link Term} and memory use is bounded by the
+ * largest element rather than the whole list.
+ *
+ * <p>The {@code LIST_EXT} header holds the element count, so either the count is given up front and
+ * checked against the elements, or the target is a {@link SeekableByteChannel} and the count is
+ * written into the header once the last element is known. Small elements are gathered into a buffer
+ * before each write. An encoder is not thread-safe.
+ */
+public final class ListStreamEncoder {
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private static final int HEADER_SIZE = 2 + Integer.BYTES;
+  private static final long MAX_LENGTH = 0xFFFFFFFFL;
+
+  private final TermEncoder encoder = new TermEncoder();
+  private final ByteBuffer buffer;
+  // Bytes written by the current call
+  private long written;
+
+  public ListStreamEncoder() {
+    this(DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param bufferSize how many bytes of small elements to gather before writing them out
+   */
+  public ListStreamEncoder(int bufferSize) {
+    if (bufferSize < HEADER_SIZE) {
+      throw new IllegalArgumentException("Buffer size must be at least " + HEADER_SIZE);
+    }
+    this.buffer = ByteBuffer.allocate(bufferSize);
+  }
+
+  /**
+   * Writes the list of the {@code count} elements of {@code elements} to {@code out}.
+   *
+   * @return the number of bytes written
+   * @throws IllegalArgumentException if there are more or fewer than {@code count} elements, in
+   *     which case an incomplete term has been written
+   */
+  public long encode(Iterator<? extends Term> elements, long count, WritableByteChannel out)
+      throws IOException {
+    return encode(elements, count, channel(out));
+  }
+
+  /** Like {@link #encode(Iterator, long, WritableByteChannel)} but writing to a stream. */
+  public long encode(Iterator<? extends Term> elements, long count, OutputStream out)
+      throws IOException {
+    return encode(elements, count, stream(out));
+  }
+
+  /**
+   * Writes the list of all of {@code elements} to {@code out} at its position, then writes the
+   * element count into the list header and moves back to the end of the list.
+   *
+   * @return the number of bytes written
+   */
+  public long encode(Iterator<? extends Term> elements, SeekableByteChannel out)
+      throws IOException {
+    if (!elements.hasNext()) {
+      return encode(elements, 0, out);
+    }
+    long start = out.position();
+    Sink sink = channel(out);
+    written = 0;
+    buffer.clear().put((byte) VERSION_TAG).put((byte) LIST_EXT).putInt(0);
+    long count = writeElements(elements, MAX_LENGTH, sink);
+    if (elements.hasNext()) {
+      throw new IllegalArgumentException("List has more than " + MAX_LENGTH + " elements");
+    }
+    writeNil(sink);
+    long end = out.position();
+    out.position(start + 2);
+    buffer.putInt((int) count);
+    flush(sink);
+    out.position(end);
+    return end - start;
+  }
+
+  public long encode(Stream<? extends Term> elements, long count, WritableByteChannel out)
+      throws IOException {
+    return encode(elements.iterator(), count, out);
+  }
+
+  public long encode(Stream<? extends Term> elements, long count, OutputStream out)
+      throws IOException {
+    return encode(elements.iterator(), count, out);
+  }
+
+  public long encode(Stream<? extends Term> elements, SeekableByteChannel out) throws IOException {
+    return encode(elements.iterator(), out);
+  }
+
+  private long encode(Iterator<? extends Term> elements, long count, Sink sink)
+      throws IOException {
+    if (count < 0 || count > MAX_LENGTH) {
+      throw new IllegalArgumentException("Invalid list length: " + count);
+    }
+    written = 0;
+    buffer.clear().put((byte) VERSION_TAG);
+    if (count > 0) {
+      buffer.put((byte) LIST_EXT).putInt((int) count);
+      long produced = writeElements(elements, count, sink);
+      if (produced < count) {
+        throw new IllegalArgumentException("Expected " + count + " elements but got " + produced);
+      }
+    }
+    if (elements.hasNext()) {
+      throw new IllegalArgumentException("List has more than " + count + " elements");
+    }
+    writeNil(sink);
+    return written;
+  }
+
+  /** Writes up to {@code limit} elements and returns how many there were. */
+  private long writeElements(Iterator<? extends Term> elements, long limit, Sink sink)
+      throws IOException {
+    long count = 0;
+    while (count < limit && elements.hasNext()) {
+      Term element = elements.next();
+      int size = encoder.encodedSizeWithoutVersion(element);
+      if (buffer.remaining() < size) {
+        flush(sink);
+      }
+      if (buffer.remaining() < size) {
+        // Too big to gather: encode it on its own and let it go once written
+        ByteBuffer large = ByteBuffer.allocate(size);
+        encoder.encodeWithoutVersion(element, large);
+        sink.write(large.flip());
+        written += size;
+      } else {
+        encoder.encodeWithoutVersion(element, buffer);
+      }
+      count++;
+    }
+    return count;
+  }
+
+  private void writeNil(Sink sink) throws IOException {
+    if (!buffer.hasRemaining()) {
+      flush(sink);
+    }
+    buffer.put((byte) NIL_EXT);
+    flush(sink);
+  }
+
+  private void flush(Sink sink) throws IOException {
+    buffer.flip();
+    written += buffer.remaining();
+    sink.write(buffer);
+    buffer.clear();
+  }
+
+  private static Sink stream(OutputStream out) {
+    return bytes -> {
+      out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+      bytes.position(bytes.limit());
+    };
+  }
+
+  private static Sink channel(WritableByteChannel out) {
+    return bytes -> {
+      while (bytes.hasRemaining()) {
+        out.write(bytes);
+      }
+    };
+  }
+
+  /** Where encoded bytes go: all of the buffer's remaining bytes are written. */
+  private interface Sink {
+    void write(ByteBuffer bytes) throws IOException;
+  }
+}
@@ -0,0 +1,40 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * How the parallel encoder and decoder split the elements of a large list or map into segments,
+ * each encoded or decoded as one task on the common {@link ForkJoinPool}.
+ */
+final class Segments {
+  /** Fewest elements worth a task of their own. */
+  static final int MIN_SEGMENT = 1024;
+
+  // A few segments per worker, so one slow segment does not hold up the rest
+  private static final int SEGMENTS_PER_WORKER = 4;
+
+  private Segments() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /** Returns how many segments to split {@code count} elements into. */
+  static int count(int count) {
+    long bySize = (count + (long) MIN_SEGMENT - 1) / MIN_SEGMENT;
+    long byWorkers = (long) SEGMENTS_PER_WORKER * ForkJoinPool.getCommonPoolParallelism();
+    return (int) Math.max(1, Math.min(bySize, byWorkers));
+  }
+
+  /** Returns the index of the first element of {@code segment}, or {@code count} past the last. */
+  static int start(int segment, int segments, int count) {
+    return (int) ((long) count * segment / segments);
+  }
+
+  /** Checks a threshold given to {@code withParallelism}. */
+  static int checkThreshold(int threshold) {
+    if (threshold < MIN_SEGMENT) {
+      throw new IllegalArgumentException(
+          "Parallel threshold must be at least " + MIN_SEGMENT + ": " + threshold);
+    }
+    return threshold;
+  }
+}
@@ -2,6 +2,7 @@ package io.github.clojang.mcjface.etf.codec;
 
 import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.github.clojang.mcjface.etf.term.Atom;
 import io.github.clojang.mcjface.etf.term.Binary;
 import io.github.clojang.mcjface.etf.term.List;
@@ -12,119 +13,694 @@ import io.github.clojang.mcjface.etf.term.Port;
 import io.github.clojang.mcjface.etf.term.Reference;
 import io.github.clojang.mcjface.etf.term.Term;
 import io.github.clojang.mcjface.etf.term.Tuple;
-import io.github.clojang.mcjface.util.Logging;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import org.slf4j.Logger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
+/**
+ * Decodes Erlang External Term Format data into {@link Term} instances.
+ *
+ * <p>The decoder reads straight from a {@link ByteBuffer}, heap or direct, using absolute reads, so
+ * a frame sitting in a socket receive buffer can be decoded in place without first being copied
+ * into an array or wrapped in a stream. The absolute {@link #decode(ByteBuffer, int)} never touches
+ * the buffer's position, limit or byte order, and reports how many bytes the term occupied so the
+ * caller can step to the next frame. A {@code MemorySegment} can be decoded through {@code
+ * segment.asByteBuffer()}.
+ */
 public class TermDecoder {
-  private static final Logger logger = Logging.getLogger(TermDecoder.class);
+
+  private static final int MAX_LONG_BYTES = 8;
+  private static final int SKIP_WINDOW = 8192;
+  private static final int SEQUENTIAL = Integer.MAX_VALUE;
+
+  private final Atom[] atomCacheRefs;
+  private final boolean sharedBinaries;
+  private final int parallelThreshold;
+
+  public TermDecoder() {
+    this(null, false, SEQUENTIAL);
+  }
+
+  @SuppressFBWarnings(
+      value = "EI_EXPOSE_REP2",
+      justification = "Header atom refs are built per message and handed over to the decoder")
+  private TermDecoder(Atom[] atomCacheRefs, boolean sharedBinaries, int parallelThreshold) {
+    this.atomCacheRefs = atomCacheRefs;
+    this.sharedBinaries = sharedBinaries;
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  /**
+   * Returns a decoder that resolves {@code ATOM_CACHE_REF} entries against the atoms listed in a
+   * distribution header, in header order.
+   */
+  public TermDecoder withAtomCacheRefs(Atom[] refs) {
+    return new TermDecoder(refs, sharedBinaries, parallelThreshold);
+  }
+
+  /**
+   * Returns a decoder whose binaries are views into the decoded buffer instead of copies. The
+   * buffer must then not be reused or modified while any decoded binary is still in use.
+   */
+  public TermDecoder withSharedBinaries(boolean shared) {
+    return shared == sharedBinaries
+        ? this
+        : new TermDecoder(atomCacheRefs, shared, parallelThreshold);
+  }
+
+  /**
+   * Returns a decoder that decodes lists and maps of at least {@code threshold} elements in
+   * parallel on the common {@link ForkJoinPool}. The elements are first skipped over to find where
+   * each segment of them starts, and the segments are then decoded as separate tasks. Smaller
+   * terms, and lists of integers, stay sequential.
+   *
+   * @param threshold the fewest elements worth splitting, at least {@value Segments#MIN_SEGMENT}
+   */
+  public TermDecoder withParallelism(int threshold) {
+    return new TermDecoder(atomCacheRefs, sharedBinaries, Segments.checkThreshold(threshold));
+  }
 
   public Term decode(byte[] data) throws IOException, DecodeException {
     if (data.length == 0) {
       throw new DecodeException("Empty data");
     }
+    return decode(ByteBuffer.wrap(data), 0).term();
+  }
 
-    ByteArrayInputStream bais = new ByteArrayInputStream(data);
-    int version = bais.read();
+  /**
+   * Decodes a versioned term starting at the buffer's position and advances the position past the
+   * bytes that were consumed.
+   */
+  public Term decode(ByteBuffer buffer) throws DecodeException {
+    DecodeResult result = decode(buffer, buffer.position());
+    buffer.position(buffer.position() + result.bytesConsumed());
+    return result.term();
+  }
+
+  /**
+   * Decodes a versioned term starting at {@code offset} without modifying the buffer.
+   *
+   * @return the term together with the number of bytes it occupied, including the version tag
+   */
+  public DecodeResult decode(ByteBuffer buffer, int offset) throws DecodeException {
+    Reader in = new Reader(buffer, offset);
+    int version = in.u8();
     if (version != VERSION_TAG) {
       throw new DecodeException("Invalid version tag: " + version);
     }
+    Term term = decodeChecked(in);
+    return new DecodeResult(term, in.pos - offset);
+  }
 
-    return decodeTerm(bais);
+  /**
+   * Decodes a term that has no leading version tag, as found after a distribution header, starting
+   * at {@code offset} without modifying the buffer.
+   */
+  public DecodeResult decodeWithoutVersion(ByteBuffer buffer, int offset) throws DecodeException {
+    Reader in = new Reader(buffer, offset);
+    Term term = decodeChecked(in);
+    return new DecodeResult(term, in.pos - offset);
   }
 
-  private Term decodeTerm(ByteArrayInputStream in) throws IOException, DecodeException {
-    int tag = in.read();
-    if (tag == -1) {
-      throw new DecodeException("Unexpected end of stream");
+  Term decodeChecked(Reader in) throws DecodeException {
+    try {
+      return decodeTerm(in);
+    } catch (IllegalArgumentException e) {
+      throw new DecodeException("Invalid term at offset " + in.pos + ": " + e.getMessage(), e);
     }
+  }
+
+  private Term decodeTerm(Reader in) throws DecodeException {
+    int tag = in.u8();
 
     return switch (tag) {
       case SMALL_INTEGER_EXT -> decodeSmallInteger(in);
       case INTEGER_EXT -> decodeInteger(in);
-      case ATOM_EXT -> decodeAtom(in);
-      case PORT_EXT -> decodePort(in);
-      case PID_EXT -> decodePid(in);
-      case SMALL_TUPLE_EXT -> decodeSmallTuple(in);
-      case LARGE_TUPLE_EXT -> decodeLargeTuple(in);
+      case ATOM_EXT, SMALL_ATOM_EXT, ATOM_UTF8_EXT, SMALL_ATOM_UTF8_EXT -> decodeAtom(in, tag);
+      case ATOM_CACHE_REF -> decodeAtomCacheRef(in);
+      case PORT_EXT, NEW_PORT_EXT, V4_PORT_EXT -> decodePort(in, tag);
+      case PID_EXT, NEW_PID_EXT -> decodePid(in, tag);
+      case SMALL_TUPLE_EXT -> decodeTuple(in, in.u8());
+      case LARGE_TUPLE_EXT -> decodeTuple(in, in.count32());
+      case NIL_EXT -> List.empty();
+      case STRING_EXT -> decodeString(in);
       case LIST_EXT -> decodeList(in);
       case BINARY_EXT -> decodeBinary(in);
-      case SMALL_BIG_EXT -> decodeSmallBig(in);
-      case NEW_REFERENCE_EXT -> decodeNewReference(in);
+      case BIT_BINARY_EXT -> decodeBitBinary(in);
+      case SMALL_BIG_EXT -> decodeBig(in, in.u8());
+      case LARGE_BIG_EXT -> decodeBig(in, in.count32());
+      case REFERENCE_EXT -> decodeReference(in);
+      case NEW_REFERENCE_EXT, NEWER_REFERENCE_EXT -> decodeNewReference(in, tag);
       case MAP_EXT -> decodeMap(in);
       case NEW_FLOAT_EXT -> decodeNewFloat(in);
+      case FLOAT_EXT -> decodeFloat(in);
+      case FUN_EXT, NEW_FUN_EXT, EXPORT_EXT ->
+          throw new DecodeException(
+              "Funs cannot be represented as terms: " + ExternalFormat.tagName(tag));
+      case COMPRESSED -> decodeCompressed(in);
       default -> throw new DecodeException("Unknown tag: " + tag);
     };
   }
 
-  private Term decodeSmallInteger(ByteArrayInputStream in) throws IOException {
-    int value = in.read();
-    return new Number.Integer(value);
+  private Term decodeCompressed(Reader in) throws DecodeException {
+    int size = in.compressedSize();
+    byte[] inflated = new byte[size];
+    in.inflate(inflated, size);
+    Reader inner = new Reader(ByteBuffer.wrap(inflated), 0);
+    Term term = decodeTerm(inner);
+    if (inner.remaining() != 0) {
+      throw new DecodeException("Compressed term has " + inner.remaining() + " trailing bytes");
+    }
+    return term;
+  }
+
+  private Term decodeSmallInteger(Reader in) throws DecodeException {
+    return Number.of(in.u8());
+  }
+
+  private Term decodeInteger(Reader in) throws DecodeException {
+    return Number.of(in.i32());
+  }
+
+  private Term decodeAtom(Reader in, int tag) throws DecodeException {
+    return switch (tag) {
+      case ATOM_EXT -> in.atom(in.u16(), false);
+      case SMALL_ATOM_EXT -> in.atom(in.u8(), false);
+      case ATOM_UTF8_EXT -> in.atom(in.u16(), true);
+      default -> in.atom(in.u8(), true);
+    };
   }
 
-  private Term decodeInteger(ByteArrayInputStream in) throws IOException {
-    logger.debug("decodeInteger not implemented, available bytes: {}", in.available());
-    return new Number.Integer(0);
+  private Atom decodeAtomCacheRef(Reader in) throws DecodeException {
+    int index = in.u8();
+    if (atomCacheRefs == null || index >= atomCacheRefs.length) {
+      throw new DecodeException("Atom cache reference " + index + " has no header entry");
+    }
+    return atomCacheRefs[index];
   }
 
-  private Term decodeAtom(ByteArrayInputStream in) throws IOException {
-    logger.debug("decodeAtom not implemented, available bytes: {}", in.available());
-    return new Atom("stub");
+  private String decodeAtomText(Reader in) throws DecodeException {
+    int tag = in.u8();
+    return switch (tag) {
+      case ATOM_EXT, SMALL_ATOM_EXT, ATOM_UTF8_EXT, SMALL_ATOM_UTF8_EXT ->
+          ((Atom) decodeAtom(in, tag)).value();
+      case ATOM_CACHE_REF -> decodeAtomCacheRef(in).value();
+      default -> throw new DecodeException("Expected atom, got " + ExternalFormat.tagName(tag));
+    };
   }
 
-  private Term decodePort(ByteArrayInputStream in) throws IOException, DecodeException {
-    logger.debug("decodePort not implemented, available bytes: {}", in.available());
-    return new Port("node", 0, 0);
+  private Term decodePort(Reader in, int tag) throws DecodeException {
+    String node = decodeAtomText(in);
+    long id = tag == V4_PORT_EXT ? in.i64() : in.u32();
+    int creation = tag == PORT_EXT ? in.u8() : in.i32();
+    return new Port(node, id, creation);
   }
 
-  private Term decodePid(ByteArrayInputStream in) throws IOException, DecodeException {
-    logger.debug("decodePid not implemented, available bytes: {}", in.available());
-    return new Pid("node", 0, 0, 0);
+  private Term decodePid(Reader in, int tag) throws DecodeException {
+    String node = decodeAtomText(in);
+    long id = in.u32();
+    long serial = in.u32();
+    int creation = tag == PID_EXT ? in.u8() : in.i32();
+    return new Pid(node, id, serial, creation);
   }
 
-  private Term decodeSmallTuple(ByteArrayInputStream in) throws IOException, DecodeException {
-    int arity = in.read();
-    Term[] elements = new Term[arity];
+  private Term decodeTuple(Reader in, int arity) throws DecodeException {
+    in.requireElements(arity);
+    Tuple.Builder elements = Tuple.builder(arity);
     for (int i = 0; i < arity; i++) {
-      elements[i] = decodeTerm(in);
+      elements.add(decodeTerm(in));
+    }
+    return elements.build();
+  }
+
+  private Term decodeString(Reader in) throws DecodeException {
+    return List.wrapBytes(in.bytes(in.u16()));
+  }
+
+  private Term decodeList(Reader in) throws DecodeException {
+    int length = in.count32();
+    if (length == 0) {
+      // A list with no elements is just its tail
+      return decodeTerm(in);
+    }
+    int[] values = null;
+    int count = 0;
+    boolean bytes = true;
+    // Lists that start with integers are read unboxed for as long as they stay integers
+    while (count < length) {
+      int tag = in.peek();
+      int value;
+      if (tag == SMALL_INTEGER_EXT) {
+        in.skip(1);
+        value = in.u8();
+      } else if (tag == INTEGER_EXT) {
+        in.skip(1);
+        value = in.i32();
+        bytes &= value >= 0 && value <= MAX_BYTE_VALUE;
+      } else {
+        break;
+      }
+      if (values == null) {
+        values = new int[length];
+      }
+      values[count++] = value;
+    }
+    if (count == length && in.peek() == NIL_EXT) {
+      in.skip(1);
+      return bytes ? List.wrapBytes(toBytes(values)) : List.wrapInts(values);
+    }
+    List.Builder elements = List.builder(length);
+    for (int i = 0; i < count; i++) {
+      elements.add(Number.of(values[i]));
+    }
+    if (length - count >= parallelThreshold) {
+      for (Term element : decodeSegments(in, length - count)) {
+        elements.add(element);
+      }
+    } else {
+      for (int i = count; i < length; i++) {
+        elements.add(decodeTerm(in));
+      }
+    }
+    return elements.build(decodeTerm(in));
+  }
+
+  private static byte[] toBytes(int[] values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte) values[i];
+    }
+    return bytes;
+  }
+
+  private Term decodeBinary(Reader in) throws DecodeException {
+    return binary(in, in.count32());
+  }
+
+  private Binary binary(Reader in, int length) throws DecodeException {
+    if (sharedBinaries) {
+      return Binary.wrap(in.slice(length));
+    }
+    return Binary.wrap(in.bytes(length));
+  }
+
+  private Term decodeBitBinary(Reader in) throws DecodeException {
+    int length = in.count32();
+    int bits = in.u8();
+    if (length > 0 && bits != Byte.SIZE) {
+      throw new DecodeException("Bitstrings with " + bits + " trailing bits are not supported");
+    }
+    return binary(in, length);
+  }
+
+  private Term decodeBig(Reader in, int length) throws DecodeException {
+    boolean negative = in.u8() != 0;
+    in.require(length);
+    if (length <= MAX_LONG_BYTES) {
+      long magnitude = 0;
+      for (int i = length - 1; i >= 0; i--) {
+        magnitude = (magnitude << Byte.SIZE) | in.byteAt(in.pos + i);
+      }
+      if (magnitude >= 0 || (negative && magnitude == Long.MIN_VALUE)) {
+        in.skip(length);
+        return Number.of(negative ? -magnitude : magnitude);
+      }
+    }
+    byte[] magnitude = new byte[length];
+    for (int i = 0; i < length; i++) {
+      magnitude[length - 1 - i] = (byte) in.u8();
     }
-    return Tuple.of(elements);
+    java.math.BigInteger value = new java.math.BigInteger(1, magnitude);
+    if (negative) {
+      value = value.negate();
+    }
+    return Number.of(value);
   }
 
-  private Term decodeLargeTuple(ByteArrayInputStream in) throws IOException, DecodeException {
-    logger.debug("decodeLargeTuple not implemented, available bytes: {}", in.available());
-    return Tuple.of();
+  private Term decodeReference(Reader in) throws DecodeException {
+    String node = decodeAtomText(in);
+    long id = in.u32();
+    int creation = in.u8();
+    return new Reference(node, creation, new long[] {id});
   }
 
-  private Term decodeList(ByteArrayInputStream in) throws IOException, DecodeException {
-    logger.debug("decodeList not implemented, available bytes: {}", in.available());
-    return List.empty();
+  private Term decodeNewReference(Reader in, int tag) throws DecodeException {
+    int length = in.u16();
+    String node = decodeAtomText(in);
+    int creation = tag == NEW_REFERENCE_EXT ? in.u8() : in.i32();
+    in.require((long) length * Integer.BYTES);
+    long[] ids = new long[length];
+    for (int i = 0; i < length; i++) {
+      ids[i] = in.u32();
+    }
+    return new Reference(node, creation, ids);
   }
 
-  private Term decodeBinary(ByteArrayInputStream in) throws IOException {
-    logger.debug("decodeBinary not implemented, available bytes: {}", in.available());
-    return new Binary(new byte[0]);
+  private Term decodeMap(Reader in) throws DecodeException {
+    int arity = in.count32();
+    in.requireElements(2L * arity);
+    Map.Builder entries = Map.builder(arity);
+    if (arity >= parallelThreshold) {
+      Term[] terms = decodeSegments(in, 2 * arity);
+      for (int i = 0; i < terms.length; i += 2) {
+        entries.put(terms[i], terms[i + 1]);
+      }
+      return entries.build();
+    }
+    for (int i = 0; i < arity; i++) {
+      Term key = decodeTerm(in);
+      Term value = decodeTerm(in);
+      entries.put(key, value);
+    }
+    return entries.build();
   }
 
-  private Term decodeSmallBig(ByteArrayInputStream in) throws IOException {
-    logger.debug("decodeSmallBig not implemented, available bytes: {}", in.available());
-    return new Number.BigInteger(java.math.BigInteger.ZERO);
+  /**
+   * Decodes the next {@code count} terms, in parallel segments. A first pass skips over the terms
+   * to find where each segment starts, without decoding anything, and leaves the reader after the
+   * last term.
+   */
+  private Term[] decodeSegments(Reader in, int count) throws DecodeException {
+    int segments = Segments.count(count);
+    int[] offsets = new int[segments];
+    int segment = 0;
+    for (int i = 0; i < count; i++) {
+      if (segment < segments && i == Segments.start(segment, segments, count)) {
+        offsets[segment++] = in.pos;
+      }
+      in.skipTerm();
+    }
+    Term[] terms = new Term[count];
+    DecodeException[] failures = new DecodeException[segments];
+    java.util.List<ForkJoinTask<?>> tasks = new ArrayList<>(segments);
+    for (int s = 0; s < segments; s++) {
+      int index = s;
+      int from = Segments.start(s, segments, count);
+      int to = Segments.start(s + 1, segments, count);
+      tasks.add(
+          ForkJoinTask.adapt(
+              () -> {
+                try {
+                  Reader segmentIn = new Reader(in.buffer(), offsets[index]);
+                  for (int i = from; i < to; i++) {
+                    terms[i] = decodeTerm(segmentIn);
+                  }
+                } catch (DecodeException e) {
+                  failures[index] = e;
+                }
+              }));
+    }
+    ForkJoinTask.invokeAll(tasks);
+    for (DecodeException failure : failures) {
+      if (failure != null) {
+        throw failure;
+      }
+    }
+    return terms;
   }
 
-  private Term decodeNewReference(ByteArrayInputStream in) throws IOException {
-    logger.debug("decodeNewReference not implemented, available bytes: {}", in.available());
-    return new Reference("node", 0, new long[] {0});
+  private Term decodeNewFloat(Reader in) throws DecodeException {
+    return new Number.Double(Double.longBitsToDouble(in.i64()));
   }
 
-  private Term decodeMap(ByteArrayInputStream in) throws IOException, DecodeException {
-    logger.debug("decodeMap not implemented, available bytes: {}", in.available());
-    return Map.of();
+  private Term decodeFloat(Reader in) throws DecodeException {
+    String text = in.string(FLOAT_EXT_LENGTH, StandardCharsets.ISO_8859_1);
+    int end = text.indexOf('\0');
+    try {
+      return new Number.Double(
+          Double.parseDouble(end < 0 ? text.trim() : text.substring(0, end).trim()));
+    } catch (NumberFormatException e) {
+      throw new DecodeException("Invalid FLOAT_EXT value: " + text, e);
+    }
   }
 
-  private Term decodeNewFloat(ByteArrayInputStream in) throws IOException {
-    logger.debug("decodeNewFloat not implemented, available bytes: {}", in.available());
-    return new Number.Double(0.0);
+  /** A decoded term and the number of bytes it occupied in the source buffer. */
+  public record DecodeResult(Term term, int bytesConsumed) {}
+
+  /**
+   * Bounds-checked cursor over a {@link ByteBuffer} using absolute reads only. Multi-byte values
+   * are always read big-endian regardless of the buffer's configured byte order.
+   */
+  static final class Reader {
+    private final ByteBuffer buffer;
+    private final boolean bigEndian;
+    private final int limit;
+    int pos;
+
+    Reader(ByteBuffer buffer, int offset) throws DecodeException {
+      if (offset < 0 || offset > buffer.limit()) {
+        throw new DecodeException("Offset out of bounds: " + offset);
+      }
+      this.buffer = buffer;
+      this.bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+      this.limit = buffer.limit();
+      this.pos = offset;
+    }
+
+    int remaining() {
+      return limit - pos;
+    }
+
+    ByteBuffer buffer() {
+      return buffer;
+    }
+
+    void require(long count) throws DecodeException {
+      if (count < 0 || count > limit - pos) {
+        throw new DecodeException("Unexpected end of data at offset " + pos);
+      }
+    }
+
+    /** Rejects element counts that could not possibly fit, as every term takes at least a byte. */
+    void requireElements(long count) throws DecodeException {
+      if (count > limit - pos) {
+        throw new DecodeException("Element count " + count + " exceeds remaining data");
+      }
+    }
+
+    void skip(int count) throws DecodeException {
+      require(count);
+      pos += count;
+    }
+
+    int byteAt(int index) {
+      return buffer.get(index) & 0xFF;
+    }
+
+    int peek() throws DecodeException {
+      require(1);
+      return buffer.get(pos) & 0xFF;
+    }
+
+    int u8() throws DecodeException {
+      require(1);
+      return buffer.get(pos++) & 0xFF;
+    }
+
+    int u16() throws DecodeException {
+      require(Short.BYTES);
+      short value = buffer.getShort(pos);
+      pos += Short.BYTES;
+      return (bigEndian ? value : Short.reverseBytes(value)) & 0xFFFF;
+    }
+
+    int i32() throws DecodeException {
+      require(Integer.BYTES);
+      int value = buffer.getInt(pos);
+      pos += Integer.BYTES;
+      return bigEndian ? value : Integer.reverseBytes(value);
+    }
+
+    long u32() throws DecodeException {
+      return i32() & 0xFFFFFFFFL;
+    }
+
+    long i64() throws DecodeException {
+      require(Long.BYTES);
+      long value = buffer.getLong(pos);
+      pos += Long.BYTES;
+      return bigEndian ? value : Long.reverseBytes(value);
+    }
+
+    /** Reads an unsigned 32-bit element or byte count, rejecting counts larger than the input. */
+    int count32() throws DecodeException {
+      long count = u32();
+      requireElements(count);
+      return (int) count;
+    }
+
+    byte[] bytes(int count) throws DecodeException {
+      require(count);
+      byte[] bytes = new byte[count];
+      buffer.get(pos, bytes);
+      pos += count;
+      return bytes;
+    }
+
+    /**
+     * Advances past one complete term without decoding it. Nested terms are tracked with a counter
+     * of pending subterms rather than by recursion, so nothing is allocated.
+     */
+    void skipTerm() throws DecodeException {
+      long pending = 1;
+      while (pending > 0) {
+        pending--;
+        int tag = u8();
+        switch (tag) {
+          case SMALL_INTEGER_EXT, ATOM_CACHE_REF -> skip(1);
+          case INTEGER_EXT -> skip(Integer.BYTES);
+          case NEW_FLOAT_EXT -> skip(Long.BYTES);
+          case FLOAT_EXT -> skip(FLOAT_EXT_LENGTH);
+          case ATOM_EXT, ATOM_UTF8_EXT, STRING_EXT -> skip(u16());
+          case SMALL_ATOM_EXT, SMALL_ATOM_UTF8_EXT -> skip(u8());
+          case NIL_EXT -> {
+            // No payload
+          }
+          case PID_EXT -> skipAtomThen(2 * Integer.BYTES + 1);
+          case NEW_PID_EXT -> skipAtomThen(3 * Integer.BYTES);
+          case PORT_EXT -> skipAtomThen(Integer.BYTES + 1);
+          case NEW_PORT_EXT -> skipAtomThen(2 * Integer.BYTES);
+          case V4_PORT_EXT -> skipAtomThen(Long.BYTES + Integer.BYTES);
+          case REFERENCE_EXT -> skipAtomThen(Integer.BYTES + 1);
+          case NEW_REFERENCE_EXT -> {
+            int length = u16();
+            skipAtomThen(1 + length * Integer.BYTES);
+          }
+          case NEWER_REFERENCE_EXT -> {
+            int length = u16();
+            skipAtomThen((1 + length) * Integer.BYTES);
+          }
+          case SMALL_TUPLE_EXT -> pending += u8();
+          case LARGE_TUPLE_EXT -> pending += count32();
+          case LIST_EXT -> pending += count32() + 1L;
+          case MAP_EXT -> pending += 2L * count32();
+          case BINARY_EXT -> skip(count32());
+          case BIT_BINARY_EXT -> {
+            int length = count32();
+            skip(1 + length);
+          }
+          case SMALL_BIG_EXT -> skip(1 + u8());
+          case LARGE_BIG_EXT -> {
+            int length = count32();
+            skip(1 + length);
+          }
+          case NEW_FUN_EXT -> {
+            // The size counts its own four bytes
+            long size = u32() - Integer.BYTES;
+            require(size);
+            pos += (int) size;
+          }
+          case EXPORT_EXT -> pending += 3;
+          case FUN_EXT -> pending += 4 + count32();
+          case COMPRESSED -> {
+            int size = compressedSize();
+            inflate(new byte[Math.min(size, SKIP_WINDOW)], size);
+          }
+          default ->
+              throw new DecodeException("Cannot skip term with tag " + ExternalFormat.tagName(tag));
+        }
+      }
+    }
+
+    /** Reads the declared size of a compressed term, rejecting sizes it could not inflate to. */
+    int compressedSize() throws DecodeException {
+      long size = u32();
+      if (size == 0
+          || size > Integer.MAX_VALUE - Long.BYTES
+          || size > (long) remaining() * Compression.MAX_RATIO) {
+        throw new DecodeException("Invalid compressed term size: " + size);
+      }
+      return (int) size;
+    }
+
+    /**
+     * Inflates the zlib stream at the cursor, which must produce exactly {@code size} bytes, and
+     * advances past it. If {@code out} is shorter than {@code size} it is reused as a window and
+     * the output is discarded, which is how a compressed term is skipped.
+     */
+    void inflate(byte[] out, int size) throws DecodeException {
+      Inflater inflater = Compression.inflater();
+      try {
+        inflater.setInput(buffer.duplicate().limit(limit).position(pos));
+        long total = 0;
+        while (!inflater.finished()) {
+          int offset = (int) (total % out.length);
+          int count =
+              inflater.inflate(out, offset, (int) Math.min(out.length - offset, size - total));
+          total += count;
+          if (count == 0 && !inflater.finished()) {
+            if (inflater.needsInput()) {
+              throw new DecodeException("Truncated compressed term at offset " + pos);
+            }
+            if (inflater.needsDictionary()) {
+              throw new DecodeException("Compressed term requires a preset dictionary");
+            }
+            if (total == size) {
+              throw new DecodeException("Compressed term is larger than its declared size");
+            }
+          }
+        }
+        if (total != size) {
+          throw new DecodeException("Compressed term is smaller than its declared size");
+        }
+        pos = limit - inflater.getRemaining();
+      } catch (DataFormatException e) {
+        throw new DecodeException("Invalid compressed term: " + e.getMessage(), e);
+      } finally {
+        Compression.release(inflater);
+      }
+    }
+
+    private void skipAtomThen(int count) throws DecodeException {
+      int tag = u8();
+      switch (tag) {
+        case ATOM_EXT, ATOM_UTF8_EXT -> skip(u16());
+        case SMALL_ATOM_EXT, SMALL_ATOM_UTF8_EXT -> skip(u8());
+        case ATOM_CACHE_REF -> skip(1);
+        default -> throw new DecodeException("Expected atom, got " + ExternalFormat.tagName(tag));
+      }
+      skip(count);
+    }
+
+    /** Returns a view of the next {@code count} bytes and advances past them. */
+    ByteBuffer slice(int count) throws DecodeException {
+      require(count);
+      ByteBuffer slice = buffer.slice(pos, count);
+      pos += count;
+      return slice;
+    }
+
+    /** Reads interned atom text, looking the atom up from the raw bytes. */
+    Atom atom(int count, boolean utf8) throws DecodeException {
+      require(count);
+      Atom atom =
+          utf8 ? Atom.fromUtf8(buffer, pos, count) : Atom.fromLatin1(buffer, pos, count);
+      pos += count;
+      return atom;
+    }
+
+    String string(int count, Charset charset) throws DecodeException {
+      require(count);
+      String value;
+      if (charset.equals(StandardCharsets.UTF_8)) {
+        value = Ascii.decodeUtf8(buffer, pos, count);
+      } else if (buffer.hasArray()) {
+        value = new String(buffer.array(), buffer.arrayOffset() + pos, count, charset);
+      } else {
+        byte[] bytes = new byte[count];
+        buffer.get(pos, bytes);
+        value = new String(bytes, charset);
+      }
+      pos += count;
+      return value;
+    }
   }
 
   public static class DecodeException extends Exception {
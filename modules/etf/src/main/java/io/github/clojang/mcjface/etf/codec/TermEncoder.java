@@ -11,29 +11,232 @@ import io.github.clojang.mcjface.etf.term.Pid;
 import io.github.clojang.mcjface.etf.term.Port;
 import io.github.clojang.mcjface.etf.term.Reference;
 import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Terms;
 import io.github.clojang.mcjface.etf.term.Tuple;
-import io.github.clojang.mcjface.util.Logging;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import org.slf4j.Logger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.ToIntFunction;
+import java.util.zip.Deflater;
 
+/**
+ * Encodes {@link Term} instances into Erlang External Term Format.
+ *
+ * <p>Encoding is split into two passes. {@link #encodedSize(Term)} computes the exact size of the
+ * encoded frame, which lets callers allocate it once or check that a pooled buffer has room, and
+ * {@link #encodeInto(Term, ByteBuffer)} writes the frame straight into a caller-supplied heap or
+ * direct buffer, for example right after a distribution header. No intermediate buffers are grown
+ * or copied along the way.
+ *
+ * <p>Terms made by {@link Terms#frozen} are written by copying the encoding they hold.
+ */
 public class TermEncoder {
-  private static final Logger logger = Logging.getLogger(TermEncoder.class);
+
+  private static final long MAX_UNSIGNED_INT = 0xFFFFFFFFL;
+  private static final int ATOM_CACHE_REF_SIZE = 2;
+
+  private static final int COMPRESSED_HEADER_SIZE = 1 + Integer.BYTES;
+  private static final int NO_COMPRESSION = -1;
+  private static final int SEQUENTIAL = Integer.MAX_VALUE;
+
+  private final AtomCacheRefs atomCacheRefs;
+  private final int compressionLevel;
+  private final int compressionThreshold;
+  private final int parallelThreshold;
+  private final ToIntFunction<Atom> atomSize;
+
+  public TermEncoder() {
+    this(null, Deflater.DEFAULT_COMPRESSION, NO_COMPRESSION, SEQUENTIAL);
+  }
+
+  private TermEncoder(
+      AtomCacheRefs atomCacheRefs,
+      int compressionLevel,
+      int compressionThreshold,
+      int parallelThreshold) {
+    this.atomCacheRefs = atomCacheRefs;
+    this.compressionLevel = compressionLevel;
+    this.compressionThreshold = compressionThreshold;
+    this.parallelThreshold = parallelThreshold;
+    this.atomSize = atomCacheRefs == null ? Atom::encodedSize : this::cachedAtomSize;
+  }
+
+  /**
+   * Returns an encoder that writes atoms present in a distribution header's atom cache as {@code
+   * ATOM_CACHE_REF} entries instead of spelling out their text.
+   */
+  public TermEncoder withAtomCacheRefs(AtomCacheRefs refs) {
+    return new TermEncoder(refs, compressionLevel, compressionThreshold, parallelThreshold);
+  }
+
+  /**
+   * Returns an encoder that writes versioned terms of at least {@code threshold} encoded bytes in
+   * the {@code COMPRESSED} form, like {@code term_to_binary(Term, [{compressed, Level}])}. A term
+   * is still written uncompressed when compressing it would not make it smaller. Compressed terms
+   * are encoded into a temporary array first, and zlib state comes from a shared pool.
+   *
+   * @param level the zlib compression level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+   * @param threshold the smallest uncompressed encoded size worth compressing
+   */
+  public TermEncoder withCompression(int level, int threshold) {
+    if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+        && level != Deflater.DEFAULT_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    if (threshold < 0) {
+      throw new IllegalArgumentException("Negative compression threshold: " + threshold);
+    }
+    return new TermEncoder(atomCacheRefs, level, threshold, parallelThreshold);
+  }
+
+  /**
+   * Returns an encoder that encodes lists and maps of at least {@code threshold} elements in
+   * parallel on the common {@link ForkJoinPool}. The elements are split into segments whose sizes
+   * are computed in parallel first, so that each segment is then written straight to its place in
+   * the output. The bytes are the same as sequential encoding; smaller terms, and lists of
+   * integers, stay sequential.
+   *
+   * @param threshold the fewest elements worth splitting, at least {@value Segments#MIN_SEGMENT}
+   */
+  public TermEncoder withParallelism(int threshold) {
+    return new TermEncoder(
+        atomCacheRefs, compressionLevel, compressionThreshold, Segments.checkThreshold(threshold));
+  }
 
   public byte[] encode(Term term) throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    baos.write(VERSION_TAG);
-    encodeTerm(term, baos);
-    return baos.toByteArray();
+    byte[] bytes = new byte[encodedSize(term)];
+    int written = encodeInto(term, bytes, 0);
+    return written == bytes.length ? bytes : Arrays.copyOf(bytes, written);
+  }
+
+  /**
+   * Returns the exact number of bytes {@link #encodeInto} writes for {@code term}. With compression
+   * enabled this is the uncompressed size, which is an upper bound.
+   */
+  public int encodedSize(Term term) {
+    return 1 + sizeOf(term);
+  }
+
+  /**
+   * Returns the exact number of bytes {@link #encodeWithoutVersion} writes for {@code term}, as
+   * used for terms that follow a distribution header.
+   */
+  public int encodedSizeWithoutVersion(Term term) {
+    return sizeOf(term);
+  }
+
+  /**
+   * Writes the versioned encoding of {@code term} at the buffer's position and advances the
+   * position past it. Multi-byte values are written big-endian whatever the buffer's byte order.
+   *
+   * @return the number of bytes written
+   * @throws BufferOverflowException if the buffer has less than {@link #encodedSize} bytes
+   *     remaining, in which case its position is left unchanged
+   */
+  public int encodeInto(Term term, ByteBuffer buffer) {
+    return write(term, buffer, true);
+  }
+
+  /**
+   * Writes the versioned encoding of {@code term} into {@code target} starting at {@code offset}.
+   *
+   * @return the number of bytes written
+   */
+  public int encodeInto(Term term, byte[] target, int offset) {
+    return encodeInto(term, ByteBuffer.wrap(target, offset, target.length - offset));
+  }
+
+  /**
+   * Like {@link #encodeInto(Term, ByteBuffer)} but without the leading version tag, which terms
+   * following a distribution header omit.
+   */
+  public int encodeWithoutVersion(Term term, ByteBuffer buffer) {
+    return write(term, buffer, false);
+  }
+
+  private int write(Term term, ByteBuffer buffer, boolean versioned) {
+    int start = buffer.position();
+    ByteBuffer out =
+        buffer.order() == ByteOrder.BIG_ENDIAN
+            ? buffer
+            : buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    try {
+      if (versioned && compressionThreshold != NO_COMPRESSION) {
+        encodeCompressed(term, out);
+      } else {
+        if (versioned) {
+          out.put((byte) VERSION_TAG);
+        }
+        encodeTerm(term, out);
+      }
+    } catch (BufferOverflowException e) {
+      buffer.position(start);
+      throw e;
+    }
+    buffer.position(out.position());
+    return buffer.position() - start;
+  }
+
+  private void encodeCompressed(Term term, ByteBuffer out) {
+    int size = sizeOf(term);
+    if (1 + size < compressionThreshold || size <= 1 + COMPRESSED_HEADER_SIZE) {
+      out.put((byte) VERSION_TAG);
+      encodeTerm(term, out);
+      return;
+    }
+    if (out.remaining() < 1 + size) {
+      throw new BufferOverflowException();
+    }
+    byte[] plain = new byte[size];
+    encodeTerm(term, ByteBuffer.wrap(plain));
+    int start = out.position();
+    Deflater deflater = Compression.deflater(compressionLevel);
+    try {
+      deflater.setInput(plain);
+      deflater.finish();
+      // Deflating stops at the plain size, as anything larger is written uncompressed
+      ByteBuffer compressed =
+          out.duplicate().position(start + 1 + COMPRESSED_HEADER_SIZE).limit(start + size);
+      while (!deflater.finished() && compressed.hasRemaining()) {
+        deflater.deflate(compressed);
+      }
+      out.put((byte) VERSION_TAG);
+      if (deflater.finished()) {
+        out.put((byte) COMPRESSED).putInt(size).position(compressed.position());
+      } else {
+        out.put(plain);
+      }
+    } finally {
+      Compression.release(deflater);
+    }
+  }
+
+  private int sizeOf(Term term) {
+    return Math.toIntExact(Terms.encodedSize(term, atomSize) - 1);
+  }
+
+  private int cachedAtomSize(Atom atom) {
+    return atomCacheRefs.indexOf(atom) >= 0 ? ATOM_CACHE_REF_SIZE : atom.encodedSize();
+  }
+
+  private static int magnitudeLength(long value) {
+    long magnitude = Math.abs(value);
+    int bits = Long.SIZE - Long.numberOfLeadingZeros(magnitude);
+    return value == Long.MIN_VALUE ? Long.BYTES : (bits + Byte.SIZE - 1) / Byte.SIZE;
   }
 
-  private void encodeTerm(Term term, ByteArrayOutputStream out) throws IOException {
+  private void encodeTerm(Term term, ByteBuffer out) {
     switch (term) {
       case Atom atom -> encodeAtom(atom, out);
-      case Number.Integer integer -> encodeInteger(integer, out);
-      case Number.Long longNum -> encodeLong(longNum, out);
+      case Number.Integer integer -> encodeInteger(integer.value(), out);
+      case Number.Long longNum -> encodeLong(longNum.value(), out);
       case Number.Double doubleNum -> encodeDouble(doubleNum, out);
-      case Number.BigInteger bigInt -> encodeBigInteger(bigInt, out);
+      case Number.BigInteger bigInt -> encodeBigInteger(bigInt.value(), out);
       case Binary binary -> encodeBinary(binary, out);
       case List list -> encodeList(list, out);
       case Tuple tuple -> encodeTuple(tuple, out);
@@ -44,68 +247,235 @@ public class TermEncoder {
     }
   }
 
-  private void encodeAtom(Atom atom, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodeAtom not implemented for atom: {}", atom);
-    out.write(ATOM_EXT);
+  private void encodeAtom(String text, ByteBuffer out) {
+    encodeAtom(Atom.of(text), out);
   }
 
-  private void encodeInteger(Number.Integer integer, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodeInteger not implemented for integer: {}", integer);
-    out.write(SMALL_INTEGER_EXT);
+  private void encodeAtom(Atom atom, ByteBuffer out) {
+    int index = atomCacheRefs == null ? -1 : atomCacheRefs.indexOf(atom);
+    if (index >= 0) {
+      out.put((byte) ATOM_CACHE_REF);
+      out.put((byte) index);
+    } else {
+      atom.writeTo(out);
+    }
+  }
+
+  static void encodeInteger(int value, ByteBuffer out) {
+    if (value >= 0 && value <= MAX_BYTE_VALUE) {
+      out.put((byte) SMALL_INTEGER_EXT);
+      out.put((byte) value);
+    } else {
+      out.put((byte) INTEGER_EXT);
+      out.putInt(value);
+    }
   }
 
-  private void encodeLong(Number.Long longNum, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodeLong not implemented for long: {}", longNum);
-    out.write(INTEGER_EXT);
+  static void encodeLong(long value, ByteBuffer out) {
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      encodeInteger((int) value, out);
+      return;
+    }
+    int length = magnitudeLength(value);
+    long magnitude = Math.abs(value);
+    out.put((byte) SMALL_BIG_EXT);
+    out.put((byte) length);
+    out.put((byte) (value < 0 ? 1 : 0));
+    for (int i = 0; i < length; i++) {
+      out.put((byte) (magnitude >>> (Byte.SIZE * i)));
+    }
   }
 
-  private void encodeDouble(Number.Double doubleNum, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodeDouble not implemented for double: {}", doubleNum);
-    out.write(NEW_FLOAT_EXT);
+  private void encodeDouble(Number.Double doubleNum, ByteBuffer out) {
+    out.put((byte) NEW_FLOAT_EXT);
+    out.putDouble(doubleNum.value());
   }
 
-  private void encodeBigInteger(Number.BigInteger bigInt, ByteArrayOutputStream out)
-      throws IOException {
-    logger.debug("encodeBigInteger not implemented for bigInt: {}", bigInt);
-    out.write(SMALL_BIG_EXT);
+  private void encodeBigInteger(java.math.BigInteger value, ByteBuffer out) {
+    if (value.bitLength() < Long.SIZE) {
+      encodeLong(value.longValue(), out);
+      return;
+    }
+    byte[] magnitude = value.abs().toByteArray();
+    int skip = magnitude[0] == 0 ? 1 : 0;
+    int length = magnitude.length - skip;
+    if (length <= MAX_BYTE_VALUE) {
+      out.put((byte) SMALL_BIG_EXT);
+      out.put((byte) length);
+    } else {
+      out.put((byte) LARGE_BIG_EXT);
+      out.putInt(length);
+    }
+    out.put((byte) (value.signum() < 0 ? 1 : 0));
+    for (int i = magnitude.length - 1; i >= skip; i--) {
+      out.put(magnitude[i]);
+    }
   }
 
-  private void encodeBinary(Binary binary, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodeBinary not implemented for binary with {} bytes", binary.size());
-    out.write(BINARY_EXT);
+  private void encodeBinary(Binary binary, ByteBuffer out) {
+    out.put((byte) BINARY_EXT);
+    out.putInt(binary.size());
+    out.put(binary.asReadOnlyBuffer());
   }
 
-  private void encodeList(List list, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodeList not implemented for list with {} elements", list.size());
-    out.write(LIST_EXT);
+  private void encodeList(List list, ByteBuffer out) {
+    if (Terms.writeFrozen(list, out)) {
+      return;
+    }
+    if (list.isEmpty()) {
+      out.put((byte) NIL_EXT);
+      return;
+    }
+    if (list instanceof List.Bytes bytes && bytes.size() <= MAX_SHORT_VALUE) {
+      out.put((byte) STRING_EXT);
+      out.putShort((short) bytes.size());
+      bytes.writeTo(out);
+      return;
+    }
+    out.put((byte) LIST_EXT);
+    out.putInt(list.size());
+    if (list instanceof List.Bytes bytes) {
+      for (int i = 0; i < bytes.size(); i++) {
+        out.put((byte) SMALL_INTEGER_EXT);
+        out.put((byte) bytes.unsignedAt(i));
+      }
+    } else if (list instanceof List.Ints ints) {
+      for (int i = 0; i < ints.size(); i++) {
+        encodeInteger(ints.intAt(i), out);
+      }
+    } else if (list.size() >= parallelThreshold) {
+      encodeSegments(list.elements(), out);
+    } else {
+      for (Term element : list) {
+        encodeTerm(element, out);
+      }
+    }
+    encodeTerm(list.lastTail(), out);
   }
 
-  private void encodeTuple(Tuple tuple, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodeTuple not implemented for tuple with arity: {}", tuple.arity());
+  private void encodeTuple(Tuple tuple, ByteBuffer out) {
+    if (Terms.writeFrozen(tuple, out)) {
+      return;
+    }
     if (tuple.arity() <= MAX_BYTE_VALUE) {
-      out.write(SMALL_TUPLE_EXT);
+      out.put((byte) SMALL_TUPLE_EXT);
+      out.put((byte) tuple.arity());
     } else {
-      out.write(LARGE_TUPLE_EXT);
+      out.put((byte) LARGE_TUPLE_EXT);
+      out.putInt(tuple.arity());
+    }
+    for (int i = 0; i < tuple.arity(); i++) {
+      encodeTerm(tuple.get(i), out);
+    }
+  }
+
+  private void encodeMap(Map map, ByteBuffer out) {
+    if (Terms.writeFrozen(map, out)) {
+      return;
+    }
+    out.put((byte) MAP_EXT);
+    out.putInt(map.size());
+    if (map.size() >= parallelThreshold) {
+      // Keys and values alternate, as they are written; segments may split a pair
+      Term[] entries = new Term[2 * map.size()];
+      int[] next = {0};
+      map.forEach(
+          (key, value) -> {
+            entries[next[0]++] = key;
+            entries[next[0]++] = value;
+          });
+      encodeSegments(entries, out);
+      return;
+    }
+    for (java.util.Map.Entry<Term, Term> entry : map.entrySet()) {
+      encodeTerm(entry.getKey(), out);
+      encodeTerm(entry.getValue(), out);
     }
   }
 
-  private void encodeMap(Map map, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodeMap not implemented for map with {} entries", map.size());
-    out.write(MAP_EXT);
+  /**
+   * Writes {@code terms} one after another, encoding segments of them in parallel. Each segment is
+   * sized first, so it can be written at its final offset in a duplicate of {@code out}.
+   */
+  private void encodeSegments(Term[] terms, ByteBuffer out) {
+    int segments = Segments.count(terms.length);
+    long[] ends = new long[segments];
+    java.util.List<ForkJoinTask<?>> tasks = new ArrayList<>(segments);
+    for (int s = 0; s < segments; s++) {
+      int segment = s;
+      int from = Segments.start(segment, segments, terms.length);
+      int to = Segments.start(segment + 1, segments, terms.length);
+      tasks.add(
+          ForkJoinTask.adapt(
+              () -> {
+                long size = 0;
+                for (int i = from; i < to; i++) {
+                  size += sizeOf(terms[i]);
+                }
+                ends[segment] = size;
+              }));
+    }
+    ForkJoinTask.invokeAll(tasks);
+    for (int s = 1; s < segments; s++) {
+      ends[s] += ends[s - 1];
+    }
+    if (out.remaining() < ends[segments - 1]) {
+      throw new BufferOverflowException();
+    }
+    int base = out.position();
+    tasks.clear();
+    for (int s = 0; s < segments; s++) {
+      int from = Segments.start(s, segments, terms.length);
+      int to = Segments.start(s + 1, segments, terms.length);
+      int start = base + (int) (s == 0 ? 0 : ends[s - 1]);
+      tasks.add(
+          ForkJoinTask.adapt(
+              () -> {
+                ByteBuffer segment = out.duplicate().order(ByteOrder.BIG_ENDIAN).position(start);
+                for (int i = from; i < to; i++) {
+                  encodeTerm(terms[i], segment);
+                }
+              }));
+    }
+    ForkJoinTask.invokeAll(tasks);
+    out.position(base + (int) ends[segments - 1]);
   }
 
-  private void encodePid(Pid pid, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodePid not implemented for pid: {}", pid);
-    out.write(PID_EXT);
+  private void encodePid(Pid pid, ByteBuffer out) {
+    out.put((byte) NEW_PID_EXT);
+    encodeAtom(pid.node(), out);
+    out.putInt((int) pid.id());
+    out.putInt((int) pid.serial());
+    out.putInt(pid.creation());
   }
 
-  private void encodePort(Port port, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodePort not implemented for port: {}", port);
-    out.write(PORT_EXT);
+  private void encodePort(Port port, ByteBuffer out) {
+    boolean wide = port.id() > MAX_UNSIGNED_INT;
+    out.put((byte) (wide ? V4_PORT_EXT : NEW_PORT_EXT));
+    encodeAtom(port.node(), out);
+    if (wide) {
+      out.putLong(port.id());
+    } else {
+      out.putInt((int) port.id());
+    }
+    out.putInt(port.creation());
+  }
+
+  private void encodeReference(Reference ref, ByteBuffer out) {
+    long[] ids = ref.ids();
+    out.put((byte) NEWER_REFERENCE_EXT);
+    out.putShort((short) ids.length);
+    encodeAtom(ref.node(), out);
+    out.putInt(ref.creation());
+    for (long id : ids) {
+      out.putInt((int) id);
+    }
   }
 
-  private void encodeReference(Reference ref, ByteArrayOutputStream out) throws IOException {
-    logger.debug("encodeReference not implemented for reference: {}", ref);
-    out.write(NEW_REFERENCE_EXT);
+  /** Resolves atoms to their index among the atom cache refs of a distribution header. */
+  @FunctionalInterface
+  public interface AtomCacheRefs {
+    /** Returns the atom's index in the header, or {@code -1} if it must be written inline. */
+    int indexOf(Atom atom);
   }
 }
@@ -0,0 +1,413 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
+
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Incremental decoder that is fed encoded terms in chunks, as they arrive from a non-blocking
+ * channel.
+ *
+ * <p>Each call to {@link #parse(ByteBuffer)} consumes bytes from the chunk until a term is complete
+ * or the chunk is exhausted, keeping the partially built term between calls. Tuples, lists and maps
+ * are assembled element by element, so the only bytes held back are those of a single scalar term
+ * split across chunks, such as a binary; scalars that arrive whole are decoded straight from the
+ * chunk. Compressed terms are inflated as their bytes arrive. A typical read loop is:
+ *
+ * <pre>{@code
+ * channel.read(chunk);
+ * chunk.flip();
+ * Term term;
+ * while ((term = parser.parse(chunk)) != null) {
+ *   handle(term);
+ * }
+ * chunk.compact();
+ * }</pre>
+ *
+ * <p>A parser is not thread-safe and, after throwing a {@link DecodeException}, is left in an
+ * undefined state until {@link #reset()}.
+ */
+public final class TermParser {
+  private static final int INITIAL_DEPTH = 16;
+  private static final int INITIAL_SCRATCH = 64;
+  private static final int PRESIZE_LIMIT = 1024;
+  private static final int INITIAL_INFLATED = 1024;
+  private static final int DEFAULT_MAX_BUFFERED_BYTES = 64 * 1024 * 1024;
+
+  private final int maxBufferedBytes;
+  private TermDecoder decoder;
+  private boolean versioned;
+  private boolean expectVersion;
+
+  private byte[] scratch = new byte[INITIAL_SCRATCH];
+  private int buffered;
+  private Container[] stack = new Container[INITIAL_DEPTH];
+  private int depth;
+  private Inflater inflater;
+  private byte[] inflated;
+  private int inflatedSize;
+  private int declaredSize;
+
+  /**
+   * Creates a parser for a stream of versioned terms that holds back at most 64 MiB of a term, or
+   * of an inflated compressed term.
+   */
+  public TermParser() {
+    this(new TermDecoder(), true, DEFAULT_MAX_BUFFERED_BYTES);
+  }
+
+  /**
+   * Creates a parser for terms decoded with {@code decoder}.
+   *
+   * @param versioned whether each term starts with a version tag
+   * @param maxBufferedBytes the largest scalar term the parser will hold back while waiting for the
+   *     rest of it to arrive, and the largest size a compressed term may inflate to
+   */
+  public TermParser(TermDecoder decoder, boolean versioned, int maxBufferedBytes) {
+    this.maxBufferedBytes = maxBufferedBytes;
+    reset(decoder, versioned);
+  }
+
+  /** Discards any partially parsed term. */
+  public void reset() {
+    reset(decoder, versioned);
+  }
+
+  /**
+   * Discards any partially parsed term and parses the next one with {@code decoder}, for instance
+   * one that resolves the atom cache refs of a new distribution header.
+   */
+  public void reset(TermDecoder decoder, boolean versioned) {
+    // Chunks and the scratch buffer are reused, so binaries must not point into them
+    this.decoder = decoder.withSharedBinaries(false);
+    this.versioned = versioned;
+    this.expectVersion = versioned;
+    this.buffered = 0;
+    Arrays.fill(stack, 0, depth, null);
+    this.depth = 0;
+    if (inflater != null) {
+      Compression.release(inflater);
+      inflater = null;
+      inflated = null;
+    }
+  }
+
+  /** Returns whether the parser is between terms, holding no partial state. */
+  public boolean isIdle() {
+    return depth == 0 && buffered == 0 && inflater == null && expectVersion == versioned;
+  }
+
+  /**
+   * Consumes bytes from the chunk's position and returns the next complete term, or {@code null} if
+   * the chunk ran out first. The chunk's position is advanced past the bytes consumed.
+   */
+  public Term parse(ByteBuffer chunk) throws DecodeException {
+    if (expectVersion) {
+      if (!chunk.hasRemaining()) {
+        return null;
+      }
+      int version = chunk.get() & 0xFF;
+      if (version != VERSION_TAG) {
+        throw new DecodeException("Invalid version tag: " + version);
+      }
+      expectVersion = false;
+    }
+    while (true) {
+      Term term = nextItem(chunk);
+      if (term == null && !chunk.hasRemaining()) {
+        return null;
+      }
+      while (term != null) {
+        if (depth == 0) {
+          expectVersion = versioned;
+          return term;
+        }
+        Container top = stack[depth - 1];
+        top.add(term);
+        if (top.isComplete()) {
+          stack[--depth] = null;
+          term = top.build();
+        } else {
+          term = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the next scalar term or container header. Returns the scalar, or an empty container, or
+   * {@code null} if a container was opened or more bytes are needed.
+   */
+  private Term nextItem(ByteBuffer chunk) throws DecodeException {
+    if (inflater != null) {
+      return inflate(chunk);
+    }
+    if (buffered == 0) {
+      int start = chunk.position();
+      long length = itemLength(chunk, start, chunk.remaining());
+      if (length <= chunk.remaining()) {
+        chunk.position(start + (int) length);
+        return complete(chunk, start);
+      }
+    }
+    while (true) {
+      long length = buffered == 0 ? 1 : itemLength(ByteBuffer.wrap(scratch), 0, buffered);
+      if (buffered >= length) {
+        buffered = 0;
+        return complete(ByteBuffer.wrap(scratch), 0);
+      }
+      if (length > maxBufferedBytes) {
+        throw new DecodeException("Term of " + length + " bytes exceeds the buffering limit");
+      }
+      if (!chunk.hasRemaining()) {
+        return null;
+      }
+      if (length > scratch.length) {
+        long grown = Math.max(length, Math.min(scratch.length * 2L, maxBufferedBytes));
+        scratch = Arrays.copyOf(scratch, (int) grown);
+      }
+      int count = (int) Math.min(length - buffered, chunk.remaining());
+      chunk.get(scratch, buffered, count);
+      buffered += count;
+    }
+  }
+
+  private Term complete(ByteBuffer buffer, int offset) throws DecodeException {
+    int tag = buffer.get(offset) & 0xFF;
+    return switch (tag) {
+      case SMALL_TUPLE_EXT -> open(tag, buffer.get(offset + 1) & 0xFF);
+      case LARGE_TUPLE_EXT -> open(tag, u32(buffer, offset + 1));
+      case LIST_EXT -> open(tag, u32(buffer, offset + 1) + 1);
+      case MAP_EXT -> open(tag, 2 * u32(buffer, offset + 1));
+      case COMPRESSED -> startInflating(u32(buffer, offset + 1));
+      default -> decoder.decodeWithoutVersion(buffer, offset).term();
+    };
+  }
+
+  private Term startInflating(long size) throws DecodeException {
+    if (size == 0 || size > maxBufferedBytes) {
+      throw new DecodeException("Invalid compressed term size: " + size);
+    }
+    // The size comes from the peer, so the output buffer grows as the inflated bytes arrive
+    declaredSize = (int) size;
+    inflated = new byte[Math.min(declaredSize, INITIAL_INFLATED)];
+    inflatedSize = 0;
+    inflater = Compression.inflater();
+    return null;
+  }
+
+  /**
+   * Feeds the chunk to the inflater of a compressed term, returning the term once the zlib stream
+   * has ended, or {@code null} after consuming the whole chunk.
+   */
+  private Term inflate(ByteBuffer chunk) throws DecodeException {
+    inflater.setInput(chunk);
+    try {
+      while (!inflater.finished()) {
+        if (inflatedSize == inflated.length && inflatedSize < declaredSize) {
+          int grown = (int) Math.min(declaredSize, 2L * inflated.length);
+          inflated = Arrays.copyOf(inflated, grown);
+        }
+        int count = inflater.inflate(inflated, inflatedSize, inflated.length - inflatedSize);
+        inflatedSize += count;
+        if (inflatedSize > inflater.getBytesRead() * Compression.MAX_RATIO) {
+          throw new DecodeException("Compressed term inflates beyond any valid deflate ratio");
+        }
+        if (count == 0 && !inflater.finished()) {
+          if (inflater.needsInput()) {
+            return null;
+          }
+          if (inflater.needsDictionary()) {
+            throw new DecodeException("Compressed term requires a preset dictionary");
+          }
+          if (inflatedSize == declaredSize) {
+            throw new DecodeException("Compressed term is larger than its declared size");
+          }
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new DecodeException("Invalid compressed term: " + e.getMessage(), e);
+    }
+    if (inflatedSize != declaredSize) {
+      throw new DecodeException("Compressed term is smaller than its declared size");
+    }
+    Compression.release(inflater);
+    inflater = null;
+    ByteBuffer data = ByteBuffer.wrap(inflated, 0, inflatedSize);
+    inflated = null;
+    TermDecoder.DecodeResult result = decoder.decodeWithoutVersion(data, 0);
+    if (result.bytesConsumed() != inflatedSize) {
+      throw new DecodeException("Compressed term has trailing bytes");
+    }
+    return result.term();
+  }
+
+  private Term open(int tag, long count) throws DecodeException {
+    if (count == 0) {
+      return tag == MAP_EXT ? Map.of() : Tuple.of();
+    }
+    if (count > Integer.MAX_VALUE - 1) {
+      throw new DecodeException("Element count " + count + " is too large");
+    }
+    if (depth == stack.length) {
+      stack = Arrays.copyOf(stack, depth * 2);
+    }
+    stack[depth++] = new Container(tag, (int) count);
+    return null;
+  }
+
+  /**
+   * Returns the encoded length of the scalar term or container header at {@code offset}, or, if
+   * fewer than {@code available} bytes are not yet enough to tell, the number needed to learn more.
+   */
+  private static long itemLength(ByteBuffer buffer, int offset, int available)
+      throws DecodeException {
+    if (available < 1) {
+      return 1;
+    }
+    int tag = buffer.get(offset) & 0xFF;
+    return switch (tag) {
+      case SMALL_INTEGER_EXT, ATOM_CACHE_REF, SMALL_TUPLE_EXT -> 2;
+      case INTEGER_EXT, LARGE_TUPLE_EXT, LIST_EXT, MAP_EXT, COMPRESSED -> 5;
+      case NEW_FLOAT_EXT -> 9;
+      case FLOAT_EXT -> 1 + FLOAT_EXT_LENGTH;
+      case NIL_EXT -> 1;
+      case ATOM_EXT, ATOM_UTF8_EXT, STRING_EXT -> sized(buffer, offset, available, 1, 2, 0);
+      case SMALL_ATOM_EXT, SMALL_ATOM_UTF8_EXT -> sized(buffer, offset, available, 1, 1, 0);
+      case BINARY_EXT -> sized(buffer, offset, available, 1, 4, 0);
+      case BIT_BINARY_EXT -> sized(buffer, offset, available, 1, 4, 1);
+      case SMALL_BIG_EXT -> sized(buffer, offset, available, 1, 1, 1);
+      case LARGE_BIG_EXT -> sized(buffer, offset, available, 1, 4, 1);
+      case PID_EXT -> nodeThen(buffer, offset, available, 1, 9);
+      case NEW_PID_EXT -> nodeThen(buffer, offset, available, 1, 12);
+      case PORT_EXT, REFERENCE_EXT -> nodeThen(buffer, offset, available, 1, 5);
+      case NEW_PORT_EXT -> nodeThen(buffer, offset, available, 1, 8);
+      case V4_PORT_EXT -> nodeThen(buffer, offset, available, 1, 12);
+      case NEW_REFERENCE_EXT, NEWER_REFERENCE_EXT -> {
+        if (available < 3) {
+          yield 3;
+        }
+        int ids = ((buffer.get(offset + 1) & 0xFF) << Byte.SIZE) | (buffer.get(offset + 2) & 0xFF);
+        int creation = tag == NEW_REFERENCE_EXT ? 1 : 4;
+        yield nodeThen(buffer, offset, available, 3, creation + 4L * ids);
+      }
+      case FUN_EXT, NEW_FUN_EXT, EXPORT_EXT ->
+          throw new DecodeException(
+              "Funs cannot be represented as terms: " + ExternalFormat.tagName(tag));
+      default -> throw new DecodeException("Unknown tag: " + tag);
+    };
+  }
+
+  /** Length of a term with a {@code width}-byte size at {@code at} and {@code extra} more bytes. */
+  private static long sized(
+      ByteBuffer buffer, int offset, int available, int at, int width, int extra) {
+    if (available < at + width) {
+      return at + width;
+    }
+    long size = 0;
+    for (int i = 0; i < width; i++) {
+      size = (size << Byte.SIZE) | (buffer.get(offset + at + i) & 0xFF);
+    }
+    return at + width + extra + size;
+  }
+
+  /** Length of a term with a node atom at {@code at} followed by {@code rest} fixed bytes. */
+  private static long nodeThen(ByteBuffer buffer, int offset, int available, int at, long rest)
+      throws DecodeException {
+    if (available < at + 1) {
+      return at + 1;
+    }
+    int tag = buffer.get(offset + at) & 0xFF;
+    long node =
+        switch (tag) {
+          case ATOM_EXT, ATOM_UTF8_EXT -> sized(buffer, offset + at, available - at, 1, 2, 0);
+          case SMALL_ATOM_EXT, SMALL_ATOM_UTF8_EXT ->
+              sized(buffer, offset + at, available - at, 1, 1, 0);
+          case ATOM_CACHE_REF -> 2;
+          default -> throw new DecodeException("Expected a node name but found tag " + tag);
+        };
+    if (available < at + node) {
+      return at + node;
+    }
+    return at + node + rest;
+  }
+
+  private static long u32(ByteBuffer buffer, int offset) {
+    long value = 0;
+    for (int i = 0; i < Integer.BYTES; i++) {
+      value = (value << Byte.SIZE) | (buffer.get(offset + i) & 0xFF);
+    }
+    return value;
+  }
+
+  /** A tuple, list or map whose elements are still arriving. */
+  private static final class Container {
+    private final int tag;
+    private final int count;
+    private final Tuple.Builder tuple;
+    private final List.Builder list;
+    private final Map.Builder map;
+    private Term key;
+    private Term last;
+    private int size;
+
+    Container(int tag, int count) {
+      this.tag = tag;
+      this.count = count;
+      // Counts come from the peer, so only small containers are sized up front
+      int expected = Math.min(count, PRESIZE_LIMIT);
+      boolean isTuple = tag == SMALL_TUPLE_EXT || tag == LARGE_TUPLE_EXT;
+      this.tuple = isTuple ? Tuple.builder(expected) : null;
+      this.list = tag == LIST_EXT ? List.builder(expected - 1) : null;
+      this.map = tag == MAP_EXT ? Map.builder(expected / 2) : null;
+    }
+
+    void add(Term term) {
+      size++;
+      if (tuple != null) {
+        tuple.add(term);
+      } else if (list != null) {
+        if (size < count) {
+          list.add(term);
+        } else {
+          last = term;
+        }
+      } else if (key == null) {
+        key = term;
+      } else {
+        map.put(key, term);
+        key = null;
+      }
+    }
+
+    boolean isComplete() {
+      return size == count;
+    }
+
+    Term build() throws DecodeException {
+      return switch (tag) {
+        case LIST_EXT -> {
+          if (count == 1) {
+            // A list with no elements is just its tail
+            yield last;
+          }
+          try {
+            yield list.build(last);
+          } catch (IllegalArgumentException e) {
+            throw new DecodeException(e.getMessage(), e);
+          }
+        }
+        case MAP_EXT -> map.build();
+        default -> tuple.build();
+      };
+    }
+  }
+}
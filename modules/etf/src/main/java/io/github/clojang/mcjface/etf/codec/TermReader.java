@@ -0,0 +1,366 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
+
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads encoded terms piece by piece, straight into Java values, without building a {@link Term}
+ * tree. This is the primitive layer under generated record codecs: a caller that knows the shape of
+ * the data reads a tuple header, then each element with the matching {@code read} method, and falls
+ * back to {@link #readTerm()} for anything it does not model.
+ *
+ * <p>Each {@code read} method consumes exactly one term and throws {@link DecodeException} if the
+ * term is not of the expected type, leaving the reader in an undefined position. Lists are read
+ * with {@link #readListHeader()}, one read per element, and {@link #readListEnd()}; this works
+ * alike for {@code LIST_EXT}, {@code NIL_EXT} and the {@code STRING_EXT} form Erlang uses for short
+ * lists of small integers, whose elements can only be read with {@link #readInt()} or {@link
+ * #readLong()}. A reader is not thread-safe.
+ */
+public final class TermReader {
+  private final TermDecoder decoder;
+  private final TermDecoder.Reader in;
+  // Set while the innermost open list has no tail term: NIL_EXT or STRING_EXT
+  private boolean listWithoutTail;
+  // Bytes left in the STRING_EXT list being read
+  private int stringRemaining;
+
+  private TermReader(TermDecoder decoder, TermDecoder.Reader in) {
+    this.decoder = decoder;
+    this.in = in;
+  }
+
+  /** Returns a reader of the versioned term in {@code data}. */
+  public static TermReader of(byte[] data) throws DecodeException {
+    return of(ByteBuffer.wrap(data), 0, true, new TermDecoder());
+  }
+
+  /**
+   * Returns a reader starting at {@code offset} of {@code buffer}, which it never modifies. The
+   * decoder is used for terms read with {@link #readTerm()}, and for its atom cache refs. A {@code
+   * COMPRESSED} term is inflated up front and read from the inflated bytes.
+   *
+   * @param versioned whether the term starts with the version tag, which is then checked
+   */
+  public static TermReader of(ByteBuffer buffer, int offset, boolean versioned, TermDecoder decoder)
+      throws DecodeException {
+    TermDecoder.Reader in = new TermDecoder.Reader(buffer, offset);
+    if (versioned && in.u8() != VERSION_TAG) {
+      throw new DecodeException("Invalid version tag at offset " + offset);
+    }
+    if (in.peek() == COMPRESSED) {
+      in.skip(1);
+      int size = in.compressedSize();
+      byte[] inflated = new byte[size];
+      in.inflate(inflated, size);
+      in = new TermDecoder.Reader(ByteBuffer.wrap(inflated), 0);
+    }
+    return new TermReader(decoder, in);
+  }
+
+  /** Returns the offset of the next term in the buffer. */
+  public int position() {
+    return in.pos;
+  }
+
+  /**
+   * Moves back or forth to {@code position}, which must be the start of a term, as returned by
+   * {@link #position()} outside of a {@code STRING_EXT} list.
+   */
+  public void seek(int position) {
+    in.pos = position;
+    listWithoutTail = false;
+    stringRemaining = 0;
+  }
+
+  /**
+   * Returns the external format tag of the next term without consuming it. The elements of a {@code
+   * STRING_EXT} list report {@code SMALL_INTEGER_EXT}.
+   */
+  public int peekTag() throws DecodeException {
+    return stringRemaining > 0 ? SMALL_INTEGER_EXT : in.peek();
+  }
+
+  /**
+   * Reads a tuple header.
+   *
+   * @return the arity of the tuple, whose elements are read next
+   */
+  public int readTupleHeader() throws DecodeException {
+    int tag = next();
+    return switch (tag) {
+      case SMALL_TUPLE_EXT -> in.u8();
+      case LARGE_TUPLE_EXT -> in.count32();
+      default -> throw unexpected("tuple", tag);
+    };
+  }
+
+  /** Reads the header of a tuple that must have {@code arity} elements. */
+  public void readTupleHeader(int arity) throws DecodeException {
+    int actual = readTupleHeader();
+    if (actual != arity) {
+      throw new DecodeException("Expected tuple of arity " + arity + ", got " + actual);
+    }
+  }
+
+  public Atom readAtom() throws DecodeException {
+    if (stringRemaining > 0) {
+      throw unexpected("atom", STRING_EXT);
+    }
+    int tag = in.peek();
+    return switch (tag) {
+      case ATOM_EXT, SMALL_ATOM_EXT, ATOM_UTF8_EXT, SMALL_ATOM_UTF8_EXT, ATOM_CACHE_REF ->
+          (Atom) decoder.decodeChecked(in);
+      default -> throw unexpected("atom", tag);
+    };
+  }
+
+  /** Reads an atom that must be {@code expected}, such as a record tag. */
+  public void readAtom(Atom expected) throws DecodeException {
+    Atom actual = readAtom();
+    if (actual != expected) {
+      throw new DecodeException("Expected atom " + expected.value() + ", got " + actual.value());
+    }
+  }
+
+  /**
+   * Reads an atom if it is {@code expected}. UTF-8 atoms are compared with the expected text in
+   * place, without being looked up in the atom table.
+   *
+   * @return whether it was read; if not, nothing was consumed
+   */
+  public boolean readAtomIf(Atom expected) throws DecodeException {
+    if (stringRemaining > 0) {
+      return false;
+    }
+    int start = in.pos;
+    int tag = in.peek();
+    if (tag == SMALL_ATOM_UTF8_EXT || tag == ATOM_UTF8_EXT) {
+      in.skip(1);
+      int length = tag == SMALL_ATOM_UTF8_EXT ? in.u8() : in.u16();
+      in.require(length);
+      if (expected.hasUtf8(in.buffer(), in.pos, length)) {
+        in.pos += length;
+        return true;
+      }
+    } else if (tag == ATOM_EXT || tag == SMALL_ATOM_EXT || tag == ATOM_CACHE_REF) {
+      // Latin-1 text and cache refs are rare enough to go through the decoder
+      if (readAtom() == expected) {
+        return true;
+      }
+    }
+    in.pos = start;
+    return false;
+  }
+
+  /**
+   * Reads the atom {@code undefined}, which Erlang records use for unset fields, if it is next.
+   *
+   * @return whether it was read; if not, nothing was consumed
+   */
+  public boolean readUndefined() throws DecodeException {
+    if (stringRemaining > 0) {
+      return false;
+    }
+    int tag = in.peek();
+    if (tag != ATOM_EXT
+        && tag != SMALL_ATOM_EXT
+        && tag != ATOM_UTF8_EXT
+        && tag != SMALL_ATOM_UTF8_EXT
+        && tag != ATOM_CACHE_REF) {
+      return false;
+    }
+    int start = in.pos;
+    if (readAtom() == Atom.UNDEFINED) {
+      return true;
+    }
+    in.pos = start;
+    return false;
+  }
+
+  public boolean readBoolean() throws DecodeException {
+    Atom atom = readAtom();
+    if (!atom.isBoolean()) {
+      throw new DecodeException("Expected boolean, got " + atom.value());
+    }
+    return atom.booleanValue();
+  }
+
+  /** Reads an integer that must fit an {@code int}. */
+  public int readInt() throws DecodeException {
+    if (stringRemaining > 0) {
+      stringRemaining--;
+      return in.u8();
+    }
+    int tag = next();
+    return switch (tag) {
+      case SMALL_INTEGER_EXT -> in.u8();
+      case INTEGER_EXT -> in.i32();
+      default -> {
+        long value = bigInteger(tag);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+          throw new DecodeException("Integer " + value + " does not fit an int");
+        }
+        yield (int) value;
+      }
+    };
+  }
+
+  /** Reads an integer that must fit a {@code long}. */
+  public long readLong() throws DecodeException {
+    if (stringRemaining > 0) {
+      stringRemaining--;
+      return in.u8();
+    }
+    int tag = next();
+    return switch (tag) {
+      case SMALL_INTEGER_EXT -> in.u8();
+      case INTEGER_EXT -> in.i32();
+      default -> bigInteger(tag);
+    };
+  }
+
+  private long bigInteger(int tag) throws DecodeException {
+    if (tag != SMALL_BIG_EXT && tag != LARGE_BIG_EXT) {
+      throw unexpected("integer", tag);
+    }
+    in.pos--;
+    if (decoder.decodeChecked(in) instanceof Number number
+        && !(number instanceof Number.BigInteger)) {
+      return number.longValue();
+    }
+    throw new DecodeException("Integer does not fit a long");
+  }
+
+  /** Reads a float. */
+  public double readDouble() throws DecodeException {
+    int tag = next();
+    if (tag == NEW_FLOAT_EXT) {
+      return Double.longBitsToDouble(in.i64());
+    }
+    if (tag != FLOAT_EXT) {
+      throw unexpected("float", tag);
+    }
+    in.pos--;
+    return ((Number) decoder.decodeChecked(in)).doubleValue();
+  }
+
+  /**
+   * Reads text, sent either as a UTF-8 binary, as Elixir strings are, or as a charlist, as Erlang
+   * strings are.
+   */
+  public String readString() throws DecodeException {
+    int tag = next();
+    return switch (tag) {
+      case BINARY_EXT -> in.string(in.count32(), StandardCharsets.UTF_8);
+      case STRING_EXT -> in.string(in.u16(), StandardCharsets.ISO_8859_1);
+      case NIL_EXT -> "";
+      case LIST_EXT -> {
+        in.pos--;
+        try {
+          yield ((List) decoder.decodeChecked(in)).toCharString();
+        } catch (IllegalStateException e) {
+          throw new DecodeException(e.getMessage(), e);
+        }
+      }
+      default -> throw unexpected("string", tag);
+    };
+  }
+
+  /** Reads the bytes of a binary. */
+  public byte[] readBinary() throws DecodeException {
+    int tag = next();
+    if (tag == BINARY_EXT) {
+      return in.bytes(in.count32());
+    }
+    if (tag != BIT_BINARY_EXT) {
+      throw unexpected("binary", tag);
+    }
+    in.pos--;
+    return ((Binary) decoder.decodeChecked(in)).bytes();
+  }
+
+  /**
+   * Reads a list header. The elements are read next, followed by {@link #readListEnd()}.
+   *
+   * @return the number of elements
+   */
+  public int readListHeader() throws DecodeException {
+    int tag = next();
+    switch (tag) {
+      case NIL_EXT -> {
+        listWithoutTail = true;
+        return 0;
+      }
+      case STRING_EXT -> {
+        stringRemaining = in.u16();
+        in.require(stringRemaining);
+        listWithoutTail = true;
+        return stringRemaining;
+      }
+      case LIST_EXT -> {
+        listWithoutTail = false;
+        return in.count32();
+      }
+      default -> throw unexpected("list", tag);
+    }
+  }
+
+  /** Reads the end of a list whose elements have all been read, which must be proper. */
+  public void readListEnd() throws DecodeException {
+    if (listWithoutTail) {
+      listWithoutTail = false;
+      if (stringRemaining != 0) {
+        throw new DecodeException(stringRemaining + " list elements were not read");
+      }
+      return;
+    }
+    int tag = next();
+    if (tag != NIL_EXT) {
+      throw new DecodeException("Expected proper list tail, got " + ExternalFormat.tagName(tag));
+    }
+  }
+
+  /** Reads the next term as a whole. */
+  public Term readTerm() throws DecodeException {
+    if (stringRemaining > 0) {
+      return Number.of(readInt());
+    }
+    return decoder.decodeChecked(in);
+  }
+
+  /** Skips the next term without decoding it. */
+  public void skipTerm() throws DecodeException {
+    if (stringRemaining > 0) {
+      readInt();
+    } else {
+      in.skipTerm();
+    }
+  }
+
+  /** Checks that the whole input up to the buffer's limit has been read. */
+  public void requireEnd() throws DecodeException {
+    if (in.remaining() != 0) {
+      throw new DecodeException(in.remaining() + " trailing bytes after term");
+    }
+  }
+
+  /** Reads the tag of a term that is not an element of a STRING_EXT list. */
+  private int next() throws DecodeException {
+    if (stringRemaining > 0) {
+      throw new DecodeException("STRING_EXT elements can only be read as integers");
+    }
+    return in.u8();
+  }
+
+  private static DecodeException unexpected(String expected, int tag) {
+    return new DecodeException("Expected " + expected + ", got " + ExternalFormat.tagName(tag));
+  }
+}
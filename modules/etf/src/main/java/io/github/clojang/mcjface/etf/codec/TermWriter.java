@@ -0,0 +1,135 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Term;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes encoded terms piece by piece, straight from Java values, without building a {@link Term}
+ * tree. This is the primitive layer under generated record codecs and the counterpart of {@link
+ * TermReader}: a tuple is written as a header followed by one write per element, and a non-empty
+ * list as a header, one write per element and {@link #writeNil()} for its tail.
+ *
+ * <p>Output goes to a heap buffer that grows as needed. Atoms are always written in full, as no
+ * distribution header is involved. A writer is not thread-safe.
+ */
+public final class TermWriter {
+  private static final int DEFAULT_CAPACITY = 64;
+
+  private final TermEncoder encoder;
+  private ByteBuffer out;
+
+  public TermWriter() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public TermWriter(int capacity) {
+    this.encoder = new TermEncoder();
+    this.out = ByteBuffer.allocate(Math.max(capacity, 1));
+  }
+
+  /** Writes the version tag that starts a standalone encoded term. */
+  public TermWriter writeVersion() {
+    ensure(1).put((byte) VERSION_TAG);
+    return this;
+  }
+
+  public TermWriter writeTupleHeader(int arity) {
+    if (arity <= MAX_BYTE_VALUE) {
+      ensure(2).put((byte) SMALL_TUPLE_EXT).put((byte) arity);
+    } else {
+      ensure(1 + Integer.BYTES).put((byte) LARGE_TUPLE_EXT).putInt(arity);
+    }
+    return this;
+  }
+
+  public TermWriter writeAtom(Atom atom) {
+    atom.writeTo(ensure(atom.encodedSize()));
+    return this;
+  }
+
+  /** Writes the atom {@code undefined}, which Erlang records use for unset fields. */
+  public TermWriter writeUndefined() {
+    return writeAtom(Atom.UNDEFINED);
+  }
+
+  public TermWriter writeBoolean(boolean value) {
+    return writeAtom(value ? Atom.TRUE : Atom.FALSE);
+  }
+
+  public TermWriter writeInt(int value) {
+    TermEncoder.encodeInteger(value, ensure(1 + Integer.BYTES));
+    return this;
+  }
+
+  public TermWriter writeLong(long value) {
+    TermEncoder.encodeLong(value, ensure(3 + Long.BYTES));
+    return this;
+  }
+
+  public TermWriter writeDouble(double value) {
+    ensure(1 + Double.BYTES).put((byte) NEW_FLOAT_EXT).putDouble(value);
+    return this;
+  }
+
+  /** Writes text as a UTF-8 binary, the usual form of strings between nodes. */
+  public TermWriter writeString(String value) {
+    return writeBinary(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public TermWriter writeBinary(byte[] bytes) {
+    ensure(1 + Integer.BYTES + bytes.length).put((byte) BINARY_EXT).putInt(bytes.length).put(bytes);
+    return this;
+  }
+
+  /**
+   * Writes the header of a list of {@code count} elements, which are written next, followed by
+   * {@link #writeNil()}. An empty list is written with {@link #writeNil()} alone.
+   */
+  public TermWriter writeListHeader(int count) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("List header needs at least one element: " + count);
+    }
+    ensure(1 + Integer.BYTES).put((byte) LIST_EXT).putInt(count);
+    return this;
+  }
+
+  /** Writes the empty list, either on its own or as the tail of a list. */
+  public TermWriter writeNil() {
+    ensure(1).put((byte) NIL_EXT);
+    return this;
+  }
+
+  /** Writes a whole term. */
+  public TermWriter writeTerm(Term term) {
+    encoder.encodeWithoutVersion(term, ensure(encoder.encodedSizeWithoutVersion(term)));
+    return this;
+  }
+
+  /** Returns the number of bytes written so far. */
+  public int size() {
+    return out.position();
+  }
+
+  /** Returns a copy of the bytes written so far. */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(out.array(), out.position());
+  }
+
+  /** Discards everything written, keeping the buffer for reuse. */
+  public void reset() {
+    out.clear();
+  }
+
+  private ByteBuffer ensure(int count) {
+    if (out.remaining() < count) {
+      int capacity = Math.max(out.capacity() * 2, out.position() + count);
+      out = ByteBuffer.wrap(Arrays.copyOf(out.array(), capacity)).position(out.position());
+    }
+    return out;
+  }
+}
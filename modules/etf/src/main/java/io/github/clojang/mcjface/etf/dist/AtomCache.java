@@ -0,0 +1,151 @@
+package io.github.clojang.mcjface.etf.dist;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Pid;
+import io.github.clojang.mcjface.etf.term.Port;
+import io.github.clojang.mcjface.etf.term.Reference;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+
+/**
+ * Per-connection atom cache for the normal distribution header ({@link
+ * DistributionFlags#DFLAG_DIST_HDR_ATOM_CACHE}).
+ *
+ * <p>The send and receive directions each keep 2048 slots, addressed by a 3-bit segment index and
+ * an 8-bit internal index. When an outgoing message uses an atom that is not in its slot yet, the
+ * header carries the atom text once and both sides store it in that slot, replacing whatever was
+ * there; later messages refer to it by slot alone.
+ *
+ * <p>Both directions depend on messages being processed in wire order, so a cache is not
+ * thread-safe: encoding on a connection must be serialised, as must decoding.
+ */
+public final class AtomCache {
+  /** Number of slots in each direction of the cache. */
+  public static final int SIZE = 2048;
+
+  /** Number of slots in a segment. */
+  static final int SEGMENT_SIZE = 256;
+
+  /** Maximum number of atom cache refs a single distribution header can carry. */
+  static final int MAX_REFS = 255;
+
+  private final Atom[] sent = new Atom[SIZE];
+  private final Atom[] received = new Atom[SIZE];
+
+  private final Atom[] headerAtoms = new Atom[MAX_REFS];
+  private final boolean[] headerNew = new boolean[MAX_REFS];
+  private final short[] headerIndexBySlot = new short[SIZE];
+  private int headerCount;
+
+  static int slotOf(Atom atom) {
+    int hash = atom.hashCode();
+    return (hash ^ (hash >>> 16)) & (SIZE - 1);
+  }
+
+  /** Starts collecting the atom cache refs of a new outgoing header. */
+  void beginHeader() {
+    for (int i = 0; i < headerCount; i++) {
+      headerIndexBySlot[slotOf(headerAtoms[i])] = 0;
+      headerAtoms[i] = null;
+    }
+    headerCount = 0;
+  }
+
+  /** Adds every atom in {@code term} to the header being built, until the header is full. */
+  void collect(Term term) {
+    if (headerCount == MAX_REFS) {
+      return;
+    }
+    switch (term) {
+      case Atom atom -> reference(atom);
+      case Tuple tuple -> {
+        for (int i = 0; i < tuple.arity() && headerCount < MAX_REFS; i++) {
+          collect(tuple.get(i));
+        }
+      }
+      case List.Bytes bytes -> {
+        // Unboxed integer lists contain no atoms
+      }
+      case List.Ints ints -> {
+        // Unboxed integer lists contain no atoms
+      }
+      case List list -> {
+        for (Term element : list) {
+          collect(element);
+        }
+        if (!list.isProper()) {
+          collect(list.lastTail());
+        }
+      }
+      case Map map -> {
+        for (java.util.Map.Entry<Term, Term> entry : map.entrySet()) {
+          collect(entry.getKey());
+          collect(entry.getValue());
+        }
+      }
+      case Pid pid -> reference(Atom.of(pid.node()));
+      case Port port -> reference(Atom.of(port.node()));
+      case Reference ref -> reference(Atom.of(ref.node()));
+      default -> {
+        // Numbers and binaries contain no atoms
+      }
+    }
+  }
+
+  /**
+   * Assigns {@code atom} a ref in the current header. An atom whose slot is already taken by a
+   * different atom of the same message is left to be encoded inline.
+   */
+  private void reference(Atom atom) {
+    if (headerCount == MAX_REFS) {
+      return;
+    }
+    int slot = slotOf(atom);
+    if (headerIndexBySlot[slot] != 0) {
+      return;
+    }
+    headerAtoms[headerCount] = atom;
+    headerNew[headerCount] = sent[slot] != atom;
+    headerIndexBySlot[slot] = (short) ++headerCount;
+  }
+
+  /**
+   * Stores the new entries of the current header in the send cache. Called once the whole message
+   * is encoded, so a message that fails to encode leaves the cache as the peer last saw it.
+   */
+  void commitHeader() {
+    for (int i = 0; i < headerCount; i++) {
+      if (headerNew[i]) {
+        sent[slotOf(headerAtoms[i])] = headerAtoms[i];
+      }
+    }
+  }
+
+  /** Returns the index of {@code atom} in the current header, or {@code -1}. */
+  int headerIndexOf(Atom atom) {
+    int index = headerIndexBySlot[slotOf(atom)] - 1;
+    return index >= 0 && headerAtoms[index] == atom ? index : -1;
+  }
+
+  int headerCount() {
+    return headerCount;
+  }
+
+  Atom headerAtom(int index) {
+    return headerAtoms[index];
+  }
+
+  boolean isHeaderEntryNew(int index) {
+    return headerNew[index];
+  }
+
+  Atom received(int slot) {
+    return received[slot];
+  }
+
+  void received(int slot, Atom atom) {
+    received[slot] = atom;
+  }
+}
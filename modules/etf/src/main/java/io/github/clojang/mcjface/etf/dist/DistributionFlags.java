@@ -0,0 +1,70 @@
+package io.github.clojang.mcjface.etf.dist;
+
+/**
+ * Capability flags exchanged during the distribution handshake.
+ *
+ * <p>Each side advertises the flags it supports and a connection uses the intersection. {@link
+ * #DEFAULT} is what this implementation advertises.
+ *
+ * @see <a href="https://www.erlang.org/doc/apps/erts/erl_dist_protocol.html#dflags">Distribution
+ *     Flags</a>
+ */
+public final class DistributionFlags {
+
+  public static final long DFLAG_PUBLISHED = 0x01L;
+  public static final long DFLAG_ATOM_CACHE = 0x02L;
+  public static final long DFLAG_EXTENDED_REFERENCES = 0x04L;
+  public static final long DFLAG_DIST_MONITOR = 0x08L;
+  public static final long DFLAG_FUN_TAGS = 0x10L;
+  public static final long DFLAG_NEW_FUN_TAGS = 0x80L;
+  public static final long DFLAG_EXTENDED_PIDS_PORTS = 0x100L;
+  public static final long DFLAG_EXPORT_PTR_TAG = 0x200L;
+  public static final long DFLAG_BIT_BINARIES = 0x400L;
+  public static final long DFLAG_NEW_FLOATS = 0x800L;
+  public static final long DFLAG_DIST_HDR_ATOM_CACHE = 0x2000L;
+  public static final long DFLAG_SMALL_ATOM_TAGS = 0x4000L;
+  public static final long DFLAG_UTF8_ATOMS = 0x10000L;
+  public static final long DFLAG_MAP_TAG = 0x20000L;
+  public static final long DFLAG_BIG_CREATION = 0x40000L;
+  public static final long DFLAG_HANDSHAKE_23 = 0x1000000L;
+  public static final long DFLAG_V4_NC = 0x400000000L;
+
+  /** Flags advertised by this node. */
+  public static final long DEFAULT =
+      DFLAG_EXTENDED_REFERENCES
+          | DFLAG_DIST_MONITOR
+          | DFLAG_FUN_TAGS
+          | DFLAG_NEW_FUN_TAGS
+          | DFLAG_EXTENDED_PIDS_PORTS
+          | DFLAG_EXPORT_PTR_TAG
+          | DFLAG_BIT_BINARIES
+          | DFLAG_NEW_FLOATS
+          | DFLAG_DIST_HDR_ATOM_CACHE
+          | DFLAG_SMALL_ATOM_TAGS
+          | DFLAG_UTF8_ATOMS
+          | DFLAG_MAP_TAG
+          | DFLAG_BIG_CREATION
+          | DFLAG_HANDSHAKE_23
+          | DFLAG_V4_NC;
+
+  private DistributionFlags() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /** Returns the flags in effect for a connection given what each side advertised. */
+  public static long negotiate(long localFlags, long remoteFlags) {
+    return localFlags & remoteFlags;
+  }
+
+  public static boolean isSet(long flags, long flag) {
+    return (flags & flag) == flag;
+  }
+
+  /**
+   * Returns a fresh atom cache for a connection if the negotiated flags enable the distribution
+   * header atom cache, or {@code null} if messages must be sent in pass-through form.
+   */
+  public static AtomCache atomCacheFor(long negotiatedFlags) {
+    return isSet(negotiatedFlags, DFLAG_DIST_HDR_ATOM_CACHE) ? new AtomCache() : null;
+  }
+}
@@ -0,0 +1,189 @@
+package io.github.clojang.mcjface.etf.dist;
+
+import io.github.clojang.mcjface.etf.codec.TermDecoder;
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.codec.TermParser;
+import io.github.clojang.mcjface.etf.dist.DistributionProtocol.DistributionMessage;
+import io.github.clojang.mcjface.etf.dist.DistributionProtocol.HeaderReader;
+import io.github.clojang.mcjface.etf.term.Term;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Incremental parser for the length-prefixed distribution frames of a connection, fed chunks as
+ * they are read from a non-blocking channel, so a large message is decoded as it arrives. A parser
+ * belongs to one connection and is not thread-safe; after a {@link DecodeException} the connection
+ * should be closed.
+ */
+public final class DistributionParser {
+  private static final int LENGTH_SIZE = 4;
+  private static final int INITIAL_SCRATCH = 64;
+  private static final TermDecoder DECODER = new TermDecoder();
+
+  private enum State {
+    LENGTH,
+    KIND,
+    HEADER,
+    CONTROL,
+    PAYLOAD
+  }
+
+  private final AtomCache cache;
+  private final int maxFrameSize;
+  private final TermParser terms;
+
+  private State state = State.LENGTH;
+  private byte[] scratch = new byte[INITIAL_SCRATCH];
+  private int buffered;
+  private long frameRemaining;
+  private Term control;
+
+  /**
+   * Creates a parser for a connection.
+   *
+   * @param cache the receive side of the connection's atom cache, or {@code null} if distribution
+   *     headers were not negotiated
+   * @param maxFrameSize the largest frame accepted from the peer
+   */
+  public DistributionParser(AtomCache cache, int maxFrameSize) {
+    this.cache = cache;
+    this.maxFrameSize = maxFrameSize;
+    this.terms = new TermParser(DECODER, true, maxFrameSize);
+  }
+
+  /** Returns whether the parser is between frames, holding no partial state. */
+  public boolean isIdle() {
+    return state == State.LENGTH && buffered == 0;
+  }
+
+  /**
+   * Consumes bytes from the chunk's position and returns the next complete message, or {@code null}
+   * if the chunk ran out first. The chunk's position is advanced past the bytes consumed.
+   */
+  public DistributionMessage parse(ByteBuffer chunk) throws DecodeException {
+    while (true) {
+      switch (state) {
+        case LENGTH -> {
+          if (!gather(chunk, LENGTH_SIZE, false)) {
+            return null;
+          }
+          long length = ByteBuffer.wrap(scratch).getInt(0) & 0xFFFFFFFFL;
+          buffered = 0;
+          if (length > maxFrameSize) {
+            throw new DecodeException("Frame of " + length + " bytes exceeds " + maxFrameSize);
+          }
+          if (length > 0) {
+            frameRemaining = length;
+            state = State.KIND;
+          }
+        }
+        case KIND -> {
+          if (!gather(chunk, 1, true)) {
+            return null;
+          }
+          int tag = scratch[0] & 0xFF;
+          if (tag == DistributionProtocol.PASS_THROUGH) {
+            buffered = 0;
+            terms.reset(DECODER, true);
+            state = State.CONTROL;
+          } else if (tag == DistributionProtocol.MAGIC_NUMBER) {
+            if (!gather(chunk, 2, true)) {
+              return null;
+            }
+            int kind = scratch[1] & 0xFF;
+            if (kind != DistributionProtocol.DIST_HEADER) {
+              throw new DecodeException("Unknown distribution header: " + kind);
+            }
+            if (cache == null) {
+              throw new DecodeException("Distribution header received without an atom cache");
+            }
+            buffered = 0;
+            state = State.HEADER;
+          } else {
+            throw new DecodeException("Unknown distribution message tag: " + tag);
+          }
+        }
+        case HEADER -> {
+          int length = HeaderReader.length(ByteBuffer.wrap(scratch), 0, buffered);
+          while (buffered < length) {
+            if (!gather(chunk, length, true)) {
+              return null;
+            }
+            length = HeaderReader.length(ByteBuffer.wrap(scratch), 0, buffered);
+          }
+          HeaderReader reader = new HeaderReader(ByteBuffer.wrap(scratch, 0, buffered), 0);
+          TermDecoder decoder = DECODER.withAtomCacheRefs(reader.read(cache));
+          buffered = 0;
+          terms.reset(decoder, false);
+          state = State.CONTROL;
+        }
+        case CONTROL -> {
+          Term term = parseTerm(chunk);
+          if (term == null) {
+            return null;
+          }
+          if (frameRemaining == 0) {
+            state = State.LENGTH;
+            return DistributionProtocol.toMessage(term, null);
+          }
+          control = term;
+          state = State.PAYLOAD;
+        }
+        case PAYLOAD -> {
+          Term payload = parseTerm(chunk);
+          if (payload == null) {
+            return null;
+          }
+          if (frameRemaining != 0) {
+            throw new DecodeException(frameRemaining + " unexpected bytes after message payload");
+          }
+          Term term = control;
+          control = null;
+          state = State.LENGTH;
+          return DistributionProtocol.toMessage(term, payload);
+        }
+      }
+    }
+  }
+
+  /** Parses the next term without reading past the end of the current frame. */
+  private Term parseTerm(ByteBuffer chunk) throws DecodeException {
+    int limit = chunk.limit();
+    int start = chunk.position();
+    chunk.limit(start + (int) Math.min(chunk.remaining(), frameRemaining));
+    Term term;
+    try {
+      term = terms.parse(chunk);
+    } finally {
+      frameRemaining -= chunk.position() - start;
+      chunk.limit(limit);
+    }
+    if (term == null && frameRemaining == 0) {
+      throw new DecodeException("Truncated term in distribution message");
+    }
+    return term;
+  }
+
+  /**
+   * Copies bytes into the scratch buffer until it holds {@code count}, returning whether it does.
+   * Bytes inside a frame are counted against the frame's remaining length.
+   */
+  private boolean gather(ByteBuffer chunk, int count, boolean inFrame) throws DecodeException {
+    if (buffered >= count) {
+      return true;
+    }
+    if (inFrame && count - buffered > frameRemaining) {
+      throw new DecodeException("Truncated distribution message");
+    }
+    if (count > scratch.length) {
+      scratch = Arrays.copyOf(scratch, Math.max(count, scratch.length * 2));
+    }
+    int copied = Math.min(count - buffered, chunk.remaining());
+    chunk.get(scratch, buffered, copied);
+    buffered += copied;
+    if (inFrame) {
+      frameRemaining -= copied;
+    }
+    return buffered >= count;
+  }
+}
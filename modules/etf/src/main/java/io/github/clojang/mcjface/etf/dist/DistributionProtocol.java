@@ -1,51 +1,400 @@
 package io.github.clojang.mcjface.etf.dist;
 
+import io.github.clojang.mcjface.etf.codec.EtfConstants;
+import io.github.clojang.mcjface.etf.codec.LazyTerm;
+import io.github.clojang.mcjface.etf.codec.TermDecoder;
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.codec.TermEncoder;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Number;
 import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Encodes and decodes distribution messages: a control tuple optionally followed by a message
+ * payload.
+ *
+ * <p>Without an {@link AtomCache} messages use the pass-through form ({@code 112}, then each term
+ * in external format). With one, which requires {@link DistributionFlags#DFLAG_DIST_HDR_ATOM_CACHE}
+ * on the connection, they carry a normal distribution header whose atom cache refs replace the text
+ * of atoms already known to the peer. Buffers hold the frame body only; the 4-byte length prefix
+ * belongs to the transport.
+ */
 public class DistributionProtocol {
 
   public static final int MAGIC_NUMBER = 0x83;
   public static final int VERSION_5 = 5;
   public static final int VERSION_6 = 6;
 
+  /** Tag following {@link #MAGIC_NUMBER} in a normal distribution header. */
+  public static final int DIST_HEADER = 68;
+
+  /** Tag of a message sent without a distribution header. */
+  public static final int PASS_THROUGH = 112;
+
+  private static final int NEW_ENTRY_FLAG = 0x08;
+  private static final int SEGMENT_MASK = 0x07;
+  private static final int LONG_ATOMS_FLAG = 0x01;
+  private static final int NIBBLE_BITS = 4;
+  private static final int NIBBLE_MASK = 0x0F;
+
+  private static final TermEncoder ENCODER = new TermEncoder();
+  private static final TermDecoder DECODER = new TermDecoder();
+
   public enum MessageType {
-    LINK((byte) 1),
-    SEND((byte) 2),
-    EXIT((byte) 3),
-    UNLINK((byte) 4),
-    NODE_LINK((byte) 5),
-    REG_SEND((byte) 6),
-    GROUP_LEADER((byte) 7),
-    EXIT2((byte) 8),
-    SEND_TT((byte) 12),
-    EXIT_TT((byte) 13),
-    REG_SEND_TT((byte) 16),
-    MONITOR_P((byte) 19),
-    DEMONITOR_P((byte) 20),
-    MONITOR_P_EXIT((byte) 21);
+    LINK((byte) 1, false),
+    SEND((byte) 2, true),
+    EXIT((byte) 3, false),
+    UNLINK((byte) 4, false),
+    NODE_LINK((byte) 5, false),
+    REG_SEND((byte) 6, true),
+    GROUP_LEADER((byte) 7, false),
+    EXIT2((byte) 8, false),
+    SEND_TT((byte) 12, true),
+    EXIT_TT((byte) 13, false),
+    REG_SEND_TT((byte) 16, true),
+    MONITOR_P((byte) 19, false),
+    DEMONITOR_P((byte) 20, false),
+    MONITOR_P_EXIT((byte) 21, false);
 
     private final byte value;
+    private final boolean payload;
 
-    MessageType(byte value) {
+    MessageType(byte value, boolean payload) {
       this.value = value;
+      this.payload = payload;
     }
 
     public byte getValue() {
       return value;
     }
+
+    /** Whether the last term of a message of this type is sent as a payload after the control. */
+    public boolean hasPayload() {
+      return payload;
+    }
+
+    public static MessageType fromValue(int value) {
+      for (MessageType type : values()) {
+        if (type.value == value) {
+          return type;
+        }
+      }
+      throw new IllegalArgumentException("Unknown distribution message type: " + value);
+    }
   }
 
+  /** Encodes a message in pass-through form. */
   public static ByteBuffer encode(MessageType type, Term... terms) {
-    // Stub implementation
-    return ByteBuffer.allocate(0);
+    return encode(type, null, terms);
+  }
+
+  /**
+   * Encodes a message, with a distribution header using {@code cache} if it is non-null or in
+   * pass-through form otherwise. For types with a payload the last term is the payload.
+   *
+   * @return a buffer positioned at the start of the frame body
+   */
+  public static ByteBuffer encode(MessageType type, AtomCache cache, Term... terms) {
+    if (type.hasPayload() && terms.length == 0) {
+      throw new IllegalArgumentException(type + " requires a payload");
+    }
+    int controlLength = type.hasPayload() ? terms.length - 1 : terms.length;
+    Tuple.Builder elements = Tuple.builder(controlLength + 1);
+    elements.add(Number.of(type.getValue()));
+    for (int i = 0; i < controlLength; i++) {
+      elements.add(terms[i]);
+    }
+    Tuple control = elements.build();
+    Term payload = type.hasPayload() ? terms[terms.length - 1] : null;
+
+    if (cache == null) {
+      int size = 1 + ENCODER.encodedSize(control);
+      size += payload == null ? 0 : ENCODER.encodedSize(payload);
+      ByteBuffer buffer = ByteBuffer.allocate(size);
+      buffer.put((byte) PASS_THROUGH);
+      ENCODER.encodeInto(control, buffer);
+      if (payload != null) {
+        ENCODER.encodeInto(payload, buffer);
+      }
+      return buffer.flip();
+    }
+
+    cache.beginHeader();
+    cache.collect(control);
+    if (payload != null) {
+      cache.collect(payload);
+    }
+    TermEncoder encoder = ENCODER.withAtomCacheRefs(cache::headerIndexOf);
+    int size = headerSize(cache) + encoder.encodedSizeWithoutVersion(control);
+    size += payload == null ? 0 : encoder.encodedSizeWithoutVersion(payload);
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    writeHeader(cache, buffer);
+    encoder.encodeWithoutVersion(control, buffer);
+    if (payload != null) {
+      encoder.encodeWithoutVersion(payload, buffer);
+    }
+    cache.commitHeader();
+    return buffer.flip();
   }
 
-  public static DistributionMessage decode(ByteBuffer buffer) {
-    // Stub implementation
-    return null;
+  private static boolean hasLongAtoms(AtomCache cache) {
+    for (int i = 0; i < cache.headerCount(); i++) {
+      if (cache.isHeaderEntryNew(i)
+          && cache.headerAtom(i).utf8Length() > EtfConstants.MAX_BYTE_VALUE) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int headerSize(AtomCache cache) {
+    int count = cache.headerCount();
+    int size = 3;
+    if (count == 0) {
+      return size;
+    }
+    int lengthBytes = hasLongAtoms(cache) ? 2 : 1;
+    size += count / 2 + 1;
+    for (int i = 0; i < count; i++) {
+      size += 1;
+      if (cache.isHeaderEntryNew(i)) {
+        size += lengthBytes + cache.headerAtom(i).utf8Length();
+      }
+    }
+    return size;
+  }
+
+  private static void writeHeader(AtomCache cache, ByteBuffer out) {
+    int count = cache.headerCount();
+    out.put((byte) MAGIC_NUMBER);
+    out.put((byte) DIST_HEADER);
+    out.put((byte) count);
+    if (count == 0) {
+      return;
+    }
+    boolean longAtoms = hasLongAtoms(cache);
+    byte[] flags = new byte[count / 2 + 1];
+    for (int i = 0; i < count; i++) {
+      int slot = AtomCache.slotOf(cache.headerAtom(i));
+      int nibble =
+          (slot / AtomCache.SEGMENT_SIZE) | (cache.isHeaderEntryNew(i) ? NEW_ENTRY_FLAG : 0);
+      flags[i / 2] |= (byte) (nibble << (NIBBLE_BITS * (i % 2)));
+    }
+    if (longAtoms) {
+      flags[count / 2] |= (byte) (LONG_ATOMS_FLAG << (NIBBLE_BITS * (count % 2)));
+    }
+    out.put(flags);
+    for (int i = 0; i < count; i++) {
+      Atom atom = cache.headerAtom(i);
+      out.put((byte) (AtomCache.slotOf(atom) % AtomCache.SEGMENT_SIZE));
+      if (cache.isHeaderEntryNew(i)) {
+        if (longAtoms) {
+          out.putShort((short) atom.utf8Length());
+        } else {
+          out.put((byte) atom.utf8Length());
+        }
+        atom.writeUtf8(out);
+      }
+    }
+  }
+
+  /** Decodes a pass-through message from the buffer's position to its limit. */
+  public static DistributionMessage decode(ByteBuffer buffer) throws DecodeException {
+    return decode(buffer, null);
+  }
+
+  /**
+   * Decodes a message from the buffer's position to its limit, resolving a distribution header
+   * against {@code cache}. The position is advanced past the decoded message.
+   */
+  public static DistributionMessage decode(ByteBuffer buffer, AtomCache cache)
+      throws DecodeException {
+    Frame frame = readControl(buffer, cache);
+    int pos = frame.payloadOffset();
+    Term payload = null;
+    if (pos < buffer.limit()) {
+      TermDecoder.DecodeResult message =
+          frame.versioned()
+              ? frame.decoder().decode(buffer, pos)
+              : frame.decoder().decodeWithoutVersion(buffer, pos);
+      payload = message.term();
+      pos += message.bytesConsumed();
+    }
+    buffer.position(pos);
+    return toMessage(frame.control(), payload);
+  }
+
+  /**
+   * Decodes the control message eagerly but leaves the payload, if any, encoded as a {@link
+   * LazyTerm}. The position is advanced to the buffer's limit, and the buffer must not be reused
+   * while the payload is still in use.
+   */
+  public static LazyMessage decodeLazily(ByteBuffer buffer, AtomCache cache)
+      throws DecodeException {
+    Frame frame = readControl(buffer, cache);
+    int pos = frame.payloadOffset();
+    LazyTerm payload = null;
+    if (pos < buffer.limit()) {
+      payload =
+          frame.versioned()
+              ? LazyTerm.of(buffer, pos, frame.decoder())
+              : LazyTerm.withoutVersion(buffer, pos, frame.decoder());
+    }
+    buffer.position(buffer.limit());
+    DistributionMessage control = toMessage(frame.control(), null);
+    return new LazyMessage(control.type(), control.terms(), payload);
+  }
+
+  private static Frame readControl(ByteBuffer buffer, AtomCache cache) throws DecodeException {
+    int start = buffer.position();
+    if (!buffer.hasRemaining()) {
+      throw new DecodeException("Empty distribution message");
+    }
+    int tag = buffer.get(start) & 0xFF;
+    if (tag == PASS_THROUGH) {
+      TermDecoder.DecodeResult control = DECODER.decode(buffer, start + 1);
+      return new Frame(DECODER, control.term(), start + 1 + control.bytesConsumed(), true);
+    }
+    if (tag == MAGIC_NUMBER
+        && buffer.limit() - start > 1
+        && (buffer.get(start + 1) & 0xFF) == DIST_HEADER) {
+      if (cache == null) {
+        throw new DecodeException("Distribution header received without an atom cache");
+      }
+      HeaderReader header = new HeaderReader(buffer, start + 2);
+      TermDecoder decoder = DECODER.withAtomCacheRefs(header.read(cache));
+      TermDecoder.DecodeResult control = decoder.decodeWithoutVersion(buffer, header.pos);
+      return new Frame(decoder, control.term(), header.pos + control.bytesConsumed(), false);
+    }
+    throw new DecodeException("Unknown distribution message tag: " + tag);
+  }
+
+  /** A decoded control message and where its payload starts. */
+  private record Frame(TermDecoder decoder, Term control, int payloadOffset, boolean versioned) {}
+
+  static DistributionMessage toMessage(Term control, Term payload)
+      throws DecodeException {
+    if (!(control instanceof Tuple tuple)
+        || tuple.arity() == 0
+        || !(tuple.get(0) instanceof Number.Integer type)) {
+      throw new DecodeException("Invalid control message: " + control);
+    }
+    MessageType messageType;
+    try {
+      messageType = MessageType.fromValue(type.value());
+    } catch (IllegalArgumentException e) {
+      throw new DecodeException(e.getMessage(), e);
+    }
+    List<Term> terms = new ArrayList<>(tuple.arity());
+    for (int i = 1; i < tuple.arity(); i++) {
+      terms.add(tuple.get(i));
+    }
+    if (payload != null) {
+      terms.add(payload);
+    }
+    return new DistributionMessage(messageType, terms);
+  }
+
+  /** Reads the atom cache refs of a normal distribution header, updating the receive cache. */
+  static final class HeaderReader {
+    private final ByteBuffer buffer;
+    int pos;
+
+    HeaderReader(ByteBuffer buffer, int pos) {
+      this.buffer = buffer;
+      this.pos = pos;
+    }
+
+    Atom[] read(AtomCache cache) throws DecodeException {
+      int count = u8();
+      Atom[] refs = new Atom[count];
+      if (count == 0) {
+        return refs;
+      }
+      int flagsOffset = pos;
+      pos += count / 2 + 1;
+      boolean longAtoms = (nibble(flagsOffset, count) & LONG_ATOMS_FLAG) != 0;
+      for (int i = 0; i < count; i++) {
+        int flags = nibble(flagsOffset, i);
+        int slot = (flags & SEGMENT_MASK) * AtomCache.SEGMENT_SIZE + u8();
+        if ((flags & NEW_ENTRY_FLAG) != 0) {
+          int length = longAtoms ? (u8() << Byte.SIZE) | u8() : u8();
+          require(length);
+          Atom atom = Atom.fromUtf8(buffer, pos, length);
+          pos += length;
+          cache.received(slot, atom);
+          refs[i] = atom;
+        } else {
+          refs[i] = cache.received(slot);
+          if (refs[i] == null) {
+            throw new DecodeException("Atom cache slot " + slot + " is empty");
+          }
+        }
+      }
+      return refs;
+    }
+
+    /**
+     * Returns the length of the header whose first {@code available} bytes start at {@code offset},
+     * or, if those are not yet enough to tell, the number of bytes needed to learn more.
+     */
+    static int length(ByteBuffer buffer, int offset, int available) {
+      if (available < 1) {
+        return 1;
+      }
+      int count = buffer.get(offset) & 0xFF;
+      if (count == 0) {
+        return 1;
+      }
+      int flagsOffset = offset + 1;
+      int pos = 1 + count / 2 + 1;
+      if (available < pos) {
+        return pos;
+      }
+      boolean longAtoms = (nibble(buffer, flagsOffset, count) & LONG_ATOMS_FLAG) != 0;
+      for (int i = 0; i < count; i++) {
+        pos++;
+        if ((nibble(buffer, flagsOffset, i) & NEW_ENTRY_FLAG) != 0) {
+          int width = longAtoms ? 2 : 1;
+          if (available < pos + width) {
+            return pos + width;
+          }
+          int length = buffer.get(offset + pos) & 0xFF;
+          if (longAtoms) {
+            length = (length << Byte.SIZE) | (buffer.get(offset + pos + 1) & 0xFF);
+          }
+          pos += width + length;
+        }
+      }
+      return pos;
+    }
+
+    private static int nibble(ByteBuffer buffer, int flagsOffset, int index) {
+      return (buffer.get(flagsOffset + index / 2) >> (NIBBLE_BITS * (index % 2))) & NIBBLE_MASK;
+    }
+
+    private int nibble(int flagsOffset, int index) throws DecodeException {
+      int offset = flagsOffset + index / 2;
+      if (offset >= buffer.limit()) {
+        throw new DecodeException("Truncated distribution header");
+      }
+      return (buffer.get(offset) >> (NIBBLE_BITS * (index % 2))) & NIBBLE_MASK;
+    }
+
+    private int u8() throws DecodeException {
+      require(1);
+      return buffer.get(pos++) & 0xFF;
+    }
+
+    private void require(int count) throws DecodeException {
+      if (count > buffer.limit() - pos) {
+        throw new DecodeException("Truncated distribution header");
+      }
+    }
   }
 
   public record DistributionMessage(MessageType type, List<Term> terms) {
@@ -62,4 +411,14 @@ public class DistributionProtocol {
       return new ArrayList<>(terms);
     }
   }
+
+  /**
+   * A distribution message whose control terms are decoded and whose payload, if the message type
+   * has one, is still encoded.
+   */
+  public record LazyMessage(MessageType type, List<Term> control, LazyTerm payload) {
+    public LazyMessage {
+      control = List.copyOf(control);
+    }
+  }
 }
@@ -0,0 +1,665 @@
+package io.github.clojang.mcjface.etf.match;
+
+import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
+
+import io.github.clojang.mcjface.etf.codec.LazyTerm;
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.codec.TermReader;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Pid;
+import io.github.clojang.mcjface.etf.term.Port;
+import io.github.clojang.mcjface.etf.term.Reference;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+
+/**
+ * An ordered set of clauses, each a {@link TermPattern} and an action, where the first clause whose
+ * pattern matches wins, as in an Erlang {@code receive}. The clauses are compiled into a decision
+ * tree over atoms, tuple arities and tag atoms, and match encoded terms in place; matchers are
+ * immutable and thread-safe.
+ */
+public final class Matcher<A, R> implements Term.Pattern<R> {
+  private static final int[] NONE = new int[0];
+  private static final Term[] NO_SLOTS = new Term[0];
+  private static final int[] NO_POSITIONS = new int[0];
+
+  private final Clause<A, R>[] clauses;
+  private final int slotCount;
+  private final IdentityHashMap<Atom, int[]> atoms;
+  private final TupleSwitch[] tuples;
+  private final int[] wildcards;
+  private final int[] others;
+
+  private Matcher(Clause<A, R>[] clauses) {
+    this.clauses = clauses;
+    int slots = 0;
+    for (Clause<A, R> clause : clauses) {
+      slots = Math.max(slots, clause.names.length);
+    }
+    this.slotCount = slots;
+
+    // Sort clauses by the kind of term their pattern can match, keeping them in order
+    ArrayList<Integer> wild = new ArrayList<>();
+    ArrayList<Integer> other = new ArrayList<>();
+    IdentityHashMap<Atom, ArrayList<Integer>> byAtom = new IdentityHashMap<>();
+    java.util.Map<Integer, TupleClauses> byArity = new java.util.HashMap<>();
+    int maxArity = -1;
+    for (int i = 0; i < clauses.length; i++) {
+      TermPattern pattern = clauses[i].pattern;
+      switch (pattern) {
+        case TermPattern.Any any -> addAll(i, wild, other, byAtom, byArity);
+        case TermPattern.Var var -> addAll(i, wild, other, byAtom, byArity);
+        case TermPattern.Type type -> addAll(i, wild, other, byAtom, byArity);
+        case TermPattern.Literal(Atom atom) ->
+            byAtom.computeIfAbsent(atom, key -> new ArrayList<>(wild)).add(i);
+        case TermPattern.TupleOf(java.util.List<TermPattern> elements) -> {
+          int arity = elements.size();
+          maxArity = Math.max(maxArity, arity);
+          TupleClauses tuple = byArity.computeIfAbsent(arity, key -> new TupleClauses(wild));
+          if (arity > 0 && elements.get(0) instanceof TermPattern.Literal(Atom first)) {
+            tuple.byFirst.computeIfAbsent(first, key -> new ArrayList<>(tuple.fallback)).add(i);
+          } else {
+            tuple.add(i);
+          }
+        }
+        default -> other.add(i);
+      }
+    }
+    this.wildcards = toArray(wild);
+    this.others = toArray(other);
+    this.atoms = new IdentityHashMap<>();
+    byAtom.forEach((atom, indices) -> atoms.put(atom, toArray(indices)));
+    this.tuples = new TupleSwitch[maxArity + 1];
+    byArity.forEach((arity, tuple) -> tuples[arity] = tuple.compile());
+  }
+
+  /** Adds a clause that matches terms of any kind to every group. */
+  private static void addAll(
+      int index,
+      ArrayList<Integer> wild,
+      ArrayList<Integer> other,
+      IdentityHashMap<Atom, ArrayList<Integer>> byAtom,
+      java.util.Map<Integer, TupleClauses> byArity) {
+    wild.add(index);
+    other.add(index);
+    byAtom.values().forEach(indices -> indices.add(index));
+    byArity.values().forEach(tuple -> tuple.add(index));
+  }
+
+  private static int[] toArray(ArrayList<Integer> indices) {
+    return indices.isEmpty() ? NONE : indices.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  public static <A, R> Builder<A, R> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Runs the action of the first clause that matches {@code term}.
+   *
+   * @return the action's result, or null if no clause matched
+   * @throws NullPointerException if the action returns null
+   */
+  public R dispatch(Term term, A argument) {
+    Match<A, R> match = select(term);
+    return match != null ? match.run(argument) : null;
+  }
+
+  /**
+   * Finds the first clause that matches {@code term} and binds its variables, without running its
+   * action yet, so that a caller can first claim the term, as a mailbox does with a message.
+   *
+   * @return the match, or null if no clause matched
+   */
+  public Match<A, R> select(Term term) {
+    int[] candidates = candidates(term);
+    if (candidates.length == 0) {
+      return null;
+    }
+    Term[] slots = slotCount == 0 ? NO_SLOTS : new Term[slotCount];
+    for (int index : candidates) {
+      Clause<A, R> clause = clauses[index];
+      if (clause.node.match(term, slots)) {
+        return new Match<>(clause, new Bindings(clause.names, slots));
+      }
+    }
+    return null;
+  }
+
+  /** Returns whether some clause matches {@code term}, without running any action. */
+  public boolean matches(Term term) {
+    int[] candidates = candidates(term);
+    Term[] slots = slotCount == 0 ? NO_SLOTS : new Term[slotCount];
+    for (int index : candidates) {
+      if (clauses[index].node.match(term, slots)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Runs the action of the first clause that matches an encoded term, without decoding any more of
+   * it than the patterns need.
+   *
+   * @return the action's result, or null if no clause matched
+   * @throws NullPointerException if the action returns null
+   */
+  public R dispatch(LazyTerm term, A argument) throws DecodeException {
+    return dispatch(term.reader(), argument);
+  }
+
+  /**
+   * Runs the action of the first clause that matches the next term of {@code in}, which is then
+   * positioned after that term, or left where it was if no clause matched.
+   *
+   * @return the action's result, or null if no clause matched
+   * @throws NullPointerException if the action returns null
+   */
+  public R dispatch(TermReader in, A argument) throws DecodeException {
+    int start = in.position();
+    int[] candidates = candidates(in);
+    Term[] slots = slotCount == 0 ? NO_SLOTS : new Term[slotCount];
+    int[] positions = slotCount == 0 ? NO_POSITIONS : new int[slotCount];
+    for (int index : candidates) {
+      Clause<A, R> clause = clauses[index];
+      in.seek(start);
+      if (clause.node.match(in, slots, positions)) {
+        int end = in.position();
+        for (int i = 0; i < clause.names.length; i++) {
+          if (slots[i] == null) {
+            in.seek(positions[i]);
+            slots[i] = in.readTerm();
+          }
+        }
+        in.seek(end);
+        return new Match<>(clause, new Bindings(clause.names, slots)).run(argument);
+      }
+    }
+    in.seek(start);
+    return null;
+  }
+
+  /** Returns whether some clause matches an encoded term, without decoding what it binds. */
+  public boolean matches(LazyTerm term) throws DecodeException {
+    TermReader in = term.reader();
+    int start = in.position();
+    int[] candidates = candidates(in);
+    Term[] slots = slotCount == 0 ? NO_SLOTS : new Term[slotCount];
+    int[] positions = slotCount == 0 ? NO_POSITIONS : new int[slotCount];
+    for (int index : candidates) {
+      in.seek(start);
+      if (clauses[index].node.match(in, slots, positions)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Dispatches {@code term} with a null argument. Actions must not return null. */
+  @Override
+  public Optional<R> match(Term term) {
+    return Optional.ofNullable(dispatch(term, null));
+  }
+
+  private int[] candidates(Term term) {
+    if (term instanceof Atom atom) {
+      return atoms.getOrDefault(atom, wildcards);
+    }
+    if (term instanceof Tuple tuple) {
+      int arity = tuple.arity();
+      TupleSwitch clauses = arity < tuples.length ? tuples[arity] : null;
+      if (clauses == null) {
+        return wildcards;
+      }
+      if (arity > 0 && tuple.get(0) instanceof Atom first) {
+        return clauses.byFirst.getOrDefault(first, clauses.fallback);
+      }
+      return clauses.fallback;
+    }
+    return others;
+  }
+
+  /** Selects clauses like {@link #candidates(Term)}, reading only headers and atoms. */
+  private int[] candidates(TermReader in) throws DecodeException {
+    int start = in.position();
+    try {
+      Class<? extends Term> kind = kind(in.peekTag());
+      if (kind == Atom.class) {
+        return atoms.getOrDefault(in.readAtom(), wildcards);
+      }
+      if (kind == Tuple.class) {
+        int arity = in.readTupleHeader();
+        TupleSwitch clauses = arity < tuples.length ? tuples[arity] : null;
+        if (clauses == null) {
+          return wildcards;
+        }
+        if (arity > 0 && kind(in.peekTag()) == Atom.class) {
+          return clauses.byFirst.getOrDefault(in.readAtom(), clauses.fallback);
+        }
+        return clauses.fallback;
+      }
+      return others;
+    } finally {
+      in.seek(start);
+    }
+  }
+
+  /** Returns the type of term an external format tag starts, or null for rare kinds. */
+  private static Class<? extends Term> kind(int tag) {
+    return switch (tag) {
+      case ATOM_EXT, SMALL_ATOM_EXT, ATOM_UTF8_EXT, SMALL_ATOM_UTF8_EXT, ATOM_CACHE_REF ->
+          Atom.class;
+      case SMALL_TUPLE_EXT, LARGE_TUPLE_EXT -> Tuple.class;
+      case NIL_EXT, STRING_EXT, LIST_EXT -> List.class;
+      case MAP_EXT -> Map.class;
+      case BINARY_EXT, BIT_BINARY_EXT -> Binary.class;
+      case SMALL_INTEGER_EXT, INTEGER_EXT, SMALL_BIG_EXT, LARGE_BIG_EXT, NEW_FLOAT_EXT, FLOAT_EXT ->
+          Number.class;
+      case PID_EXT, NEW_PID_EXT -> Pid.class;
+      case PORT_EXT, NEW_PORT_EXT, V4_PORT_EXT -> Port.class;
+      case REFERENCE_EXT, NEW_REFERENCE_EXT, NEWER_REFERENCE_EXT -> Reference.class;
+      default -> null;
+    };
+  }
+
+  /**
+   * Returns whether the next encoded term is of {@code type}, judging by its tag, or null if the
+   * term has to be decoded to tell.
+   */
+  private static Boolean hasType(TermReader in, Class<? extends Term> type)
+      throws DecodeException {
+    if (type == Term.class) {
+      return Boolean.TRUE;
+    }
+    Class<? extends Term> kind = kind(in.peekTag());
+    if (kind == null || (kind != type && kind.isAssignableFrom(type))) {
+      return null;
+    }
+    return type.isAssignableFrom(kind);
+  }
+
+  /** The clauses for tuples of one arity, by their first element. */
+  private record TupleSwitch(IdentityHashMap<Atom, int[]> byFirst, int[] fallback) {}
+
+  /** The clauses for tuples of one arity, while they are being sorted. */
+  private static final class TupleClauses {
+    final ArrayList<Integer> fallback;
+    final IdentityHashMap<Atom, ArrayList<Integer>> byFirst = new IdentityHashMap<>();
+
+    TupleClauses(ArrayList<Integer> wildcards) {
+      this.fallback = new ArrayList<>(wildcards);
+    }
+
+    /** Adds a clause that matches tuples of this arity whatever their first element. */
+    void add(int index) {
+      fallback.add(index);
+      byFirst.values().forEach(indices -> indices.add(index));
+    }
+
+    TupleSwitch compile() {
+      IdentityHashMap<Atom, int[]> first = new IdentityHashMap<>();
+      byFirst.forEach((atom, indices) -> first.put(atom, toArray(indices)));
+      return new TupleSwitch(first, toArray(fallback));
+    }
+  }
+
+  /**
+   * A clause that matched, with the variables it bound, whose action has not run yet.
+   *
+   * @see #select(Term)
+   */
+  public static final class Match<A, R> {
+    private final Clause<A, R> clause;
+    private final Bindings bindings;
+
+    private Match(Clause<A, R> clause, Bindings bindings) {
+      this.clause = clause;
+      this.bindings = bindings;
+    }
+
+    public Bindings bindings() {
+      return bindings;
+    }
+
+    /**
+     * Runs the clause's action.
+     *
+     * @throws NullPointerException if the action returns null, which would read as no match
+     */
+    public R run(A argument) {
+      R result = clause.action.apply(bindings, argument);
+      if (result == null) {
+        throw new NullPointerException("Action of clause " + clause.pattern + " returned null");
+      }
+      return result;
+    }
+  }
+
+  /** The action of a clause, which must not return null. */
+  @FunctionalInterface
+  public interface Action<A, R> {
+    R apply(Bindings bindings, A argument);
+  }
+
+  /** The variables bound by a successful match, by name or by order of first appearance. */
+  public static final class Bindings {
+    private final String[] names;
+    private final Term[] values;
+
+    Bindings(String[] names, Term[] values) {
+      this.names = names;
+      this.values = values;
+    }
+
+    public int size() {
+      return names.length;
+    }
+
+    public Term get(int index) {
+      return values[java.util.Objects.checkIndex(index, names.length)];
+    }
+
+    /**
+     * Returns the term bound to {@code name}.
+     *
+     * @throws IllegalArgumentException if the pattern has no such variable
+     */
+    public Term get(String name) {
+      for (int i = 0; i < names.length; i++) {
+        if (names[i].equals(name)) {
+          return values[i];
+        }
+      }
+      throw new IllegalArgumentException("Unbound variable: " + name);
+    }
+
+    /** Returns the term bound to {@code name}, which the pattern guarantees is of {@code type}. */
+    public <T extends Term> T get(String name, Class<T> type) {
+      return type.cast(get(name));
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("Bindings{");
+      for (int i = 0; i < names.length; i++) {
+        sb.append(i == 0 ? "" : ", ").append(names[i]).append('=').append(values[i]);
+      }
+      return sb.append('}').toString();
+    }
+  }
+
+  /** A compiled pattern, or part of one, that binds variables into an array of slots. */
+  private sealed interface Node {
+    boolean match(Term term, Term[] slots);
+
+    /**
+     * Matches the next encoded term, leaving the reader after it on success. A variable binds
+     * either the decoded term, or null with the position of its term, which is decoded once the
+     * whole pattern has matched. By default the term is decoded and matched as such.
+     */
+    default boolean match(TermReader in, Term[] slots, int[] positions) throws DecodeException {
+      return match(in.readTerm(), slots);
+    }
+  }
+
+  private record AnyNode() implements Node {
+    @Override
+    public boolean match(Term term, Term[] slots) {
+      return true;
+    }
+
+    @Override
+    public boolean match(TermReader in, Term[] slots, int[] positions) throws DecodeException {
+      in.skipTerm();
+      return true;
+    }
+  }
+
+  private record TypeNode(Class<? extends Term> type) implements Node {
+    @Override
+    public boolean match(Term term, Term[] slots) {
+      return type.isInstance(term);
+    }
+
+    @Override
+    public boolean match(TermReader in, Term[] slots, int[] positions) throws DecodeException {
+      Boolean matches = hasType(in, type);
+      if (matches == null) {
+        return match(in.readTerm(), slots);
+      }
+      if (matches) {
+        in.skipTerm();
+      }
+      return matches;
+    }
+  }
+
+  /** A variable; only its first occurrence binds, and later ones compare. */
+  private record VarNode(int slot, Class<? extends Term> type, boolean first) implements Node {
+    @Override
+    public boolean match(Term term, Term[] slots) {
+      if (!type.isInstance(term)) {
+        return false;
+      }
+      if (first) {
+        slots[slot] = term;
+        return true;
+      }
+      return slots[slot].equals(term);
+    }
+
+    @Override
+    public boolean match(TermReader in, Term[] slots, int[] positions) throws DecodeException {
+      Boolean matches = hasType(in, type);
+      if (matches == null) {
+        return match(in.readTerm(), slots);
+      }
+      if (!matches) {
+        return false;
+      }
+      if (first) {
+        slots[slot] = null;
+        positions[slot] = in.position();
+        in.skipTerm();
+        return true;
+      }
+      // Equal terms may be encoded differently, so a repeated variable compares decoded terms
+      Term term = in.readTerm();
+      if (slots[slot] == null) {
+        int end = in.position();
+        in.seek(positions[slot]);
+        slots[slot] = in.readTerm();
+        in.seek(end);
+      }
+      return slots[slot].equals(term);
+    }
+  }
+
+  private record LiteralNode(Term value) implements Node {
+    @Override
+    public boolean match(Term term, Term[] slots) {
+      return value == term || value.equals(term);
+    }
+
+    @Override
+    public boolean match(TermReader in, Term[] slots, int[] positions) throws DecodeException {
+      if (value instanceof Atom atom) {
+        return in.readAtomIf(atom);
+      }
+      return value.equals(in.readTerm());
+    }
+  }
+
+  private record TupleNode(Node[] elements) implements Node {
+    @Override
+    public boolean match(Term term, Term[] slots) {
+      if (!(term instanceof Tuple tuple) || tuple.arity() != elements.length) {
+        return false;
+      }
+      for (int i = 0; i < elements.length; i++) {
+        if (!elements[i].match(tuple.get(i), slots)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public boolean match(TermReader in, Term[] slots, int[] positions) throws DecodeException {
+      if (kind(in.peekTag()) != Tuple.class || in.readTupleHeader() != elements.length) {
+        return false;
+      }
+      for (Node element : elements) {
+        if (!element.match(in, slots, positions)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private record MapNode(Term[] keys, Node[] values) implements Node {
+    @Override
+    public boolean match(Term term, Term[] slots) {
+      if (!(term instanceof Map map) || map.size() < keys.length) {
+        return false;
+      }
+      for (int i = 0; i < keys.length; i++) {
+        Term value = map.getOrDefault(keys[i], null);
+        if (value == null || !values[i].match(value, slots)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private record ListNode(Node[] elements, Node tail) implements Node {
+    @Override
+    public boolean match(Term term, Term[] slots) {
+      Term rest = term;
+      for (Node element : elements) {
+        if (!(rest instanceof List list) || list.isEmpty()) {
+          return false;
+        }
+        if (!element.match(list.head(), slots)) {
+          return false;
+        }
+        rest = list.size() == 1 && !list.isProper() ? list.lastTail() : list.tail();
+      }
+      return tail.match(rest, slots);
+    }
+
+    @Override
+    public boolean match(TermReader in, Term[] slots, int[] positions) throws DecodeException {
+      int tag = in.peekTag();
+      if (kind(tag) != List.class) {
+        return false;
+      }
+      int start = in.position();
+      // Only a LIST_EXT whose elements line up with the pattern, or whose rest is ignored, is
+      // matched in place; anything else is decoded
+      if (tag == LIST_EXT) {
+        int count = in.readListHeader();
+        if (count == elements.length || (count > elements.length && tail instanceof AnyNode)) {
+          for (Node element : elements) {
+            if (!element.match(in, slots, positions)) {
+              return false;
+            }
+          }
+          for (int i = elements.length; i < count; i++) {
+            in.skipTerm();
+          }
+          return tail.match(in, slots, positions);
+        }
+        in.seek(start);
+      }
+      return match(in.readTerm(), slots);
+    }
+  }
+
+  private record Clause<A, R>(
+      TermPattern pattern, Node node, String[] names, Action<? super A, ? extends R> action) {}
+
+  /** Collects clauses in order. */
+  public static final class Builder<A, R> {
+    private final ArrayList<Clause<A, R>> clauses = new ArrayList<>();
+
+    private Builder() {}
+
+    /** Adds a clause, tried after those already added. */
+    public Builder<A, R> when(TermPattern pattern, Action<? super A, ? extends R> action) {
+      java.util.Objects.requireNonNull(action, "Action cannot be null");
+      TermPattern normalized = normalize(pattern);
+      ArrayList<String> names = new ArrayList<>();
+      Node node = compile(normalized, names);
+      clauses.add(new Clause<>(normalized, node, names.toArray(String[]::new), action));
+      return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Matcher<A, R> build() {
+      return new Matcher<>(clauses.toArray(Clause[]::new));
+    }
+
+    /** Turns literal tuples into tuples of literals, so that they are switched on like others. */
+    private static TermPattern normalize(TermPattern pattern) {
+      return switch (pattern) {
+        case TermPattern.Literal(Tuple tuple) ->
+            new TermPattern.TupleOf(
+                tuple.asList().stream().map(e -> normalize(new TermPattern.Literal(e))).toList());
+        case TermPattern.TupleOf(java.util.List<TermPattern> elements) ->
+            new TermPattern.TupleOf(elements.stream().map(Builder::normalize).toList());
+        default -> pattern;
+      };
+    }
+
+    private static Node compile(TermPattern pattern, java.util.List<String> names) {
+      return switch (pattern) {
+        case TermPattern.Any any -> new AnyNode();
+        case TermPattern.Type(Class<? extends Term> type) -> new TypeNode(type);
+        case TermPattern.Var(String name, Class<? extends Term> type) -> {
+          int slot = names.indexOf(name);
+          if (slot < 0) {
+            names.add(name);
+            yield new VarNode(names.size() - 1, type, true);
+          }
+          yield new VarNode(slot, type, false);
+        }
+        case TermPattern.Literal(Term value) -> new LiteralNode(value);
+        case TermPattern.TupleOf(java.util.List<TermPattern> elements) ->
+            new TupleNode(compileAll(elements, names));
+        case TermPattern.MapOf(java.util.Map<Term, TermPattern> entries) ->
+            new MapNode(
+                entries.keySet().toArray(Term[]::new),
+                compileAll(java.util.List.copyOf(entries.values()), names));
+        case TermPattern.ListOf(java.util.List<TermPattern> elements, TermPattern tail) -> {
+          Node[] nodes = compileAll(elements, names);
+          yield new ListNode(nodes, compile(tail, names));
+        }
+      };
+    }
+
+    private static Node[] compileAll(
+        java.util.List<TermPattern> patterns, java.util.List<String> names) {
+      Node[] nodes = new Node[patterns.size()];
+      for (int i = 0; i < nodes.length; i++) {
+        nodes[i] = compile(patterns.get(i), names);
+      }
+      return nodes;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Matcher[" + clauses.length + " clauses]";
+  }
+}
@@ -0,0 +1,127 @@
+package io.github.clojang.mcjface.etf.match;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Term;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * A pattern over terms, in the spirit of an Erlang clause head. Patterns are plain data, built with
+ * the static factories below and compiled into a {@link Matcher}:
+ *
+ * <pre>{@code
+ * tuple(atom("reply"), var("Ref", Reference.class), any())
+ * }</pre>
+ *
+ * <p>A variable binds the term at its position. A variable that appears more than once in a pattern
+ * matches only if every occurrence is an equal term, and {@code _} never binds. Map patterns match
+ * any map holding at least the given keys, whose values match.
+ */
+public sealed interface TermPattern {
+
+  /** Matches any term. */
+  record Any() implements TermPattern {}
+
+  /** Matches a term of {@code type}, binding it to {@code name}. */
+  record Var(String name, Class<? extends Term> type) implements TermPattern {
+    public Var {
+      Objects.requireNonNull(name, "Variable name cannot be null");
+      Objects.requireNonNull(type, "Variable type cannot be null");
+    }
+  }
+
+  /** Matches any term of {@code type} without binding it. */
+  record Type(Class<? extends Term> type) implements TermPattern {
+    public Type {
+      Objects.requireNonNull(type, "Type cannot be null");
+    }
+  }
+
+  /** Matches terms equal to {@code value}. */
+  record Literal(Term value) implements TermPattern {
+    public Literal {
+      Objects.requireNonNull(value, "Literal cannot be null");
+    }
+  }
+
+  /** Matches tuples of the same arity whose elements match. */
+  record TupleOf(java.util.List<TermPattern> elements) implements TermPattern {
+    public TupleOf {
+      elements = java.util.List.copyOf(elements);
+    }
+  }
+
+  /** Matches maps holding every key, with a value that matches its pattern. */
+  record MapOf(java.util.Map<Term, TermPattern> entries) implements TermPattern {
+    public MapOf {
+      // Kept in the given order, which is the order variables bind in
+      entries = java.util.Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+    }
+  }
+
+  /** Matches lists starting with elements that match, followed by a tail that matches. */
+  record ListOf(java.util.List<TermPattern> elements, TermPattern tail) implements TermPattern {
+    public ListOf {
+      elements = java.util.List.copyOf(elements);
+      Objects.requireNonNull(tail, "Tail pattern cannot be null");
+    }
+  }
+
+  /** Matches any term. */
+  static TermPattern any() {
+    return new Any();
+  }
+
+  /** Matches any term, binding it to {@code name}; {@code _} binds nothing. */
+  static TermPattern var(String name) {
+    return var(name, Term.class);
+  }
+
+  /** Matches any term of {@code type}, binding it to {@code name}; {@code _} binds nothing. */
+  static TermPattern var(String name, Class<? extends Term> type) {
+    return "_".equals(name) ? is(type) : new Var(name, type);
+  }
+
+  /** Matches any term of {@code type}. */
+  static TermPattern is(Class<? extends Term> type) {
+    return type == Term.class ? any() : new Type(type);
+  }
+
+  static TermPattern atom(String value) {
+    return new Literal(Atom.of(value));
+  }
+
+  static TermPattern literal(Term value) {
+    return new Literal(value);
+  }
+
+  static TermPattern tuple(TermPattern... elements) {
+    return new TupleOf(java.util.List.of(elements));
+  }
+
+  static TermPattern map(Term key, TermPattern value) {
+    return new MapOf(java.util.Map.of(key, value));
+  }
+
+  static TermPattern map(Term k1, TermPattern v1, Term k2, TermPattern v2) {
+    LinkedHashMap<Term, TermPattern> entries = new LinkedHashMap<>();
+    entries.put(k1, v1);
+    entries.put(k2, v2);
+    return new MapOf(entries);
+  }
+
+  static TermPattern map(java.util.Map<Term, TermPattern> entries) {
+    return new MapOf(entries);
+  }
+
+  /** Matches proper lists of exactly these elements. */
+  static TermPattern list(TermPattern... elements) {
+    return new ListOf(java.util.List.of(elements), new Literal(List.empty()));
+  }
+
+  /** Matches {@code [head | tail]}. */
+  static TermPattern cons(TermPattern head, TermPattern tail) {
+    return new ListOf(java.util.List.of(head), tail);
+  }
+}
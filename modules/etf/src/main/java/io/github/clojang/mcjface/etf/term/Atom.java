@@ -1,40 +1,153 @@
 package io.github.clojang.mcjface.etf.term;
 
+import io.github.clojang.mcjface.etf.codec.Ascii;
+import io.github.clojang.mcjface.etf.codec.EtfConstants;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
-public record Atom(String value) implements Term {
+/**
+ * An Erlang atom.
+ *
+ * <p>Atoms are interned in a node-wide table: {@link #of(String)} always returns the same instance
+ * for the same text, so atoms compare by identity and carry a stable hash. Each atom also keeps its
+ * encoded {@code SMALL_ATOM_UTF8_EXT} (or {@code ATOM_UTF8_EXT}) bytes, which the encoder copies
+ * out verbatim instead of converting the text to UTF-8 on every message.
+ */
+public final class Atom implements Term {
   private static final int MAX_ATOM_LENGTH = 255;
 
-  public static final Atom TRUE = new Atom("true");
-  public static final Atom FALSE = new Atom("false");
-  public static final Atom OK = new Atom("ok");
-  public static final Atom ERROR = new Atom("error");
-  public static final Atom NIL = new Atom("nil");
-  public static final Atom UNDEFINED = new Atom("undefined");
+  public static final Atom TRUE = of("true");
+  public static final Atom FALSE = of("false");
+  public static final Atom OK = of("ok");
+  public static final Atom ERROR = of("error");
+  public static final Atom NIL = of("nil");
+  public static final Atom UNDEFINED = of("undefined");
 
-  public Atom {
+  private final String value;
+  private final byte[] utf8;
+  private final byte[] encoded;
+  private final int hash;
+
+  Atom(String value, byte[] utf8, int hash) {
     Objects.requireNonNull(value, "Atom value cannot be null");
     if (value.length() > MAX_ATOM_LENGTH) {
       throw new IllegalArgumentException("Atom too long: " + value.length());
     }
+    this.value = value;
+    this.utf8 = utf8;
+    this.hash = hash;
+    this.encoded = encode(utf8);
   }
 
-  @Override
-  public byte[] encode() {
-    return new byte[0]; // Stub implementation
+  /** Returns the interned atom for {@code value}. */
+  public static Atom of(String value) {
+    Objects.requireNonNull(value, "Atom value cannot be null");
+    return AtomTable.intern(value);
+  }
+
+  /**
+   * Returns the interned atom whose UTF-8 text occupies {@code length} bytes at {@code offset} in
+   * {@code buffer}. Existing atoms are found without creating a {@code String}.
+   */
+  public static Atom fromUtf8(ByteBuffer buffer, int offset, int length) {
+    return AtomTable.intern(buffer, offset, length);
+  }
+
+  /**
+   * Returns the interned atom whose Latin-1 text occupies {@code length} bytes at {@code offset} in
+   * {@code buffer}, as sent in {@code ATOM_EXT} and {@code SMALL_ATOM_EXT}.
+   */
+  public static Atom fromLatin1(ByteBuffer buffer, int offset, int length) {
+    if (!Ascii.isAscii(buffer, offset, length)) {
+      byte[] latin1 = new byte[length];
+      buffer.get(offset, latin1);
+      return of(new String(latin1, StandardCharsets.ISO_8859_1));
+    }
+    return AtomTable.intern(buffer, offset, length);
+  }
+
+  private static byte[] encode(byte[] utf8) {
+    boolean small = utf8.length <= EtfConstants.MAX_BYTE_VALUE;
+    ByteBuffer out = ByteBuffer.allocate(utf8.length + (small ? 2 : 3));
+    if (small) {
+      out.put((byte) EtfConstants.SMALL_ATOM_UTF8_EXT).put((byte) utf8.length);
+    } else {
+      out.put((byte) EtfConstants.ATOM_UTF8_EXT).putShort((short) utf8.length);
+    }
+    return out.put(utf8).array();
+  }
+
+  public String value() {
+    return value;
+  }
+
+  byte[] utf8() {
+    return utf8;
+  }
+
+  /**
+   * Returns whether this atom's UTF-8 text is the {@code length} bytes at {@code offset} in {@code
+   * buffer}, comparing them in place.
+   */
+  public boolean hasUtf8(ByteBuffer buffer, int offset, int length) {
+    if (length != utf8.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (buffer.get(offset + i) != utf8[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the length of this atom's text in UTF-8. */
+  public int utf8Length() {
+    return utf8.length;
+  }
+
+  /** Writes this atom's UTF-8 text, without a tag or length, at the buffer's position. */
+  public void writeUtf8(ByteBuffer out) {
+    out.put(utf8);
+  }
+
+  /** Returns the size of this atom's encoding, excluding the version tag. */
+  public int encodedSize() {
+    return encoded.length;
+  }
+
+  /** Writes this atom's precomputed encoding at the buffer's position. */
+  public void writeTo(ByteBuffer out) {
+    out.put(encoded);
   }
 
   public boolean isBoolean() {
-    return this.equals(TRUE) || this.equals(FALSE);
+    return this == TRUE || this == FALSE;
   }
 
   public boolean booleanValue() {
-    if (this.equals(TRUE)) {
+    if (this == TRUE) {
       return true;
     }
-    if (this.equals(FALSE)) {
+    if (this == FALSE) {
       return false;
     }
     throw new IllegalStateException("Atom is not a boolean: " + value);
   }
+
+  @Override
+  public boolean equals(Object obj) {
+    return this == obj;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return "Atom[value=" + value + "]";
+  }
 }
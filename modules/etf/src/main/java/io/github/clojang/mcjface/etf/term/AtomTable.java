@@ -0,0 +1,150 @@
+package io.github.clojang.mcjface.etf.term;
+
+import io.github.clojang.mcjface.etf.codec.Ascii;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Node-wide table of interned atoms, keyed by their UTF-8 text.
+ *
+ * <p>Lookups are lock-free and can be made straight from encoded bytes, so the decoder finds an
+ * existing atom without building a {@code String} first. Only inserting a new atom takes the lock.
+ * Like the atom table of an Erlang node, entries are never removed.
+ */
+final class AtomTable {
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int HASH_MULTIPLIER = 31;
+  private static final int ASCII_LIMIT = 0x80;
+
+  private static final Object lock = new Object();
+  private static volatile AtomicReferenceArray<Node> table =
+      new AtomicReferenceArray<>(INITIAL_CAPACITY);
+  private static int size;
+
+  private AtomTable() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  private record Node(Atom atom, Node next) {}
+
+  static Atom intern(String value) {
+    // An ASCII atom hashes like its text, whose hash the String caches, so it is found without
+    // scanning the text; any other atom misses here and is looked up by its UTF-8 bytes
+    int hash = value.hashCode();
+    AtomicReferenceArray<Node> current = table;
+    for (Node node = current.get(indexFor(hash, current)); node != null; node = node.next) {
+      if (node.atom.hashCode() == hash && node.atom.value().equals(value)) {
+        return node.atom;
+      }
+    }
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      if (value.charAt(i) >= ASCII_LIMIT) {
+        return intern(value.getBytes(StandardCharsets.UTF_8), value);
+      }
+    }
+    return insert(value.getBytes(StandardCharsets.ISO_8859_1), hash, value);
+  }
+
+  static Atom intern(ByteBuffer buffer, int offset, int length) {
+    int hash = hash(buffer, offset, length);
+    AtomicReferenceArray<Node> current = table;
+    for (Node node = current.get(indexFor(hash, current)); node != null; node = node.next) {
+      if (node.atom.hashCode() == hash && matches(node.atom.utf8(), buffer, offset, length)) {
+        return node.atom;
+      }
+    }
+    byte[] utf8 = new byte[length];
+    buffer.get(offset, utf8);
+    if (Ascii.isAscii(utf8, 0, length)) {
+      return insert(utf8, hash, new String(utf8, StandardCharsets.ISO_8859_1));
+    }
+    String value = new String(utf8, StandardCharsets.UTF_8);
+    if (!Arrays.equals(utf8, value.getBytes(StandardCharsets.UTF_8))) {
+      // Malformed UTF-8 is normalised so the atom is the same one Atom.of(value) returns
+      return intern(value);
+    }
+    return insert(utf8, hash, value);
+  }
+
+  private static Atom intern(byte[] utf8, String value) {
+    ByteBuffer buffer = ByteBuffer.wrap(utf8);
+    int hash = hash(buffer, 0, utf8.length);
+    AtomicReferenceArray<Node> current = table;
+    for (Node node = current.get(indexFor(hash, current)); node != null; node = node.next) {
+      if (node.atom.hashCode() == hash && Arrays.equals(node.atom.utf8(), utf8)) {
+        return node.atom;
+      }
+    }
+    return insert(utf8, hash, value);
+  }
+
+  private static Atom insert(byte[] utf8, int hash, String value) {
+    synchronized (lock) {
+      AtomicReferenceArray<Node> current = table;
+      int index = indexFor(hash, current);
+      for (Node node = current.get(index); node != null; node = node.next) {
+        if (node.atom.hashCode() == hash && Arrays.equals(node.atom.utf8(), utf8)) {
+          return node.atom;
+        }
+      }
+      Atom atom = new Atom(value, utf8, hash);
+      current.set(index, new Node(atom, current.get(index)));
+      size++;
+      if (size > current.length() - (current.length() >>> 2)) {
+        table = resize(current);
+      }
+      return atom;
+    }
+  }
+
+  private static AtomicReferenceArray<Node> resize(AtomicReferenceArray<Node> current) {
+    AtomicReferenceArray<Node> resized = new AtomicReferenceArray<>(current.length() * 2);
+    for (int i = 0; i < current.length(); i++) {
+      for (Node node = current.get(i); node != null; node = node.next) {
+        int index = indexFor(node.atom.hashCode(), resized);
+        resized.set(index, new Node(node.atom, resized.get(index)));
+      }
+    }
+    return resized;
+  }
+
+  private static int indexFor(int hash, AtomicReferenceArray<Node> current) {
+    return (hash ^ (hash >>> 16)) & (current.length() - 1);
+  }
+
+  /** Hash of UTF-8 text; equal to {@link String#hashCode()} for ASCII atoms. */
+  private static int hash(ByteBuffer buffer, int offset, int length) {
+    int hash = 0;
+    if (buffer.hasArray()) {
+      byte[] array = buffer.array();
+      int start = buffer.arrayOffset() + offset;
+      for (int i = start; i < start + length; i++) {
+        hash = HASH_MULTIPLIER * hash + (array[i] & 0xFF);
+      }
+      return hash;
+    }
+    for (int i = 0; i < length; i++) {
+      hash = HASH_MULTIPLIER * hash + (buffer.get(offset + i) & 0xFF);
+    }
+    return hash;
+  }
+
+  private static boolean matches(byte[] utf8, ByteBuffer buffer, int offset, int length) {
+    if (utf8.length != length) {
+      return false;
+    }
+    if (buffer.hasArray()) {
+      int start = buffer.arrayOffset() + offset;
+      return Arrays.equals(utf8, 0, length, buffer.array(), start, start + length);
+    }
+    for (int i = 0; i < length; i++) {
+      if (utf8[i] != buffer.get(offset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
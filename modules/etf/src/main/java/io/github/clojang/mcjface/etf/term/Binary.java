@@ -1,36 +1,159 @@
 package io.github.clojang.mcjface.etf.term;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.github.clojang.mcjface.etf.codec.Ascii;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.Objects;
 
-public record Binary(byte[] bytes) implements Term {
+/**
+ * An Erlang binary.
+ *
+ * <p>A binary is a read-only view of a range of bytes, held either in an array or in a (possibly
+ * direct) {@link ByteBuffer}. The public constructors copy their input, but {@link #wrap} and
+ * {@link #slice} share it, as do binaries decoded with shared binaries enabled, so large binaries
+ * can pass from a receive buffer through to a channel without being copied. A shared binary sees
+ * any later changes to the memory it wraps; callers that hand out wrapped memory must not modify it
+ * while the binary is in use.
+ */
+public final class Binary implements Term {
+  private static final int TRANSFER_CHUNK = 8192;
 
-  public Binary {
-    Objects.requireNonNull(bytes, "Binary bytes cannot be null");
-    bytes = bytes.clone(); // Defensive copy
+  private final ByteBuffer buffer;
+  private final byte[] array;
+  private final int offset;
+
+  public Binary(byte[] bytes) {
+    this(Objects.requireNonNull(bytes, "Binary bytes cannot be null").clone(), 0, bytes.length);
   }
 
   public Binary(String string) {
     this(string.getBytes(StandardCharsets.UTF_8));
   }
 
-  @Override
-  public byte[] encode() {
-    return new byte[0]; // Stub implementation
+  private Binary(byte[] array, int offset, int length) {
+    this.array = array;
+    this.offset = offset;
+    this.buffer = ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer();
   }
 
-  @Override
+  private Binary(ByteBuffer buffer) {
+    this.array = null;
+    this.offset = 0;
+    this.buffer = buffer.slice().asReadOnlyBuffer();
+  }
+
+  /** Returns a binary sharing {@code bytes} rather than copying them. */
+  public static Binary wrap(byte[] bytes) {
+    return wrap(bytes, 0, bytes.length);
+  }
+
+  /** Returns a binary sharing {@code length} bytes of {@code bytes} from {@code offset}. */
+  @SuppressFBWarnings(
+      value = "EI_EXPOSE_REP2",
+      justification = "Sharing the caller's array without copying is the point of wrap")
+  public static Binary wrap(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return new Binary(bytes, offset, length);
+  }
+
+  /** Returns a binary sharing the bytes between the buffer's position and limit. */
+  public static Binary wrap(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return new Binary(
+          buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    return new Binary(buffer);
+  }
+
+  /** Returns a copy of the bytes of this binary. */
   public byte[] bytes() {
-    return bytes.clone(); // Defensive copy
+    byte[] bytes = new byte[buffer.limit()];
+    buffer.get(0, bytes);
+    return bytes;
   }
 
   public int size() {
-    return bytes.length;
+    return buffer.limit();
+  }
+
+  public byte byteAt(int index) {
+    return buffer.get(index);
+  }
+
+  /** Returns a sub-binary sharing this binary's bytes. */
+  public Binary slice(int from, int length) {
+    Objects.checkFromIndexSize(from, length, size());
+    if (array != null) {
+      return new Binary(array, offset + from, length);
+    }
+    return new Binary(buffer.slice(from, length));
+  }
+
+  /** Returns a new read-only view of the bytes, positioned at the start. */
+  public ByteBuffer asReadOnlyBuffer() {
+    return buffer.duplicate();
+  }
+
+  /**
+   * Writes the whole binary to {@code channel}, blocking until it is written.
+   *
+   * @return the number of bytes written
+   */
+  public int writeTo(WritableByteChannel channel) throws IOException {
+    ByteBuffer view = buffer.duplicate();
+    while (view.hasRemaining()) {
+      channel.write(view);
+    }
+    return view.limit();
+  }
+
+  /**
+   * Writes the whole binary to {@code out}. Array-backed binaries are written in place; direct ones
+   * go through a small transfer buffer, as streams only accept arrays.
+   *
+   * @return the number of bytes written
+   */
+  public long transferTo(OutputStream out) throws IOException {
+    int size = size();
+    if (array != null) {
+      out.write(array, offset, size);
+      return size;
+    }
+    byte[] chunk = new byte[Math.min(size, TRANSFER_CHUNK)];
+    for (int pos = 0; pos < size; pos += chunk.length) {
+      int length = Math.min(chunk.length, size - pos);
+      buffer.get(pos, chunk, 0, length);
+      out.write(chunk, 0, length);
+    }
+    return size;
+  }
+
+  /** Returns the heap array the bytes are a range of, or {@code null} if they are off-heap. */
+  byte[] backingArray() {
+    return array;
+  }
+
+  /** Compares the bytes as unsigned values, a shorter binary sorting before its extensions. */
+  int compareBytes(Binary other) {
+    int mismatch = buffer.mismatch(other.buffer);
+    if (mismatch < 0) {
+      return 0;
+    }
+    if (mismatch == size() || mismatch == other.size()) {
+      return Integer.compare(size(), other.size());
+    }
+    return Byte.compareUnsigned(buffer.get(mismatch), other.buffer.get(mismatch));
   }
 
   public String toString() {
-    return new String(bytes, StandardCharsets.UTF_8);
+    if (array != null) {
+      return Ascii.decodeUtf8(array, offset, size());
+    }
+    return Ascii.decodeUtf8(buffer, 0, size());
   }
 
   @Override
@@ -41,11 +164,15 @@ public record Binary(byte[] bytes) implements Term {
     if (!(obj instanceof Binary other)) {
       return false;
     }
-    return Arrays.equals(bytes, other.bytes);
+    return buffer.equals(other.buffer);
   }
 
   @Override
   public int hashCode() {
-    return Arrays.hashCode(bytes);
+    int hash = 1;
+    for (int i = 0; i < buffer.limit(); i++) {
+      hash = 31 * hash + buffer.get(i);
+    }
+    return hash;
   }
 }
@@ -0,0 +1,308 @@
+package io.github.clojang.mcjface.etf.term;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash array mapped trie backing {@link Map}s too large to keep flat.
+ *
+ * <p>Each level of the trie consumes five bits of the key's hash. A {@link BitmapNode} stores only
+ * the occupied slots of its 32, as alternating key and value entries, where a {@code null} key
+ * marks a slot holding a child node. Keys whose hashes are fully equal share a {@link
+ * CollisionNode}. Updates copy only the path from the root to the changed slot, so they cost
+ * O(log32 n) and share everything else with the original.
+ *
+ * <p>Updates made with a non-null {@code edit} token mutate the nodes created under that token in
+ * place, which is how a {@link Map.Builder} fills a map without copying a path per entry. Nodes
+ * created with a different token, or none, are never modified.
+ */
+final class HashTrie {
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  static final Node EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+  private HashTrie() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /** Records what an update did, so the caller can keep the map's size. */
+  static final class Change {
+    boolean added;
+    boolean removed;
+  }
+
+  abstract static sealed class Node permits BitmapNode, CollisionNode {
+    final Object edit;
+    Object[] array;
+
+    Node(Object edit, Object[] array) {
+      this.edit = edit;
+      this.array = array;
+    }
+
+    abstract Term get(Term key, int hash, int shift);
+
+    abstract Node put(Object edit, Term key, Term value, int hash, int shift, Change change);
+
+    /** Returns the node without {@code key}, or {@code null} if it would be empty. */
+    abstract Node remove(Object edit, Term key, int hash, int shift, Change change);
+
+    boolean editable(Object edit) {
+      return edit != null && edit == this.edit;
+    }
+  }
+
+  static final class BitmapNode extends Node {
+    private int bitmap;
+
+    BitmapNode(Object edit, int bitmap, Object[] array) {
+      super(edit, array);
+      this.bitmap = bitmap;
+    }
+
+    @Override
+    Term get(Term key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return null;
+      }
+      int index = 2 * index(bit);
+      Object existing = array[index];
+      if (existing == null) {
+        return ((Node) array[index + 1]).get(key, hash, shift + BITS);
+      }
+      return key.equals(existing) ? (Term) array[index + 1] : null;
+    }
+
+    @Override
+    Node put(Object edit, Term key, Term value, int hash, int shift, Change change) {
+      int bit = bit(hash, shift);
+      int index = 2 * index(bit);
+      if ((bitmap & bit) != 0) {
+        Object existing = array[index];
+        Object current = array[index + 1];
+        if (existing == null) {
+          Node child = ((Node) current).put(edit, key, value, hash, shift + BITS, change);
+          return child == current ? this : set(edit, index + 1, child);
+        }
+        if (key.equals(existing)) {
+          return value == current ? this : set(edit, index + 1, value);
+        }
+        change.added = true;
+        Node child = pair(edit, shift + BITS, (Term) existing, (Term) current, key, value, hash);
+        BitmapNode node = set(edit, index, null);
+        node.array[index + 1] = child;
+        return node;
+      }
+      change.added = true;
+      Object[] grown = new Object[array.length + 2];
+      System.arraycopy(array, 0, grown, 0, index);
+      grown[index] = key;
+      grown[index + 1] = value;
+      System.arraycopy(array, index, grown, index + 2, array.length - index);
+      if (editable(edit)) {
+        array = grown;
+        bitmap |= bit;
+        return this;
+      }
+      return new BitmapNode(edit, bitmap | bit, grown);
+    }
+
+    @Override
+    Node remove(Object edit, Term key, int hash, int shift, Change change) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int index = 2 * index(bit);
+      Object existing = array[index];
+      if (existing == null) {
+        Node current = (Node) array[index + 1];
+        Node child = current.remove(edit, key, hash, shift + BITS, change);
+        if (child == current) {
+          return this;
+        }
+        if (child != null) {
+          return set(edit, index + 1, child);
+        }
+      } else if (key.equals(existing)) {
+        change.removed = true;
+      } else {
+        return this;
+      }
+      if (bitmap == bit) {
+        return null;
+      }
+      Object[] shrunk = new Object[array.length - 2];
+      System.arraycopy(array, 0, shrunk, 0, index);
+      System.arraycopy(array, index + 2, shrunk, index, array.length - index - 2);
+      if (editable(edit)) {
+        array = shrunk;
+        bitmap &= ~bit;
+        return this;
+      }
+      return new BitmapNode(edit, bitmap & ~bit, shrunk);
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private BitmapNode set(Object edit, int index, Object value) {
+      if (editable(edit)) {
+        array[index] = value;
+        return this;
+      }
+      Object[] copy = array.clone();
+      copy[index] = value;
+      return new BitmapNode(edit, bitmap, copy);
+    }
+  }
+
+  static final class CollisionNode extends Node {
+    private final int hash;
+
+    CollisionNode(Object edit, int hash, Object[] array) {
+      super(edit, array);
+      this.hash = hash;
+    }
+
+    @Override
+    Term get(Term key, int hash, int shift) {
+      if (hash != this.hash) {
+        return null;
+      }
+      int index = indexOf(key);
+      return index < 0 ? null : (Term) array[index + 1];
+    }
+
+    @Override
+    Node put(Object edit, Term key, Term value, int hash, int shift, Change change) {
+      if (hash != this.hash) {
+        // Push this node one level down and add the key beside it
+        Object[] wrapped = {null, this};
+        return new BitmapNode(edit, bit(this.hash, shift), wrapped)
+            .put(edit, key, value, hash, shift, change);
+      }
+      int index = indexOf(key);
+      if (index >= 0) {
+        if (array[index + 1] == value) {
+          return this;
+        }
+        Object[] copy = editable(edit) ? array : array.clone();
+        copy[index + 1] = value;
+        return copy == array ? this : new CollisionNode(edit, hash, copy);
+      }
+      change.added = true;
+      Object[] grown = Arrays.copyOf(array, array.length + 2);
+      grown[array.length] = key;
+      grown[array.length + 1] = value;
+      if (editable(edit)) {
+        array = grown;
+        return this;
+      }
+      return new CollisionNode(edit, hash, grown);
+    }
+
+    @Override
+    Node remove(Object edit, Term key, int hash, int shift, Change change) {
+      int index = indexOf(key);
+      if (index < 0) {
+        return this;
+      }
+      change.removed = true;
+      if (array.length == 2) {
+        return null;
+      }
+      Object[] shrunk = new Object[array.length - 2];
+      System.arraycopy(array, 0, shrunk, 0, index);
+      System.arraycopy(array, index + 2, shrunk, index, array.length - index - 2);
+      if (editable(edit)) {
+        array = shrunk;
+        return this;
+      }
+      return new CollisionNode(edit, hash, shrunk);
+    }
+
+    private int indexOf(Term key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /** Returns a node holding two keys that collide at the level above {@code shift}. */
+  private static Node pair(
+      Object edit, int shift, Term key1, Term value1, Term key2, Term value2, int hash2) {
+    int hash1 = key1.hashCode();
+    if (hash1 == hash2) {
+      return new CollisionNode(edit, hash1, new Object[] {key1, value1, key2, value2});
+    }
+    Change ignored = new Change();
+    return EMPTY
+        .put(edit, key1, value1, hash1, shift, ignored)
+        .put(edit, key2, value2, hash2, shift, ignored);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  /** Iterates over the entries below {@code root} depth first, without recursion. */
+  static Iterator<java.util.Map.Entry<Term, Term>> iterator(Node root) {
+    return new Iterator<>() {
+      // Tries are at most seven levels deep, plus a collision node
+      private final Object[][] arrays = new Object[8][];
+      private final int[] positions = new int[8];
+      private int depth;
+
+      {
+        arrays[0] = root.array;
+        advance();
+      }
+
+      private void advance() {
+        while (depth >= 0) {
+          Object[] array = arrays[depth];
+          int position = positions[depth];
+          if (position >= array.length) {
+            depth--;
+          } else if (array[position] == null) {
+            positions[depth] += 2;
+            depth++;
+            arrays[depth] = ((Node) array[position + 1]).array;
+            positions[depth] = 0;
+          } else {
+            return;
+          }
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return depth >= 0;
+      }
+
+      @Override
+      public java.util.Map.Entry<Term, Term> next() {
+        if (depth < 0) {
+          throw new NoSuchElementException();
+        }
+        Object[] array = arrays[depth];
+        int position = positions[depth];
+        positions[depth] += 2;
+        Term key = (Term) array[position];
+        Term value = (Term) array[position + 1];
+        java.util.Map.Entry<Term, Term> entry = new AbstractMap.SimpleImmutableEntry<>(key, value);
+        advance();
+        return entry;
+      }
+    };
+  }
+}
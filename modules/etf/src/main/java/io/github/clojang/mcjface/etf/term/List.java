@@ -1,68 +1,318 @@
 package io.github.clojang.mcjface.etf.term;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public record List(Term[] elements) implements Term, Iterable<Term> {
+/**
+ * An Erlang list.
+ *
+ * <p>Lists are persistent. A list is either a run of elements held in an array or a single cons
+ * cell, followed in both cases by a tail term, so {@link #head()}, {@link #tail()} and {@link
+ * #cons(Term)} are O(1) and share structure rather than copying. The tail at the end of the list is
+ * normally the empty list; when it is any other term the list is improper, like {@code [a | b]},
+ * and {@link #lastTail()} returns it. The two representations are interchangeable: equality,
+ * hashing and every accessor depend only on the elements and the last tail.
+ *
+ * <p>{@link #of} copies its array. Library code that builds a list element by element uses a {@link
+ * Builder}, which hands its array over without a copy, and callers that only read a list use {@link
+ * #get}, {@link #asList()}, iteration or {@link #stream()} rather than the copying {@link
+ * #elements()}. Indexed access walks cons cells, so it is O(i) on lists built with {@code cons}.
+ *
+ * <p>Proper lists of integers can also be held unboxed: a {@link Bytes} list keeps values 0 to 255
+ * in a {@code byte[]}, as Erlang sends charlists and byte lists in {@code STRING_EXT}, and an
+ * {@link Ints} list keeps any {@code int} values in an {@code int[]}. Both take a byte or four per
+ * element instead of a boxed {@link Number.Integer} each, and behave like any other list, creating
+ * the elements as they are read, shared for small values. {@link #ofChars} and {@link
+ * #toCharString()} convert between charlists and Java text.
+ */
+public abstract sealed class List implements Term, Iterable<Term>
+    permits List.Array, List.Cons, List.Bytes, List.Ints {
+  private static final List EMPTY = new Array(new Term[0], 0, null);
+  private static final int LATIN1_MAX = 0xFF;
 
-  public List {
-    Objects.requireNonNull(elements, "List elements cannot be null");
-    elements = elements.clone(); // Defensive copy
+  private final int size;
+  private final boolean proper;
+  // Computed on first use, as String does; a racing thread at worst computes it again
+  private int hash;
+
+  private List(int elements, Term tail) {
+    if (tail instanceof List rest) {
+      this.size = elements + rest.size;
+      this.proper = rest.proper;
+    } else {
+      this.size = elements;
+      this.proper = tail == null;
+    }
   }
 
   public static List of(Term... elements) {
-    return new List(elements);
+    if (elements.length == 0) {
+      return EMPTY;
+    }
+    Term[] copy = elements.clone();
+    for (Term element : copy) {
+      Objects.requireNonNull(element, "List element cannot be null");
+    }
+    return new Array(copy, 0, EMPTY);
+  }
+
+  /** Returns the list of the unsigned values of {@code bytes}, held unboxed. */
+  public static List ofBytes(byte[] bytes) {
+    return wrapBytes(bytes.clone());
+  }
+
+  /** Returns the list of the unsigned values of {@code bytes}, sharing the array. */
+  @SuppressFBWarnings(
+      value = "EI_EXPOSE_REP2",
+      justification = "Sharing the caller's array without copying is the point of wrap")
+  public static List wrapBytes(byte[] bytes) {
+    return bytes.length == 0 ? EMPTY : new Bytes(bytes, 0);
+  }
+
+  /** Returns the list of {@code values}, held unboxed. */
+  public static List ofInts(int[] values) {
+    return wrapInts(values.clone());
+  }
+
+  /** Returns the list of {@code values}, sharing the array. */
+  @SuppressFBWarnings(
+      value = "EI_EXPOSE_REP2",
+      justification = "Sharing the caller's array without copying is the point of wrap")
+  public static List wrapInts(int[] values) {
+    return values.length == 0 ? EMPTY : new Ints(values, 0);
+  }
+
+  /**
+   * Returns the charlist of the code points of {@code text}: a {@link Bytes} list if they are all
+   * Latin-1, and an {@link Ints} list otherwise.
+   */
+  public static List ofChars(CharSequence text) {
+    int length = text.length();
+    byte[] latin1 = new byte[length];
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (c > LATIN1_MAX) {
+        return wrapInts(text.codePoints().toArray());
+      }
+      latin1[i] = (byte) c;
+    }
+    return wrapBytes(latin1);
   }
 
   public static List empty() {
-    return new List(new Term[0]);
+    return EMPTY;
   }
 
-  @Override
-  public byte[] encode() {
-    return new byte[0]; // Stub implementation
+  /**
+   * Returns the list {@code [head | tail]}. If {@code tail} is not a list, the result is an
+   * improper list.
+   */
+  public static List cons(Term head, Term tail) {
+    return new Cons(
+        Objects.requireNonNull(head, "List element cannot be null"),
+        Objects.requireNonNull(tail, "List tail cannot be null"));
   }
 
-  @Override
+  /** Returns a builder for a list expected to hold {@code size} elements. */
+  public static Builder builder(int size) {
+    return new Builder(size);
+  }
+
+  /** Returns a copy of the elements, excluding any improper tail. */
   public Term[] elements() {
-    return elements.clone(); // Defensive copy
+    Term[] elements = new Term[size];
+    int i = 0;
+    for (Term element : this) {
+      elements[i++] = element;
+    }
+    return elements;
   }
 
+  /** Returns the number of elements, excluding any improper tail. */
   public int size() {
-    return elements.length;
+    return size;
   }
 
   public boolean isEmpty() {
-    return elements.length == 0;
+    return size == 0;
+  }
+
+  /** Returns whether the list ends with the empty list rather than some other term. */
+  public boolean isProper() {
+    return proper;
   }
 
   public Term get(int index) {
-    return elements[index];
+    Objects.checkIndex(index, size);
+    List node = this;
+    while (true) {
+      int length = node.runLength();
+      if (index < length) {
+        return node.runElement(index);
+      }
+      index -= length;
+      node = (List) node.rest();
+    }
   }
 
   public Term head() {
     if (isEmpty()) {
       throw new IllegalStateException("Empty list has no head");
     }
-    return elements[0];
+    return runElement(0);
   }
 
+  /**
+   * Returns the list after the head.
+   *
+   * @throws IllegalStateException if the list is empty, or if it is the last cell of an improper
+   *     list, whose tail is returned by {@link #lastTail()}
+   */
   public List tail() {
     if (isEmpty()) {
       throw new IllegalStateException("Empty list has no tail");
     }
-    return new List(Arrays.copyOfRange(elements, 1, elements.length));
+    Term rest = dropHead();
+    if (rest instanceof List list) {
+      return list;
+    }
+    throw new IllegalStateException("Improper list tail is not a list: " + rest);
+  }
+
+  /** Returns the list {@code [head | this]}. */
+  public List cons(Term head) {
+    return cons(head, this);
+  }
+
+  /** Returns the term at the end of the list: the empty list for proper lists. */
+  public Term lastTail() {
+    List node = this;
+    while (node.size > 0) {
+      Term rest = node.rest();
+      if (!(rest instanceof List list)) {
+        return rest;
+      }
+      node = list;
+    }
+    return EMPTY;
+  }
+
+  /**
+   * Returns the text of a charlist, a proper list of Unicode code points.
+   *
+   * @throws IllegalStateException if the list is improper or holds anything but code points
+   */
+  public String toCharString() {
+    if (!proper) {
+      throw new IllegalStateException("Improper list is not a charlist");
+    }
+    StringBuilder text = new StringBuilder(size);
+    for (Term element : this) {
+      if (!(element instanceof Number.Integer code) || !Character.isValidCodePoint(code.value())) {
+        throw new IllegalStateException("List element is not a code point: " + element);
+      }
+      text.appendCodePoint(code.value());
+    }
+    return text.toString();
+  }
+
+  /**
+   * Returns the text of a charlist as a {@link CharSequence}, which for a {@link Bytes} list is a
+   * view of its bytes rather than a copy.
+   *
+   * @throws IllegalStateException if the list is improper or holds anything but code points
+   */
+  public CharSequence asCharSequence() {
+    return toCharString();
+  }
+
+  /** Returns a read-only view of the elements, excluding any improper tail. */
+  public java.util.List<Term> asList() {
+    return new AbstractList<>() {
+      @Override
+      public Term get(int index) {
+        return List.this.get(index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public Iterator<Term> iterator() {
+        return List.this.iterator();
+      }
+    };
   }
 
   @Override
   public Iterator<Term> iterator() {
-    return Arrays.asList(elements).iterator();
+    return new Iterator<>() {
+      private List node = List.this;
+      private int index;
+      private int remaining = size;
+
+      @Override
+      public boolean hasNext() {
+        return remaining > 0;
+      }
+
+      @Override
+      public Term next() {
+        if (remaining == 0) {
+          throw new NoSuchElementException();
+        }
+        if (index == node.runLength()) {
+          node = (List) node.rest();
+          index = 0;
+        }
+        remaining--;
+        return node.runElement(index++);
+      }
+    };
   }
 
   public Stream<Term> stream() {
-    return Arrays.stream(elements);
+    Spliterator<Term> spliterator =
+        Spliterators.spliterator(
+            iterator(),
+            size,
+            Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false);
+  }
+
+  /** Number of elements held directly in this node, before its rest. */
+  abstract int runLength();
+
+  abstract Term runElement(int index);
+
+  /** The term following this node's elements; {@code null} only for the empty list. */
+  abstract Term rest();
+
+  abstract Term dropHead();
+
+  /** The array holding this node's elements, or {@code null} if they are held in fields. */
+  abstract Object runArray();
+
+  /** Returns an equal list holding {@code encoded}, its versioned encoding. */
+  List freeze(byte[] encoded) {
+    return new Array(elements(), 0, lastTail(), encoded);
+  }
+
+  /** Returns the encoding held by a frozen list, or {@code null}. */
+  byte[] frozen() {
+    return null;
   }
 
   @Override
@@ -70,14 +320,347 @@ public record List(Term[] elements) implements Term, Iterable<Term> {
     if (this == obj) {
       return true;
     }
-    if (!(obj instanceof List other)) {
+    if (!(obj instanceof List other) || size != other.size || proper != other.proper) {
       return false;
     }
-    return Arrays.equals(elements, other.elements);
+    if (hash != 0 && other.hash != 0 && hash != other.hash) {
+      return false;
+    }
+    Iterator<Term> theirs = other.iterator();
+    for (Term element : this) {
+      if (!element.equals(theirs.next())) {
+        return false;
+      }
+    }
+    return proper || lastTail().equals(other.lastTail());
+  }
+
+  /** Returns the hash of the elements and any improper tail, computed once. */
+  @Override
+  public final int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = computeHash();
+      hash = h;
+    }
+    return h;
+  }
+
+  int computeHash() {
+    int h = 1;
+    for (Term element : this) {
+      h = 31 * h + element.hashCode();
+    }
+    return proper ? h : 31 * h + lastTail().hashCode();
   }
 
   @Override
-  public int hashCode() {
-    return Arrays.hashCode(elements);
+  public String toString() {
+    String elements = Arrays.toString(elements());
+    return proper
+        ? "List[elements=" + elements + "]"
+        : "List[elements=" + elements + ", tail=" + lastTail() + "]";
+  }
+
+  /** A run of elements shared from an array, followed by a tail. */
+  static final class Array extends List {
+    private final Term[] elements;
+    private final int offset;
+    private final Term tail;
+    private final byte[] frozen;
+
+    private Array(Term[] elements, int offset, Term tail) {
+      this(elements, offset, tail, null);
+    }
+
+    private Array(Term[] elements, int offset, Term tail, byte[] frozen) {
+      super(elements.length - offset, tail);
+      this.elements = elements;
+      this.offset = offset;
+      this.tail = tail;
+      this.frozen = frozen;
+    }
+
+    @Override
+    int runLength() {
+      return elements.length - offset;
+    }
+
+    @Override
+    Term runElement(int index) {
+      return elements[offset + index];
+    }
+
+    @Override
+    Term rest() {
+      return tail;
+    }
+
+    @Override
+    Term dropHead() {
+      return offset + 1 < elements.length ? new Array(elements, offset + 1, tail) : tail;
+    }
+
+    @Override
+    Object runArray() {
+      return elements;
+    }
+
+    @Override
+    byte[] frozen() {
+      return frozen;
+    }
+
+    @Override
+    public Stream<Term> stream() {
+      return tail == EMPTY ? Arrays.stream(elements, offset, elements.length) : super.stream();
+    }
+  }
+
+  /** A single cons cell. */
+  static final class Cons extends List {
+    private final Term head;
+    private final Term tail;
+
+    private Cons(Term head, Term tail) {
+      super(1, tail);
+      this.head = head;
+      this.tail = tail;
+    }
+
+    @Override
+    int runLength() {
+      return 1;
+    }
+
+    @Override
+    Term runElement(int index) {
+      return head;
+    }
+
+    @Override
+    Term rest() {
+      return tail;
+    }
+
+    @Override
+    Term dropHead() {
+      return tail;
+    }
+
+    @Override
+    Object runArray() {
+      return null;
+    }
+  }
+
+  /** A proper list of the values 0 to 255, held unboxed in a shared byte array. */
+  public static final class Bytes extends List {
+    private final byte[] bytes;
+    private final int offset;
+
+    private Bytes(byte[] bytes, int offset) {
+      super(bytes.length - offset, EMPTY);
+      this.bytes = bytes;
+      this.offset = offset;
+    }
+
+    /** Returns the element at {@code index} without boxing it. */
+    public int unsignedAt(int index) {
+      Objects.checkIndex(index, size());
+      return bytes[offset + index] & 0xFF;
+    }
+
+    /** Writes the elements as raw bytes at the buffer's position. */
+    public void writeTo(ByteBuffer out) {
+      out.put(bytes, offset, size());
+    }
+
+    @Override
+    int runLength() {
+      return bytes.length - offset;
+    }
+
+    @Override
+    Term runElement(int index) {
+      return Number.of(bytes[offset + index] & 0xFF);
+    }
+
+    @Override
+    Term rest() {
+      return EMPTY;
+    }
+
+    @Override
+    Term dropHead() {
+      return offset + 1 < bytes.length ? new Bytes(bytes, offset + 1) : EMPTY;
+    }
+
+    @Override
+    Object runArray() {
+      return bytes;
+    }
+
+    @Override
+    public String toCharString() {
+      return new String(bytes, offset, size(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public CharSequence asCharSequence() {
+      return new Latin1(bytes, offset, size());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof Bytes other) {
+        return Arrays.equals(
+            bytes, offset, bytes.length, other.bytes, other.offset, other.bytes.length);
+      }
+      return super.equals(obj);
+    }
+
+    @Override
+    int computeHash() {
+      int h = 1;
+      for (int i = offset; i < bytes.length; i++) {
+        h = 31 * h + (bytes[i] & 0xFF);
+      }
+      return h;
+    }
+  }
+
+  /** A read-only Latin-1 view of a range of bytes. */
+  private record Latin1(byte[] bytes, int offset, int length) implements CharSequence {
+    @Override
+    public char charAt(int index) {
+      Objects.checkIndex(index, length);
+      return (char) (bytes[offset + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      Objects.checkFromToIndex(start, end, length);
+      return new Latin1(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  /** A proper list of integers, held unboxed in a shared int array. */
+  public static final class Ints extends List {
+    private final int[] values;
+    private final int offset;
+
+    private Ints(int[] values, int offset) {
+      super(values.length - offset, EMPTY);
+      this.values = values;
+      this.offset = offset;
+    }
+
+    /** Returns the element at {@code index} without boxing it. */
+    public int intAt(int index) {
+      Objects.checkIndex(index, size());
+      return values[offset + index];
+    }
+
+    @Override
+    int runLength() {
+      return values.length - offset;
+    }
+
+    @Override
+    Term runElement(int index) {
+      return Number.of(values[offset + index]);
+    }
+
+    @Override
+    Term rest() {
+      return EMPTY;
+    }
+
+    @Override
+    Term dropHead() {
+      return offset + 1 < values.length ? new Ints(values, offset + 1) : EMPTY;
+    }
+
+    @Override
+    Object runArray() {
+      return values;
+    }
+
+    @Override
+    public String toCharString() {
+      for (int i = offset; i < values.length; i++) {
+        if (!Character.isValidCodePoint(values[i])) {
+          throw new IllegalStateException("List element is not a code point: " + values[i]);
+        }
+      }
+      return new String(values, offset, size());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof Ints other) {
+        return Arrays.equals(
+            values, offset, values.length, other.values, other.offset, other.values.length);
+      }
+      return super.equals(obj);
+    }
+
+    @Override
+    int computeHash() {
+      int h = 1;
+      for (int i = offset; i < values.length; i++) {
+        h = 31 * h + values[i];
+      }
+      return h;
+    }
+  }
+
+  /** Collects elements into an array that becomes the list's own, without a copy. */
+  public static final class Builder {
+    private Term[] elements;
+    private int size;
+
+    private Builder(int size) {
+      this.elements = new Term[size];
+    }
+
+    public Builder add(Term element) {
+      Objects.requireNonNull(element, "List element cannot be null");
+      if (size == elements.length) {
+        elements = Arrays.copyOf(elements, Math.max(1, size * 2));
+      }
+      elements[size++] = element;
+      return this;
+    }
+
+    /** Builds the proper list. The builder must not be used afterwards. */
+    public List build() {
+      return build(EMPTY);
+    }
+
+    /**
+     * Builds the list of the added elements followed by {@code tail}, which is improper unless
+     * {@code tail} is a proper list. The builder must not be used afterwards.
+     *
+     * @throws IllegalArgumentException if no elements were added and {@code tail} is not a list
+     */
+    public List build(Term tail) {
+      Objects.requireNonNull(tail, "List tail cannot be null");
+      if (size == 0) {
+        if (tail instanceof List list) {
+          return list;
+        }
+        throw new IllegalArgumentException("An improper list needs at least one element");
+      }
+      Term[] built = size == elements.length ? elements : Arrays.copyOf(elements, size);
+      elements = null;
+      return new Array(built, 0, tail);
+    }
   }
 }
@@ -1,81 +1,501 @@
 package io.github.clojang.mcjface.etf.term;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
-public record Map(java.util.Map<Term, Term> entries) implements Term {
+/**
+ * An Erlang map.
+ *
+ * <p>Like BEAM, maps of up to 32 entries are flat: a sorted array of keys, in {@link
+ * TermOrder#MAP_KEYS} order, beside an array of their values. Lookups scan the keys, which for the
+ * small maps that dominate real traffic is cheaper than hashing, and iteration and encoding follow
+ * the order Erlang itself uses. Larger maps are persistent hash array mapped tries, so {@link #put}
+ * and {@link #remove} cost O(log32 n) and share all untouched structure with the original map.
+ * Updating a value in a flat map shares its keys array.
+ *
+ * <p>Library code that builds a map entry by entry uses a {@link Builder}, which fills its arrays
+ * or trie in place instead of copying per entry, and callers that only read a map use {@link #get},
+ * {@link #forEach}, {@link #asMap()} or the read-only key, value and entry views rather than the
+ * copying {@link #entries()}. The representation depends only on the size: equality and hashing
+ * follow {@link java.util.Map}.
+ */
+public final class Map implements Term {
+  /** Largest map held as flat sorted arrays rather than a trie. */
+  static final int MAX_FLAT_SIZE = 32;
 
-  public Map {
-    Objects.requireNonNull(entries, "Map entries cannot be null");
-    entries = new HashMap<>(entries); // Defensive copy
+  private static final Term[] NO_TERMS = new Term[0];
+  private static final Map EMPTY = new Map(NO_TERMS, NO_TERMS);
+
+  // Flat maps have keys and values; larger maps have a root
+  private final Term[] keys;
+  private final Term[] values;
+  private final HashTrie.Node root;
+  private final int size;
+  private final byte[] frozen;
+  // Computed on first use, as String does; a racing thread at worst computes it again
+  private int hash;
+
+  public Map(java.util.Map<Term, Term> entries) {
+    this(copyOf(Objects.requireNonNull(entries, "Map entries cannot be null")));
+  }
+
+  private Map(Map built) {
+    this(built, null);
+  }
+
+  private Map(Map built, byte[] frozen) {
+    this.keys = built.keys;
+    this.values = built.values;
+    this.root = built.root;
+    this.size = built.size;
+    this.frozen = frozen;
+  }
+
+  private Map(Term[] keys, Term[] values) {
+    this.keys = keys;
+    this.values = values;
+    this.root = null;
+    this.size = keys.length;
+    this.frozen = null;
+  }
+
+  private Map(HashTrie.Node root, int size) {
+    this.keys = null;
+    this.values = null;
+    this.root = root;
+    this.size = size;
+    this.frozen = null;
+  }
+
+  private static Map copyOf(java.util.Map<Term, Term> entries) {
+    Builder builder = builder(entries.size());
+    entries.forEach(builder::put);
+    return builder.build();
   }
 
   public static Map of() {
-    return new Map(new HashMap<>());
+    return EMPTY;
   }
 
   public static Map of(Term k1, Term v1) {
-    java.util.Map<Term, Term> map = new HashMap<>();
-    map.put(k1, v1);
-    return new Map(map);
+    return builder(1).put(k1, v1).build();
   }
 
   public static Map of(Term k1, Term v1, Term k2, Term v2) {
-    java.util.Map<Term, Term> map = new HashMap<>();
-    map.put(k1, v1);
-    map.put(k2, v2);
-    return new Map(map);
+    return builder(2).put(k1, v1).put(k2, v2).build();
   }
 
-  @Override
-  public byte[] encode() {
-    return new byte[0]; // Stub implementation
+  /**
+   * Returns a builder for a map expected to hold {@code size} entries, which decides whether the
+   * builder starts out flat or as a trie.
+   */
+  public static Builder builder(int size) {
+    return new Builder(size);
   }
 
-  @Override
+  /** Returns a copy of the entries. */
   public java.util.Map<Term, Term> entries() {
-    return new HashMap<>(entries); // Defensive copy
+    return new HashMap<>(asMap()); // Defensive copy
+  }
+
+  /** Returns a read-only view of the entries. */
+  public java.util.Map<Term, Term> asMap() {
+    return new AbstractMap<>() {
+      @Override
+      public Term get(Object key) {
+        return key instanceof Term term ? lookup(term) : null;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return get(key) != null;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public Set<java.util.Map.Entry<Term, Term>> entrySet() {
+        return new AbstractSet<>() {
+          @Override
+          public Iterator<java.util.Map.Entry<Term, Term>> iterator() {
+            return root == null ? flatIterator() : HashTrie.iterator(root);
+          }
+
+          @Override
+          public int size() {
+            return size;
+          }
+        };
+      }
+    };
+  }
+
+  private Iterator<java.util.Map.Entry<Term, Term>> flatIterator() {
+    return new Iterator<>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      public java.util.Map.Entry<Term, Term> next() {
+        if (index == size) {
+          throw new NoSuchElementException();
+        }
+        int current = index++;
+        return new AbstractMap.SimpleImmutableEntry<>(keys[current], values[current]);
+      }
+    };
   }
 
   public int size() {
-    return entries.size();
+    return size;
   }
 
   public boolean isEmpty() {
-    return entries.isEmpty();
+    return size == 0;
   }
 
   public Optional<Term> get(Term key) {
-    return Optional.ofNullable(entries.get(key));
+    return Optional.ofNullable(lookup(key));
+  }
+
+  /** Returns the value for {@code key}, or {@code defaultValue} if there is none. */
+  public Term getOrDefault(Term key, Term defaultValue) {
+    Term value = lookup(key);
+    return value != null ? value : defaultValue;
   }
 
   public boolean containsKey(Term key) {
-    return entries.containsKey(key);
+    return lookup(key) != null;
   }
 
   public Set<Term> keySet() {
-    return entries.keySet();
+    return asMap().keySet();
   }
 
   public java.util.Collection<Term> values() {
-    return entries.values();
+    return asMap().values();
   }
 
   public Set<java.util.Map.Entry<Term, Term>> entrySet() {
-    return entries.entrySet();
+    return asMap().entrySet();
+  }
+
+  /** Calls {@code action} for each entry, in key order for flat maps, without creating entries. */
+  public void forEach(BiConsumer<? super Term, ? super Term> action) {
+    if (root == null) {
+      for (int i = 0; i < size; i++) {
+        action.accept(keys[i], values[i]);
+      }
+      return;
+    }
+    Iterator<java.util.Map.Entry<Term, Term>> entries = HashTrie.iterator(root);
+    while (entries.hasNext()) {
+      java.util.Map.Entry<Term, Term> entry = entries.next();
+      action.accept(entry.getKey(), entry.getValue());
+    }
   }
 
   public Map put(Term key, Term value) {
-    java.util.Map<Term, Term> newEntries = new HashMap<>(entries);
-    newEntries.put(key, value);
-    return new Map(newEntries);
+    Objects.requireNonNull(key, "Map key cannot be null");
+    Objects.requireNonNull(value, "Map value cannot be null");
+    if (root == null) {
+      int index = indexOf(keys, size, key);
+      if (index >= 0) {
+        if (values[index] == value) {
+          return this;
+        }
+        Term[] updated = values.clone();
+        updated[index] = value;
+        return new Map(keys, updated);
+      }
+      if (size < MAX_FLAT_SIZE) {
+        Term[] grownKeys = Arrays.copyOf(keys, size + 1);
+        Term[] grownValues = Arrays.copyOf(values, size + 1);
+        insert(grownKeys, grownValues, size, key, value);
+        return new Map(grownKeys, grownValues);
+      }
+      Object edit = new Object();
+      HashTrie.Node trie = trieOf(keys, values, size, edit);
+      trie = trie.put(edit, key, value, key.hashCode(), 0, new HashTrie.Change());
+      return new Map(trie, size + 1);
+    }
+    HashTrie.Change change = new HashTrie.Change();
+    HashTrie.Node updated = root.put(null, key, value, key.hashCode(), 0, change);
+    return updated == root ? this : new Map(updated, change.added ? size + 1 : size);
   }
 
   public Map remove(Term key) {
-    java.util.Map<Term, Term> newEntries = new HashMap<>(entries);
-    newEntries.remove(key);
-    return new Map(newEntries);
+    if (root == null) {
+      int index = indexOf(keys, size, key);
+      if (index < 0) {
+        return this;
+      }
+      if (size == 1) {
+        return EMPTY;
+      }
+      return new Map(without(keys, index), without(values, index));
+    }
+    HashTrie.Change change = new HashTrie.Change();
+    HashTrie.Node updated = root.remove(null, key, key.hashCode(), 0, change);
+    if (!change.removed) {
+      return this;
+    }
+    return size - 1 <= MAX_FLAT_SIZE ? flatten(updated, size - 1) : new Map(updated, size - 1);
+  }
+
+  private Term lookup(Term key) {
+    if (root == null) {
+      int index = indexOf(keys, size, key);
+      return index < 0 ? null : values[index];
+    }
+    return root.get(key, key.hashCode(), 0);
+  }
+
+  /** Returns an equal map holding {@code encoded}, its versioned encoding. */
+  Map freeze(byte[] encoded) {
+    return new Map(this, encoded);
+  }
+
+  /** Returns the encoding held by a frozen map, or {@code null}. */
+  byte[] frozen() {
+    return frozen;
+  }
+
+  /** Returns the root of a map held as a trie, or {@code null} for a flat map. */
+  HashTrie.Node trie() {
+    return root;
+  }
+
+  /** Returns the keys in {@link TermOrder#MAP_KEYS} order; flat maps return their own array. */
+  Term[] keysInOrder() {
+    if (root == null) {
+      return keys;
+    }
+    Term[] sorted = new Term[size];
+    int i = 0;
+    for (Term key : keySet()) {
+      sorted[i++] = key;
+    }
+    Arrays.sort(sorted, TermOrder.MAP_KEYS);
+    return sorted;
+  }
+
+  /** Returns the values in the order of {@code orderedKeys}, as returned by keysInOrder. */
+  Term[] valuesInOrder(Term[] orderedKeys) {
+    if (root == null) {
+      return values;
+    }
+    Term[] ordered = new Term[size];
+    for (int i = 0; i < size; i++) {
+      ordered[i] = lookup(orderedKeys[i]);
+    }
+    return ordered;
+  }
+
+  private static int indexOf(Term[] keys, int size, Term key) {
+    for (int i = 0; i < size; i++) {
+      if (keys[i] == key || key.equals(keys[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Inserts a new key in order into arrays holding {@code size} entries and room for one more. */
+  private static void insert(Term[] keys, Term[] values, int size, Term key, Term value) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (TermOrder.MAP_KEYS.compare(keys[middle], key) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    System.arraycopy(keys, low, keys, low + 1, size - low);
+    System.arraycopy(values, low, values, low + 1, size - low);
+    keys[low] = key;
+    values[low] = value;
+  }
+
+  private static Term[] without(Term[] terms, int index) {
+    Term[] shrunk = new Term[terms.length - 1];
+    System.arraycopy(terms, 0, shrunk, 0, index);
+    System.arraycopy(terms, index + 1, shrunk, index, shrunk.length - index);
+    return shrunk;
+  }
+
+  private static HashTrie.Node trieOf(Term[] keys, Term[] values, int size, Object edit) {
+    HashTrie.Node trie = HashTrie.EMPTY;
+    HashTrie.Change change = new HashTrie.Change();
+    for (int i = 0; i < size; i++) {
+      trie = trie.put(edit, keys[i], values[i], keys[i].hashCode(), 0, change);
+    }
+    return trie;
+  }
+
+  private static Map flatten(HashTrie.Node root, int size) {
+    Term[] keys = new Term[size];
+    Term[] values = new Term[size];
+    Iterator<java.util.Map.Entry<Term, Term>> entries = HashTrie.iterator(root);
+    for (int i = 0; i < size; i++) {
+      java.util.Map.Entry<Term, Term> entry = entries.next();
+      insert(keys, values, i, entry.getKey(), entry.getValue());
+    }
+    return new Map(keys, values);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Map other) || size != other.size) {
+      return false;
+    }
+    if (hash != 0 && other.hash != 0 && hash != other.hash) {
+      return false;
+    }
+    if (root == null) {
+      for (int i = 0; i < size; i++) {
+        // Flat maps with the same keys hold them in the same order
+        Term theirs =
+            other.root == null && keys[i].equals(other.keys[i])
+                ? other.values[i]
+                : other.lookup(keys[i]);
+        if (!values[i].equals(theirs)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    Iterator<java.util.Map.Entry<Term, Term>> entries = HashTrie.iterator(root);
+    while (entries.hasNext()) {
+      java.util.Map.Entry<Term, Term> entry = entries.next();
+      if (!entry.getValue().equals(other.lookup(entry.getKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the hash {@link java.util.Map} specifies, computed once. */
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = computeHash();
+      hash = h;
+    }
+    return h;
+  }
+
+  private int computeHash() {
+    if (root == null) {
+      int h = 0;
+      for (int i = 0; i < size; i++) {
+        h += keys[i].hashCode() ^ values[i].hashCode();
+      }
+      return h;
+    }
+    return asMap().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "Map[entries=" + asMap() + "]";
+  }
+
+  /**
+   * Fills sorted arrays, or a trie once the map outgrows them, in place and hands them to the built
+   * map without a copy. A builder is not thread-safe.
+   */
+  public static final class Builder {
+    private Object edit = new Object();
+    private Term[] keys;
+    private Term[] values;
+    private HashTrie.Node root;
+    private int size;
+    private final HashTrie.Change change = new HashTrie.Change();
+
+    private Builder(int expected) {
+      if (expected > MAX_FLAT_SIZE) {
+        root = HashTrie.EMPTY;
+      } else {
+        keys = new Term[Math.max(expected, 0)];
+        values = new Term[keys.length];
+      }
+    }
+
+    /** Adds an entry, replacing any earlier value for the same key. */
+    public Builder put(Term key, Term value) {
+      Objects.requireNonNull(key, "Map key cannot be null");
+      Objects.requireNonNull(value, "Map value cannot be null");
+      if (edit == null) {
+        throw new IllegalStateException("Builder has already been built");
+      }
+      if (root == null) {
+        int index = indexOf(keys, size, key);
+        if (index >= 0) {
+          values[index] = value;
+          return this;
+        }
+        if (size < MAX_FLAT_SIZE) {
+          if (size == keys.length) {
+            int capacity = Math.min(Math.max(4, size * 2), MAX_FLAT_SIZE);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+          }
+          insert(keys, values, size++, key, value);
+          return this;
+        }
+        root = trieOf(keys, values, size, edit);
+        keys = null;
+        values = null;
+      }
+      change.added = false;
+      root = root.put(edit, key, value, key.hashCode(), 0, change);
+      if (change.added) {
+        size++;
+      }
+      return this;
+    }
+
+    /** Builds the map. The builder must not be used afterwards. */
+    public Map build() {
+      if (edit == null) {
+        throw new IllegalStateException("Builder has already been built");
+      }
+      edit = null;
+      if (size == 0) {
+        return EMPTY;
+      }
+      if (root != null) {
+        return size <= MAX_FLAT_SIZE ? flatten(root, size) : new Map(root, size);
+      }
+      Map built =
+          size == keys.length
+              ? new Map(keys, values)
+              : new Map(Arrays.copyOf(keys, size), Arrays.copyOf(values, size));
+      keys = null;
+      values = null;
+      return built;
+    }
   }
 }
@@ -1,8 +1,40 @@
 package io.github.clojang.mcjface.etf.term;
 
+/**
+ * An Erlang number.
+ *
+ * <p>Integers are held in the narrowest of {@link Integer}, {@link Long} and {@link BigInteger}
+ * that fits them. The {@code of} factories normalise to that representation and return shared
+ * instances for the small values that dominate counters, lengths and tags, so library code uses
+ * them rather than the record constructors.
+ */
 public sealed interface Number extends Term
     permits Number.Integer, Number.Long, Number.Double, Number.BigInteger {
 
+  /** Returns the integer {@code value}, shared for values from -128 to 1023. */
+  static Integer of(int value) {
+    if (value >= Integer.CACHE_LOW && value <= Integer.CACHE_HIGH) {
+      return Integer.CACHE[value - Integer.CACHE_LOW];
+    }
+    return new Integer(value);
+  }
+
+  /** Returns the integer {@code value} as an {@link Integer} if it fits, else a {@link Long}. */
+  static Number of(long value) {
+    if (value >= java.lang.Integer.MIN_VALUE && value <= java.lang.Integer.MAX_VALUE) {
+      return of((int) value);
+    }
+    return new Long(value);
+  }
+
+  /** Returns the integer {@code value} in the narrowest representation that holds it. */
+  static Number of(java.math.BigInteger value) {
+    if (value.bitLength() < java.lang.Long.SIZE) {
+      return of(value.longValue());
+    }
+    return new BigInteger(value);
+  }
+
   java.lang.Number numberValue();
 
   default int intValue() {
@@ -30,14 +62,45 @@ public sealed interface Number extends Term
   }
 
   record Integer(int value) implements Number {
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final Integer[] CACHE = new Integer[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+      for (int i = 0; i < CACHE.length; i++) {
+        CACHE[i] = new Integer(CACHE_LOW + i);
+      }
+    }
+
     @Override
     public java.lang.Number numberValue() {
       return value;
     }
 
     @Override
-    public byte[] encode() {
-      return new byte[0]; // Stub implementation
+    public int intValue() {
+      return value;
+    }
+
+    @Override
+    public long longValue() {
+      return value;
+    }
+
+    @Override
+    public double doubleValue() {
+      return value;
+    }
+
+    /** Returns whether this is the shared instance {@link Number#of(int)} hands out. */
+    boolean cached() {
+      return value >= CACHE_LOW && value <= CACHE_HIGH && CACHE[value - CACHE_LOW] == this;
+    }
+
+    /** Returns {@code value}, which unboxed integer lists rely on to hash like boxed ones. */
+    @Override
+    public int hashCode() {
+      return value;
     }
   }
 
@@ -48,8 +111,13 @@ public sealed interface Number extends Term
     }
 
     @Override
-    public byte[] encode() {
-      return new byte[0]; // Stub implementation
+    public long longValue() {
+      return value;
+    }
+
+    @Override
+    public double doubleValue() {
+      return value;
     }
   }
 
@@ -60,8 +128,8 @@ public sealed interface Number extends Term
     }
 
     @Override
-    public byte[] encode() {
-      return new byte[0]; // Stub implementation
+    public double doubleValue() {
+      return value;
     }
   }
 
@@ -70,10 +138,5 @@ public sealed interface Number extends Term
     public java.lang.Number numberValue() {
       return value;
     }
-
-    @Override
-    public byte[] encode() {
-      return new byte[0]; // Stub implementation
-    }
   }
 }
@@ -17,11 +17,6 @@ public record Pid(String node, long id, long serial, int creation) implements Te
     }
   }
 
-  @Override
-  public byte[] encode() {
-    return new byte[0]; // Stub implementation
-  }
-
   public boolean isLocal(String localNode) {
     return Objects.equals(node, localNode);
   }
@@ -14,11 +14,6 @@ public record Port(String node, long id, int creation) implements Term {
     }
   }
 
-  @Override
-  public byte[] encode() {
-    return new byte[0]; // Stub implementation
-  }
-
   public boolean isLocal(String localNode) {
     return Objects.equals(node, localNode);
   }
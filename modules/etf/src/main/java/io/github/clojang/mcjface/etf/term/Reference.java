@@ -17,16 +17,29 @@ public record Reference(String node, int creation, long[] ids) implements Term {
     ids = ids.clone(); // Defensive copy
   }
 
-  @Override
-  public byte[] encode() {
-    return new byte[0]; // Stub implementation
-  }
-
   @Override
   public long[] ids() {
     return ids.clone(); // Defensive copy
   }
 
+  /** Returns the number of ids, without copying them. */
+  int idCount() {
+    return ids.length;
+  }
+
+  /** Compares ids by count, then from the most significant word down, without copying them. */
+  int compareIds(Reference other) {
+    if (ids.length != other.ids.length) {
+      return ids.length < other.ids.length ? -1 : 1;
+    }
+    for (int i = ids.length - 1; i >= 0; i--) {
+      if (ids[i] != other.ids[i]) {
+        return ids[i] < other.ids[i] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
   public boolean isLocal(String localNode) {
     return Objects.equals(node, localNode);
   }
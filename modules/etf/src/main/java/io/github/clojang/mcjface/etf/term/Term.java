@@ -4,7 +4,13 @@ import java.util.Optional;
 
 public sealed interface Term permits Atom, Number, Binary, List, Tuple, Map, Pid, Port, Reference {
 
-  byte[] encode();
+  /**
+   * Returns the versioned external format encoding of this term. A term made by {@link
+   * Terms#frozen} returns a copy of the encoding it holds rather than encoding itself again.
+   */
+  default byte[] encode() {
+    return Terms.encode(this);
+  }
 
   default <T> Optional<T> match(Pattern<T> pattern) {
     return pattern.match(this);
@@ -0,0 +1,253 @@
+package io.github.clojang.mcjface.etf.term;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Erlang's total order of terms: number &lt; atom &lt; reference &lt; fun &lt; port &lt; pid &lt;
+ * tuple &lt; map &lt; nil &lt; list &lt; bitstring.
+ *
+ * <p>Within a type, numbers compare by value, atoms by their text, tuples by arity and then element
+ * by element, maps by size, then by their keys in key order and then by their values, and lists and
+ * binaries lexicographically. Pids, ports and references compare by node name, then creation, then
+ * their numbers. Comparisons do not allocate, except for maps held as tries, whose keys have to be
+ * sorted first, and for floats compared with integers outside the range of {@code long}.
+ *
+ * <p>{@link #STANDARD} is the order of {@code <} and {@code lists:sort/1}, where {@code 1} and
+ * {@code 1.0} are equal. {@link #MAP_KEYS} is the exact order Erlang uses for map keys, where every
+ * integer sorts before every float; it is the order in which small {@link Map}s keep their keys.
+ */
+public final class TermOrder implements Comparator<Term> {
+  public static final TermOrder STANDARD = new TermOrder(false);
+  public static final TermOrder MAP_KEYS = new TermOrder(true);
+
+  private static final int NUMBER = 0;
+  private static final int ATOM = 1;
+  private static final int REFERENCE = 2;
+  private static final int PORT = 4;
+  private static final int PID = 5;
+  private static final int TUPLE = 6;
+  private static final int MAP = 7;
+  private static final int NIL = 8;
+  private static final int LIST = 9;
+  private static final int BITSTRING = 10;
+
+  private static final double TWO_TO_63 = 0x1p63;
+
+  private final boolean exact;
+
+  private TermOrder(boolean exact) {
+    this.exact = exact;
+  }
+
+  @Override
+  public int compare(Term a, Term b) {
+    if (a == b) {
+      return 0;
+    }
+    int rank = rank(a);
+    int difference = rank - rank(b);
+    if (difference != 0) {
+      return difference < 0 ? -1 : 1;
+    }
+    return switch (rank) {
+      case NUMBER -> compareNumbers((Number) a, (Number) b);
+      case ATOM -> Arrays.compareUnsigned(((Atom) a).utf8(), ((Atom) b).utf8());
+      case REFERENCE -> compareReferences((Reference) a, (Reference) b);
+      case PORT -> comparePorts((Port) a, (Port) b);
+      case PID -> comparePids((Pid) a, (Pid) b);
+      case TUPLE -> compareTuples((Tuple) a, (Tuple) b);
+      case MAP -> compareMaps((Map) a, (Map) b);
+      case LIST -> compareLists((List) a, (List) b);
+      case BITSTRING -> ((Binary) a).compareBytes((Binary) b);
+      default -> 0; // NIL
+    };
+  }
+
+  private static int rank(Term term) {
+    return switch (term) {
+      case Number number -> NUMBER;
+      case Atom atom -> ATOM;
+      case Reference reference -> REFERENCE;
+      case Port port -> PORT;
+      case Pid pid -> PID;
+      case Tuple tuple -> TUPLE;
+      case Map map -> MAP;
+      case List list -> list.isEmpty() ? NIL : LIST;
+      case Binary binary -> BITSTRING;
+    };
+  }
+
+  private int compareNumbers(Number a, Number b) {
+    boolean aFloat = a instanceof Number.Double;
+    boolean bFloat = b instanceof Number.Double;
+    if (aFloat && bFloat) {
+      return compareDoubles(a.doubleValue(), b.doubleValue());
+    }
+    if (!aFloat && !bFloat) {
+      return compareIntegers(a, b);
+    }
+    if (exact) {
+      return aFloat ? 1 : -1;
+    }
+    return aFloat ? compareMixed(a.doubleValue(), b) : -compareMixed(b.doubleValue(), a);
+  }
+
+  private int compareDoubles(double a, double b) {
+    if (exact) {
+      // Separates 0.0 from -0.0, as =:= does
+      return Double.compare(a, b);
+    }
+    return a < b ? -1 : (a > b ? 1 : 0);
+  }
+
+  private static int compareIntegers(Number a, Number b) {
+    if (a instanceof Number.BigInteger big) {
+      if (b instanceof Number.BigInteger other) {
+        return big.value().compareTo(other.value());
+      }
+      return big.value().bitLength() < Long.SIZE
+          ? Long.compare(big.value().longValue(), b.longValue())
+          : big.value().signum();
+    }
+    if (b instanceof Number.BigInteger) {
+      return -compareIntegers(b, a);
+    }
+    return Long.compare(a.longValue(), b.longValue());
+  }
+
+  /** Compares a float with an integer by their exact values. */
+  private static int compareMixed(double value, Number integer) {
+    if (integer instanceof Number.BigInteger big && big.value().bitLength() >= Long.SIZE) {
+      return new BigDecimal(value).compareTo(new BigDecimal(big.value()));
+    }
+    long other = integer.longValue();
+    if (value < -TWO_TO_63) {
+      return -1;
+    }
+    if (value >= TWO_TO_63) {
+      return 1;
+    }
+    long truncated = (long) value;
+    if (truncated != other) {
+      return Long.compare(truncated, other);
+    }
+    double fraction = value - truncated;
+    return fraction < 0 ? -1 : (fraction > 0 ? 1 : 0);
+  }
+
+  private static int compareReferences(Reference a, Reference b) {
+    int result = a.node().compareTo(b.node());
+    if (result == 0) {
+      result = Integer.compare(a.creation(), b.creation());
+    }
+    return result != 0 ? result : a.compareIds(b);
+  }
+
+  private static int comparePorts(Port a, Port b) {
+    int result = a.node().compareTo(b.node());
+    if (result == 0) {
+      result = Integer.compare(a.creation(), b.creation());
+    }
+    return result != 0 ? result : Long.compare(a.id(), b.id());
+  }
+
+  private static int comparePids(Pid a, Pid b) {
+    int result = a.node().compareTo(b.node());
+    if (result == 0) {
+      result = Integer.compare(a.creation(), b.creation());
+    }
+    if (result == 0) {
+      result = Long.compare(a.serial(), b.serial());
+    }
+    return result != 0 ? result : Long.compare(a.id(), b.id());
+  }
+
+  private int compareTuples(Tuple a, Tuple b) {
+    int arity = a.arity();
+    if (arity != b.arity()) {
+      return arity < b.arity() ? -1 : 1;
+    }
+    for (int i = 0; i < arity; i++) {
+      int result = compare(a.get(i), b.get(i));
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
+  private int compareMaps(Map a, Map b) {
+    int size = a.size();
+    if (size != b.size()) {
+      return size < b.size() ? -1 : 1;
+    }
+    Term[] aKeys = a.keysInOrder();
+    Term[] bKeys = b.keysInOrder();
+    for (int i = 0; i < size; i++) {
+      int result = MAP_KEYS.compare(aKeys[i], bKeys[i]);
+      if (result != 0) {
+        return result;
+      }
+    }
+    Term[] aValues = a.valuesInOrder(aKeys);
+    Term[] bValues = b.valuesInOrder(bKeys);
+    for (int i = 0; i < size; i++) {
+      int result = compare(aValues[i], bValues[i]);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Compares two non-empty lists cell by cell, walking their nodes directly. Where one list ends in
+   * an improper tail, that tail is compared with the rest of the other list.
+   */
+  private int compareLists(List a, List b) {
+    List x = a;
+    List y = b;
+    int i = 0;
+    int j = 0;
+    while (true) {
+      if (i == x.runLength() && !x.isEmpty()) {
+        Term rest = x.rest();
+        if (!(rest instanceof List next)) {
+          return compareTail(rest, y, j);
+        }
+        x = next;
+        i = 0;
+      } else if (j == y.runLength() && !y.isEmpty()) {
+        Term rest = y.rest();
+        if (!(rest instanceof List next)) {
+          return -compareTail(rest, x, i);
+        }
+        y = next;
+        j = 0;
+      } else if (x.isEmpty() || y.isEmpty()) {
+        return Boolean.compare(!x.isEmpty(), !y.isEmpty());
+      } else {
+        int result = compare(x.runElement(i++), y.runElement(j++));
+        if (result != 0) {
+          return result;
+        }
+      }
+    }
+  }
+
+  /** Compares an improper tail with what remains of another list from {@code index} of a node. */
+  private int compareTail(Term tail, List node, int index) {
+    while (index == node.runLength() && !node.isEmpty()) {
+      Term rest = node.rest();
+      if (!(rest instanceof List next)) {
+        return compare(tail, rest);
+      }
+      node = next;
+      index = 0;
+    }
+    // The tail is not a list, so its type alone decides
+    return rank(tail) < (node.isEmpty() ? NIL : LIST) ? -1 : 1;
+  }
+}
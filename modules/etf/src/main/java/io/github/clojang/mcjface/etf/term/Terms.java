@@ -0,0 +1,496 @@
+package io.github.clojang.mcjface.etf.term;
+
+import io.github.clojang.mcjface.etf.codec.TermEncoder;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sizes of terms, both on the wire and on the heap, and terms frozen with their encoding.
+ *
+ * <p>{@link #encodedSize} and {@link #retainedHeapEstimate} share one iterative walk, so neither
+ * recurses on deep terms, and the walk reuses a per-thread stack and identity table, so sizing a
+ * term allocates nothing once those have grown to fit.
+ *
+ * <p>A term sent many times over, such as a configuration snapshot or a routing table, can be
+ * {@link #frozen}: encoded once, with the encoding kept beside it. {@link Term#encode()} then
+ * copies the kept bytes, and a {@link TermEncoder} copies them verbatim wherever the frozen term
+ * appears inside a larger one.
+ */
+public final class Terms {
+  private static final int MAX_BYTE_VALUE = 255;
+  private static final int MAX_STRING_LENGTH = 65535;
+  private static final long MAX_UNSIGNED_INT = 0xFFFFFFFFL;
+
+  // A 64-bit JVM with compressed references: 12-byte headers, 4-byte references, 8-byte alignment
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int BOXED_INT = 16;
+  private static final int BOXED_LONG = 24;
+  private static final int BIG_INTEGER = 16 + 40;
+  private static final int BINARY = 24 + 48;
+  private static final int TUPLE = 24;
+  private static final int LIST_NODE = 32;
+  private static final int MAP = 40;
+  private static final int TRIE_NODE = 24;
+  private static final int PID = 40;
+  private static final int PORT = 32;
+  private static final int REFERENCE_TERM = 24;
+
+  private static final TermEncoder ENCODER = new TermEncoder();
+  private static final ThreadLocal<Walk> WALKS = ThreadLocal.withInitial(Walk::new);
+
+  private Terms() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Returns a term equal to {@code term} that holds its own encoding, computed now. Tuples, maps
+   * and lists of terms are frozen; other terms are returned as they are, as they encode at the cost
+   * of a copy anyway. Freezing does not change {@code term} itself.
+   *
+   * <p>The kept encoding spells out every atom, so an encoder with atom cache references writes a
+   * frozen term's atoms in full.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends Term> T frozen(T term) {
+    Term frozen =
+        switch (term) {
+          case Tuple tuple when tuple.frozen() == null -> tuple.freeze(encode(tuple));
+          case Map map when !map.isEmpty() && map.frozen() == null -> map.freeze(encode(map));
+          // Unboxed lists are one array copy away from their encoding already
+          case List.Bytes bytes -> bytes;
+          case List.Ints ints -> ints;
+          case List list when !list.isEmpty() && list.frozen() == null ->
+              list.freeze(encode(list));
+          default -> term;
+        };
+    // Only tuples, maps and lists of terms change class, and a caller can name none of their
+    // subclasses, so the copy is a T
+    return (T) frozen;
+  }
+
+  /** Returns whether {@code term} holds its encoding, as made by {@link #frozen}. */
+  public static boolean isFrozen(Term term) {
+    return frozenBytes(term) != null;
+  }
+
+  /**
+   * Writes the encoding held by a frozen term, without its version tag, at the buffer's position.
+   *
+   * @return whether {@code term} was frozen; nothing is written if it was not
+   */
+  public static boolean writeFrozen(Term term, ByteBuffer out) {
+    byte[] frozen = frozenBytes(term);
+    if (frozen == null) {
+      return false;
+    }
+    out.put(frozen, 1, frozen.length - 1);
+    return true;
+  }
+
+  static byte[] encode(Term term) {
+    byte[] frozen = frozenBytes(term);
+    if (frozen != null) {
+      return frozen.clone();
+    }
+    byte[] bytes = new byte[Math.toIntExact(encodedSize(term))];
+    ENCODER.encodeInto(term, bytes, 0);
+    return bytes;
+  }
+
+  private static byte[] frozenBytes(Term term) {
+    return switch (term) {
+      case Tuple tuple -> tuple.frozen();
+      case Map map -> map.frozen();
+      case List list -> list.frozen();
+      default -> null;
+    };
+  }
+
+  /**
+   * Returns the exact size of {@code term} in external term format, version tag included, as
+   * written by an encoder without atom cache references or compression.
+   */
+  public static long encodedSize(Term term) {
+    return encodedSize(term, Atom::encodedSize);
+  }
+
+  /**
+   * Like {@link #encodedSize(Term)}, but with each atom, node names included, taking as many bytes
+   * as {@code atomSize} says, as it does when an encoder writes some atoms as cache references.
+   * Frozen subterms still count their kept encoding, which an encoder copies as it is.
+   */
+  public static long encodedSize(Term term, ToIntFunction<Atom> atomSize) {
+    Walk walk = WALKS.get();
+    walk.atomSize = atomSize;
+    walk.run(term, false);
+    return 1 + walk.encoded;
+  }
+
+  /**
+   * Returns an estimate of the heap {@code term} keeps alive, assuming a 64-bit JVM with compressed
+   * references.
+   *
+   * <p>Atoms and the integers {@link Number#of(int)} caches are shared by every term and count for
+   * nothing. An array shared by several binaries or lists in the term, such as the frame that
+   * decoded binaries are slices of, counts once and in full, however little of it they cover. Bytes
+   * held off-heap by binaries wrapping direct buffers are not counted. Other subterms count each
+   * time they appear, and frozen terms count their kept encoding too.
+   */
+  public static long retainedHeapEstimate(Term term) {
+    Walk walk = WALKS.get();
+    walk.atomSize = Atom::encodedSize;
+    walk.run(term, true);
+    return walk.heap;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  private static long referenceArray(int length) {
+    return align(ARRAY_HEADER + (long) REFERENCE * length);
+  }
+
+  private static int integerSize(int value) {
+    return value >= 0 && value <= MAX_BYTE_VALUE ? 2 : 1 + Integer.BYTES;
+  }
+
+  private static int longSize(long value) {
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      return integerSize((int) value);
+    }
+    long magnitude = Math.abs(value);
+    int bits = Long.SIZE - Long.numberOfLeadingZeros(magnitude);
+    return 3 + (value == Long.MIN_VALUE ? Long.BYTES : (bits + Byte.SIZE - 1) / Byte.SIZE);
+  }
+
+  private static int bigIntegerSize(java.math.BigInteger value) {
+    if (value.bitLength() < Long.SIZE) {
+      return longSize(value.longValue());
+    }
+    int length = (magnitudeBits(value) + Byte.SIZE - 1) / Byte.SIZE;
+    return length <= MAX_BYTE_VALUE ? 3 + length : 2 + Integer.BYTES + length;
+  }
+
+  /** Returns the bit length of the absolute value, without computing the absolute value. */
+  private static int magnitudeBits(java.math.BigInteger value) {
+    int bits = value.bitLength();
+    // Only a negated power of two needs one more bit than its two's complement form
+    return value.signum() < 0 && value.getLowestSetBit() == bits ? bits + 1 : bits;
+  }
+
+  /**
+   * The reusable state of a walk. Each container being walked is a frame holding the container and
+   * the position of its next element, so the stack grows with the nesting depth of a term rather
+   * than its size, and a list is walked along its runs without a frame per cell.
+   */
+  private static final class Walk {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    private Object[] frames = new Object[INITIAL_CAPACITY];
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private int top;
+    private int highWater;
+    // Open addressing by identity; half full at most
+    private Object[] seen = new Object[INITIAL_CAPACITY];
+    private int seenCount;
+
+    // Without the heap, frozen subterms are sized by their encoding and not walked, and shared
+    // arrays need not be tracked
+    private boolean countHeap;
+    private ToIntFunction<Atom> atomSize;
+    long encoded;
+    long heap;
+
+    void run(Term term, boolean countHeap) {
+      this.countHeap = countHeap;
+      encoded = 0;
+      heap = 0;
+      try {
+        visit(term);
+        while (top > 0) {
+          step();
+        }
+      } finally {
+        atomSize = null;
+        reset();
+      }
+    }
+
+    /** Visits the next element of the innermost frame, or leaves the frame if it has none. */
+    private void step() {
+      int frame = top - 1;
+      int position = positions[frame];
+      switch (frames[frame]) {
+        case Tuple tuple -> {
+          if (position == tuple.arity()) {
+            top--;
+          } else {
+            positions[frame] = position + 1;
+            visit(tuple.get(position));
+          }
+        }
+        case List run -> {
+          // Unboxed elements were counted when the run was entered
+          boolean boxed = !(run instanceof List.Bytes || run instanceof List.Ints);
+          if (boxed && position < run.runLength()) {
+            positions[frame] = position + 1;
+            visit(run.runElement(position));
+          } else {
+            top--;
+            Term rest = run.rest();
+            if (rest instanceof List next && !next.isEmpty()) {
+              enterRun(next);
+            } else {
+              // The empty list or an improper tail
+              visit(rest);
+            }
+          }
+        }
+        case Map map -> {
+          Term[] keys = map.keysInOrder();
+          if (position == 2 * keys.length) {
+            top--;
+          } else {
+            positions[frame] = position + 1;
+            int index = position >> 1;
+            visit((position & 1) == 0 ? keys[index] : map.valuesInOrder(keys)[index]);
+          }
+        }
+        case HashTrie.Node node -> {
+          Object[] array = node.array;
+          if (position == array.length) {
+            top--;
+          } else if (array[position] == null) {
+            // A null key marks a slot holding a child node
+            positions[frame] = position + 2;
+            enterNode((HashTrie.Node) array[position + 1]);
+          } else {
+            positions[frame] = position + 1;
+            visit((Term) array[position]);
+          }
+        }
+        default -> throw new IllegalStateException("Unknown frame: " + frames[frame]);
+      }
+    }
+
+    private void visit(Term term) {
+      switch (term) {
+        case Atom atom -> encoded += atomSize.applyAsInt(atom);
+        case Number.Integer integer -> {
+          encoded += integerSize(integer.value());
+          heap += integer.cached() ? 0 : BOXED_INT;
+        }
+        case Number.Long value -> {
+          encoded += longSize(value.value());
+          heap += BOXED_LONG;
+        }
+        case Number.Double value -> {
+          encoded += 1 + Double.BYTES;
+          heap += BOXED_LONG;
+        }
+        case Number.BigInteger value -> {
+          encoded += bigIntegerSize(value.value());
+          int words = (magnitudeBits(value.value()) + Integer.SIZE - 1) / Integer.SIZE;
+          heap += BIG_INTEGER + align(ARRAY_HEADER + 4L * words);
+        }
+        case Binary binary -> {
+          encoded += 1 + Integer.BYTES + binary.size();
+          heap += BINARY + arrayOnce(binary.backingArray());
+        }
+        case List list -> {
+          if (!skipFrozen(list.frozen())) {
+            visit(list);
+          }
+        }
+        case Tuple tuple -> {
+          if (!skipFrozen(tuple.frozen())) {
+            int arity = tuple.arity();
+            encoded += arity <= MAX_BYTE_VALUE ? 2 : 1 + Integer.BYTES;
+            heap += TUPLE + referenceArray(arity);
+            push(tuple);
+          }
+        }
+        case Map map -> {
+          if (!skipFrozen(map.frozen())) {
+            visit(map);
+          }
+        }
+        case Pid pid -> {
+          encoded += 1 + nodeSize(pid.node()) + 3 * Integer.BYTES;
+          heap += PID;
+        }
+        case Port port -> {
+          encoded +=
+              1
+                  + nodeSize(port.node())
+                  + (port.id() > MAX_UNSIGNED_INT ? Long.BYTES : Integer.BYTES)
+                  + Integer.BYTES;
+          heap += PORT;
+        }
+        case Reference ref -> {
+          int ids = ref.idCount();
+          encoded += 1 + Short.BYTES + nodeSize(ref.node()) + Integer.BYTES * (1 + ids);
+          heap += REFERENCE_TERM + align(ARRAY_HEADER + (long) Long.BYTES * ids);
+        }
+      }
+    }
+
+    private int nodeSize(String node) {
+      return atomSize.applyAsInt(Atom.of(node));
+    }
+
+    /**
+     * Counts a frozen term's kept encoding, returning whether that is all it needs: when the heap
+     * is counted too, the term is still walked, and its encoded size adds up to the same.
+     */
+    private boolean skipFrozen(byte[] frozen) {
+      if (frozen == null) {
+        return false;
+      }
+      if (!countHeap) {
+        encoded += frozen.length - 1;
+        return true;
+      }
+      heap += align(ARRAY_HEADER + (long) frozen.length);
+      return false;
+    }
+
+    private void visit(List list) {
+      if (list.isEmpty()) {
+        encoded += 1;
+        return;
+      }
+      // Unboxed lists are encoded as STRING_EXT, or as a LIST_EXT of integers and a NIL_EXT
+      if (list instanceof List.Bytes bytes) {
+        int size = bytes.size();
+        encoded +=
+            size <= MAX_STRING_LENGTH ? 1 + Short.BYTES + size : 2 + Integer.BYTES + 2L * size;
+        heap += LIST_NODE + arrayOnce(bytes.runArray());
+        return;
+      }
+      if (list instanceof List.Ints ints) {
+        encoded += 1 + Integer.BYTES;
+        enterRun(ints);
+        return;
+      }
+      // Any other list is one LIST_EXT, whatever runs it is made of, followed by its last tail
+      encoded += 1 + Integer.BYTES;
+      enterRun(list);
+    }
+
+    /**
+     * Counts a list node, along with its elements if they are unboxed, and pushes a frame for it.
+     * The frame visits boxed elements, then moves on to the node's rest.
+     */
+    private void enterRun(List run) {
+      heap += LIST_NODE + arrayOnce(run.runArray());
+      if (run instanceof List.Bytes) {
+        encoded += 2L * run.runLength();
+      } else if (run instanceof List.Ints ints) {
+        for (int i = 0; i < ints.size(); i++) {
+          encoded += integerSize(ints.intAt(i));
+        }
+      }
+      push(run);
+    }
+
+    private void visit(Map map) {
+      encoded += 1 + Integer.BYTES;
+      if (map.isEmpty()) {
+        return;
+      }
+      heap += MAP;
+      HashTrie.Node root = map.trie();
+      if (root != null) {
+        enterNode(root);
+        return;
+      }
+      Term[] keys = map.keysInOrder();
+      // Updating a value keeps the keys array, so maps derived from one another share it
+      heap += arrayOnce(keys) + referenceArray(keys.length);
+      push(map);
+    }
+
+    private void enterNode(HashTrie.Node node) {
+      heap += TRIE_NODE + referenceArray(node.array.length);
+      push(node);
+    }
+
+    /** Returns the size of a backing array the first time the walk meets it, and 0 after. */
+    private long arrayOnce(Object array) {
+      if (!countHeap || array == null || !firstSight(array)) {
+        return 0;
+      }
+      return switch (array) {
+        case byte[] bytes -> align(ARRAY_HEADER + (long) bytes.length);
+        case int[] values -> align(ARRAY_HEADER + 4L * values.length);
+        case Object[] elements -> referenceArray(elements.length);
+        default -> throw new IllegalStateException("Unknown backing array: " + array.getClass());
+      };
+    }
+
+    private void push(Object frame) {
+      if (top == frames.length) {
+        frames = Arrays.copyOf(frames, frames.length * 2);
+        positions = Arrays.copyOf(positions, positions.length * 2);
+      }
+      frames[top] = frame;
+      positions[top++] = 0;
+      highWater = Math.max(highWater, top);
+    }
+
+    /** Records {@code array} as counted, returning whether it had not been counted yet. */
+    private boolean firstSight(Object array) {
+      int mask = seen.length - 1;
+      int index = System.identityHashCode(array) & mask;
+      while (seen[index] != null) {
+        if (seen[index] == array) {
+          return false;
+        }
+        index = (index + 1) & mask;
+      }
+      seen[index] = array;
+      if (++seenCount * 2 > seen.length) {
+        rehash();
+      }
+      return true;
+    }
+
+    private void rehash() {
+      Object[] old = seen;
+      seen = new Object[old.length * 2];
+      int mask = seen.length - 1;
+      for (Object array : old) {
+        if (array != null) {
+          int index = System.identityHashCode(array) & mask;
+          while (seen[index] != null) {
+            index = (index + 1) & mask;
+          }
+          seen[index] = array;
+        }
+      }
+    }
+
+    /** Drops every reference the walk took, and any scratch space grown too large to keep. */
+    private void reset() {
+      top = 0;
+      if (frames.length > MAX_RETAINED_CAPACITY) {
+        frames = new Object[INITIAL_CAPACITY];
+        positions = new int[INITIAL_CAPACITY];
+      } else {
+        Arrays.fill(frames, 0, highWater, null);
+      }
+      highWater = 0;
+      if (seen.length > MAX_RETAINED_CAPACITY) {
+        seen = new Object[INITIAL_CAPACITY];
+      } else if (seenCount > 0) {
+        Arrays.fill(seen, null);
+      }
+      seenCount = 0;
+    }
+  }
+}
@@ -1,26 +1,53 @@
 package io.github.clojang.mcjface.etf.term;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.stream.Stream;
 
-public record Tuple(Term[] elements) implements Term {
+/**
+ * An Erlang tuple.
+ *
+ * <p>The public constructor and {@link #of} copy their array. Library code that builds a tuple
+ * element by element uses a {@link Builder}, which hands its array over without a copy, and callers
+ * that only read a tuple use {@link #get}, {@link #asList()} or {@link #stream()} rather than the
+ * copying {@link #elements()}.
+ */
+public final class Tuple implements Term {
+  private final Term[] elements;
+  private final byte[] frozen;
+  // Computed on first use, as String does; a racing thread at worst computes it again
+  private int hash;
 
-  public Tuple {
-    Objects.requireNonNull(elements, "Tuple elements cannot be null");
-    elements = elements.clone(); // Defensive copy
+  public Tuple(Term[] elements) {
+    this(Objects.requireNonNull(elements, "Tuple elements cannot be null").clone(), (byte[]) null);
+  }
+
+  private Tuple(Term[] elements, byte[] frozen) {
+    this.elements = elements;
+    this.frozen = frozen;
   }
 
   public static Tuple of(Term... elements) {
     return new Tuple(elements);
   }
 
-  @Override
-  public byte[] encode() {
-    return new byte[0]; // Stub implementation
+  /** Returns a builder for a tuple of {@code arity} elements. */
+  public static Builder builder(int arity) {
+    return new Builder(arity);
   }
 
-  @Override
+  /** Returns an equal tuple holding {@code encoded}, its versioned encoding. */
+  Tuple freeze(byte[] encoded) {
+    return new Tuple(elements, encoded);
+  }
+
+  /** Returns the encoding held by a frozen tuple, or {@code null}. */
+  byte[] frozen() {
+    return frozen;
+  }
+
+  /** Returns a copy of the elements. */
   public Term[] elements() {
     return elements.clone(); // Defensive copy
   }
@@ -33,6 +60,11 @@ public record Tuple(Term[] elements) implements Term {
     return elements[index];
   }
 
+  /** Returns a read-only view of the elements. */
+  public java.util.List<Term> asList() {
+    return Collections.unmodifiableList(Arrays.asList(elements));
+  }
+
   public Stream<Term> stream() {
     return Arrays.stream(elements);
   }
@@ -45,11 +77,51 @@ public record Tuple(Term[] elements) implements Term {
     if (!(obj instanceof Tuple other)) {
       return false;
     }
+    if (hash != 0 && other.hash != 0 && hash != other.hash) {
+      return false;
+    }
     return Arrays.equals(elements, other.elements);
   }
 
+  /** Returns the hash of the elements, computed once; nested tuples reuse their own. */
   @Override
   public int hashCode() {
-    return Arrays.hashCode(elements);
+    int h = hash;
+    if (h == 0) {
+      h = Arrays.hashCode(elements);
+      hash = h;
+    }
+    return h;
+  }
+
+  @Override
+  public String toString() {
+    return "Tuple[elements=" + Arrays.toString(elements) + "]";
+  }
+
+  /** Collects elements into an array that becomes the tuple's own, without a copy. */
+  public static final class Builder {
+    private Term[] elements;
+    private int size;
+
+    private Builder(int arity) {
+      this.elements = new Term[arity];
+    }
+
+    public Builder add(Term element) {
+      Objects.requireNonNull(element, "Tuple element cannot be null");
+      if (size == elements.length) {
+        elements = Arrays.copyOf(elements, Math.max(1, size * 2));
+      }
+      elements[size++] = element;
+      return this;
+    }
+
+    /** Builds the tuple. The builder must not be used afterwards. */
+    public Tuple build() {
+      Term[] built = size == elements.length ? elements : Arrays.copyOf(elements, size);
+      elements = null;
+      return new Tuple(built, (byte[]) null);
+    }
   }
 }
@@ -0,0 +1,267 @@
+package io.github.clojang.mcjface.etf.bind;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/** Round-trips records and classes through {@link TermBinder}. */
+public class TermBinderTest {
+  private static final MethodHandle TREE_TO_TERM = TermBinder.of(Tree.class).toTermHandle();
+  private static final MethodHandle TREE_FROM_TERM = TermBinder.of(Tree.class).fromTermHandle();
+
+  enum Side {
+    BUY,
+    SELL_SHORT
+  }
+
+  /** A record that contains itself, through a list and an optional. */
+  record Tree(String label, java.util.List<Tree> children, Optional<Tree> mirror) {}
+
+  @ErlangRecord(tagged = false)
+  record Point(int x, int y) {}
+
+  @ErlangRecord(tag = "trade")
+  record Order(
+      long quantity,
+      double price,
+      boolean urgent,
+      Side side,
+      byte[] payload,
+      Integer priority,
+      java.util.Map<String, Point> marks,
+      Atom venue,
+      Object extra) {}
+
+  /** A class bound through its fields, in declaration order. */
+  static final class Account {
+    static final int VERSION = 1;
+
+    private String owner;
+    private int balance;
+    private java.util.List<Side> history;
+    private Optional<Point> location;
+    private transient int cached;
+
+    Account() {}
+
+    Account(String owner, int balance, java.util.List<Side> history, Optional<Point> location) {
+      this.owner = owner;
+      this.balance = balance;
+      this.history = history;
+      this.location = location;
+      this.cached = balance;
+    }
+  }
+
+  private static Term binary(String text) {
+    return Binary.wrap(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testRecursiveRecord() throws Throwable {
+    Tree leaf = new Tree("leaf", java.util.List.of(), Optional.empty());
+    Tree mirror = new Tree("m", java.util.List.of(), Optional.of(leaf));
+    Tree tree = new Tree("root", java.util.List.of(leaf, leaf), Optional.of(mirror));
+    Term leafTerm = Tuple.of(Atom.of("tree"), binary("leaf"), List.empty(), Atom.UNDEFINED);
+    Term expected =
+        Tuple.of(
+            Atom.of("tree"),
+            binary("root"),
+            List.of(leafTerm, leafTerm),
+            Tuple.of(Atom.of("tree"), binary("m"), List.empty(), leafTerm));
+
+    TermBinder<Tree> binder = TermBinder.of(Tree.class);
+    assertThat(binder.toTerm(tree)).isEqualTo(expected);
+    assertThat(binder.fromTerm(expected)).isEqualTo(tree);
+    assertThat((Term) TREE_TO_TERM.invokeExact(tree)).isEqualTo(expected);
+    assertThat((Tree) TREE_FROM_TERM.invokeExact(expected)).isEqualTo(tree);
+  }
+
+  @Test
+  void testTaggedRecordWithEveryKindOfComponent() {
+    java.util.Map<String, Point> marks = new LinkedHashMap<>();
+    marks.put("open", new Point(1, -2));
+    marks.put("close", new Point(3, 70000));
+    Order order =
+        new Order(
+            1L << 40,
+            2.5,
+            true,
+            Side.SELL_SHORT,
+            new byte[] {1, 2},
+            7,
+            marks,
+            Atom.of("lse"),
+            Tuple.of(Atom.OK));
+    Term expected =
+        Tuple.of(
+            Atom.of("trade"),
+            Number.of(1L << 40),
+            new Number.Double(2.5),
+            Atom.TRUE,
+            Atom.of("sell_short"),
+            Binary.wrap(new byte[] {1, 2}),
+            Number.of(7),
+            Map.of(
+                binary("open"),
+                Tuple.of(Number.of(1), Number.of(-2)),
+                binary("close"),
+                Tuple.of(Number.of(3), Number.of(70000))),
+            Atom.of("lse"),
+            Tuple.of(Atom.OK));
+
+    TermBinder<Order> binder = TermBinder.of(Order.class);
+    Term term = binder.toTerm(order);
+    assertThat(term).isEqualTo(expected);
+    Order read = binder.fromTerm(term);
+    assertThat(read.payload()).isEqualTo(order.payload());
+    assertThat(read.marks()).isEqualTo(marks);
+    assertThat(binder.toTerm(read)).isEqualTo(expected);
+
+    // Strings are read from charlists too, and integers as longs and doubles
+    Term widened =
+        Tuple.of(
+            Atom.of("trade"),
+            Number.of(5),
+            Number.of(3),
+            Atom.FALSE,
+            Atom.of("buy"),
+            Binary.wrap(new byte[0]),
+            Number.of(0),
+            Map.of(List.ofChars("p"), Tuple.of(Number.of(0), Number.of(0))),
+            Atom.OK,
+            List.empty());
+    Order converted = binder.fromTerm(widened);
+    assertThat(converted.quantity()).isEqualTo(5L);
+    assertThat(converted.price() == 3.0).isTrue();
+    assertThat(converted.side()).isEqualTo(Side.BUY);
+    assertThat(converted.marks()).isEqualTo(java.util.Map.of("p", new Point(0, 0)));
+  }
+
+  @Test
+  void testUntaggedRecord() {
+    TermBinder<Point> binder = TermBinder.of(Point.class);
+    assertThat(binder.toTerm(new Point(4, -5))).isEqualTo(Tuple.of(Number.of(4), Number.of(-5)));
+    assertThat(binder.fromTerm(Tuple.of(Number.of(4), Number.of(-5)))).isEqualTo(new Point(4, -5));
+  }
+
+  @Test
+  void testPojo() {
+    TermBinder<Account> binder = TermBinder.of(Account.class);
+    Account account =
+        new Account(
+            "ann", 12, java.util.List.of(Side.BUY, Side.SELL_SHORT), Optional.of(new Point(1, 2)));
+    Term expected =
+        Tuple.of(
+            Atom.of("account"),
+            binary("ann"),
+            Number.of(12),
+            List.of(Atom.of("buy"), Atom.of("sell_short")),
+            Tuple.of(Number.of(1), Number.of(2)));
+
+    assertThat(binder.toTerm(account)).isEqualTo(expected);
+    Account read = binder.fromTerm(expected);
+    assertThat(read.owner).isEqualTo("ann");
+    assertThat(read.balance).isEqualTo(12);
+    assertThat(read.history).isEqualTo(account.history);
+    assertThat(read.location).isEqualTo(account.location);
+    assertThat(read.cached).isEqualTo(0);
+    assertThat(binder.toTerm(read)).isEqualTo(expected);
+
+    Account empty = new Account("", 0, java.util.List.of(), Optional.empty());
+    Term emptyTerm =
+        Tuple.of(Atom.of("account"), binary(""), Number.of(0), List.empty(), Atom.UNDEFINED);
+    assertThat(binder.toTerm(empty)).isEqualTo(emptyTerm);
+    assertThat(binder.fromTerm(emptyTerm).location).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  void testShapeMismatches() {
+    TermBinder<Point> points = TermBinder.of(Point.class);
+    TermBinder<Tree> trees = TermBinder.of(Tree.class);
+    TermBinder<Account> accounts = TermBinder.of(Account.class);
+    Term[] badPoints = {
+      Atom.OK,
+      Tuple.of(Number.of(1)),
+      Tuple.of(Number.of(1), Number.of(2), Number.of(3)),
+      Tuple.of(Number.of(1), new Number.Double(2.0)),
+      Tuple.of(Number.of(1), Number.of(1L << 40)),
+      Tuple.of(Number.of(1), binary("2")),
+    };
+    for (Term term : badPoints) {
+      assertThatThrownBy(() -> points.fromTerm(term))
+          .as("%s", term)
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+    Term[] badTrees = {
+      Tuple.of(Atom.of("node"), binary("x"), List.empty(), Atom.UNDEFINED),
+      Tuple.of(Atom.of("tree"), Number.of(1), List.empty(), Atom.UNDEFINED),
+      Tuple.of(Atom.of("tree"), binary("x"), List.cons(Atom.OK, Atom.OK), Atom.UNDEFINED),
+      Tuple.of(Atom.of("tree"), binary("x"), List.of(Atom.OK), Atom.UNDEFINED),
+      Tuple.of(Atom.of("tree"), binary("x"), List.empty(), Atom.OK),
+      Tuple.of(Atom.of("tree"), List.of(Atom.OK), List.empty(), Atom.UNDEFINED),
+    };
+    for (Term term : badTrees) {
+      assertThatThrownBy(() -> trees.fromTerm(term))
+          .as("%s", term)
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+    assertThatThrownBy(
+            () ->
+                accounts.fromTerm(
+                    Tuple.of(
+                        Atom.of("account"),
+                        binary("x"),
+                        Number.of(1),
+                        List.of(Atom.of("hold")),
+                        Atom.UNDEFINED)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("enum constant");
+  }
+
+  @Test
+  void testNullsAreRejected() {
+    TermBinder<Tree> trees = TermBinder.of(Tree.class);
+    TermBinder<Account> accounts = TermBinder.of(Account.class);
+    TermBinder<Order> orders = TermBinder.of(Order.class);
+
+    assertThatThrownBy(() -> trees.toTerm(null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Tree");
+    assertThatThrownBy(() -> trees.toTerm(new Tree(null, java.util.List.of(), Optional.empty())))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Tree.label");
+    java.util.List<Tree> withNull = new java.util.ArrayList<>();
+    withNull.add(null);
+    assertThatThrownBy(() -> trees.toTerm(new Tree("x", withNull, Optional.empty())))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("list element");
+    assertThatThrownBy(() -> accounts.toTerm(new Account("x", 1, java.util.List.of(), null)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Account.location");
+
+    java.util.Map<String, Point> marks = new java.util.HashMap<>();
+    marks.put("open", null);
+    Order order =
+        new Order(1, 1, false, Side.BUY, new byte[0], null, java.util.Map.of(), Atom.OK, Atom.OK);
+    assertThatThrownBy(() -> orders.toTerm(order))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Order.priority");
+    Order nullMark = new Order(1, 1, false, Side.BUY, new byte[0], 1, marks, Atom.OK, Atom.OK);
+    assertThatThrownBy(() -> orders.toTerm(nullMark))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("map value");
+  }
+}
@@ -0,0 +1,423 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.clojang.mcjface.etf.codec.TermDecoder.DecodeException;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link LazyTerm} skips, matches and slices terms in place exactly as far as {@link
+ * TermDecoder} would decode them.
+ */
+public class LazyTermTest {
+  private static final int OFFSET = 5;
+  private static final Atom[] CACHE = {Atom.of("cached"), Atom.OK};
+
+  private final TermEncoder encoder = new TermEncoder();
+  private final TermDecoder decoder = new TermDecoder().withAtomCacheRefs(CACHE);
+
+  private static Term binary(String text) {
+    return Binary.wrap(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Returns one encoding, without a version tag, of a term with each tag, some of them nested. */
+  private static java.util.List<byte[]> encodings() throws IOException {
+    java.util.List<byte[]> encodings = new java.util.ArrayList<>();
+    encodings.add(bytes(out -> out.write(new byte[] {SMALL_INTEGER_EXT, 7})));
+    encodings.add(bytes(out -> out.write(new byte[] {INTEGER_EXT, -1, -1, -1, -2})));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(FLOAT_EXT);
+              out.write(Arrays.copyOf("1.5e+00".getBytes(StandardCharsets.ISO_8859_1), 31));
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(NEW_FLOAT_EXT);
+              out.writeDouble(-2.25);
+            }));
+    encodings.add(bytes(out -> out.write(new byte[] {ATOM_EXT, 0, 2, 'o', 'k'})));
+    encodings.add(bytes(out -> out.write(new byte[] {SMALL_ATOM_EXT, 2, 'o', 'k'})));
+    encodings.add(bytes(out -> out.write(new byte[] {ATOM_UTF8_EXT, 0, 3, 'y', 'e', 's'})));
+    encodings.add(bytes(out -> atom(out, "héllo")));
+    encodings.add(bytes(out -> out.write(new byte[] {ATOM_CACHE_REF, 0})));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(REFERENCE_EXT);
+              atom(out, "n@h");
+              out.writeInt(9);
+              out.writeByte(3);
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(NEW_REFERENCE_EXT);
+              out.writeShort(2);
+              atom(out, "n@h");
+              out.writeByte(3);
+              out.writeInt(7);
+              out.writeInt(8);
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(NEWER_REFERENCE_EXT);
+              out.writeShort(3);
+              atom(out, "n@h");
+              out.writeInt(300);
+              out.writeInt(1);
+              out.writeInt(2);
+              out.writeInt(3);
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(PORT_EXT);
+              atom(out, "n@h");
+              out.writeInt(5);
+              out.writeByte(3);
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(NEW_PORT_EXT);
+              atom(out, "n@h");
+              out.writeInt(5);
+              out.writeInt(300);
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(V4_PORT_EXT);
+              atom(out, "n@h");
+              out.writeLong(1L << 40);
+              out.writeInt(300);
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(PID_EXT);
+              atom(out, "n@h");
+              out.writeInt(1);
+              out.writeInt(2);
+              out.writeByte(3);
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(NEW_PID_EXT);
+              atom(out, "n@h");
+              out.writeInt(1);
+              out.writeInt(2);
+              out.writeInt(300);
+            }));
+    encodings.add(bytes(out -> out.write(new byte[] {SMALL_TUPLE_EXT, 0})));
+    encodings.add(
+        bytes(
+            out -> {
+              out.write(new byte[] {SMALL_TUPLE_EXT, 2, ATOM_CACHE_REF, 1});
+              out.write(new byte[] {SMALL_TUPLE_EXT, 1, NIL_EXT});
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(LARGE_TUPLE_EXT);
+              out.writeInt(300);
+              for (int i = 0; i < 300; i++) {
+                out.write(new byte[] {SMALL_INTEGER_EXT, (byte) i});
+              }
+            }));
+    encodings.add(bytes(out -> out.writeByte(NIL_EXT)));
+    encodings.add(bytes(out -> out.write(new byte[] {STRING_EXT, 0, 3, 'a', 'b', 'c'})));
+    encodings.add(
+        bytes(
+            out -> {
+              out.write(new byte[] {LIST_EXT, 0, 0, 0, 2, SMALL_INTEGER_EXT, 1});
+              out.write(new byte[] {STRING_EXT, 0, 1, 'x', NIL_EXT});
+            }));
+    // An improper list, and a zero-length one that is just its tail
+    encodings.add(bytes(out -> out.write(new byte[] {LIST_EXT, 0, 0, 0, 1, NIL_EXT, NIL_EXT})));
+    encodings.add(bytes(out -> out.write(new byte[] {LIST_EXT, 0, 0, 0, 0, ATOM_CACHE_REF, 0})));
+    encodings.add(bytes(out -> out.write(new byte[] {BINARY_EXT, 0, 0, 0, 2, 1, 2})));
+    encodings.add(bytes(out -> out.write(new byte[] {BIT_BINARY_EXT, 0, 0, 0, 2, 8, 1, -32})));
+    encodings.add(bytes(out -> out.write(new byte[] {SMALL_BIG_EXT, 2, 1, 1, 1})));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(LARGE_BIG_EXT);
+              out.writeInt(300);
+              out.writeByte(0);
+              byte[] digits = new byte[300];
+              digits[299] = 1;
+              out.write(digits);
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.write(new byte[] {MAP_EXT, 0, 0, 0, 2, SMALL_INTEGER_EXT, 1, NIL_EXT});
+              out.write(new byte[] {ATOM_CACHE_REF, 1, SMALL_TUPLE_EXT, 1, NIL_EXT});
+            }));
+    encodings.add(bytes(out -> out.write(compressed(Tuple.of(Atom.OK, binary("x".repeat(200)))))));
+    encodings.add(bytes(LazyTermTest::newFun));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(EXPORT_EXT);
+              atom(out, "lists");
+              atom(out, "map");
+              out.write(new byte[] {SMALL_INTEGER_EXT, 2});
+            }));
+    encodings.add(
+        bytes(
+            out -> {
+              out.writeByte(FUN_EXT);
+              out.writeInt(2);
+              pid(out);
+              atom(out, "lists");
+              out.write(new byte[] {SMALL_INTEGER_EXT, 1, SMALL_INTEGER_EXT, 2});
+              out.write(new byte[] {NIL_EXT, SMALL_TUPLE_EXT, 1, NIL_EXT});
+            }));
+    return encodings;
+  }
+
+  private static void newFun(DataOutputStream out) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream fun = new DataOutputStream(body);
+    fun.writeByte(1);
+    fun.write(new byte[16]);
+    fun.writeInt(0);
+    fun.writeInt(1);
+    atom(fun, "lists");
+    fun.write(new byte[] {SMALL_INTEGER_EXT, 0, INTEGER_EXT, 0, 0, 0, 1});
+    pid(fun);
+    fun.write(new byte[] {SMALL_INTEGER_EXT, 9});
+    out.writeByte(NEW_FUN_EXT);
+    out.writeInt(Integer.BYTES + body.size());
+    body.writeTo(out);
+  }
+
+  private static void pid(DataOutputStream out) throws IOException {
+    out.writeByte(NEW_PID_EXT);
+    atom(out, "n@h");
+    out.writeInt(1);
+    out.writeInt(2);
+    out.writeInt(3);
+  }
+
+  /** Returns the {@code COMPRESSED} form of {@code term}, whatever its size. */
+  private static byte[] compressed(Term term) throws IOException {
+    ByteBuffer plain = ByteBuffer.allocate(new TermEncoder().encodedSizeWithoutVersion(term));
+    new TermEncoder().encodeWithoutVersion(term, plain);
+    Deflater deflater = new Deflater();
+    deflater.setInput(plain.array());
+    deflater.finish();
+    byte[] zlib = new byte[plain.capacity() + 64];
+    int length = deflater.deflate(zlib);
+    deflater.end();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(COMPRESSED);
+    out.writeInt(plain.capacity());
+    out.write(zlib, 0, length);
+    return bytes.toByteArray();
+  }
+
+  private static byte[] bytes(Body body) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    body.writeTo(new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  private interface Body {
+    void writeTo(DataOutputStream out) throws IOException;
+  }
+
+  private static void atom(DataOutputStream out, String text) throws IOException {
+    byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+    out.writeByte(SMALL_ATOM_UTF8_EXT);
+    out.writeByte(utf8.length);
+    out.write(utf8);
+  }
+
+  /** Returns {@code bytes} at {@link #OFFSET} in a buffer with other bytes before and after. */
+  private static ByteBuffer surrounded(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.allocate(OFFSET + bytes.length + 3);
+    Arrays.fill(buffer.array(), (byte) NIL_EXT);
+    return buffer.put(OFFSET, bytes);
+  }
+
+  private static boolean isFun(int tag) {
+    return tag == FUN_EXT || tag == NEW_FUN_EXT || tag == EXPORT_EXT;
+  }
+
+  private static byte[] bytesOf(ByteBuffer view) {
+    byte[] bytes = new byte[view.remaining()];
+    view.duplicate().get(bytes);
+    return bytes;
+  }
+
+  @Test
+  void testSkippingMatchesDecoding() throws Exception {
+    Set<Integer> tags = new TreeSet<>();
+    for (byte[] encoding : encodings()) {
+      int tag = encoding[0] & 0xFF;
+      tags.add(tag);
+      ByteBuffer buffer = surrounded(encoding);
+      LazyTerm lazy = LazyTerm.withoutVersion(buffer, OFFSET, decoder);
+
+      assertThat(lazy.tag()).isEqualTo(tag);
+      assertThat(lazy.encodedSize()).as(ExternalFormat.tagName(tag)).isEqualTo(encoding.length);
+      assertThat(bytesOf(lazy.encoded())).isEqualTo(encoding);
+      if (isFun(tag)) {
+        assertThatThrownBy(lazy::decode).isInstanceOf(DecodeException.class);
+        continue;
+      }
+      TermDecoder.DecodeResult result = decoder.decodeWithoutVersion(buffer, OFFSET);
+      assertThat(result.bytesConsumed()).as(ExternalFormat.tagName(tag)).isEqualTo(encoding.length);
+      assertThat(lazy.decode()).isEqualTo(result.term());
+      assertThat(lazy.encodedSize()).isEqualTo(encoding.length);
+    }
+
+    // Every tag of the external format is covered
+    for (Field field : EtfConstants.class.getFields()) {
+      String name = field.getName();
+      boolean isTag =
+          name.endsWith("_EXT") || name.equals("COMPRESSED") || name.equals("ATOM_CACHE_REF");
+      if (isTag && Modifier.isStatic(field.getModifiers())) {
+        assertThat(tags.contains(field.getInt(null))).as(name).isTrue();
+      }
+    }
+  }
+
+  @Test
+  void testGetSkipsEveryTag() throws Exception {
+    java.util.List<byte[]> encodings = encodings();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(LARGE_TUPLE_EXT);
+    out.writeInt(encodings.size());
+    for (byte[] encoding : encodings) {
+      out.write(encoding);
+    }
+    LazyTerm tuple = LazyTerm.withoutVersion(surrounded(bytes.toByteArray()), OFFSET, decoder);
+
+    assertThat(tuple.arity()).isEqualTo(encodings.size());
+    // From the back, so the first call scans every element, and then from the front
+    for (int i = encodings.size() - 1; i >= 0; i--) {
+      assertThat(bytesOf(tuple.get(i).encoded())).isEqualTo(encodings.get(i));
+    }
+    for (int i = 0; i < encodings.size(); i++) {
+      assertThat(bytesOf(tuple.get(i).encoded())).isEqualTo(encodings.get(i));
+    }
+    assertThat(tuple.encodedSize()).isEqualTo(bytes.size());
+  }
+
+  @Test
+  void testGet() throws Exception {
+    Term message =
+        Tuple.of(
+            Atom.of("route"),
+            binary("x".repeat(1000)),
+            List.of(Number.of(1), Atom.OK, Map.of(Atom.OK, Tuple.of(Number.of(2)))),
+            List.ofChars("abc"),
+            Tuple.of(Number.of(3), Atom.ERROR));
+    LazyTerm lazy = LazyTerm.of(encoder.encode(message));
+
+    assertThat(lazy.arity()).isEqualTo(5);
+    assertThat(lazy.get(4).get(1).decode()).isEqualTo(Atom.ERROR);
+    assertThat(lazy.get(2).get(2).decode()).isEqualTo(Map.of(Atom.OK, Tuple.of(Number.of(2))));
+    assertThat(lazy.get(2).arity()).isEqualTo(3);
+    assertThat(lazy.get(1).decode()).isEqualTo(binary("x".repeat(1000)));
+    assertThat(lazy.get(0).decode()).isEqualTo(Atom.of("route"));
+    assertThat(lazy.decode()).isEqualTo(message);
+
+    assertThatThrownBy(() -> lazy.get(5)).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThatThrownBy(() -> lazy.get(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThatThrownBy(() -> lazy.get(0).get(0)).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> lazy.get(3).get(0)).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> lazy.get(0).arity()).isInstanceOf(IllegalStateException.class);
+    assertThat(lazy.get(3).decode()).isEqualTo(List.ofChars("abc"));
+  }
+
+  @Test
+  void testIs() throws Exception {
+    Atom cached = CACHE[0];
+    byte[][] atoms = {
+      {ATOM_EXT, 0, 6, 'c', 'a', 'c', 'h', 'e', 'd'},
+      {SMALL_ATOM_EXT, 6, 'c', 'a', 'c', 'h', 'e', 'd'},
+      {ATOM_UTF8_EXT, 0, 6, 'c', 'a', 'c', 'h', 'e', 'd'},
+      {SMALL_ATOM_UTF8_EXT, 6, 'c', 'a', 'c', 'h', 'e', 'd'},
+      {ATOM_CACHE_REF, 0},
+    };
+    for (byte[] atom : atoms) {
+      LazyTerm lazy = LazyTerm.withoutVersion(surrounded(atom), OFFSET, decoder);
+      assertThat(lazy.isAtom()).isTrue();
+      assertThat(lazy.is(cached)).as("tag %d", atom[0]).isTrue();
+      assertThat(lazy.is(Atom.of("cache"))).isFalse();
+      assertThat(lazy.is(Atom.of("cached_"))).isFalse();
+      assertThat(lazy.is(Atom.OK)).isFalse();
+      // Once decoded, the decoded atom is compared instead
+      assertThat(lazy.decode()).isSameAs(cached);
+      assertThat(lazy.is(cached)).isTrue();
+      assertThat(lazy.is(Atom.OK)).isFalse();
+    }
+
+    for (Term other : new Term[] {binary("cached"), List.ofChars("cached"), Tuple.of(cached)}) {
+      LazyTerm lazy = LazyTerm.of(encoder.encode(other));
+      assertThat(lazy.isAtom()).isFalse();
+      assertThat(lazy.is(cached)).isFalse();
+    }
+  }
+
+  @Test
+  void testEncoded() throws Exception {
+    Term element = Map.of(Atom.OK, List.of(Number.of(1), binary("abc")));
+    Term message = Tuple.of(Atom.of("forward"), element, Number.of(1L << 40));
+    byte[] versioned = encoder.encode(message);
+    ByteBuffer buffer = surrounded(versioned);
+    LazyTerm lazy = LazyTerm.of(buffer, OFFSET);
+
+    assertThat(lazy.encodedSize()).isEqualTo(versioned.length - 1);
+    assertThat(bytesOf(lazy.encoded()))
+        .isEqualTo(Arrays.copyOfRange(versioned, 1, versioned.length));
+    assertThat(lazy.encoded().isReadOnly()).isTrue();
+
+    ByteBuffer expected = ByteBuffer.allocate(encoder.encodedSizeWithoutVersion(element));
+    encoder.encodeWithoutVersion(element, expected);
+    LazyTerm forwarded = lazy.get(1);
+    assertThat(forwarded.encodedSize()).isEqualTo(expected.capacity());
+    assertThat(bytesOf(forwarded.encoded())).isEqualTo(expected.array());
+    // The size is the same whether it was skipped or decoded
+    assertThat(forwarded.decode()).isEqualTo(element);
+    assertThat(forwarded.encodedSize()).isEqualTo(expected.capacity());
+    assertThat(LazyTerm.withoutVersion(forwarded.encoded(), 0, decoder).decode())
+        .isEqualTo(element);
+
+    assertThatThrownBy(() -> LazyTerm.of(new byte[] {SMALL_INTEGER_EXT, 1}))
+        .isInstanceOf(DecodeException.class);
+    assertThatThrownBy(() -> LazyTerm.of(new byte[] {(byte) VERSION_TAG}))
+        .isInstanceOf(DecodeException.class);
+  }
+}
@@ -0,0 +1,183 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that {@link ListStreamEncoder} writes what {@link TermEncoder} does for the whole list,
+ * with the count given up front or written in afterwards.
+ */
+public class ListStreamEncoderTest {
+  private static final byte[] PREFIX = {1, 2, 3};
+
+  @TempDir Path directory;
+
+  private final TermEncoder encoder = new TermEncoder();
+  private final TermDecoder decoder = new TermDecoder();
+
+  private static java.util.List<Term> elements(int size) {
+    java.util.List<Term> elements = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      elements.add(
+          switch (i % 4) {
+            case 0 -> Atom.of("row_" + i % 3);
+            case 1 -> Tuple.of(Number.of(i), Binary.wrap(new byte[i % 50]));
+            case 2 -> Number.of(i * 100_003L);
+            default -> List.of(Atom.OK, Number.of(i));
+          });
+    }
+    return elements;
+  }
+
+  /** Encodes through an output stream with the count given up front. */
+  private byte[] counted(java.util.List<Term> elements, int bufferSize) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long written =
+        new ListStreamEncoder(bufferSize).encode(elements.iterator(), elements.size(), out);
+    assertThat(written).isEqualTo((long) out.size());
+    return out.toByteArray();
+  }
+
+  /** Encodes through a channel with the count given up front. */
+  private byte[] countedChannel(java.util.List<Term> elements, int bufferSize) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long written =
+        new ListStreamEncoder(bufferSize)
+            .encode(elements.stream(), elements.size(), Channels.newChannel(out));
+    assertThat(written).isEqualTo((long) out.size());
+    return out.toByteArray();
+  }
+
+  /** Encodes into a file after a few other bytes, counting the elements as they go. */
+  private byte[] seekable(java.util.List<Term> elements, int bufferSize) throws Exception {
+    Path file = Files.createTempFile(directory, "list", ".etf");
+    long written;
+    try (SeekableByteChannel out = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+      out.write(ByteBuffer.wrap(PREFIX));
+      written = new ListStreamEncoder(bufferSize).encode(elements.iterator(), out);
+      assertThat(out.position()).isEqualTo(PREFIX.length + written);
+    }
+    byte[] bytes = Files.readAllBytes(file);
+    assertThat(Arrays.copyOf(bytes, PREFIX.length)).isEqualTo(PREFIX);
+    assertThat(written).isEqualTo((long) bytes.length - PREFIX.length);
+    return Arrays.copyOfRange(bytes, PREFIX.length, bytes.length);
+  }
+
+  private void assertEncodesLikeTermEncoder(java.util.List<Term> elements, int bufferSize)
+      throws Exception {
+    List list = List.of(elements.toArray(Term[]::new));
+    byte[] expected = encoder.encode(list);
+    for (byte[] actual :
+        java.util.List.of(
+            counted(elements, bufferSize),
+            countedChannel(elements, bufferSize),
+            seekable(elements, bufferSize))) {
+      assertThat(actual).as("%d elements", elements.size()).isEqualTo(expected);
+      assertThat(decoder.decode(actual)).isEqualTo(list);
+    }
+  }
+
+  @Test
+  void testMatchesTermEncoder() throws Exception {
+    for (int size : new int[] {1, 2, 7, 100, 5000}) {
+      assertEncodesLikeTermEncoder(elements(size), 64 * 1024);
+      assertEncodesLikeTermEncoder(elements(size), 64);
+    }
+  }
+
+  @Test
+  void testSmallIntegersAreStillAList() throws Exception {
+    // TermEncoder writes these as a STRING_EXT, which needs every element up front
+    java.util.List<Term> bytes = java.util.List.of(Number.of(104), Number.of(105));
+    List list = List.of(bytes.toArray(Term[]::new));
+    for (byte[] actual :
+        java.util.List.of(counted(bytes, 16), countedChannel(bytes, 16), seekable(bytes, 16))) {
+      assertThat(actual[1] & 0xFF).isEqualTo(EtfConstants.LIST_EXT);
+      assertThat(decoder.decode(actual)).isEqualTo(list);
+      assertThat(decoder.decode(actual)).isEqualTo(decoder.decode(encoder.encode(list)));
+    }
+  }
+
+  @Test
+  void testEmptyList() throws Exception {
+    byte[] expected = {(byte) EtfConstants.VERSION_TAG, (byte) EtfConstants.NIL_EXT};
+    assertThat(encoder.encode(List.empty())).isEqualTo(expected);
+    java.util.List<Term> none = java.util.List.of();
+    assertThat(counted(none, 16)).isEqualTo(expected);
+    assertThat(countedChannel(none, 16)).isEqualTo(expected);
+    assertThat(seekable(none, 16)).isEqualTo(expected);
+  }
+
+  @Test
+  void testElementsLargerThanTheBuffer() throws Exception {
+    java.util.List<Term> elements = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      elements.add(Binary.wrap(new byte[100 + i]));
+      elements.add(Number.of(i));
+      elements.add(Number.of(i * 1000));
+    }
+    // The smallest buffer holds the header and nothing bigger than a small integer
+    for (int bufferSize = 6; bufferSize < 12; bufferSize++) {
+      assertEncodesLikeTermEncoder(elements, bufferSize);
+    }
+    assertEncodesLikeTermEncoder(java.util.List.of(Binary.wrap(new byte[1000])), 6);
+  }
+
+  @Test
+  void testCountMismatches() {
+    ListStreamEncoder streamEncoder = new ListStreamEncoder(16);
+    java.util.List<Term> three = elements(3);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    assertThatThrownBy(() -> streamEncoder.encode(three.iterator(), 4, out))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Expected 4 elements but got 3");
+    assertThatThrownBy(() -> streamEncoder.encode(three.iterator(), 2, out))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("List has more than 2 elements");
+    assertThatThrownBy(() -> streamEncoder.encode(three.iterator(), 0, out))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("List has more than 0 elements");
+    assertThatThrownBy(() -> streamEncoder.encode(three.iterator(), -1, out))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Invalid list length");
+    assertThatThrownBy(() -> streamEncoder.encode(three.iterator(), 1L << 32, out))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Invalid list length");
+    assertThatThrownBy(() -> new ListStreamEncoder(5)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void testEncoderIsReusable() throws Exception {
+    ListStreamEncoder streamEncoder = new ListStreamEncoder(32);
+    java.util.List<Term> elements = elements(50);
+    byte[] expected = encoder.encode(List.of(elements.toArray(Term[]::new)));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThatThrownBy(() -> streamEncoder.encode(elements.iterator(), 60, out))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    // A failed call leaves nothing behind for the next one
+    out.reset();
+    assertThat(streamEncoder.encode(elements.iterator(), elements.size(), out))
+        .isEqualTo((long) expected.length);
+    assertThat(out.toByteArray()).isEqualTo(expected);
+  }
+}
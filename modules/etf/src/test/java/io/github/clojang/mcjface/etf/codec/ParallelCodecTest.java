@@ -0,0 +1,144 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that encoders and decoders {@link TermEncoder#withParallelism with parallelism} produce
+ * exactly what sequential ones do, on either side of the threshold.
+ */
+public class ParallelCodecTest {
+  private static final int THRESHOLD = Segments.MIN_SEGMENT;
+
+  private final TermEncoder sequentialEncoder = new TermEncoder();
+  private final TermDecoder sequentialDecoder = new TermDecoder();
+  private final TermEncoder parallelEncoder = new TermEncoder().withParallelism(THRESHOLD);
+  private final TermDecoder parallelDecoder = new TermDecoder().withParallelism(THRESHOLD);
+
+  /** An element whose encoded size varies with {@code i}, so segments differ in length. */
+  private static Term element(int i) {
+    return switch (i % 4) {
+      case 0 -> Atom.of("atom_" + i % 7);
+      case 1 -> Tuple.of(Number.of(i), Binary.wrap(new byte[i % 5]));
+      case 2 -> Number.of(i * 100_003L);
+      default -> List.of(Atom.OK, Number.of(i));
+    };
+  }
+
+  private static List list(int leadingInts, int size) {
+    List.Builder elements = List.builder(size);
+    for (int i = 0; i < size; i++) {
+      elements.add(i < leadingInts ? Number.of(i) : element(i));
+    }
+    return elements.build();
+  }
+
+  private static Map map(int size) {
+    Map.Builder entries = Map.builder(size);
+    for (int i = 0; i < size; i++) {
+      entries.put(Number.of(i), element(i));
+    }
+    return entries.build();
+  }
+
+  @Test
+  void testListsAroundTheThreshold() throws Exception {
+    for (int size = THRESHOLD - 2; size <= THRESHOLD + 2; size++) {
+      assertSameAsSequential(list(0, size));
+      // Leading integers are decoded unboxed and do not count towards the threshold
+      assertSameAsSequential(list(3, size));
+    }
+    assertSameAsSequential(list(0, 5 * THRESHOLD + 3));
+    assertSameAsSequential(List.cons(Atom.OK, list(0, THRESHOLD)));
+  }
+
+  @Test
+  void testMapsAroundTheThreshold() throws Exception {
+    for (int size = THRESHOLD - 2; size <= THRESHOLD + 2; size++) {
+      assertSameAsSequential(map(size));
+    }
+    assertSameAsSequential(Tuple.of(map(THRESHOLD), list(0, THRESHOLD), map(THRESHOLD - 1)));
+  }
+
+  @Test
+  void testSegmentsThatSplitAKeyFromItsValue() throws Exception {
+    int split = 0;
+    for (int size = THRESHOLD / 2; size <= 3 * THRESHOLD; size += 97) {
+      int count = 2 * size;
+      int segments = Segments.count(count);
+      for (int s = 1; s < segments; s++) {
+        if (Segments.start(s, segments, count) % 2 == 1) {
+          split++;
+        }
+      }
+      assertSameAsSequential(map(size));
+    }
+    assertThat(split > 0).as("segments starting at a value").isTrue();
+  }
+
+  @Test
+  void testDecodeFailureInsideASegment() throws Exception {
+    int size = 3 * THRESHOLD + 1;
+    List.Builder elements = List.builder(size);
+    for (int i = 0; i < size; i++) {
+      elements.add(Tuple.of());
+    }
+    byte[] encoded = sequentialEncoder.encode(elements.build());
+    // An atom cache ref is skipped over when segments are indexed, but cannot be decoded here
+    int broken = 6 + 2 * (size - 10);
+    assertThat(encoded[broken] & 0xFF).isEqualTo(EtfConstants.SMALL_TUPLE_EXT);
+    encoded[broken] = (byte) EtfConstants.ATOM_CACHE_REF;
+
+    for (TermDecoder decoder : new TermDecoder[] {sequentialDecoder, parallelDecoder}) {
+      assertThatThrownBy(() -> decoder.decode(encoded))
+          .isInstanceOf(TermDecoder.DecodeException.class)
+          .hasMessageContaining("no header entry");
+    }
+  }
+
+  @Test
+  void testMapDecodeFailureInsideASegment() throws Exception {
+    int size = 2 * THRESHOLD;
+    Map.Builder entries = Map.builder(size);
+    for (int i = 0; i < size; i++) {
+      entries.put(Atom.of("key_" + i), Tuple.of());
+    }
+    byte[] encoded = sequentialEncoder.encode(entries.build());
+    int broken = encoded.length - 2;
+    assertThat(encoded[broken] & 0xFF).isEqualTo(EtfConstants.SMALL_TUPLE_EXT);
+    encoded[broken] = (byte) EtfConstants.ATOM_CACHE_REF;
+
+    for (TermDecoder decoder : new TermDecoder[] {sequentialDecoder, parallelDecoder}) {
+      assertThatThrownBy(() -> decoder.decode(encoded))
+          .isInstanceOf(TermDecoder.DecodeException.class)
+          .hasMessageContaining("no header entry");
+    }
+  }
+
+  private void assertSameAsSequential(Term term) throws Exception {
+    byte[] sequential = sequentialEncoder.encode(term);
+    assertThat(parallelEncoder.encodedSize(term)).isEqualTo(sequential.length);
+    assertThat(parallelEncoder.encode(term)).isEqualTo(sequential);
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(sequential.length + 3).position(3);
+    parallelEncoder.encodeInto(term, direct);
+    byte[] written = new byte[sequential.length];
+    direct.get(3, written);
+    assertThat(written).isEqualTo(sequential);
+
+    Term decoded = sequentialDecoder.decode(sequential);
+    assertThat(decoded).isEqualTo(term);
+    assertThat(parallelDecoder.decode(sequential)).isEqualTo(decoded);
+    assertThat(parallelDecoder.decode(direct.position(3))).isEqualTo(decoded);
+  }
+}
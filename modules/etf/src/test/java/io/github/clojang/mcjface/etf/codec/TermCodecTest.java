@@ -0,0 +1,308 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Pid;
+import io.github.clojang.mcjface.etf.term.Port;
+import io.github.clojang.mcjface.etf.term.Reference;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round trips through {@link TermEncoder} and {@link TermDecoder} for every tag of {@link
+ * ExternalFormat}, into and out of both heap and direct buffers.
+ */
+public class TermCodecTest {
+  private static final int OFFSET = 7;
+
+  private final TermEncoder encoder = new TermEncoder();
+  private final TermDecoder decoder = new TermDecoder();
+
+  /** A term and the tag the encoder writes it with. */
+  private record Sample(int tag, Term term) {}
+
+  private static java.util.List<Sample> samples() {
+    Term[] large = new Term[MAX_BYTE_VALUE + 1];
+    Arrays.fill(large, Atom.OK);
+    return java.util.List.of(
+        new Sample(SMALL_INTEGER_EXT, Number.of(42)),
+        new Sample(INTEGER_EXT, Number.of(-1)),
+        new Sample(INTEGER_EXT, Number.of(70000)),
+        new Sample(SMALL_BIG_EXT, Number.of(1L << 40)),
+        new Sample(SMALL_BIG_EXT, Number.of(Long.MIN_VALUE)),
+        new Sample(SMALL_BIG_EXT, Number.of(java.math.BigInteger.ONE.shiftLeft(100).negate())),
+        new Sample(LARGE_BIG_EXT, Number.of(java.math.BigInteger.ONE.shiftLeft(2100))),
+        new Sample(NEW_FLOAT_EXT, new Number.Double(-3.25)),
+        new Sample(SMALL_ATOM_UTF8_EXT, Atom.of("héllo")),
+        new Sample(ATOM_UTF8_EXT, Atom.of("é".repeat(200))),
+        new Sample(BINARY_EXT, Binary.wrap("payload".getBytes(StandardCharsets.UTF_8))),
+        new Sample(BINARY_EXT, Binary.wrap(new byte[0])),
+        new Sample(NIL_EXT, List.empty()),
+        new Sample(STRING_EXT, List.ofChars("charlist")),
+        new Sample(LIST_EXT, List.of(Atom.OK, Number.of(1), Binary.wrap(new byte[] {1}))),
+        new Sample(LIST_EXT, List.ofInts(new int[] {1, 300, -5})),
+        new Sample(LIST_EXT, List.cons(Atom.OK, Atom.ERROR)),
+        new Sample(SMALL_TUPLE_EXT, Tuple.of(Atom.OK, Tuple.of(), List.empty())),
+        new Sample(LARGE_TUPLE_EXT, Tuple.of(large)),
+        new Sample(MAP_EXT, Map.of(Atom.of("a"), Number.of(1), Number.of(2), List.of(Atom.OK))),
+        new Sample(MAP_EXT, Map.of()),
+        new Sample(NEW_PID_EXT, new Pid("node@host", 1, 2, 3)),
+        new Sample(NEW_PORT_EXT, new Port("node@host", 0xFFFFFFFFL, 3)),
+        new Sample(V4_PORT_EXT, new Port("node@host", 1L << 40, 3)),
+        new Sample(NEWER_REFERENCE_EXT, new Reference("node@host", 3, new long[] {1, 2, 3})));
+  }
+
+  @Test
+  void testEveryEncodedTagRoundTrips() throws Exception {
+    for (Sample sample : samples()) {
+      byte[] encoded = encoder.encode(sample.term());
+      assertThat(encoded[1] & 0xFF).as("tag of %s", sample.term()).isEqualTo(sample.tag());
+      assertRoundTrip(encoder, decoder, sample.term(), encoded);
+    }
+  }
+
+  @Test
+  void testAtomCacheRefsRoundTrip() throws Exception {
+    Atom node = Atom.of("node@host");
+    Atom[] refs = {Atom.OK, node};
+    TermEncoder cached = encoder.withAtomCacheRefs(atom -> Arrays.asList(refs).indexOf(atom));
+    TermDecoder resolving = decoder.withAtomCacheRefs(refs);
+    Term term = Tuple.of(Atom.OK, Atom.ERROR, new Pid("node@host", 1, 2, 3), List.of(Atom.OK));
+
+    byte[] encoded = cached.encode(term);
+
+    assertThat(encoded[1] & 0xFF).isEqualTo(SMALL_TUPLE_EXT);
+    assertThat(encoded[3] & 0xFF).isEqualTo(ATOM_CACHE_REF);
+    assertRoundTrip(cached, resolving, term, encoded);
+    assertThatThrownBy(() -> decoder.decode(encoded))
+        .isInstanceOf(TermDecoder.DecodeException.class)
+        .hasMessageContaining("no header entry");
+  }
+
+  @Test
+  void testCompressedRoundTrips() throws Exception {
+    TermEncoder compressing = encoder.withCompression(6, 0);
+    Term[] elements = new Term[500];
+    Arrays.fill(elements, Atom.OK);
+    Term term = List.of(elements);
+
+    byte[] encoded = compressing.encode(term);
+
+    assertThat(encoded[1] & 0xFF).isEqualTo(COMPRESSED);
+    assertThat(encoded.length < compressing.encodedSize(term)).isTrue();
+    for (ByteBuffer buffer : buffers(encoded)) {
+      TermDecoder.DecodeResult result = decoder.decode(buffer, OFFSET);
+      assertThat(result.term()).isEqualTo(term);
+      assertThat(result.bytesConsumed()).isEqualTo(encoded.length);
+    }
+    ByteBuffer direct = ByteBuffer.allocateDirect(compressing.encodedSize(term));
+    compressing.encodeInto(term, direct);
+    assertThat(bytes(direct.flip())).isEqualTo(encoded);
+  }
+
+  @Test
+  void testLegacyTagsDecode() throws Exception {
+    assertDecodes(Atom.of("ok"), out -> out.write(new byte[] {ATOM_EXT, 0, 2, 'o', 'k'}));
+    assertDecodes(Atom.of("ok"), out -> out.write(new byte[] {SMALL_ATOM_EXT, 2, 'o', 'k'}));
+    assertDecodes(
+        new Number.Double(1.5),
+        out -> {
+          out.writeByte(FLOAT_EXT);
+          out.write(Arrays.copyOf("1.5e+00".getBytes(StandardCharsets.ISO_8859_1), 31));
+        });
+    assertDecodes(
+        new Pid("n@h", 1, 2, 3),
+        out -> {
+          out.writeByte(PID_EXT);
+          atom(out, "n@h");
+          out.writeInt(1);
+          out.writeInt(2);
+          out.writeByte(3);
+        });
+    assertDecodes(
+        new Port("n@h", 5, 3),
+        out -> {
+          out.writeByte(PORT_EXT);
+          atom(out, "n@h");
+          out.writeInt(5);
+          out.writeByte(3);
+        });
+    assertDecodes(
+        new Reference("n@h", 3, new long[] {9}),
+        out -> {
+          out.writeByte(REFERENCE_EXT);
+          atom(out, "n@h");
+          out.writeInt(9);
+          out.writeByte(3);
+        });
+    assertDecodes(
+        new Reference("n@h", 3, new long[] {7, 8}),
+        out -> {
+          out.writeByte(NEW_REFERENCE_EXT);
+          out.writeShort(2);
+          atom(out, "n@h");
+          out.writeByte(3);
+          out.writeInt(7);
+          out.writeInt(8);
+        });
+    assertDecodes(
+        Binary.wrap(new byte[] {1, 2}),
+        out -> {
+          out.writeByte(BIT_BINARY_EXT);
+          out.writeInt(2);
+          out.writeByte(8);
+          out.write(new byte[] {1, 2});
+        });
+    assertDecodes(List.empty(), out -> out.write(new byte[] {LIST_EXT, 0, 0, 0, 0, NIL_EXT}));
+    // A zero-length LIST_EXT is just its tail, even an improper one
+    assertDecodes(
+        Atom.OK, out -> out.write(new byte[] {LIST_EXT, 0, 0, 0, 0, SMALL_ATOM_EXT, 2, 'o', 'k'}));
+  }
+
+  @Test
+  void testFunsAreRejected() {
+    for (int tag : new int[] {FUN_EXT, NEW_FUN_EXT, EXPORT_EXT}) {
+      assertThatThrownBy(() -> decoder.decode(new byte[] {(byte) VERSION_TAG, (byte) tag, 0}))
+          .isInstanceOf(TermDecoder.DecodeException.class)
+          .hasMessageContaining(ExternalFormat.tagName(tag));
+    }
+  }
+
+  @Test
+  void testTruncatedInputIsRejected() throws Exception {
+    for (Sample sample : samples()) {
+      byte[] encoded = encoder.encode(sample.term());
+      for (int length = 0; length < encoded.length; length++) {
+        for (ByteBuffer buffer : buffers(Arrays.copyOf(encoded, length))) {
+          assertThatThrownBy(() -> decoder.decode(buffer, OFFSET))
+              .as("%s cut to %d bytes", sample.term(), length)
+              .isInstanceOf(TermDecoder.DecodeException.class);
+        }
+      }
+    }
+  }
+
+  @Test
+  void testOversizedLengthsAreRejected() {
+    byte[][] inputs = {
+      {(byte) VERSION_TAG, BINARY_EXT, 0x7F, -1, -1, -1, 1, 2},
+      {(byte) VERSION_TAG, LIST_EXT, -1, -1, -1, -1, NIL_EXT},
+      {(byte) VERSION_TAG, LARGE_TUPLE_EXT, 0, 0, 1, 0, NIL_EXT},
+      {(byte) VERSION_TAG, MAP_EXT, 0, 1, 0, 0, NIL_EXT, NIL_EXT},
+      {(byte) VERSION_TAG, STRING_EXT, -1, -1, 'a'},
+      {(byte) VERSION_TAG, SMALL_BIG_EXT, 9, 0, 1},
+      {(byte) VERSION_TAG, LARGE_BIG_EXT, 0, 0, 1, 0, 0, 1},
+      {(byte) VERSION_TAG, NEWER_REFERENCE_EXT, -1, -1, SMALL_ATOM_UTF8_EXT, 1, 'n', 0, 0, 0, 1},
+      {(byte) VERSION_TAG, SMALL_ATOM_UTF8_EXT, 9, 'o', 'k'},
+      {(byte) VERSION_TAG, COMPRESSED, 0x7F, -1, -1, -1, 0x78, -100, 3, 0},
+      {(byte) VERSION_TAG, COMPRESSED, 0, 0, 0, 0},
+    };
+    for (byte[] input : inputs) {
+      for (ByteBuffer buffer : buffers(input)) {
+        assertThatThrownBy(() -> decoder.decode(buffer, OFFSET))
+            .as("%s", Arrays.toString(input))
+            .isInstanceOf(TermDecoder.DecodeException.class);
+      }
+    }
+  }
+
+  @Test
+  void testCompressedSizeMustMatch() throws Exception {
+    byte[] encoded = encoder.withCompression(6, 0).encode(List.ofChars("a".repeat(1000)));
+    assertThat(encoded[1] & 0xFF).isEqualTo(COMPRESSED);
+
+    for (int size : new int[] {1002, 1004}) {
+      byte[] resized = encoded.clone();
+      ByteBuffer.wrap(resized).putInt(2, size);
+      assertThatThrownBy(() -> decoder.decode(resized))
+          .isInstanceOf(TermDecoder.DecodeException.class);
+    }
+  }
+
+  private void assertRoundTrip(TermEncoder encoder, TermDecoder decoder, Term term, byte[] encoded)
+      throws Exception {
+    assertThat(encoder.encodedSize(term)).as("size of %s", term).isEqualTo(encoded.length);
+
+    byte[] array = new byte[OFFSET + encoded.length];
+    assertThat(encoder.encodeInto(term, array, OFFSET)).isEqualTo(encoded.length);
+    assertThat(Arrays.copyOfRange(array, OFFSET, array.length)).isEqualTo(encoded);
+
+    for (boolean direct : new boolean[] {false, true}) {
+      ByteBuffer target = allocate(direct, OFFSET + encoded.length).position(OFFSET);
+      assertThat(encoder.encodeInto(term, target)).isEqualTo(encoded.length);
+      assertThat(target.position()).isEqualTo(OFFSET + encoded.length);
+      assertThat(bytes(target.flip().position(OFFSET))).as("%s", term).isEqualTo(encoded);
+    }
+
+    for (ByteBuffer buffer : buffers(encoded)) {
+      for (TermDecoder each : new TermDecoder[] {decoder, decoder.withSharedBinaries(true)}) {
+        TermDecoder.DecodeResult result = each.decode(buffer, OFFSET);
+        assertThat(result.term()).as("decoded %s", term).isEqualTo(term);
+        assertThat(result.bytesConsumed()).isEqualTo(encoded.length);
+        assertThat(buffer.position()).isEqualTo(0);
+        assertThat(encoder.encode(result.term())).isEqualTo(encoded);
+      }
+    }
+  }
+
+  /**
+   * Decodes what {@code body} writes after a version tag, and checks it yields {@code expected} and
+   * re-encodes as the encoder writes {@code expected}.
+   */
+  private void assertDecodes(Term expected, Body body) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(VERSION_TAG);
+    body.writeTo(out);
+    byte[] input = bytes.toByteArray();
+    for (ByteBuffer buffer : buffers(input)) {
+      TermDecoder.DecodeResult result = decoder.decode(buffer, OFFSET);
+      assertThat(result.term()).isEqualTo(expected);
+      assertThat(result.bytesConsumed()).isEqualTo(input.length);
+      assertThat(encoder.encode(result.term())).isEqualTo(encoder.encode(expected));
+    }
+  }
+
+  private interface Body {
+    void writeTo(DataOutputStream out) throws IOException;
+  }
+
+  private static void atom(DataOutputStream out, String text) throws IOException {
+    out.writeByte(SMALL_ATOM_UTF8_EXT);
+    out.writeByte(text.length());
+    out.writeBytes(text);
+  }
+
+  /** Returns heap and direct buffers holding {@code bytes} at {@link #OFFSET}. */
+  private static ByteBuffer[] buffers(byte[] bytes) {
+    ByteBuffer[] buffers = new ByteBuffer[2];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = allocate(i == 1, OFFSET + bytes.length).position(OFFSET).put(bytes).clear();
+    }
+    return buffers;
+  }
+
+  private static ByteBuffer allocate(boolean direct, int capacity) {
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+  }
+
+  private static byte[] bytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,193 @@
+package io.github.clojang.mcjface.etf.codec;
+
+import static io.github.clojang.mcjface.etf.codec.EtfConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Pid;
+import io.github.clojang.mcjface.etf.term.Reference;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Feeds {@link TermParser} a stream of terms split at every byte boundary and checks it yields what
+ * {@link TermDecoder#decode(ByteBuffer)} does on the whole stream.
+ */
+public class TermParserTest {
+  private static final int MAX_BUFFERED_BYTES = 1 << 20;
+
+  private static java.util.List<Term> terms() {
+    Map.Builder large = Map.builder(40);
+    for (int i = 0; i < 40; i++) {
+      large.put(Number.of(i), Atom.of("value_" + i));
+    }
+    Term[] repeated = new Term[200];
+    Arrays.fill(repeated, Tuple.of(Atom.OK, Number.of(1L << 40), List.ofChars("repeated")));
+    byte[] bytes = new byte[300];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    return java.util.List.of(
+        Atom.OK,
+        Number.of(7),
+        Number.of(java.math.BigInteger.ONE.shiftLeft(300)),
+        new Number.Double(2.5),
+        Binary.wrap(bytes),
+        List.ofChars("a charlist"),
+        List.ofInts(new int[] {1, -2, 70000}),
+        List.cons(Atom.OK, Tuple.of()),
+        Tuple.of(Atom.ERROR, Tuple.of(List.of(Atom.OK, Binary.wrap(bytes)), Map.of())),
+        large.build(),
+        new Pid("node@host", 1, 2, 3),
+        new Reference("node@host", 3, new long[] {4, 5, 6}),
+        List.of(repeated));
+  }
+
+  @Test
+  void testOneByteChunks() throws Exception {
+    byte[] stream = stream(new TermEncoder(), true);
+    java.util.List<Term> parsed = new ArrayList<>();
+    TermParser parser = new TermParser();
+    for (int i = 0; i < stream.length; i++) {
+      feed(parser, Arrays.copyOfRange(stream, i, i + 1), parsed);
+    }
+    assertThat(parsed).isEqualTo(decodeAll(new TermDecoder(), stream, true));
+    assertThat(parser.isIdle()).isTrue();
+  }
+
+  @Test
+  void testEverySplitPoint() throws Exception {
+    byte[] stream = stream(new TermEncoder(), true);
+    java.util.List<Term> expected = decodeAll(new TermDecoder(), stream, true);
+    TermParser parser = new TermParser(new TermDecoder(), true, MAX_BUFFERED_BYTES);
+    for (int split = 0; split <= stream.length; split++) {
+      java.util.List<Term> parsed = new ArrayList<>();
+      feed(parser, Arrays.copyOfRange(stream, 0, split), parsed);
+      feed(parser, Arrays.copyOfRange(stream, split, stream.length), parsed);
+      assertThat(parsed).as("split at %d", split).isEqualTo(expected);
+      assertThat(parser.isIdle()).isTrue();
+    }
+  }
+
+  @Test
+  void testCompressedTermsInOneByteChunks() throws Exception {
+    byte[] stream = stream(new TermEncoder().withCompression(6, 0), true);
+    java.util.List<Term> parsed = new ArrayList<>();
+    TermParser parser = new TermParser();
+    for (int i = 0; i < stream.length; i++) {
+      feed(parser, Arrays.copyOfRange(stream, i, i + 1), parsed);
+    }
+    assertThat(parsed).isEqualTo(decodeAll(new TermDecoder(), stream, true));
+  }
+
+  @Test
+  void testCompressedTermsAtEverySplitPoint() throws Exception {
+    byte[] stream = stream(new TermEncoder().withCompression(6, 0), true);
+    java.util.List<Term> expected = decodeAll(new TermDecoder(), stream, true);
+    TermParser parser = new TermParser();
+    for (int split = 0; split <= stream.length; split++) {
+      java.util.List<Term> parsed = new ArrayList<>();
+      feed(parser, Arrays.copyOfRange(stream, 0, split), parsed);
+      feed(parser, Arrays.copyOfRange(stream, split, stream.length), parsed);
+      assertThat(parsed).as("split at %d", split).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void testUnversionedTermsWithAtomCacheRefs() throws Exception {
+    Atom[] refs = {Atom.OK, Atom.of("node@host"), Atom.ERROR};
+    TermEncoder encoder = new TermEncoder().withAtomCacheRefs(a -> Arrays.asList(refs).indexOf(a));
+    TermDecoder decoder = new TermDecoder().withAtomCacheRefs(refs);
+    byte[] stream = stream(encoder, false);
+    java.util.List<Term> expected = decodeAll(decoder, stream, false);
+    assertThat(expected).isEqualTo(terms());
+
+    TermParser parser = new TermParser(decoder, false, MAX_BUFFERED_BYTES);
+    for (int split = 0; split <= stream.length; split++) {
+      java.util.List<Term> parsed = new ArrayList<>();
+      feed(parser, Arrays.copyOfRange(stream, 0, split), parsed);
+      feed(parser, Arrays.copyOfRange(stream, split, stream.length), parsed);
+      assertThat(parsed).as("split at %d", split).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void testZeroLengthListsAreTheirTails() throws Exception {
+    // Encoders never write these, but erts accepts them, with any tail and at any depth
+    byte[] proper = {(byte) VERSION_TAG, LIST_EXT, 0, 0, 0, 0, NIL_EXT};
+    byte[] improper = {(byte) VERSION_TAG, LIST_EXT, 0, 0, 0, 0, SMALL_ATOM_EXT, 2, 'o', 'k'};
+    byte[] nested = {
+      (byte) VERSION_TAG, SMALL_TUPLE_EXT, 1, LIST_EXT, 0, 0, 0, 0, SMALL_INTEGER_EXT, 7
+    };
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(proper);
+    out.write(improper);
+    out.write(nested);
+    byte[] stream = out.toByteArray();
+    java.util.List<Term> expected = decodeAll(new TermDecoder(), stream, true);
+    assertThat(expected)
+        .isEqualTo(java.util.List.of(List.empty(), Atom.OK, Tuple.of(Number.of(7))));
+
+    TermParser parser = new TermParser();
+    for (int split = 0; split <= stream.length; split++) {
+      java.util.List<Term> parsed = new ArrayList<>();
+      feed(parser, Arrays.copyOfRange(stream, 0, split), parsed);
+      feed(parser, Arrays.copyOfRange(stream, split, stream.length), parsed);
+      assertThat(parsed).as("split at %d", split).isEqualTo(expected);
+    }
+  }
+
+  private static byte[] stream(TermEncoder encoder, boolean versioned) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (Term term : terms()) {
+      if (versioned) {
+        out.write(encoder.encode(term));
+      } else {
+        ByteBuffer buffer = ByteBuffer.allocate(encoder.encodedSizeWithoutVersion(term));
+        encoder.encodeWithoutVersion(term, buffer);
+        out.write(buffer.array());
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static java.util.List<Term> decodeAll(
+      TermDecoder decoder, byte[] stream, boolean versioned) throws Exception {
+    java.util.List<Term> terms = new ArrayList<>();
+    ByteBuffer buffer = ByteBuffer.wrap(stream);
+    while (buffer.hasRemaining()) {
+      if (versioned) {
+        terms.add(decoder.decode(buffer));
+      } else {
+        TermDecoder.DecodeResult result = decoder.decodeWithoutVersion(buffer, buffer.position());
+        terms.add(result.term());
+        buffer.position(buffer.position() + result.bytesConsumed());
+      }
+    }
+    return terms;
+  }
+
+  /**
+   * Parses every term that {@code chunk} completes, then overwrites the chunk, as a read loop
+   * reusing its buffer would.
+   */
+  private static void feed(TermParser parser, byte[] chunk, java.util.List<Term> parsed)
+      throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap(chunk);
+    Term term;
+    while ((term = parser.parse(buffer)) != null) {
+      parsed.add(term);
+    }
+    assertThat(buffer.hasRemaining()).isFalse();
+    Arrays.fill(chunk, (byte) 0xFF);
+  }
+}
@@ -0,0 +1,51 @@
+package io.github.clojang.mcjface.etf.dist;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.clojang.mcjface.etf.dist.DistributionProtocol.DistributionMessage;
+import io.github.clojang.mcjface.etf.dist.DistributionProtocol.MessageType;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Pid;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/** Checks that the send and receive sides of an {@link AtomCache} stay in step. */
+public class AtomCacheTest {
+  private static final Pid TO = new Pid("receiver@host", 4, 5, 6);
+
+  @Test
+  void testEncodedEntriesAreReusedByLaterMessages() throws Exception {
+    AtomCache sender = new AtomCache();
+    AtomCache receiver = new AtomCache();
+    Atom payload = Atom.of("cached_payload");
+
+    ByteBuffer first = DistributionProtocol.encode(MessageType.SEND, sender, Atom.OK, TO, payload);
+    ByteBuffer second = DistributionProtocol.encode(MessageType.SEND, sender, Atom.OK, TO, payload);
+
+    // The second header refers to the slots by index alone, without the atom text
+    assertThat(second.remaining() < first.remaining()).isTrue();
+    assertThat(payloadOf(first, receiver)).isEqualTo(payload);
+    assertThat(payloadOf(second, receiver)).isEqualTo(payload);
+  }
+
+  @Test
+  void testHeaderIsOnlyCommittedOnceEncoded() throws Exception {
+    AtomCache sender = new AtomCache();
+    AtomCache receiver = new AtomCache();
+    Atom payload = Atom.of("never_sent");
+
+    // A message whose atoms were collected but which was never encoded, as when encoding fails
+    sender.beginHeader();
+    sender.collect(Tuple.of(Atom.OK, TO, payload));
+
+    ByteBuffer frame = DistributionProtocol.encode(MessageType.SEND, sender, Atom.OK, TO, payload);
+    assertThat(payloadOf(frame, receiver)).isEqualTo(payload);
+  }
+
+  private static Term payloadOf(ByteBuffer frame, AtomCache receiver) throws Exception {
+    DistributionMessage message = DistributionProtocol.decode(frame, receiver);
+    return message.terms().get(message.terms().size() - 1);
+  }
+}
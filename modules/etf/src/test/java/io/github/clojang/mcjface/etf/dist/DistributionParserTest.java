@@ -0,0 +1,138 @@
+package io.github.clojang.mcjface.etf.dist;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.clojang.mcjface.etf.codec.EtfConstants;
+import io.github.clojang.mcjface.etf.codec.TermEncoder;
+import io.github.clojang.mcjface.etf.dist.DistributionProtocol.DistributionMessage;
+import io.github.clojang.mcjface.etf.dist.DistributionProtocol.MessageType;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Pid;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Feeds {@link DistributionParser} a stream of frames split at every byte boundary and checks it
+ * yields what {@link DistributionProtocol#decode(ByteBuffer, AtomCache)} does on each whole frame.
+ */
+public class DistributionParserTest {
+  private static final int MAX_FRAME_SIZE = 1 << 20;
+
+  private static final Pid FROM = new Pid("sender@host", 1, 2, 3);
+  private static final Pid TO = new Pid("receiver@host", 4, 5, 6);
+
+  /** Returns the bodies of the frames in the stream, an empty body being a tick. */
+  private static java.util.List<byte[]> frames() throws Exception {
+    AtomCache cache = new AtomCache();
+    Term[] repeated = new Term[200];
+    Arrays.fill(repeated, Tuple.of(Atom.OK, Binary.wrap(new byte[] {1, 2, 3})));
+    Term compressible = List.of(repeated);
+    Atom longAtom = Atom.of("ü".repeat(200));
+    return java.util.List.of(
+        new byte[0],
+        body(DistributionProtocol.encode(MessageType.SEND, Atom.OK, TO, Atom.of("hello"))),
+        body(
+            DistributionProtocol.encode(
+                MessageType.REG_SEND, cache, FROM, Atom.OK, Atom.of("registered"), compressible)),
+        new byte[0],
+        new byte[0],
+        // The same atoms again, now cached on both sides, and an atom longer than 255 bytes
+        body(
+            DistributionProtocol.encode(
+                MessageType.REG_SEND, cache, FROM, Atom.OK, Atom.of("registered"), longAtom)),
+        body(DistributionProtocol.encode(MessageType.LINK, cache, FROM, TO)),
+        compressedPassThrough(compressible),
+        new byte[0]);
+  }
+
+  @Test
+  void testOneByteChunks() throws Exception {
+    byte[] stream = stream();
+    java.util.List<DistributionMessage> parsed = new ArrayList<>();
+    DistributionParser parser = new DistributionParser(new AtomCache(), MAX_FRAME_SIZE);
+    for (int i = 0; i < stream.length; i++) {
+      feed(parser, Arrays.copyOfRange(stream, i, i + 1), parsed);
+    }
+    assertThat(parsed).isEqualTo(decodeAll());
+    assertThat(parser.isIdle()).isTrue();
+  }
+
+  @Test
+  void testEverySplitPoint() throws Exception {
+    byte[] stream = stream();
+    java.util.List<DistributionMessage> expected = decodeAll();
+    for (int split = 0; split <= stream.length; split++) {
+      // Each run needs a fresh receiving cache, as headers update it
+      DistributionParser parser = new DistributionParser(new AtomCache(), MAX_FRAME_SIZE);
+      java.util.List<DistributionMessage> parsed = new ArrayList<>();
+      feed(parser, Arrays.copyOfRange(stream, 0, split), parsed);
+      feed(parser, Arrays.copyOfRange(stream, split, stream.length), parsed);
+      assertThat(parsed).as("split at %d", split).isEqualTo(expected);
+      assertThat(parser.isIdle()).isTrue();
+    }
+  }
+
+  private static java.util.List<DistributionMessage> decodeAll() throws Exception {
+    AtomCache cache = new AtomCache();
+    java.util.List<DistributionMessage> messages = new ArrayList<>();
+    for (byte[] frame : frames()) {
+      if (frame.length > 0) {
+        messages.add(DistributionProtocol.decode(ByteBuffer.wrap(frame), cache));
+      }
+    }
+    return messages;
+  }
+
+  private static byte[] stream() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    for (byte[] frame : frames()) {
+      out.writeInt(frame.length);
+      out.write(frame);
+    }
+    return bytes.toByteArray();
+  }
+
+  /** A pass-through {@code SEND} whose payload is written in the {@code COMPRESSED} form. */
+  private static byte[] compressedPassThrough(Term payload) throws Exception {
+    TermEncoder encoder = new TermEncoder();
+    byte[] compressed = encoder.withCompression(6, 0).encode(payload);
+    assertThat(compressed[1] & 0xFF).isEqualTo(EtfConstants.COMPRESSED);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(DistributionProtocol.PASS_THROUGH);
+    out.write(encoder.encode(Tuple.of(Number.of(MessageType.SEND.getValue()), Atom.OK, TO)));
+    out.write(compressed);
+    return out.toByteArray();
+  }
+
+  private static byte[] body(ByteBuffer frame) {
+    byte[] body = new byte[frame.remaining()];
+    frame.get(body);
+    return body;
+  }
+
+  /**
+   * Parses every message that {@code chunk} completes, then overwrites the chunk, as a read loop
+   * reusing its buffer would.
+   */
+  private static void feed(
+      DistributionParser parser, byte[] chunk, java.util.List<DistributionMessage> parsed)
+      throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap(chunk);
+    DistributionMessage message;
+    while ((message = parser.parse(buffer)) != null) {
+      parsed.add(message);
+    }
+    assertThat(buffer.hasRemaining()).isFalse();
+    Arrays.fill(chunk, (byte) 0xFF);
+  }
+}
@@ -0,0 +1,409 @@
+package io.github.clojang.mcjface.etf.match;
+
+import static io.github.clojang.mcjface.etf.match.TermPattern.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.clojang.mcjface.etf.codec.EtfConstants;
+import io.github.clojang.mcjface.etf.codec.LazyTerm;
+import io.github.clojang.mcjface.etf.codec.TermDecoder;
+import io.github.clojang.mcjface.etf.codec.TermEncoder;
+import io.github.clojang.mcjface.etf.codec.TermReader;
+import io.github.clojang.mcjface.etf.term.Atom;
+import io.github.clojang.mcjface.etf.term.Binary;
+import io.github.clojang.mcjface.etf.term.List;
+import io.github.clojang.mcjface.etf.term.Map;
+import io.github.clojang.mcjface.etf.term.Number;
+import io.github.clojang.mcjface.etf.term.Pid;
+import io.github.clojang.mcjface.etf.term.Reference;
+import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a {@link Matcher} picks the same clause as testing its patterns one by one, in order,
+ * and binds what they say.
+ */
+public class MatcherTest {
+  private static final Atom REPLY = Atom.of("reply");
+
+  /** An action returning its label followed by the terms its clause bound, in order. */
+  private static Matcher.Action<Object, java.util.List<Object>> label(String label) {
+    return (bindings, argument) -> {
+      java.util.List<Object> result = new ArrayList<>();
+      result.add(label);
+      for (int i = 0; i < bindings.size(); i++) {
+        result.add(bindings.get(i));
+      }
+      return result;
+    };
+  }
+
+  private static Matcher<Object, java.util.List<Object>> matcher(TermPattern... patterns) {
+    Matcher.Builder<Object, java.util.List<Object>> builder = Matcher.builder();
+    for (int i = 0; i < patterns.length; i++) {
+      builder.when(patterns[i], label(String.valueOf(i)));
+    }
+    return builder.build();
+  }
+
+  private static java.util.List<Object> result(String label, Term... bound) {
+    java.util.List<Object> result = new ArrayList<>();
+    result.add(label);
+    result.addAll(java.util.List.of(bound));
+    return result;
+  }
+
+  private static Term improper(Term tail, Term... elements) {
+    List.Builder list = List.builder(elements.length);
+    for (Term element : elements) {
+      list.add(element);
+    }
+    return list.build(tail);
+  }
+
+  @Test
+  void testWildcardBeforeOrAfterATaggedTuple() {
+    Term reply = Tuple.of(REPLY, Number.of(1));
+    Term other = Tuple.of(Atom.of("other"), Number.of(1));
+
+    Matcher<Object, java.util.List<Object>> wildcardFirst =
+        matcher(var("Any"), tuple(atom("reply"), var("X")));
+    assertThat(wildcardFirst.dispatch(reply, null)).isEqualTo(result("0", reply));
+    assertThat(wildcardFirst.dispatch(Atom.OK, null)).isEqualTo(result("0", Atom.OK));
+
+    Matcher<Object, java.util.List<Object>> wildcardLast =
+        matcher(tuple(atom("reply"), var("X")), atom("ok"), var("Any"));
+    assertThat(wildcardLast.dispatch(reply, null)).isEqualTo(result("0", Number.of(1)));
+    assertThat(wildcardLast.dispatch(other, null)).isEqualTo(result("2", other));
+    assertThat(wildcardLast.dispatch(Atom.OK, null)).isEqualTo(result("1"));
+    assertThat(wildcardLast.dispatch(Atom.ERROR, null)).isEqualTo(result("2", Atom.ERROR));
+    assertThat(wildcardLast.dispatch(List.empty(), null)).isEqualTo(result("2", List.empty()));
+  }
+
+  @Test
+  void testClauseOrderIsKeptInEveryGroup() {
+    TermPattern[] patterns = {
+      var("Any"),
+      tuple(atom("reply"), var("X")),
+      tuple(var("Tag"), var("X")),
+      atom("ok"),
+      literal(Tuple.of(REPLY, Number.of(1))),
+      is(Tuple.class),
+      tuple(atom("reply"), var("X"), any()),
+    };
+    Term[] terms = {
+      Atom.OK,
+      Atom.ERROR,
+      Tuple.of(REPLY, Number.of(1)),
+      Tuple.of(REPLY, Number.of(2)),
+      Tuple.of(Atom.OK, Number.of(1)),
+      Tuple.of(Number.of(1), Number.of(2)),
+      Tuple.of(REPLY, Number.of(1), Number.of(2)),
+      Tuple.of(),
+      List.of(Atom.OK),
+      Number.of(1),
+    };
+    java.util.List<Matcher<Object, java.util.List<Object>>> alone = new ArrayList<>();
+    for (TermPattern pattern : patterns) {
+      alone.add(matcher(pattern));
+    }
+    // Any subset of the patterns, in every order, picks the clause that a linear scan picks
+    for (java.util.List<Integer> order : permutations(patterns.length)) {
+      for (int size = 1; size <= order.size(); size++) {
+        TermPattern[] clauses = new TermPattern[size];
+        for (int i = 0; i < size; i++) {
+          clauses[i] = patterns[order.get(i)];
+        }
+        Matcher<Object, java.util.List<Object>> matcher = matcher(clauses);
+        for (Term term : terms) {
+          assertThat(labelOf(matcher, term))
+              .as("%s in %s", term, java.util.Arrays.asList(clauses))
+              .isEqualTo(linearScan(alone, order.subList(0, size), term));
+        }
+      }
+    }
+  }
+
+  @Test
+  void testRepeatedVariablesBindEqualTerms() {
+    Matcher<Object, java.util.List<Object>> pair = matcher(tuple(var("X"), var("X")));
+    assertThat(pair.dispatch(Tuple.of(Number.of(1), Number.of(1)), null))
+        .isEqualTo(result("0", Number.of(1)));
+    assertThat(pair.dispatch(Tuple.of(Number.of(1), Number.of(2)), null)).isNull();
+    assertThat(pair.dispatch(Tuple.of(Number.of(1), new Number.Double(1.0)), null)).isNull();
+
+    // A clause that fails after binding leaves nothing behind for the next one
+    Matcher<Object, java.util.List<Object>> retry =
+        matcher(tuple(var("X"), atom("never")), tuple(var("Y"), var("Y")));
+    assertThat(retry.dispatch(Tuple.of(Atom.OK, Atom.OK), null)).isEqualTo(result("1", Atom.OK));
+    assertThat(retry.dispatch(Tuple.of(Atom.OK, Atom.ERROR), null)).isNull();
+
+    Matcher<Object, java.util.List<Object>> nested =
+        matcher(tuple(var("X"), list(var("X")), map(Atom.of("key"), var("X"))));
+    Term matching =
+        Tuple.of(Atom.OK, List.of(Atom.OK), Map.of(Atom.of("key"), Atom.OK, Atom.ERROR, Atom.OK));
+    assertThat(nested.dispatch(matching, null)).isEqualTo(result("0", Atom.OK));
+    assertThat(nested.dispatch(Tuple.of(Atom.OK, List.of(Atom.OK), Map.of()), null)).isNull();
+    assertThat(
+            nested.dispatch(
+                Tuple.of(Atom.OK, List.of(Atom.OK), Map.of(Atom.of("key"), Atom.ERROR)), null))
+        .isNull();
+  }
+
+  @Test
+  void testConsAndImproperTails() {
+    Matcher<Object, java.util.List<Object>> cons = matcher(cons(var("H"), var("T")));
+    assertThat(cons.dispatch(List.of(Number.of(1), Number.of(2), Number.of(3)), null))
+        .isEqualTo(result("0", Number.of(1), List.of(Number.of(2), Number.of(3))));
+    assertThat(cons.dispatch(List.of(Number.of(1)), null))
+        .isEqualTo(result("0", Number.of(1), List.empty()));
+    assertThat(cons.dispatch(improper(Atom.OK, Number.of(1)), null))
+        .isEqualTo(result("0", Number.of(1), Atom.OK));
+    assertThat(cons.dispatch(improper(Atom.OK, Number.of(1), Number.of(2)), null))
+        .isEqualTo(result("0", Number.of(1), improper(Atom.OK, Number.of(2))));
+    assertThat(cons.dispatch(List.ofChars("ab"), null))
+        .isEqualTo(result("0", Number.of('a'), List.ofChars("b")));
+    assertThat(cons.dispatch(List.empty(), null)).isNull();
+    assertThat(cons.dispatch(Atom.OK, null)).isNull();
+
+    Matcher<Object, java.util.List<Object>> improperTail =
+        matcher(cons(var("A"), cons(var("B"), atom("ok"))));
+    assertThat(improperTail.dispatch(improper(Atom.OK, Number.of(1), Number.of(2)), null))
+        .isEqualTo(result("0", Number.of(1), Number.of(2)));
+    assertThat(improperTail.dispatch(List.of(Number.of(1), Number.of(2)), null)).isNull();
+
+    Matcher<Object, java.util.List<Object>> exact = matcher(list(var("A"), var("B")));
+    assertThat(exact.dispatch(List.of(Number.of(1), Number.of(2)), null))
+        .isEqualTo(result("0", Number.of(1), Number.of(2)));
+    assertThat(exact.dispatch(List.ofInts(new int[] {1, 70000}), null))
+        .isEqualTo(result("0", Number.of(1), Number.of(70000)));
+    assertThat(exact.dispatch(improper(Atom.OK, Number.of(1), Number.of(2)), null)).isNull();
+    assertThat(exact.dispatch(List.of(Number.of(1), Number.of(2), Number.of(3)), null)).isNull();
+    assertThat(exact.dispatch(List.of(Number.of(1)), null)).isNull();
+  }
+
+  @Test
+  void testLiteralTuples() {
+    Term literal = Tuple.of(REPLY, Tuple.of(Number.of(1), List.ofChars("x")));
+    Matcher<Object, java.util.List<Object>> matcher =
+        matcher(literal(literal), tuple(atom("reply"), var("X")));
+    assertThat(matcher.dispatch(literal, null)).isEqualTo(result("0"));
+    Tuple other = Tuple.of(REPLY, Tuple.of(Number.of(1), List.ofChars("y")));
+    assertThat(matcher.dispatch(other, null)).isEqualTo(result("1", other.get(1)));
+    assertThat(matcher.dispatch(Tuple.of(REPLY), null)).isNull();
+
+    Matcher<Object, java.util.List<Object>> empty = matcher(literal(Tuple.of()));
+    assertThat(empty.dispatch(Tuple.of(), null)).isEqualTo(result("0"));
+    assertThat(empty.dispatch(Tuple.of(Atom.OK), null)).isNull();
+  }
+
+  @Test
+  void testActionReturningNullThrows() {
+    Matcher<Object, Object> matcher =
+        Matcher.builder().when(atom("ok"), (bindings, argument) -> null).build();
+
+    assertThatThrownBy(() -> matcher.dispatch(Atom.OK, null))
+        .isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> matcher.match(Atom.OK)).isInstanceOf(NullPointerException.class);
+    Matcher.Match<Object, Object> match = matcher.select(Atom.OK);
+    assertThat(match).isNotNull();
+    assertThatThrownBy(() -> match.run(null)).isInstanceOf(NullPointerException.class);
+
+    // No match is not an error
+    assertThat(matcher.dispatch(Atom.ERROR, null)).isNull();
+    assertThat(matcher.match(Atom.ERROR)).isEqualTo(Optional.empty());
+    assertThat(matcher.select(Atom.ERROR)).isNull();
+  }
+
+  @Test
+  void testEncodedTermsBindWhatDecodedTermsDo() throws Exception {
+    TermPattern[] patterns = encodedPatterns();
+    java.util.List<Matcher<Object, java.util.List<Object>>> matchers = new ArrayList<>();
+    for (TermPattern pattern : patterns) {
+      matchers.add(matcher(pattern));
+    }
+    matchers.add(matcher(patterns));
+    java.util.List<TermPattern> reversed = new ArrayList<>(java.util.List.of(patterns));
+    java.util.Collections.reverse(reversed);
+    matchers.add(matcher(reversed.toArray(TermPattern[]::new)));
+
+    int matched = 0;
+    for (Term term : encodedTerms()) {
+      for (Matcher<Object, java.util.List<Object>> matcher : matchers) {
+        java.util.List<Object> expected = matcher.dispatch(term, null);
+        matched += expected == null ? 0 : 1;
+        for (LazyTerm lazy : encodings(term)) {
+          assertThat(matcher.dispatch(lazy, null)).as("%s as %s", term, lazy).isEqualTo(expected);
+          assertThat(matcher.matches(lazy)).as("%s as %s", term, lazy).isEqualTo(expected != null);
+
+          // The reader is left after the term on a match, and where it was otherwise
+          TermReader in = lazy.reader();
+          int start = in.position();
+          matcher.dispatch(in, null);
+          if (expected != null) {
+            in.requireEnd();
+          } else {
+            assertThat(in.position()).isEqualTo(start);
+          }
+        }
+      }
+    }
+    assertThat(matched > 100).as("%d matches", matched).isTrue();
+  }
+
+  /** Patterns using every kind of node, narrow types that need decoding, and repeated variables. */
+  private static TermPattern[] encodedPatterns() {
+    return new TermPattern[] {
+      tuple(atom("reply"), var("X")),
+      tuple(var("X"), var("X")),
+      tuple(atom("reply"), tuple(var("A", Atom.class), var("S", List.class))),
+      tuple(var("X"), list(var("X")), map(Atom.of("key"), var("X"))),
+      tuple(var("I", Number.Integer.class), any()),
+      tuple(is(Number.Long.class), var("X")),
+      tuple(literal(List.ofChars("ab")), var("X")),
+      literal(Tuple.of(REPLY, Number.of(1))),
+      atom("ok"),
+      literal(Number.of(1)),
+      literal(Binary.wrap(new byte[] {1, 2, 3})),
+      literal(List.ofChars("ab")),
+      list(),
+      list(var("A"), var("B")),
+      list(var("A"), var("A")),
+      cons(var("H"), any()),
+      cons(var("H", Number.class), var("T", List.class)),
+      cons(any(), cons(var("B"), atom("ok"))),
+      cons(var("H"), var("T")),
+      map(Atom.of("key"), var("V")),
+      map(Atom.of("key"), var("V"), Atom.ERROR, is(Number.class)),
+      var("P", Pid.class),
+      is(Reference.class),
+      var("B", Binary.class),
+      is(Atom.class),
+      var("X"),
+    };
+  }
+
+  private static java.util.List<Term> encodedTerms() {
+    Atom key = Atom.of("key");
+    Term chars = List.ofChars("ab");
+    return java.util.List.of(
+        Atom.OK,
+        REPLY,
+        Atom.of("ünïcode"),
+        Number.of(1),
+        Number.of(300),
+        Number.of(1L << 40),
+        Number.of(java.math.BigInteger.ONE.shiftLeft(100)),
+        new Number.Double(1.0),
+        Binary.wrap(new byte[] {1, 2, 3}),
+        Binary.wrap(new byte[0]),
+        Tuple.of(),
+        Tuple.of(REPLY, Number.of(1)),
+        Tuple.of(REPLY, Tuple.of(Atom.OK, chars)),
+        Tuple.of(REPLY, Tuple.of(Atom.OK, List.of(Atom.OK))),
+        Tuple.of(REPLY, Number.of(1), Number.of(2)),
+        Tuple.of(Number.of(1), Number.of(1)),
+        Tuple.of(Number.of(1L << 40), Number.of(1L << 40)),
+        Tuple.of(chars, chars),
+        // Equal lists, one a STRING_EXT and the other a LIST_EXT
+        Tuple.of(chars, List.of(Atom.OK)),
+        Tuple.of(List.of(Number.of('a'), Number.of('b')), chars),
+        Tuple.of(Atom.OK, List.of(Atom.OK), Map.of(key, Atom.OK, Atom.ERROR, Number.of(1))),
+        Tuple.of(Atom.OK, List.of(Atom.ERROR), Map.of(key, Atom.OK)),
+        List.empty(),
+        chars,
+        List.ofChars("aa"),
+        List.ofInts(new int[] {1, 70000}),
+        List.ofInts(new int[] {70000, 70000}),
+        List.of(Atom.OK, Number.of(1)),
+        List.of(Number.of(1), Atom.OK, Atom.ERROR),
+        List.of(Atom.OK),
+        improper(Atom.OK, Number.of(1), Number.of(2)),
+        improper(Atom.OK, Number.of(1)),
+        improper(Tuple.of(), Atom.OK),
+        Map.of(),
+        Map.of(key, Atom.OK),
+        Map.of(key, chars, Atom.ERROR, Number.of(1)),
+        Map.of(key, chars, Atom.ERROR, Atom.OK),
+        new Pid("node@host", 1, 2, 3),
+        new Reference("node@host", 3, new long[] {4, 5, 6}));
+  }
+
+  /**
+   * Returns {@code term} encoded as is, compressed, and with some atoms as atom cache refs, which
+   * the matcher reads through the decoder.
+   */
+  private static java.util.List<LazyTerm> encodings(Term term) throws Exception {
+    Atom[] refs = {Atom.OK, REPLY, Atom.of("key"), Atom.of("node@host")};
+    TermEncoder cached =
+        new TermEncoder().withAtomCacheRefs(atom -> java.util.Arrays.asList(refs).indexOf(atom));
+    ByteBuffer buffer = ByteBuffer.allocate(cached.encodedSizeWithoutVersion(term));
+    cached.encodeWithoutVersion(term, buffer);
+    return java.util.List.of(
+        LazyTerm.of(term.encode()),
+        LazyTerm.of(compressed(term)),
+        LazyTerm.withoutVersion(buffer, 0, new TermDecoder().withAtomCacheRefs(refs)));
+  }
+
+  /** Returns {@code term} in the {@code COMPRESSED} form, which encoders skip for small terms. */
+  private static byte[] compressed(Term term) {
+    byte[] encoded = term.encode();
+    Deflater deflater = new Deflater();
+    deflater.setInput(encoded, 1, encoded.length - 1);
+    deflater.finish();
+    byte[] deflated = new byte[encoded.length + 64];
+    int length = deflater.deflate(deflated);
+    deflater.end();
+    return ByteBuffer.allocate(6 + length)
+        .put((byte) EtfConstants.VERSION_TAG)
+        .put((byte) EtfConstants.COMPRESSED)
+        .putInt(encoded.length - 1)
+        .put(deflated, 0, length)
+        .array();
+  }
+
+  private static Object labelOf(Matcher<Object, java.util.List<Object>> matcher, Term term) {
+    java.util.List<Object> result = matcher.dispatch(term, null);
+    assertThat(matcher.matches(term)).isEqualTo(result != null);
+    return result == null ? null : result.get(0);
+  }
+
+  /** Returns the label of the first pattern, in {@code order}, that matches on its own. */
+  private static Object linearScan(
+      java.util.List<Matcher<Object, java.util.List<Object>>> alone,
+      java.util.List<Integer> order,
+      Term term) {
+    for (int i = 0; i < order.size(); i++) {
+      if (alone.get(order.get(i)).matches(term)) {
+        return String.valueOf(i);
+      }
+    }
+    return null;
+  }
+
+  private static java.util.List<java.util.List<Integer>> permutations(int n) {
+    java.util.List<java.util.List<Integer>> permutations = new ArrayList<>();
+    permute(new ArrayList<>(), n, permutations);
+    return permutations;
+  }
+
+  private static void permute(
+      java.util.List<Integer> prefix, int n, java.util.List<java.util.List<Integer>> out) {
+    if (prefix.size() == n) {
+      out.add(java.util.List.copyOf(prefix));
+      return;
+    }
+    for (int i = 0; i < n; i++) {
+      if (!prefix.contains(i)) {
+        prefix.add(i);
+        permute(prefix, n, out);
+        prefix.remove(prefix.size() - 1);
+      }
+    }
+  }
+}
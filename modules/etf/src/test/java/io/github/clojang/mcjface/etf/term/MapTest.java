@@ -0,0 +1,238 @@
+package io.github.clojang.mcjface.etf.term;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link Map}, in both its flat and {@link HashTrie} forms, against a {@link HashMap} over
+ * random sequences of puts and removes.
+ */
+public class MapTest {
+  private static final int COLLIDING = 16;
+
+  /**
+   * Returns the keys the random operations draw from: integers, atoms, and binaries that all have
+   * the same hash code, as "Aa" and "BB" do.
+   */
+  private static java.util.List<Term> keys() {
+    java.util.List<Term> keys = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      keys.add(Number.of(i));
+      keys.add(Atom.of("key_" + i));
+    }
+    keys.addAll(colliding());
+    return keys;
+  }
+
+  private static java.util.List<Term> colliding() {
+    java.util.List<Term> keys = new ArrayList<>();
+    for (int i = 0; i < COLLIDING; i++) {
+      StringBuilder text = new StringBuilder();
+      for (int bit = 0; bit < 4; bit++) {
+        text.append((i >> bit & 1) == 0 ? "Aa" : "BB");
+      }
+      keys.add(Binary.wrap(text.toString().getBytes(StandardCharsets.US_ASCII)));
+    }
+    return keys;
+  }
+
+  @Test
+  void testCollidingKeysHaveTheSameHash() {
+    for (Term key : colliding()) {
+      assertThat(key.hashCode()).isEqualTo(colliding().get(0).hashCode());
+    }
+  }
+
+  @Test
+  void testRandomOperationsMatchHashMap() {
+    java.util.List<Term> keys = keys();
+    for (long seed = 0; seed < 10; seed++) {
+      Random random = new Random(seed);
+      Map map = Map.of();
+      java.util.Map<Term, Term> model = new HashMap<>();
+      for (int step = 0; step < 2000; step++) {
+        // Alternate between growing well past the flat size and shrinking back below it
+        boolean growing = step / 200 % 2 == 0;
+        Term key = keys.get(random.nextInt(keys.size()));
+        Map before = map;
+        java.util.Map<Term, Term> modelBefore = new HashMap<>(model);
+        if (random.nextInt(10) < (growing ? 8 : 2)) {
+          Term value = Number.of(random.nextInt(4));
+          map = map.put(key, value);
+          model.put(key, value);
+        } else {
+          map = map.remove(key);
+          model.remove(key);
+        }
+        assertMatches(map, model, keys);
+        // The map before the operation is unchanged
+        assertMatches(before, modelBefore, keys);
+      }
+    }
+  }
+
+  @Test
+  void testShrinkingBelowFlatSizeFlattens() {
+    java.util.List<Term> keys = keys();
+    Map map = Map.of();
+    java.util.Map<Term, Term> model = new HashMap<>();
+    for (Term key : keys) {
+      map = map.put(key, key);
+      model.put(key, key);
+      assertMatches(map, model, keys);
+    }
+    Collections.shuffle(keys, new Random(1));
+    for (Term key : keys) {
+      map = map.remove(key);
+      model.remove(key);
+      assertMatches(map, model, keys);
+    }
+    assertThat(map).isSameAs(Map.of());
+  }
+
+  @Test
+  void testCollidingKeysInATrie() {
+    java.util.List<Term> keys = keys();
+    java.util.List<Term> colliding = colliding();
+    Map.Builder builder = Map.builder(0);
+    java.util.Map<Term, Term> model = new HashMap<>();
+    for (int i = 0; i < 40; i++) {
+      builder.put(Number.of(i), Atom.OK);
+      model.put(Number.of(i), Atom.OK);
+    }
+    for (Term key : colliding) {
+      builder.put(key, key);
+      model.put(key, key);
+    }
+    Map map = builder.build();
+    assertMatches(map, model, keys);
+
+    // Replace, then remove, the colliding keys one at a time, in a different order
+    Collections.shuffle(colliding, new Random(2));
+    for (Term key : colliding) {
+      map = map.put(key, Atom.ERROR);
+      model.put(key, Atom.ERROR);
+      assertMatches(map, model, keys);
+    }
+    for (Term key : colliding) {
+      Map removed = map.remove(key);
+      assertThat(removed.remove(key)).isSameAs(removed);
+      map = removed;
+      model.remove(key);
+      assertMatches(map, model, keys);
+    }
+  }
+
+  @Test
+  void testBuilderRejectsReuseAfterBuild() {
+    for (int expected : new int[] {2, Map.MAX_FLAT_SIZE + 1}) {
+      Map.Builder builder = Map.builder(expected);
+      builder.put(Atom.OK, Number.of(1)).put(Atom.ERROR, Number.of(2));
+      Map built = builder.build();
+
+      assertThatThrownBy(() -> builder.put(Atom.UNDEFINED, Number.of(3)))
+          .isInstanceOf(IllegalStateException.class);
+      assertThatThrownBy(builder::build).isInstanceOf(IllegalStateException.class);
+      assertThat(built).isEqualTo(Map.of(Atom.OK, Number.of(1), Atom.ERROR, Number.of(2)));
+      assertThat(built.trie()).isNull();
+    }
+  }
+
+  @Test
+  void testBuiltMapsAreNotChangedByLaterPuts() {
+    java.util.List<Term> keys = keys();
+    Map.Builder builder = Map.builder(0);
+    java.util.Map<Term, Term> model = new HashMap<>();
+    for (Term key : keys) {
+      builder.put(key, key);
+      model.put(key, key);
+    }
+    Map built = builder.build();
+    // Puts on the built map must copy the trie nodes the builder edited in place
+    Map updated = built;
+    for (Term key : keys) {
+      updated = updated.put(key, Atom.OK).remove(Atom.of("key_0"));
+    }
+    assertThat(updated.containsKey(Atom.of("key_0"))).isFalse();
+    assertMatches(built, model, keys);
+  }
+
+  @Test
+  void testEqualityAndHashAgreeAcrossForms() {
+    java.util.List<Term> keys = keys();
+    Random random = new Random(3);
+    for (int size = 0; size <= Map.MAX_FLAT_SIZE + 8; size++) {
+      Collections.shuffle(keys, random);
+      java.util.Map<Term, Term> model = new HashMap<>();
+      for (Term key : keys.subList(0, size)) {
+        model.put(key, Number.of(key.hashCode() & 0xFF));
+      }
+
+      java.util.List<Map> maps = new ArrayList<>();
+      maps.add(new Map(model));
+      Map.Builder small = Map.builder(0);
+      Map.Builder large = Map.builder(keys.size());
+      Map chained = Map.of();
+      Map shrunk = Map.of();
+      for (Term key : keys) {
+        shrunk = shrunk.put(key, model.getOrDefault(key, Atom.OK));
+      }
+      java.util.List<Term> order = new ArrayList<>(model.keySet());
+      Collections.shuffle(order, random);
+      for (Term key : order) {
+        small.put(key, model.get(key));
+        large.put(key, model.get(key));
+        chained = chained.put(key, model.get(key));
+      }
+      for (Term key : keys) {
+        if (!model.containsKey(key)) {
+          shrunk = shrunk.remove(key);
+        }
+      }
+      maps.add(small.build());
+      maps.add(large.build());
+      maps.add(chained);
+      maps.add(shrunk);
+
+      for (Map map : maps) {
+        assertMatches(map, model, keys);
+        for (Map other : maps) {
+          assertThat(map).isEqualTo(other);
+          assertThat(map.hashCode()).isEqualTo(other.hashCode());
+        }
+        if (size > 0) {
+          Term key = order.get(0);
+          assertThat(map.equals(map.put(key, Atom.of("other")))).isFalse();
+        }
+      }
+    }
+  }
+
+  private static void assertMatches(
+      Map map, java.util.Map<Term, Term> model, java.util.List<Term> keys) {
+    assertThat(map.size()).isEqualTo(model.size());
+    assertThat(map.isEmpty()).isEqualTo(model.isEmpty());
+    assertThat(map.trie() == null)
+        .as("flat at size %d", map.size())
+        .isEqualTo(map.size() <= Map.MAX_FLAT_SIZE);
+    for (Term key : keys) {
+      assertThat(map.containsKey(key)).isEqualTo(model.containsKey(key));
+      assertThat(map.getOrDefault(key, null)).isEqualTo(model.get(key));
+    }
+    assertThat(map.asMap()).isEqualTo(model);
+    assertThat(map.entries()).isEqualTo(model);
+    assertThat(map.keySet()).isEqualTo(model.keySet());
+    java.util.Map<Term, Term> visited = new HashMap<>();
+    map.forEach(visited::put);
+    assertThat(visited).isEqualTo(model);
+    assertThat(map.hashCode()).isEqualTo(model.hashCode());
+    assertThat(map).isEqualTo(new Map(model));
+  }
+}
@@ -0,0 +1,201 @@
+package io.github.clojang.mcjface.etf.term;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Checks {@link TermOrder} against the cases the Erlang reference manual documents. */
+public class TermOrderTest {
+  private static Term binary(String text) {
+    return Binary.wrap(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Term floating(double value) {
+    return new Number.Double(value);
+  }
+
+  private static Reference reference(String node, long... ids) {
+    return new Reference(node, 1, ids);
+  }
+
+  /** Asserts that {@code terms} are in strictly ascending order, compared pairwise both ways. */
+  private static void assertAscending(TermOrder order, Term... terms) {
+    for (int i = 0; i < terms.length; i++) {
+      assertThat(order.compare(terms[i], terms[i])).isEqualTo(0);
+      for (int j = i + 1; j < terms.length; j++) {
+        assertThat(Integer.signum(order.compare(terms[i], terms[j])))
+            .as("%s < %s", terms[i], terms[j])
+            .isEqualTo(-1);
+        assertThat(Integer.signum(order.compare(terms[j], terms[i])))
+            .as("%s > %s", terms[j], terms[i])
+            .isEqualTo(1);
+      }
+    }
+  }
+
+  @Test
+  void testIntegersAndFloats() {
+    // 1 < 1.0 and 1.0 < 1 are both false, as 1 == 1.0
+    assertThat(TermOrder.STANDARD.compare(Number.of(1), floating(1.0))).isEqualTo(0);
+    assertThat(TermOrder.STANDARD.compare(floating(-0.0), floating(0.0))).isEqualTo(0);
+    assertAscending(TermOrder.STANDARD, Number.of(1), floating(1.5), Number.of(2));
+    assertAscending(
+        TermOrder.STANDARD,
+        floating(-1e30),
+        Number.of(java.math.BigInteger.ONE.shiftLeft(70).negate()),
+        Number.of(Long.MIN_VALUE),
+        floating(0.5),
+        Number.of(Long.MAX_VALUE),
+        floating(0x1p63),
+        Number.of(java.math.BigInteger.ONE.shiftLeft(70)),
+        floating(1e30));
+
+    // As map keys every integer sorts before every float, and -0.0 before 0.0
+    assertAscending(
+        TermOrder.MAP_KEYS,
+        Number.of(1),
+        Number.of(2),
+        Number.of(java.math.BigInteger.ONE.shiftLeft(70)),
+        floating(-1.0),
+        floating(-0.0),
+        floating(0.0),
+        floating(1.0));
+
+    Map map = Map.of(Number.of(1), Atom.of("integer"), floating(1.0), Atom.of("float"));
+    assertThat(map.size()).isEqualTo(2);
+    assertThat(map.get(Number.of(1))).isEqualTo(Optional.of(Atom.of("integer")));
+    assertThat(map.get(floating(1.0))).isEqualTo(Optional.of(Atom.of("float")));
+  }
+
+  @Test
+  void testTypeOrder() {
+    // number < atom < reference < port < pid < tuple < map < nil < list < bitstring; funs are
+    // not terms here
+    Term[] types = {
+      Number.of(java.math.BigInteger.ONE.shiftLeft(100)),
+      Atom.of(""),
+      reference("a@host", 0),
+      new Port("a@host", 0, 1),
+      new Pid("a@host", 0, 0, 1),
+      Tuple.of(),
+      Map.of(),
+      List.empty(),
+      List.of(Number.of(0)),
+      binary(""),
+    };
+    assertAscending(TermOrder.STANDARD, types);
+    assertAscending(TermOrder.MAP_KEYS, types);
+
+    // The type decides before anything inside the terms does
+    assertAscending(
+        TermOrder.STANDARD,
+        floating(Double.MAX_VALUE),
+        Atom.of("zzz"),
+        Tuple.of(Atom.OK, Atom.OK, Atom.OK),
+        Map.of(Atom.OK, Atom.OK),
+        List.empty(),
+        List.cons(Atom.OK, Atom.OK),
+        binary("a"));
+  }
+
+  @Test
+  void testReferences() {
+    // Within a node, more ids sort after fewer, and ids compare from the last word down
+    assertAscending(
+        TermOrder.STANDARD,
+        reference("a@host", 9),
+        reference("a@host", 9, 1, 1),
+        reference("a@host", 1, 2, 1),
+        reference("a@host", 2, 2, 1),
+        reference("a@host", 0, 0, 2),
+        reference("b@host", 0));
+    assertAscending(
+        TermOrder.STANDARD,
+        new Reference("a@host", 1, new long[] {5}),
+        new Reference("a@host", 2, new long[] {4}));
+  }
+
+  @Test
+  void testCompoundTerms() {
+    // Tuples by arity first, maps by size, then keys, then values
+    assertAscending(
+        TermOrder.STANDARD,
+        Tuple.of(Atom.of("z")),
+        Tuple.of(Atom.of("a"), Atom.of("a")),
+        Tuple.of(Atom.of("a"), Atom.of("b")));
+    assertAscending(
+        TermOrder.STANDARD,
+        Map.of(Atom.of("z"), Number.of(9)),
+        Map.of(Number.of(1), Number.of(2), Atom.of("a"), Number.of(1)),
+        Map.of(Number.of(1), Number.of(3), Atom.of("a"), Number.of(0)),
+        Map.of(floating(1.0), Number.of(0), Atom.of("a"), Number.of(0)));
+    // Map keys compare exactly, even in the standard order
+    assertAscending(
+        TermOrder.STANDARD, Map.of(Number.of(1), Atom.OK), Map.of(floating(1.0), Atom.OK));
+
+    // Lists cell by cell, so a tail compares with the rest of the other list by type first
+    assertAscending(
+        TermOrder.STANDARD,
+        List.cons(Number.of(1), Atom.OK),
+        List.of(Number.of(1)),
+        List.of(Number.of(1), Number.of(2)),
+        List.of(Number.of(1), Number.of(2), Number.of(3)),
+        List.cons(Number.of(1), binary("")),
+        List.of(Number.of(2)));
+    assertAscending(TermOrder.STANDARD, binary(""), binary("a"), binary("ab"), binary("b"));
+  }
+
+  @Test
+  void testFlatMapsIterateInMapKeysOrder() {
+    java.util.List<Term> keys = new ArrayList<>();
+    Collections.addAll(
+        keys,
+        Number.of(-3),
+        Number.of(1),
+        Number.of(java.math.BigInteger.ONE.shiftLeft(80)),
+        floating(-0.0),
+        floating(0.0),
+        floating(1.0),
+        Atom.of("a"),
+        Atom.of("b"),
+        reference("a@host", 1),
+        new Pid("a@host", 1, 0, 1),
+        Tuple.of(Atom.OK),
+        Map.of(),
+        List.empty(),
+        List.of(Atom.OK),
+        binary("a"));
+    java.util.List<Term> sorted = new ArrayList<>(keys);
+    sorted.sort(TermOrder.MAP_KEYS);
+    assertThat(sorted).isEqualTo(keys);
+
+    Random random = new Random(7);
+    for (int round = 0; round < 20; round++) {
+      java.util.List<Term> shuffled = new ArrayList<>(keys);
+      Collections.shuffle(shuffled, random);
+      Map.Builder builder = Map.builder(shuffled.size());
+      Map map = Map.of();
+      for (Term key : shuffled) {
+        builder.put(key, Number.of(keys.indexOf(key)));
+        map = map.put(key, Number.of(keys.indexOf(key)));
+      }
+
+      for (Map built : new Map[] {builder.build(), map}) {
+        assertThat(built.size()).isEqualTo(keys.size());
+        assertThat(new ArrayList<>(built.asMap().keySet())).isEqualTo(keys);
+        java.util.List<Term> visited = new ArrayList<>();
+        built.forEach(
+            (key, value) -> {
+              assertThat(value).isEqualTo(Number.of(visited.size()));
+              visited.add(key);
+            });
+        assertThat(visited).isEqualTo(keys);
+      }
+    }
+  }
+}
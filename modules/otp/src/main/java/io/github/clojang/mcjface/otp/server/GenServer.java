@@ -1,11 +1,15 @@
 package io.github.clojang.mcjface.otp.server;
 
 import io.github.clojang.mcjface.core.process.ProcessId;
+import io.github.clojang.mcjface.etf.match.Matcher;
+import io.github.clojang.mcjface.etf.term.Atom;
 import io.github.clojang.mcjface.etf.term.Term;
+import io.github.clojang.mcjface.etf.term.Tuple;
 import io.github.clojang.mcjface.otp.process.Process;
 import java.util.List;
 
 public abstract class GenServer implements Process {
+  private static final Atom BAD_CALL = Atom.of("bad_call");
 
   protected abstract InitResult init(List<Term> args);
 
@@ -19,6 +23,28 @@ public abstract class GenServer implements Process {
     // Default empty implementation
   }
 
+  /** Starts the clauses for {@link #dispatchCall}, typically built once into a static field. */
+  protected static Matcher.Builder<Call, CallResult> callClauses() {
+    return Matcher.builder();
+  }
+
+  /**
+   * Handles a call with the first of {@code clauses} whose pattern matches the request, for use as
+   * the body of {@link #handleCall}. A request no clause matches stops the server with reason
+   * {@code {bad_call, Request}}. Clause actions must not return null.
+   */
+  protected static CallResult dispatchCall(
+      Matcher<Call, CallResult> clauses, Term request, ProcessId from, Object state) {
+    Matcher.Match<Call, CallResult> match = clauses.select(request);
+    if (match == null) {
+      return CallResult.stop(Tuple.of(BAD_CALL, request), state);
+    }
+    return match.run(new Call(from, state));
+  }
+
+  /** The caller and current state of a call, passed to the clauses of {@link #dispatchCall}. */
+  public record Call(ProcessId from, Object state) {}
+
   public sealed interface InitResult {
     record Ok(Object state) implements InitResult {}
 